@@ -18,7 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
 import org.apache.logging.log4j.*;
 
 /**
@@ -33,6 +32,16 @@ public
         Logger logger =
         LogManager.getLogger(ArithmeticalDoubleCrossover.class);
 
+    private final static ThreadLocal<double[][]> scratch =
+        new ThreadLocal<double[][]>()
+        {
+            @Override
+            protected double[][] initialValue()
+            {
+                return new double[3][];
+            }
+        };
+
     /**
      * Performs recombination of parents to produce children using arithmetical
      * crossover.
@@ -47,7 +56,7 @@ public
         void recombine(Individual parent1, Individual parent2,
         Individual child1, Individual child2)
     {
-        if (MersenneTwisterFast.getInstance().nextDouble()
+        if (RandomSource.current().nextDouble()
             > parent2.getProbRecombination())
         {
             if (child1 != null)
@@ -72,34 +81,35 @@ public
                 System.exit(1);
             }
 
-            boy.setEvaluated(false);
-            girl.setEvaluated(false);
+            double a = RandomSource.current().nextDouble();
 
-            if (!(boy == null))
+            //  Unbox once and blend the primitive arrays, which are reused by
+            //  the calling thread.
+            int n = mom.getGenotypeSize();
+            double[][] arrays = scratch.get();
+            double[] momValues = arrays[0] =
+                DoubleArrayOps.toArray(mom.getGenotypeValues(), arrays[0]);
+            double[] dadValues = arrays[1] =
+                DoubleArrayOps.toArray(dad.getGenotypeValues(), arrays[1]);
+            if (arrays[2] == null || arrays[2].length < n)
             {
-                boy.getGenotype().clear();
+                arrays[2] = new double[n];
             }
-            if (!(girl == null))
+            double[] values = arrays[2];
+
+            if (boy != null)
             {
-                girl.getGenotype().clear();
+                DoubleArrayOps.blend(a, momValues, dadValues, values, n);
+                DoubleArrayOps.setAll(boy.getGenotype(), values, n);
+                boy.setEvaluated(false);
+                boy.invalidateGenotypeHash();
             }
-
-            double a = MersenneTwisterFast.getInstance().nextDouble();
-
-            for (int i = 0; i < mom.getGenotype().size(); i++)
+            if (girl != null)
             {
-                Double momValue = (Double) mom.getValue(i);
-                Double dadValue = (Double) dad.getValue(i);
-
-                Double c1;
-
-                Double c2;
-
-                c1 = a * momValue + (1. - a) * dadValue;
-                c2 = a * dadValue + (1. - a) * momValue;
-
-                boy.getGenotype().add(c1);
-                girl.getGenotype().add(c2);
+                DoubleArrayOps.blend(a, dadValues, momValues, values, n);
+                DoubleArrayOps.setAll(girl.getGenotype(), values, n);
+                girl.setEvaluated(false);
+                girl.invalidateGenotypeHash();
             }
         }
     }
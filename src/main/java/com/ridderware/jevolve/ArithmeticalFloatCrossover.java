@@ -18,7 +18,7 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
+import java.util.ArrayList;
 import org.apache.logging.log4j.*;
 
 /**
@@ -47,7 +47,7 @@ public
         void recombine(Individual parent1, Individual parent2,
         Individual child1, Individual child2)
     {
-        if (MersenneTwisterFast.getInstance().nextDouble()
+        if (RandomSource.current().nextDouble()
             > parent2.getProbRecombination())
         {
             if (child1 != null)
@@ -73,20 +73,16 @@ public
             }
 
             boy.setEvaluated(false);
+            boy.invalidateGenotypeHash();
             girl.setEvaluated(false);
+            girl.invalidateGenotypeHash();
 
-            if (!(boy == null))
-            {
-                boy.getGenotype().clear();
-            }
-            if (!(girl == null))
-            {
-                girl.getGenotype().clear();
-            }
+            ArrayList<Float> boyGenotype = boy.clearGenotype();
+            ArrayList<Float> girlGenotype = girl.clearGenotype();
 
-            float a = MersenneTwisterFast.getInstance().nextFloat();
+            float a = RandomSource.current().nextFloat();
 
-            for (int i = 0; i < mom.getGenotype().size(); i++)
+            for (int i = 0; i < mom.getGenotypeSize(); i++)
             {
                 Float momValue = (Float) mom.getValue(i);
                 Float dadValue = (Float) dad.getValue(i);
@@ -98,8 +94,8 @@ public
                 c1 = a * momValue + (1.F - a) * dadValue;
                 c2 = a * dadValue + (1.F - a) * momValue;
 
-                boy.getGenotype().add(c1);
-                girl.getGenotype().add(c2);
+                boyGenotype.add(c1);
+                girlGenotype.add(c2);
             }
         }
     }
@@ -18,6 +18,13 @@
  */
 package com.ridderware.jevolve;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 /**
  *  A breeder is responsible for producing the next generation of individuals
  *  from a parent population. The breeder performs all aspects of replacement,
@@ -26,6 +33,17 @@ package com.ridderware.jevolve;
  *  output (generational evolution). However, steady state evolution would use
  *  only a single population, replacing some of its individuals with newly
  *  produced children and ignoring the child_pop parameter.
+ *  <P>
+ *  Breeders that produce independent pairs of offspring may breed them in
+ *  parallel (see {@link #setParallelism}).  In a seeded run (see
+ *  Stepper.setSeed), pairs are always split into fixed-size chunks, and each
+ *  chunk draws from its own random stream and its own block of individual IDs,
+ *  so the result depends on the seed but not on the number of threads, even
+ *  one, or their scheduling.  The threads are released by shutdown, which the
+ *  stepper calls at the end of a run.  Operators used in parallel mode
+ *  must not modify shared state: in particular, HotSpotChunkCrossover updates
+ *  the hot spots of the parents, so it is not safe to use with a parallelism
+ *  above 1.
  *
  * @author Jeff Ridder
  */
@@ -37,6 +55,24 @@ public abstract class Breeder
 
     private Mutator mutator;
 
+    private Population mating_pool;
+
+    private int parallelism = 1;
+
+    private ForkJoinPool pool;
+
+    /**
+     * Number of offspring pairs bred from one random stream in parallel mode.
+     */
+    protected final static int PAIRS_PER_CHUNK = 8;
+
+    /**
+     * Number of individual IDs reserved per offspring pair in parallel mode.
+     * A pair that allocates more than this simply continues with IDs from
+     * the shared counter.
+     */
+    protected final static int IDS_PER_PAIR = 16;
+
     /**
      * Creates a new instance of Breeder.
      */
@@ -122,6 +158,188 @@ public abstract class Breeder
         return this.mutator;
     }
 
+    /**
+     * Sets the number of threads used to breed offspring pairs.  A value of 1
+     * (the default) breeds on the calling thread.  A seeded run gives the same
+     * result for any value.
+     *
+     * @param  parallelism number of breeding threads.
+     */
+    public void setParallelism(int parallelism)
+    {
+        parallelism = Math.max(1, parallelism);
+
+        if (parallelism != this.parallelism && pool != null)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the number of threads used to breed offspring pairs.
+     *
+     * @return number of breeding threads.
+     */
+    public int getParallelism()
+    {
+        return this.parallelism;
+    }
+
+    /**
+     * Stops the breeding threads, if any.  They are started again if the
+     * breeder is used after this.
+     */
+    public void shutdown()
+    {
+        if (pool != null)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Breeds num_pairs offspring pairs using the specified task.  If the current
+     * random source is seeded, or the breeder is parallel, a seed is drawn from
+     * the current random source and the pairs are bred in chunks of
+     * PAIRS_PER_CHUNK, each chunk with a random stream derived from the seed and
+     * the chunk index.  The chunks are bred on the calling thread if the
+     * parallelism is 1 or there is only one.  An unseeded serial breeder breeds
+     * the pairs in order on the calling thread using the current random source.
+     *
+     * @param  num_pairs number of offspring pairs.
+     * @param  task task that breeds a single pair.
+     */
+    protected void breedPairs(int num_pairs, final PairTask task)
+    {
+        if (!RandomSource.current().isSeeded() &&
+            (parallelism <= 1 || num_pairs <= PAIRS_PER_CHUNK))
+        {
+            for (int i = 0; i < num_pairs; i++)
+            {
+                task.breed(i);
+            }
+            return;
+        }
+
+        final long seed = RandomSource.current().nextLong();
+        final long first_id = Individual.reserveIDs((long)num_pairs * IDS_PER_PAIR);
+
+        List<Callable<Object>> chunks = new ArrayList<Callable<Object>>();
+        for (int c = 0; c * PAIRS_PER_CHUNK < num_pairs; c++)
+        {
+            final int chunk = c;
+            final int start = c * PAIRS_PER_CHUNK;
+            final int end = Math.min(num_pairs, start + PAIRS_PER_CHUNK);
+
+            chunks.add(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    RandomSource previous =
+                        RandomSource.setCurrent(RandomSource.create(seed, chunk));
+                    Individual.setIDBlock(first_id + (long)start * IDS_PER_PAIR,
+                        (long)(end - start) * IDS_PER_PAIR);
+                    try
+                    {
+                        for (int i = start; i < end; i++)
+                        {
+                            task.breed(i);
+                        }
+                    }
+                    finally
+                    {
+                        Individual.setIDBlock(0, 0);
+                        RandomSource.setCurrent(previous);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        if (parallelism <= 1 || chunks.size() == 1)
+        {
+            for (Callable<Object> chunk : chunks)
+            {
+                try
+                {
+                    chunk.call();
+                }
+                catch (RuntimeException ex)
+                {
+                    throw ex;
+                }
+                catch (Exception ex)
+                {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            return;
+        }
+
+        if (pool == null)
+        {
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        try
+        {
+            for (Future<Object> f : pool.invokeAll(chunks))
+            {
+                f.get();
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Breeding interrupted", ex);
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Returns a mating pool containing the first num individuals of the specified
+     * population.  The individuals are shared with the population rather than
+     * cloned, so breeders must not overwrite them while the pool is in use.  The
+     * same pool object is reused from one generation to the next.
+     *
+     * @param  pop population whose leading individuals make up the pool.
+     * @param  num number of individuals in the pool.
+     * @return mating pool.
+     */
+    protected Population getMatingPool(Population pop, int num)
+    {
+        if (mating_pool == null || mating_pool.getPrototype() != pop.getPrototype())
+        {
+            mating_pool = new Population(pop.getPrototype());
+        }
+
+        num = Math.min(num, pop.getPopulationSize());
+
+        mating_pool.setProblem(pop.getProblem());
+        mating_pool.setMaxPopulationSize(num);
+        mating_pool.getIndividuals().clear();
+        mating_pool.getIndividuals().addAll(pop.getIndividuals().subList(0, num));
+        mating_pool.invalidateStatistics();
+
+        return mating_pool;
+    }
+
     /**
      * Breeds the next generation of individuals using the selection, recombination,
      * and mutation operators.
@@ -131,5 +349,20 @@ public abstract class Breeder
      */
     public abstract void breedNextGeneration(Population parent_pop,
         Population child_pop);
+
+    /**
+     * Breeds a single offspring pair.  Implementations are called concurrently
+     * in parallel mode and must only write to the offspring slots of their own
+     * pair.
+     */
+    protected abstract static class PairTask
+    {
+        /**
+         * Breeds the offspring pair with the specified index.
+         *
+         * @param  pair index of the pair.
+         */
+        public abstract void breed(int pair);
+    }
 }
 
@@ -0,0 +1,181 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * An evaluator that puts a PersistentEvaluationCache in front of another
+ * evaluator.  Constraint and fitness evaluation are skipped for individuals whose
+ * genotype is found in the cache, and the results of real evaluations are stored
+ * in it.  Pre- and post-evaluation are always passed through to the wrapped
+ * evaluator.
+ * <p>
+ * Results are stored once an individual has had both its constraints and fitness
+ * evaluated, so problems that evaluate an individual's constraints only (e.g.,
+ * for feasibility checks during breeding) simply don't populate the cache.  Each
+ * thread should have its own CachingEvaluator, but they may share the cache.
+ * Incremental evaluation is passed through if the wrapped evaluator supports it.
+ *
+ * @author Jeff Ridder
+ */
+public class CachingEvaluator implements IncrementalEvaluatorInterface
+{
+    private EvaluatorInterface evaluator;
+
+    private PersistentEvaluationCache cache;
+
+    private Individual cached;
+
+    private Individual pending;
+
+    /**
+     * Creates a new instance of CachingEvaluator.
+     *
+     * @param  evaluator evaluator whose results are cached.
+     * @param  cache cache of evaluation results.
+     */
+    public CachingEvaluator(EvaluatorInterface evaluator,
+        PersistentEvaluationCache cache)
+    {
+        this.evaluator = evaluator;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the wrapped evaluator.
+     *
+     * @return evaluator.
+     */
+    public EvaluatorInterface getEvaluator()
+    {
+        return this.evaluator;
+    }
+
+    /**
+     * Returns the cache.
+     *
+     * @return cache.
+     */
+    public PersistentEvaluationCache getCache()
+    {
+        return this.cache;
+    }
+
+    /**
+     * Passes the population to the wrapped evaluator for pre-evaluation.
+     *
+     * @param  pop population to be pre-evaluated.
+     */
+    @Override
+    public void preevaluate(Population pop)
+    {
+        evaluator.preevaluate(pop);
+    }
+
+    /**
+     * Sets the constraint error, fitness and success of the individual from the
+     * cache if it is found there, otherwise evaluates its constraints with the
+     * wrapped evaluator.
+     *
+     * @param  ind individual to be evaluated for constraint error.
+     */
+    @Override
+    public void evaluateConstraints(Individual ind)
+    {
+        if (cache.lookup(ind))
+        {
+            cached = ind;
+            pending = null;
+        }
+        else
+        {
+            cached = null;
+            evaluator.evaluateConstraints(ind);
+            pending = ind;
+        }
+    }
+
+    /**
+     * Evaluates the fitness of the individual with the wrapped evaluator unless
+     * it was already found in the cache, and stores the results.
+     *
+     * @param  ind individual to be evaluated for fitness.
+     */
+    @Override
+    public void evaluateFitness(Individual ind)
+    {
+        if (ind == cached)
+        {
+            cached = null;
+            return;
+        }
+
+        evaluator.evaluateFitness(ind);
+
+        if (ind == pending)
+        {
+            cache.store(ind);
+        }
+        pending = null;
+    }
+
+    /**
+     * Evaluates the fitness of the individual incrementally with the wrapped
+     * evaluator unless it was already found in the cache, and stores the results.
+     *
+     * @param  ind individual to be evaluated for fitness.
+     * @param  changes changes made to the individual since its base was evaluated.
+     * @return true if the fitness was evaluated, false if the wrapped evaluator
+     *      needs a full evaluation.
+     */
+    @Override
+    public boolean evaluateFitness(Individual ind, ChangeSet changes)
+    {
+        if (ind == cached)
+        {
+            cached = null;
+            return true;
+        }
+
+        if (!(evaluator instanceof IncrementalEvaluatorInterface) ||
+            !((IncrementalEvaluatorInterface) evaluator).evaluateFitness(ind,
+            changes))
+        {
+            return false;
+        }
+
+        if (ind == pending)
+        {
+            cache.store(ind);
+        }
+        pending = null;
+
+        return true;
+    }
+
+    /**
+     * Passes the population to the wrapped evaluator for post-evaluation.
+     *
+     * @param  pop population to be post-evaluated.
+     */
+    @Override
+    public void postevaluate(Population pop)
+    {
+        evaluator.postevaluate(pop);
+    }
+}
@@ -18,9 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-import java.util.ArrayList;
-import java.util.HashSet;
 import org.apache.logging.log4j.*;
 
 /**
@@ -109,42 +106,86 @@ public class CascadingTournamentSelection extends Selector
      */
     public Individual select(Population pop)
     {
+        checkTournamentSize(pop);
 
-        HashSet<Integer> selectedIndexes = new HashSet<Integer>();
+        int[] indexes = sampleIndexes(pop.getPopulationSize(), tournamentSize);
 
-        if (tournamentSize > pop.getPopulationSize())
-        {
-            logger.info("\nNote: Tournament Size is Greater than Population Size. \nSetting Tournament Size to Population Size\n");
-            tournamentSize = pop.getPopulationSize();
-        }
+        return play(pop, indexes, 0);
+    }
+
+    /**
+     * Selects n individuals by playing n cascading tournaments.  If the
+     * population is large enough, the players of all n tournaments are drawn as
+     * one sample, so no individual plays in more than one of them; otherwise
+     * each tournament draws its own players, as select does.
+     *
+     * @param  pop population from which to select.
+     * @param  n number of individuals to select.
+     * @param  out array receiving the selected individuals in its first n
+     *      elements.
+     */
+    @Override
+    public void selectMany(Population pop, int n, Individual[] out)
+    {
+        checkTournamentSize(pop);
 
-        while (selectedIndexes.size() < tournamentSize)
+        if (n * tournamentSize > pop.getPopulationSize())
         {
-            selectedIndexes.add(MersenneTwisterFast.getInstance().nextInt(pop.getPopulationSize()));
+            super.selectMany(pop, n, out);
+            return;
         }
 
-        ArrayList<Integer> indexes = new ArrayList<Integer>();
+        int[] indexes =
+            sampleIndexes(pop.getPopulationSize(), n * tournamentSize);
 
-        int bob;
-
-        int sue;
+        for (int i = 0; i < n; i++)
+        {
+            out[i] = play(pop, indexes, i * tournamentSize);
+        }
+    }
 
-        int winner;
+    /**
+     * Limits the tournament size to the population size.
+     *
+     * @param  pop population from which to select.
+     */
+    private void checkTournamentSize(Population pop)
+    {
+        if (tournamentSize > pop.getPopulationSize())
+        {
+            logger.info("\nNote: Tournament Size is Greater than Population Size. \nSetting Tournament Size to Population Size\n");
+            tournamentSize = pop.getPopulationSize();
+        }
+    }
 
-        int loser;
-        while (selectedIndexes.size() != 1)
+    /**
+     * Plays a cascading tournament among the players at the specified offset
+     * in the sample.
+     *
+     * @param  pop population from which to select.
+     * @param  indexes sample of indexes.
+     * @param  offset index in the sample of the first player.
+     * @return  winner of the tournament.
+     */
+    private Individual play(Population pop, int[] indexes, int offset)
+    {
+        //  Survivors of each round are swapped to the front of the players
+        //  rather than copied, so the buffer stays a permutation.
+        int players = tournamentSize;
+        while (players > 1)
         {
-            indexes.clear();
-            indexes.addAll(selectedIndexes);
+            int survivors = 0;
 
             int i = 0;
-            while (1 < indexes.size() - i)
+            while (1 < players - i)
             {
-                bob = indexes.get(i);
-                sue = indexes.get(i + 1);
+                int bob = offset + i;
+                int sue = offset + i + 1;
 
-                if (pop.getIndividual(bob).getFitness() < pop.getIndividual(sue).
-                    getFitness())
+                int winner;
+                int loser;
+                if (pop.getIndividual(indexes[bob]).getFitness() <
+                    pop.getIndividual(indexes[sue]).getFitness())
                 {
                     winner = bob;
                     loser = sue;
@@ -156,32 +197,27 @@ public class CascadingTournamentSelection extends Selector
                 }
 
                 //toss the dice, if < k, remove loser
-                if (MersenneTwisterFast.getInstance().nextDouble() < kParam)
-                {
-                    selectedIndexes.remove(loser);
-                }
-                else
-                {
-                    selectedIndexes.remove(winner);
-                }
+                int survivor =
+                    RandomSource.current().nextDouble() < kParam ? winner : loser;
+                swap(indexes, offset + survivors++, survivor);
                 i += 2;
             }
-        }
 
-        if (selectedIndexes.size() != 1)
-        {
-            logger.error("Expected 1 individual returning from CascadingTournamentSelection, found: " +
-                selectedIndexes.size());
-            System.exit(1);
-        }
+            if (i < players)
+            {
+                swap(indexes, offset + survivors++, offset + i);
+            }
 
-        int finalWinner = -1;
-        for (Integer i : selectedIndexes)
-        {
-            finalWinner = i;
+            players = survivors;
         }
 
-        return pop.getIndividual(finalWinner);
+        return pop.getIndividual(indexes[offset]);
     }
-}
 
+    private static void swap(int[] indexes, int i, int j)
+    {
+        int temp = indexes[i];
+        indexes[i] = indexes[j];
+        indexes[j] = temp;
+    }
+}
@@ -0,0 +1,222 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * Records the changes made to an individual since it was last evaluated, or
+ * since it was copied from an evaluated individual (its base).  Each entry holds
+ * a locus and the value it had in the base, so the current genotype is the base
+ * genotype with the recorded loci changed.  Mutators that change individuals
+ * through setValue, and recombinators that copy a child from one parent and then
+ * change a few loci, record their changes automatically.  Any other change to
+ * the genotype invalidates the change set.
+ * <p>
+ * An evaluator implementing IncrementalEvaluatorInterface can use the change set
+ * together with the base fitness to compute the new fitness in time proportional
+ * to the number of changes rather than the size of the genotype.  Each locus
+ * appears at most once.  A change set that grows beyond MAX_CHANGES entries is
+ * invalidated, since a full evaluation is likely to be as cheap.
+ *
+ * @author Jeff Ridder
+ */
+public class ChangeSet
+{
+    /**
+     * Maximum number of loci recorded before the change set is invalidated.
+     */
+    public final static int MAX_CHANGES = 256;
+
+    private int[] loci = new int[8];
+
+    private Object[] old_values = new Object[8];
+
+    private int size;
+
+    private double[] base_fitness = new double[1];
+
+    private double base_constraint_error;
+
+    private boolean valid;
+
+    /**
+     * Creates a new, invalid, instance of ChangeSet.
+     */
+    public ChangeSet()
+    {
+        this.size = 0;
+        this.valid = false;
+    }
+
+    /**
+     * Empties the change set and takes the fitness of the specified individual
+     * as the base.  The change set is valid only if the base has been evaluated.
+     *
+     * @param  base individual whose genotype and fitness are the new base.
+     */
+    void reset(Individual base)
+    {
+        clearValues();
+        this.size = 0;
+        this.valid = base.getEvaluated();
+
+        if (valid)
+        {
+            int n = base.getNumObjectives();
+            if (base_fitness.length != n)
+            {
+                base_fitness = new double[n];
+            }
+            for (int i = 0; i < n; i++)
+            {
+                base_fitness[i] = base.getFitness(i);
+            }
+            base_constraint_error = base.getConstraintError();
+        }
+    }
+
+    /**
+     * Invalidates the change set, e.g., after a change that could not be
+     * recorded.
+     */
+    void invalidate()
+    {
+        clearValues();
+        this.size = 0;
+        this.valid = false;
+    }
+
+    /**
+     * Records a change to the specified locus.  Nothing is recorded if the locus
+     * has already been changed, since its base value is already known.
+     *
+     * @param  locus index of the changed value.
+     * @param  old_value value of the locus before the change.
+     */
+    void add(int locus, Object old_value)
+    {
+        if (!valid)
+        {
+            return;
+        }
+
+        for (int i = 0; i < size; i++)
+        {
+            if (loci[i] == locus)
+            {
+                return;
+            }
+        }
+
+        if (size == MAX_CHANGES)
+        {
+            invalidate();
+            return;
+        }
+
+        if (size == loci.length)
+        {
+            int capacity = Math.min(MAX_CHANGES, 2 * size);
+            int[] new_loci = new int[capacity];
+            Object[] new_values = new Object[capacity];
+            System.arraycopy(loci, 0, new_loci, 0, size);
+            System.arraycopy(old_values, 0, new_values, 0, size);
+            loci = new_loci;
+            old_values = new_values;
+        }
+
+        loci[size] = locus;
+        old_values[size] = old_value;
+        size++;
+    }
+
+    /**
+     * Returns whether the change set describes the individual relative to its
+     * base.
+     *
+     * @return true if valid.
+     */
+    public boolean getValid()
+    {
+        return this.valid;
+    }
+
+    /**
+     * Returns the number of changed loci.
+     *
+     * @return number of changes.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Returns the locus of the specified change.
+     *
+     * @param  i index of the change.
+     * @return index of the changed value in the genotype.
+     */
+    public int getLocus(int i)
+    {
+        return loci[i];
+    }
+
+    /**
+     * Returns the base value of the locus of the specified change.
+     *
+     * @param  i index of the change.
+     * @return value of the locus in the base.
+     */
+    public Object getOldValue(int i)
+    {
+        return old_values[i];
+    }
+
+    /**
+     * Returns the fitness of the base for the specified objective.
+     *
+     * @param  objective index of the objective.
+     * @return base fitness.
+     */
+    public double getBaseFitness(int objective)
+    {
+        return base_fitness[objective];
+    }
+
+    /**
+     * Returns the constraint error of the base.
+     *
+     * @return base constraint error.
+     */
+    public double getBaseConstraintError()
+    {
+        return this.base_constraint_error;
+    }
+
+    /**
+     * Releases references to old values so that they may be collected.
+     */
+    private void clearValues()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            old_values[i] = null;
+        }
+    }
+}
@@ -0,0 +1,766 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import org.apache.logging.log4j.*;
+
+/**
+ * A checkpoint of the complete state of a run: the generation, the individual ID
+ * counter, the state of the stepper's random stream, and the individuals and
+ * elites of every population of every problem, with their fitness, Pareto rank,
+ * crowding distance, evaluation counts and genotypes (see
+ * Individual.writeCheckpoint).  A run is resumed by configuring the stepper,
+ * problems and populations as for the original run and restoring the
+ * checkpoint into them, e.g., with Stepper.resume.  Configuration, such as
+ * operators and evaluators, and user data are not part of the checkpoint.
+ * <p>
+ * Only a seeded stepper has a random stream whose state can be recorded (see
+ * RandomSource), and capturing it does not disturb the stream, so a seeded run
+ * is the same with or without checkpoints, and a seeded run restored from a
+ * checkpoint continues exactly as the original did.  An unseeded run uses the
+ * global random source, which is not recorded, so a run restored from its
+ * checkpoint goes on from the same populations but with different random
+ * numbers.
+ * <p>
+ * A checkpoint is captured into memory, so it can be written to a file later or
+ * on another thread.  The file is a versioned binary format: a magic number and
+ * version, then sections, each with a tag, its length, its content and a CRC-32
+ * checksum, ending with an end section.  It is written through a FileChannel to
+ * a temporary file, which is forced to disk and then renamed over the target,
+ * so a crash while writing leaves the previous checkpoint intact.  Reading
+ * verifies every checksum before anything is restored.
+ *
+ * @author Jeff Ridder
+ */
+public class Checkpoint
+{
+    /**
+     * Extension of checkpoint files.
+     */
+    public final static String EXTENSION = ".checkpoint";
+
+    /**
+     * Current version of the file format.
+     */
+    public final static int VERSION = 1;
+
+    private final static int MAGIC = 0x4A45564B;
+
+    private final static int SECTION_RUN = 1;
+
+    private final static int SECTION_POPULATION = 2;
+
+    private final static int SECTION_END = 3;
+
+    private final static int TYPE_NULL = 0;
+
+    private final static int TYPE_DOUBLE = 1;
+
+    private final static int TYPE_FLOAT = 2;
+
+    private final static int TYPE_INTEGER = 3;
+
+    private final static int TYPE_LONG = 4;
+
+    private final static int TYPE_SHORT = 5;
+
+    private final static int TYPE_BYTE = 6;
+
+    private final static int TYPE_BOOLEAN = 7;
+
+    private final static int TYPE_CHARACTER = 8;
+
+    private final static int TYPE_STRING = 9;
+
+    private final static Logger logger = LogManager.getLogger(Checkpoint.class);
+
+    private final ByteBuffer data;
+
+    private final double generation;
+
+    private Checkpoint(ByteBuffer data, double generation)
+    {
+        this.data = data.asReadOnlyBuffer();
+        this.generation = generation;
+    }
+
+    /**
+     * Captures the state of the stepper's run, including the state of its random
+     * stream if it is seeded.  Capture between steps, when no population is being
+     * changed.
+     *
+     * @param  stepper stepper.
+     * @return checkpoint.
+     * @throws IOException if an individual's state cannot be written.
+     */
+    public static Checkpoint capture(Stepper stepper)
+        throws IOException
+    {
+        ArrayList<Problem> problems = stepper.getProblems();
+
+        int capacity = 1024;
+        for (Problem problem : problems)
+        {
+            for (int j = 0; j < problem.getNumPopulations(); j++)
+            {
+                capacity += 128 * problem.getPopulation(j).getPopulationSize();
+            }
+        }
+
+        CheckpointOutput out = begin(capacity);
+        writeRun(out, stepper.getCurrentGeneration(), Individual.getLastID(),
+            getRandomState(stepper), getNumPopulations(problems));
+
+        for (int i = 0; i < problems.size(); i++)
+        {
+            Problem problem = problems.get(i);
+            for (int j = 0; j < problem.getNumPopulations(); j++)
+            {
+                Population pop = problem.getPopulation(j);
+                Class<?> type = pop.getPrototype().getClass();
+
+                beginPopulation(out, i, j, type.getName(),
+                    pop.getNumberEvaluated(), pop.getDone());
+                writeIndividuals(out, pop.getIndividuals(), type);
+                writeIndividuals(out, pop.getElites(), type);
+                out.endSection();
+            }
+        }
+
+        return end(out, stepper.getCurrentGeneration());
+    }
+
+    /**
+     * Returns the number of populations of each problem.
+     *
+     * @param  problems problems.
+     * @return number of populations of each problem.
+     */
+    static int[] getNumPopulations(ArrayList<Problem> problems)
+    {
+        int[] num_pops = new int[problems.size()];
+        for (int i = 0; i < num_pops.length; i++)
+        {
+            num_pops[i] = problems.get(i).getNumPopulations();
+        }
+        return num_pops;
+    }
+
+    /**
+     * Returns the state of the stepper's random stream, which is not changed.
+     *
+     * @param  stepper stepper.
+     * @return state, or null if the stepper is not seeded.
+     */
+    static byte[] getRandomState(Stepper stepper)
+    {
+        RandomSource random = stepper.getRandomSource();
+        return random != null ? random.getState() : null;
+    }
+
+    /**
+     * Writes the state of a random stream, or its absence.
+     *
+     * @param  out output.
+     * @param  random_state state, or null.
+     */
+    static void writeRandomState(CheckpointOutput out, byte[] random_state)
+    {
+        out.writeBoolean(random_state != null);
+        if (random_state != null)
+        {
+            out.writeInt(random_state.length);
+            out.write(random_state);
+        }
+    }
+
+    /**
+     * Reads the state of a random stream written by writeRandomState.
+     *
+     * @param  in input.
+     * @return state, or null.
+     * @throws IOException if the state cannot be read.
+     */
+    static byte[] readRandomState(CheckpointInput in)
+        throws IOException
+    {
+        if (!in.readBoolean())
+        {
+            return null;
+        }
+
+        int length = in.readInt();
+        if (length < 0)
+        {
+            throw new IOException("Bad random state length " + length);
+        }
+        byte[] random_state = new byte[length];
+        in.readFully(random_state);
+        return random_state;
+    }
+
+    /**
+     * Starts encoding a checkpoint.  A checkpoint is encoded by begin, writeRun,
+     * a population section for each population in order, and end; capture does
+     * this for a live run, and CheckpointJournal for a replayed one.
+     *
+     * @param  capacity initial capacity in bytes.
+     * @return checkpoint output.
+     */
+    static CheckpointOutput begin(int capacity)
+    {
+        CheckpointOutput out = new CheckpointOutput(capacity);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        return out;
+    }
+
+    /**
+     * Writes the run section.
+     *
+     * @param  out checkpoint output.
+     * @param  generation generation.
+     * @param  last_id last individual ID issued.
+     * @param  random_state state of the stepper's random stream, or null if it
+     *      is not seeded.
+     * @param  num_pops number of populations of each problem.
+     */
+    static void writeRun(CheckpointOutput out, double generation, long last_id,
+        byte[] random_state, int[] num_pops)
+    {
+        out.beginSection(SECTION_RUN);
+        out.writeDouble(generation);
+        out.writeLong(last_id);
+        writeRandomState(out, random_state);
+        out.writeInt(num_pops.length);
+        for (int n : num_pops)
+        {
+            out.writeInt(n);
+        }
+        out.endSection();
+    }
+
+    /**
+     * Starts the section of a population.  The caller writes the individuals and
+     * then the elites, each as their number followed by the individuals' states
+     * (see Individual.writeCheckpoint), and ends the section.
+     *
+     * @param  out checkpoint output.
+     * @param  i index of the problem.
+     * @param  j index of the population in the problem.
+     * @param  type class name of the population's prototype.
+     * @param  num_evaluated number of individuals evaluated.
+     * @param  done true if the population is done.
+     * @throws IOException if the class name cannot be written.
+     */
+    static void beginPopulation(CheckpointOutput out, int i, int j, String type,
+        int num_evaluated, boolean done)
+        throws IOException
+    {
+        out.beginSection(SECTION_POPULATION);
+        out.writeInt(i);
+        out.writeInt(j);
+        out.writeUTF(type);
+        out.writeInt(num_evaluated);
+        out.writeBoolean(done);
+    }
+
+    /**
+     * Finishes encoding a checkpoint.
+     *
+     * @param  out checkpoint output.
+     * @param  generation generation.
+     * @return checkpoint.
+     */
+    static Checkpoint end(CheckpointOutput out, double generation)
+    {
+        out.beginSection(SECTION_END);
+        out.endSection();
+
+        return new Checkpoint(out.toByteBuffer(), generation);
+    }
+
+    private static void writeIndividuals(CheckpointOutput out,
+        ArrayList<Individual> individuals, Class<?> type)
+        throws IOException
+    {
+        out.writeInt(individuals.size());
+        for (Individual ind : individuals)
+        {
+            if (ind.getClass() != type)
+            {
+                throw new IOException("Individual of " + ind.getClass() +
+                    " is not of the prototype's " + type);
+            }
+            ind.writeCheckpoint(out);
+        }
+    }
+
+    /**
+     * Returns the generation at which the checkpoint was captured.
+     *
+     * @return generation.
+     */
+    public double getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Returns the size of the checkpoint in bytes.
+     *
+     * @return size.
+     */
+    public int getSize()
+    {
+        return data.limit();
+    }
+
+    /**
+     * Returns the encoded checkpoint.
+     *
+     * @return read-only buffer holding the checkpoint.
+     */
+    public ByteBuffer getData()
+    {
+        return data.duplicate();
+    }
+
+    /**
+     * Writes the checkpoint to the specified file.  The checkpoint is written to
+     * a temporary file in the same directory, forced to disk, and renamed over
+     * the file.
+     *
+     * @param  file file to write to.
+     * @throws IOException if the file could not be written.
+     */
+    public void write(File file)
+        throws IOException
+    {
+        replaceFile(file, getData());
+
+        logger.debug("Wrote checkpoint of generation " + generation + " to " +
+            file.getAbsolutePath());
+    }
+
+    /**
+     * Replaces the contents of a file with the specified data, by way of a
+     * temporary file that is forced to disk and renamed over the file.
+     *
+     * @param  file file to replace.
+     * @param  buffer data to write, from its position to its limit.
+     * @throws IOException if the file could not be written.
+     */
+    static void replaceFile(File file, ByteBuffer buffer)
+        throws IOException
+    {
+        File tmp = new File(file.getAbsoluteFile().getParentFile(),
+            file.getName() + ".tmp");
+
+        RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            channel.truncate(0);
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        try
+        {
+            Files.move(tmp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(tmp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a checkpoint from the specified file, verifying its checksums.
+     *
+     * @param  file file to read.
+     * @return checkpoint.
+     * @throws IOException if the file could not be read or is not an intact
+     *      checkpoint.
+     */
+    public static Checkpoint read(File file)
+        throws IOException
+    {
+        return decode(readFile(file));
+    }
+
+    /**
+     * Reads the whole of a file into a heap buffer.
+     *
+     * @param  file file to read.
+     * @return buffer holding the contents of the file.
+     * @throws IOException if the file could not be read.
+     */
+    static ByteBuffer readFile(File file)
+        throws IOException
+    {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try
+        {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException("File " + file + " is too large");
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer) < 0)
+                {
+                    throw new IOException("File " + file + " is truncated");
+                }
+            }
+            buffer.flip();
+
+            return buffer;
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Decodes a checkpoint from the specified buffer, verifying its checksums.
+     *
+     * @param  buffer buffer holding the checkpoint, from its position to its
+     *      limit.
+     * @return checkpoint.
+     * @throws IOException if the buffer does not hold an intact checkpoint.
+     */
+    public static Checkpoint decode(ByteBuffer buffer)
+        throws IOException
+    {
+        ByteBuffer data = buffer.slice();
+
+        CheckpointInput in = openInput(data);
+        double generation = Double.NaN;
+        int tag;
+        do
+        {
+            tag = in.beginSection();
+            if (tag == SECTION_RUN)
+            {
+                generation = in.readDouble();
+            }
+            in.skipBytes(Integer.MAX_VALUE);
+            in.endSection();
+        }
+        while (tag != SECTION_END);
+
+        if (Double.isNaN(generation))
+        {
+            throw new IOException("Checkpoint has no run section");
+        }
+
+        data.rewind();
+        return new Checkpoint(data, generation);
+    }
+
+    private static CheckpointInput openInput(ByteBuffer data)
+        throws IOException
+    {
+        if (data.remaining() < 8 || data.getInt() != MAGIC)
+        {
+            throw new IOException("Not a checkpoint");
+        }
+
+        int version = data.getInt();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported checkpoint version " + version);
+        }
+
+        return new CheckpointInput(data);
+    }
+
+    /**
+     * Restores the checkpoint into the specified stepper, which must have the
+     * same problems and populations, with prototypes of the same classes, as the
+     * stepper from which the checkpoint was captured.  Nothing is changed unless
+     * the whole checkpoint can be read.
+     *
+     * @param  stepper stepper.
+     * @throws IOException if the checkpoint does not match the stepper or an
+     *      individual's state cannot be read.
+     */
+    public void restore(Stepper stepper)
+        throws IOException
+    {
+        ArrayList<Problem> problems = stepper.getProblems();
+        CheckpointInput in = openInput(data.duplicate());
+
+        if (in.beginSection() != SECTION_RUN)
+        {
+            throw new IOException("Checkpoint does not begin with a run section");
+        }
+        double run_generation = in.readDouble();
+        long last_id = in.readLong();
+        byte[] random_state = readRandomState(in);
+        RandomSource random = random_state != null ?
+            RandomSource.fromState(random_state) : null;
+        int num_problems = in.readInt();
+        if (num_problems != problems.size())
+        {
+            throw new IOException("Checkpoint has " + num_problems +
+                " problems, but the stepper has " + problems.size());
+        }
+        int num_pops = 0;
+        for (int i = 0; i < num_problems; i++)
+        {
+            int n = in.readInt();
+            if (n != problems.get(i).getNumPopulations())
+            {
+                throw new IOException("Checkpoint has " + n +
+                    " populations for problem " + i + ", but the problem has " +
+                    problems.get(i).getNumPopulations());
+            }
+            num_pops += n;
+        }
+        in.endSection();
+
+        Population[] pops = new Population[num_pops];
+        ArrayList<ArrayList<Individual>> individuals =
+            new ArrayList<ArrayList<Individual>>();
+        ArrayList<ArrayList<Individual>> elites =
+            new ArrayList<ArrayList<Individual>>();
+        int[] num_evaluated = new int[num_pops];
+        boolean[] done = new boolean[num_pops];
+
+        for (int k = 0; k < num_pops; k++)
+        {
+            if (in.beginSection() != SECTION_POPULATION)
+            {
+                throw new IOException("Checkpoint is missing populations");
+            }
+
+            int i = in.readInt();
+            int j = in.readInt();
+            if (i < 0 || i >= num_problems || j < 0 ||
+                j >= problems.get(i).getNumPopulations())
+            {
+                throw new IOException("Checkpoint has an unknown population " +
+                    i + ":" + j);
+            }
+
+            Population pop = problems.get(i).getPopulation(j);
+            String type = in.readUTF();
+            if (!type.equals(pop.getPrototype().getClass().getName()))
+            {
+                throw new IOException("Checkpoint population " + i + ":" + j +
+                    " holds " + type + ", but its prototype is " +
+                    pop.getPrototype().getClass().getName());
+            }
+
+            pops[k] = pop;
+            num_evaluated[k] = in.readInt();
+            done[k] = in.readBoolean();
+            individuals.add(readIndividuals(in, pop));
+            elites.add(readIndividuals(in, pop));
+            in.endSection();
+        }
+
+        if (in.beginSection() != SECTION_END)
+        {
+            throw new IOException("Checkpoint has unexpected sections");
+        }
+        in.endSection();
+
+        for (int k = 0; k < num_pops; k++)
+        {
+            Population pop = pops[k];
+            for (Individual ind : pop.getIndividuals())
+            {
+                pop.recycleIndividual(ind);
+            }
+            pop.getIndividuals().clear();
+            pop.getIndividuals().addAll(individuals.get(k));
+            pop.getElites().clear();
+            pop.getElites().addAll(elites.get(k));
+            pop.setNumberEvaluated(num_evaluated[k]);
+            pop.setDone(done[k]);
+            pop.invalidateStatistics();
+        }
+
+        stepper.setCurrentGeneration(run_generation);
+        if (random != null)
+        {
+            stepper.setRandomSource(random);
+        }
+        Individual.setLastID(last_id);
+
+        logger.debug("Restored checkpoint of generation " + run_generation);
+    }
+
+    private static ArrayList<Individual> readIndividuals(CheckpointInput in,
+        Population pop)
+        throws IOException
+    {
+        int n = in.readInt();
+        if (n < 0)
+        {
+            throw new IOException("Bad number of individuals " + n);
+        }
+
+        ArrayList<Individual> individuals = new ArrayList<Individual>(n);
+        for (int i = 0; i < n; i++)
+        {
+            Individual ind = pop.getPrototype().clone();
+            ind.readCheckpoint(in);
+            ind.setPopulation(pop);
+            individuals.add(ind);
+        }
+
+        return individuals;
+    }
+
+    /**
+     * Writes a genotype value to a checkpoint.  Values may be null, boxed
+     * primitives or strings.
+     *
+     * @param  out checkpoint output.
+     * @param  value value to write.
+     * @throws IOException if the value is of an unsupported type.
+     */
+    public static void writeValue(DataOutput out, Object value)
+        throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(TYPE_NULL);
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        }
+        else if (value instanceof Float)
+        {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Short)
+        {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort((Short) value);
+        }
+        else if (value instanceof Byte)
+        {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte) value);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof Character)
+        {
+            out.writeByte(TYPE_CHARACTER);
+            out.writeChar((Character) value);
+        }
+        else if (value instanceof String)
+        {
+            out.writeByte(TYPE_STRING);
+            out.writeUTF((String) value);
+        }
+        else
+        {
+            throw new IOException("Cannot checkpoint a value of " +
+                value.getClass());
+        }
+    }
+
+    /**
+     * Reads a genotype value written by writeValue.
+     *
+     * @param  in checkpoint input.
+     * @return value.
+     * @throws IOException if the value cannot be read.
+     */
+    public static Object readValue(DataInput in)
+        throws IOException
+    {
+        int type = in.readByte();
+        switch (type)
+        {
+            case TYPE_NULL:
+                return null;
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_FLOAT:
+                return in.readFloat();
+            case TYPE_INTEGER:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_SHORT:
+                return in.readShort();
+            case TYPE_BYTE:
+                return in.readByte();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_CHARACTER:
+                return in.readChar();
+            case TYPE_STRING:
+                return in.readUTF();
+            default:
+                throw new IOException("Unknown checkpoint value type " + type);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * A DataInput that decodes a checkpoint from a buffer, verifying the length and
+ * CRC-32 checksum of each section (see CheckpointOutput).
+ *
+ * @author Jeff Ridder
+ */
+class CheckpointInput implements DataInput
+{
+    private final ByteBuffer buffer;
+
+    private int section_end;
+
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Creates a new instance of CheckpointInput.
+     *
+     * @param  buffer buffer holding the checkpoint, from its position.
+     */
+    CheckpointInput(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        this.section_end = -1;
+    }
+
+    /**
+     * Starts reading the next section after checking its checksum.
+     *
+     * @return tag of the section.
+     * @throws IOException if the section is truncated or corrupt.
+     */
+    int beginSection()
+        throws IOException
+    {
+        if (buffer.remaining() < 8)
+        {
+            throw new IOException("Checkpoint is truncated");
+        }
+
+        int tag = buffer.getInt();
+        int length = buffer.getInt();
+        if (length < 0 || buffer.remaining() < length + 4)
+        {
+            throw new IOException("Checkpoint is truncated");
+        }
+
+        int start = buffer.position();
+        crc.reset();
+        if (buffer.hasArray())
+        {
+            crc.update(buffer.array(), buffer.arrayOffset() + start, length);
+        }
+        else
+        {
+            ByteBuffer content = buffer.duplicate();
+            content.limit(start + length);
+            crc.update(content);
+        }
+        if ((int) crc.getValue() != buffer.getInt(start + length))
+        {
+            throw new IOException("Checkpoint section " + tag +
+                " fails its checksum");
+        }
+
+        section_end = start + length;
+        return tag;
+    }
+
+    /**
+     * Ends the current section, checking that all of it was read.
+     *
+     * @throws IOException if the section was not read exactly.
+     */
+    void endSection()
+        throws IOException
+    {
+        if (buffer.position() != section_end)
+        {
+            throw new IOException("Checkpoint section has the wrong length");
+        }
+        buffer.position(section_end + 4);
+        section_end = -1;
+    }
+
+    private void check(int n)
+        throws IOException
+    {
+        if (section_end - buffer.position() < n)
+        {
+            throw new EOFException("Read past the end of a checkpoint section");
+        }
+    }
+
+    public void readFully(byte[] b)
+        throws IOException
+    {
+        readFully(b, 0, b.length);
+    }
+
+    public void readFully(byte[] b, int off, int len)
+        throws IOException
+    {
+        check(len);
+        buffer.get(b, off, len);
+    }
+
+    public int skipBytes(int n)
+        throws IOException
+    {
+        int skipped = Math.max(0, Math.min(n, section_end - buffer.position()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    public boolean readBoolean()
+        throws IOException
+    {
+        return readByte() != 0;
+    }
+
+    public byte readByte()
+        throws IOException
+    {
+        check(1);
+        return buffer.get();
+    }
+
+    public int readUnsignedByte()
+        throws IOException
+    {
+        return readByte() & 0xff;
+    }
+
+    public short readShort()
+        throws IOException
+    {
+        check(2);
+        return buffer.getShort();
+    }
+
+    public int readUnsignedShort()
+        throws IOException
+    {
+        return readShort() & 0xffff;
+    }
+
+    public char readChar()
+        throws IOException
+    {
+        check(2);
+        return buffer.getChar();
+    }
+
+    public int readInt()
+        throws IOException
+    {
+        check(4);
+        return buffer.getInt();
+    }
+
+    public long readLong()
+        throws IOException
+    {
+        check(8);
+        return buffer.getLong();
+    }
+
+    public float readFloat()
+        throws IOException
+    {
+        check(4);
+        return buffer.getFloat();
+    }
+
+    public double readDouble()
+        throws IOException
+    {
+        check(8);
+        return buffer.getDouble();
+    }
+
+    /**
+     * Reads an array of doubles.
+     *
+     * @param  values array to fill.
+     * @throws IOException if the section ends first.
+     */
+    void readDoubles(double[] values)
+        throws IOException
+    {
+        check(8 * values.length);
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+
+    public String readLine()
+        throws IOException
+    {
+        throw new UnsupportedOperationException("readLine");
+    }
+
+    public String readUTF()
+        throws IOException
+    {
+        return DataInputStream.readUTF(this);
+    }
+}
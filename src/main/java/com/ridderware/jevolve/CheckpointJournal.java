@@ -0,0 +1,764 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import org.apache.logging.log4j.*;
+
+/**
+ * An append-only journal of checkpoints, for checkpointing large populations
+ * every generation.  The journal begins with a base entry holding the complete
+ * state of the run, as a Checkpoint does.  Each later entry holds only what
+ * changed since the entry before it: the individuals that are new or whose
+ * state changed, IDs of individuals that are gone (tombstones), and the order
+ * of the populations, in which runs of unchanged positions are skipped.  The
+ * cost of an entry thus follows the churn of the populations rather than their
+ * size.  Individuals are compared by a 64-bit hash of their checkpoint state
+ * (see Individual.writeCheckpoint), which the journal keeps for the individuals
+ * of the last entry.
+ * <p>
+ * Every base interval entries, or once the entries since the base are larger
+ * than the base, the journal is compacted: it is replaced, through a temporary
+ * file and a rename, by a new base entry.  Entries are appended as sections
+ * with checksums, as in a Checkpoint, ending with a commit section, and each is
+ * forced to disk.  replay reads the base and applies the entries after it to
+ * rebuild the checkpoint of the last entry; an entry torn by a crash is
+ * discarded with a warning.
+ *
+ * @author Jeff Ridder
+ */
+public class CheckpointJournal
+{
+    /**
+     * Extension of checkpoint journal files.
+     */
+    public final static String EXTENSION = ".journal";
+
+    /**
+     * Current version of the file format.
+     */
+    public final static int VERSION = 1;
+
+    private final static int MAGIC = 0x4A45564A;
+
+    private final static int SECTION_ENTRY = 1;
+
+    private final static int SECTION_POPULATION = 2;
+
+    private final static int SECTION_COMMIT = 3;
+
+    private final static int KIND_BASE = 0;
+
+    private final static int KIND_DELTA = 1;
+
+    private final static int OP_SKIP = 0;
+
+    private final static int OP_REF = 1;
+
+    private final static int OP_PUT = 2;
+
+    private final static Logger logger =
+        LogManager.getLogger(CheckpointJournal.class);
+
+    private final File file;
+
+    private int base_interval = 50;
+
+    private RandomAccessFile raf;
+
+    private Table[] tables;
+
+    private int[] num_pops;
+
+    private String[] types;
+
+    private int num_deltas;
+
+    private long base_size;
+
+    private long delta_size;
+
+    private final CheckpointOutput out = new CheckpointOutput(4096);
+
+    private final CheckpointOutput scratch = new CheckpointOutput(256);
+
+    /**
+     * Creates a new instance of CheckpointJournal.  The first entry appended
+     * replaces anything already in the file.
+     *
+     * @param  file journal file.
+     */
+    public CheckpointJournal(File file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Returns the journal file.
+     *
+     * @return file.
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Sets the largest number of entries appended after a base entry before the
+     * journal is compacted into a new base.
+     *
+     * @param  base_interval number of entries.
+     */
+    public void setBaseInterval(int base_interval)
+    {
+        this.base_interval = base_interval;
+    }
+
+    /**
+     * Returns the base interval.
+     *
+     * @return number of entries.
+     */
+    public int getBaseInterval()
+    {
+        return base_interval;
+    }
+
+    /**
+     * Returns the number of entries appended since the last base entry.
+     *
+     * @return number of entries.
+     */
+    public int getNumDeltas()
+    {
+        return num_deltas;
+    }
+
+    /**
+     * Appends the changes to the stepper's run since the last entry, or
+     * compacts the journal into a new base entry when one is due.  Like
+     * Checkpoint.capture, this records the state of a seeded stepper's random
+     * stream without changing it, and is called between steps.  If the entry
+     * cannot be written, the next one is a base.
+     *
+     * @param  stepper stepper.
+     * @throws IOException if the entry could not be written.
+     */
+    public synchronized void append(Stepper stepper)
+        throws IOException
+    {
+        ArrayList<Problem> problems = stepper.getProblems();
+        int[] layout = Checkpoint.getNumPopulations(problems);
+        ArrayList<String> pop_types = new ArrayList<String>();
+        for (Problem problem : problems)
+        {
+            for (int j = 0; j < problem.getNumPopulations(); j++)
+            {
+                pop_types.add(problem.getPopulation(j).getPrototype().getClass().
+                    getName());
+            }
+        }
+
+        boolean base = tables == null || !Arrays.equals(layout, num_pops) ||
+            !Arrays.asList(types).equals(pop_types) ||
+            num_deltas >= base_interval || delta_size >= base_size;
+        if (base)
+        {
+            tables = new Table[2 * pop_types.size()];
+            for (int k = 0; k < tables.length; k++)
+            {
+                tables[k] = new Table();
+            }
+            num_pops = layout;
+            types = pop_types.toArray(new String[pop_types.size()]);
+        }
+
+        byte[] random_state = Checkpoint.getRandomState(stepper);
+
+        try
+        {
+            out.reset();
+            if (base)
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+
+            out.beginSection(SECTION_ENTRY);
+            out.writeByte(base ? KIND_BASE : KIND_DELTA);
+            out.writeDouble(stepper.getCurrentGeneration());
+            out.writeLong(Individual.getLastID());
+            Checkpoint.writeRandomState(out, random_state);
+            out.writeInt(layout.length);
+            for (int n : layout)
+            {
+                out.writeInt(n);
+            }
+            out.endSection();
+
+            int k = 0;
+            for (int i = 0; i < problems.size(); i++)
+            {
+                Problem problem = problems.get(i);
+                for (int j = 0; j < problem.getNumPopulations(); j++)
+                {
+                    Population pop = problem.getPopulation(j);
+                    Class<?> type = pop.getPrototype().getClass();
+
+                    out.beginSection(SECTION_POPULATION);
+                    out.writeInt(i);
+                    out.writeInt(j);
+                    if (base)
+                    {
+                        out.writeUTF(type.getName());
+                    }
+                    out.writeInt(pop.getNumberEvaluated());
+                    out.writeBoolean(pop.getDone());
+                    tables[k++].write(out, scratch, pop.getIndividuals(), type);
+                    tables[k++].write(out, scratch, pop.getElites(), type);
+                    out.endSection();
+                }
+            }
+
+            out.beginSection(SECTION_COMMIT);
+            out.endSection();
+
+            ByteBuffer data = out.toByteBuffer();
+            if (base)
+            {
+                close();
+                Checkpoint.replaceFile(file, data);
+                base_size = out.size();
+                delta_size = 0;
+                num_deltas = 0;
+            }
+            else
+            {
+                FileChannel channel = getChannel();
+                while (data.hasRemaining())
+                {
+                    channel.write(data);
+                }
+                channel.force(false);
+                delta_size += out.size();
+                num_deltas++;
+            }
+        }
+        catch (IOException e)
+        {
+            //  The file may not hold what the tables say it does.
+            tables = null;
+            close();
+            throw e;
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Appended " + (base ? "base" : "delta") + " of " +
+                out.size() + " bytes for generation " +
+                stepper.getCurrentGeneration() + " to " + file.getAbsolutePath());
+        }
+    }
+
+    private FileChannel getChannel()
+        throws IOException
+    {
+        if (raf == null)
+        {
+            raf = new RandomAccessFile(file, "rw");
+            raf.seek(raf.length());
+        }
+        return raf.getChannel();
+    }
+
+    /**
+     * Closes the journal file.  It is reopened by the next append.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    public synchronized void close()
+        throws IOException
+    {
+        if (raf != null)
+        {
+            RandomAccessFile closing = raf;
+            raf = null;
+            closing.close();
+        }
+    }
+
+    /**
+     * Replays a journal, returning the checkpoint of its last complete entry.
+     * The checkpoint is restored with Checkpoint.restore or Stepper.resume.
+     *
+     * @param  file journal file.
+     * @return checkpoint.
+     * @throws IOException if the file could not be read or holds no complete
+     *      entry, or an entry is inconsistent with those before it.
+     */
+    public static Checkpoint replay(File file)
+        throws IOException
+    {
+        ByteBuffer data = Checkpoint.readFile(file);
+        if (data.remaining() < 8 || data.getInt() != MAGIC)
+        {
+            throw new IOException("Not a checkpoint journal: " + file);
+        }
+
+        int version = data.getInt();
+        if (version != VERSION)
+        {
+            throw new IOException("Unsupported checkpoint journal version " +
+                version);
+        }
+
+        Replay replay = null;
+        int entries = 0;
+        while (data.hasRemaining())
+        {
+            int start = data.position();
+            if (!isComplete(data))
+            {
+                logger.warn("Discarding an incomplete entry after " + entries +
+                    " entries of checkpoint journal " + file.getAbsolutePath());
+                break;
+            }
+            data.position(start);
+
+            replay = Replay.apply(new CheckpointInput(data), replay);
+            entries++;
+        }
+
+        if (replay == null)
+        {
+            throw new IOException("Checkpoint journal " + file +
+                " has no complete entry");
+        }
+
+        logger.debug("Replayed " + entries + " entries of checkpoint journal " +
+            file.getAbsolutePath());
+
+        return replay.toCheckpoint();
+    }
+
+    /**
+     * Checks that the entry at the position of the buffer is intact, leaving the
+     * buffer after it.
+     */
+    private static boolean isComplete(ByteBuffer data)
+    {
+        CheckpointInput in = new CheckpointInput(data);
+        try
+        {
+            int tag = in.beginSection();
+            if (tag != SECTION_ENTRY)
+            {
+                return false;
+            }
+            while (tag != SECTION_COMMIT)
+            {
+                in.skipBytes(Integer.MAX_VALUE);
+                in.endSection();
+                tag = in.beginSection();
+            }
+            in.endSection();
+            return true;
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    private static long hash(ByteBuffer record)
+    {
+        //  FNV-1a.
+        byte[] bytes = record.array();
+        int end = record.arrayOffset() + record.limit();
+        long h = 0xcbf29ce484222325L;
+        for (int i = record.arrayOffset() + record.position(); i < end; i++)
+        {
+            h ^= bytes[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * The individuals or elites of a population as of the last entry appended.
+     */
+    private static class Table
+    {
+        private long[] ids = new long[0];
+
+        private long[] hashes = new long[0];
+
+        private final HashMap<Long, Long> known = new HashMap<Long, Long>();
+
+        void write(CheckpointOutput out, CheckpointOutput scratch,
+            ArrayList<Individual> individuals, Class<?> type)
+            throws IOException
+        {
+            int n = individuals.size();
+            long[] new_ids = new long[n];
+            long[] new_hashes = new long[n];
+
+            out.writeInt(n);
+            int skip = 0;
+            for (int p = 0; p < n; p++)
+            {
+                Individual ind = individuals.get(p);
+                if (ind.getClass() != type)
+                {
+                    throw new IOException("Individual of " + ind.getClass() +
+                        " is not of the prototype's " + type);
+                }
+
+                scratch.reset();
+                ind.writeCheckpoint(scratch);
+                ByteBuffer record = scratch.toByteBuffer();
+                long id = ind.getMyID();
+                long h = hash(record);
+                new_ids[p] = id;
+                new_hashes[p] = h;
+
+                if (p < ids.length && ids[p] == id && hashes[p] == h)
+                {
+                    skip++;
+                    continue;
+                }
+
+                if (skip > 0)
+                {
+                    out.writeByte(OP_SKIP);
+                    out.writeInt(skip);
+                    skip = 0;
+                }
+
+                Long known_hash = known.get(id);
+                if (known_hash != null && known_hash == h)
+                {
+                    out.writeByte(OP_REF);
+                    out.writeLong(id);
+                }
+                else
+                {
+                    out.writeByte(OP_PUT);
+                    out.writeLong(id);
+                    out.writeInt(record.remaining());
+                    out.write(record.array(), record.arrayOffset() +
+                        record.position(), record.remaining());
+                    known.put(id, h);
+                }
+            }
+            if (skip > 0)
+            {
+                out.writeByte(OP_SKIP);
+                out.writeInt(skip);
+            }
+
+            HashSet<Long> live = new HashSet<Long>(2 * n);
+            for (long id : new_ids)
+            {
+                live.add(id);
+            }
+            ArrayList<Long> tombstones = new ArrayList<Long>();
+            Iterator<Long> it = known.keySet().iterator();
+            while (it.hasNext())
+            {
+                Long id = it.next();
+                if (!live.contains(id))
+                {
+                    tombstones.add(id);
+                    it.remove();
+                }
+            }
+            out.writeInt(tombstones.size());
+            for (long id : tombstones)
+            {
+                out.writeLong(id);
+            }
+
+            ids = new_ids;
+            hashes = new_hashes;
+        }
+    }
+
+    /**
+     * The individuals or elites of a population as replayed.
+     */
+    private static class ReplayTable
+    {
+        private long[] ids = new long[0];
+
+        private byte[][] records = new byte[0][];
+
+        private final HashMap<Long, byte[]> known = new HashMap<Long, byte[]>();
+
+        void read(CheckpointInput in)
+            throws IOException
+        {
+            int n = in.readInt();
+            if (n < 0)
+            {
+                throw new IOException("Bad number of individuals " + n);
+            }
+
+            long[] new_ids = new long[n];
+            byte[][] new_records = new byte[n][];
+            int p = 0;
+            while (p < n)
+            {
+                int op = in.readByte();
+                if (op == OP_SKIP)
+                {
+                    int count = in.readInt();
+                    if (count <= 0 || count > n - p || count > ids.length - p)
+                    {
+                        throw new IOException("Bad run of " + count +
+                            " unchanged individuals");
+                    }
+                    System.arraycopy(ids, p, new_ids, p, count);
+                    System.arraycopy(records, p, new_records, p, count);
+                    p += count;
+                }
+                else if (op == OP_REF)
+                {
+                    long id = in.readLong();
+                    byte[] record = known.get(id);
+                    if (record == null)
+                    {
+                        throw new IOException("Unknown individual " + id);
+                    }
+                    new_ids[p] = id;
+                    new_records[p++] = record;
+                }
+                else if (op == OP_PUT)
+                {
+                    long id = in.readLong();
+                    int length = in.readInt();
+                    if (length < 0)
+                    {
+                        throw new IOException("Bad record length " + length);
+                    }
+                    byte[] record = new byte[length];
+                    in.readFully(record);
+                    known.put(id, record);
+                    new_ids[p] = id;
+                    new_records[p++] = record;
+                }
+                else
+                {
+                    throw new IOException("Unknown journal operation " + op);
+                }
+            }
+
+            int num_tombstones = in.readInt();
+            for (int i = 0; i < num_tombstones; i++)
+            {
+                known.remove(in.readLong());
+            }
+
+            ids = new_ids;
+            records = new_records;
+        }
+
+        void write(CheckpointOutput out)
+        {
+            out.writeInt(records.length);
+            for (byte[] record : records)
+            {
+                out.write(record);
+            }
+        }
+
+        int getSize()
+        {
+            int size = 4;
+            for (byte[] record : records)
+            {
+                size += record.length;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * The state of a run as replayed from a journal.
+     */
+    private static class Replay
+    {
+        private final int[] num_pops;
+
+        private final String[] types;
+
+        private final int[] num_evaluated;
+
+        private final boolean[] done;
+
+        private final ReplayTable[] tables;
+
+        private double generation;
+
+        private long last_id;
+
+        private byte[] random_state;
+
+        Replay(int[] num_pops)
+        {
+            int n = 0;
+            for (int num : num_pops)
+            {
+                n += num;
+            }
+
+            this.num_pops = num_pops;
+            this.types = new String[n];
+            this.num_evaluated = new int[n];
+            this.done = new boolean[n];
+            this.tables = new ReplayTable[2 * n];
+            for (int k = 0; k < tables.length; k++)
+            {
+                tables[k] = new ReplayTable();
+            }
+        }
+
+        /**
+         * Applies the entry at the position of the input to the replay, or
+         * starts a new replay if it is a base entry.
+         */
+        static Replay apply(CheckpointInput in, Replay replay)
+            throws IOException
+        {
+            in.beginSection();
+            int kind = in.readByte();
+            double generation = in.readDouble();
+            long last_id = in.readLong();
+            byte[] random_state = Checkpoint.readRandomState(in);
+            int num_problems = in.readInt();
+            if (num_problems < 0)
+            {
+                throw new IOException("Bad number of problems " + num_problems);
+            }
+            int[] num_pops = new int[num_problems];
+            for (int i = 0; i < num_problems; i++)
+            {
+                num_pops[i] = in.readInt();
+                if (num_pops[i] < 0)
+                {
+                    throw new IOException("Bad number of populations " +
+                        num_pops[i]);
+                }
+            }
+            in.endSection();
+
+            if (kind == KIND_BASE)
+            {
+                replay = new Replay(num_pops);
+            }
+            else if (kind != KIND_DELTA)
+            {
+                throw new IOException("Unknown journal entry " + kind);
+            }
+            else if (replay == null)
+            {
+                throw new IOException("Checkpoint journal does not begin " +
+                    "with a base entry");
+            }
+            else if (!Arrays.equals(num_pops, replay.num_pops))
+            {
+                throw new IOException("Journal entry for generation " +
+                    generation + " has different populations than its base");
+            }
+
+            replay.generation = generation;
+            replay.last_id = last_id;
+            replay.random_state = random_state;
+
+            int k = 0;
+            for (int i = 0; i < num_pops.length; i++)
+            {
+                for (int j = 0; j < num_pops[i]; j++)
+                {
+                    if (in.beginSection() != SECTION_POPULATION ||
+                        in.readInt() != i || in.readInt() != j)
+                    {
+                        throw new IOException("Journal entry for generation " +
+                            generation + " is missing population " + i + ":" +
+                            j);
+                    }
+                    if (kind == KIND_BASE)
+                    {
+                        replay.types[k] = in.readUTF();
+                    }
+                    replay.num_evaluated[k] = in.readInt();
+                    replay.done[k] = in.readBoolean();
+                    replay.tables[2 * k].read(in);
+                    replay.tables[2 * k + 1].read(in);
+                    in.endSection();
+                    k++;
+                }
+            }
+
+            in.beginSection();
+            in.endSection();
+
+            return replay;
+        }
+
+        Checkpoint toCheckpoint()
+            throws IOException
+        {
+            int capacity = 1024;
+            for (ReplayTable table : tables)
+            {
+                capacity += table.getSize();
+            }
+
+            CheckpointOutput out = Checkpoint.begin(capacity);
+            Checkpoint.writeRun(out, generation, last_id, random_state,
+                num_pops);
+
+            int k = 0;
+            for (int i = 0; i < num_pops.length; i++)
+            {
+                for (int j = 0; j < num_pops[i]; j++)
+                {
+                    Checkpoint.beginPopulation(out, i, j, types[k],
+                        num_evaluated[k], done[k]);
+                    tables[2 * k].write(out);
+                    tables[2 * k + 1].write(out);
+                    out.endSection();
+                    k++;
+                }
+            }
+
+            return Checkpoint.end(out, generation);
+        }
+    }
+}
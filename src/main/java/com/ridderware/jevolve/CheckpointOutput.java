@@ -0,0 +1,228 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * A DataOutput that encodes a checkpoint into a growable buffer in memory, in
+ * sections that each carry their length and a CRC-32 checksum.
+ *
+ * @author Jeff Ridder
+ */
+class CheckpointOutput implements DataOutput
+{
+    private ByteBuffer buffer;
+
+    private int section_start;
+
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Creates a new instance of CheckpointOutput.
+     *
+     * @param  capacity initial capacity in bytes.
+     */
+    CheckpointOutput(int capacity)
+    {
+        this.buffer = ByteBuffer.allocate(Math.max(capacity, 64));
+        this.section_start = -1;
+    }
+
+    /**
+     * Starts a section.  Sections are written as the tag, the length of the
+     * content, the content and the CRC-32 of the content.
+     *
+     * @param  tag section tag.
+     */
+    void beginSection(int tag)
+    {
+        writeInt(tag);
+        writeInt(0);
+        section_start = buffer.position();
+    }
+
+    /**
+     * Ends the current section, filling in its length and checksum.
+     */
+    void endSection()
+    {
+        int length = buffer.position() - section_start;
+        buffer.putInt(section_start - 4, length);
+
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + section_start, length);
+        writeInt((int) crc.getValue());
+        section_start = -1;
+    }
+
+    /**
+     * Discards everything written, so the output can be reused.
+     */
+    void reset()
+    {
+        buffer.clear();
+        section_start = -1;
+    }
+
+    /**
+     * Returns the encoded data, ready to be written.  The data share the
+     * output's buffer, so they are valid only until the output is next written
+     * to or reset.
+     *
+     * @return encoded data.
+     */
+    ByteBuffer toByteBuffer()
+    {
+        ByteBuffer data = buffer.duplicate();
+        data.flip();
+        return data;
+    }
+
+    /**
+     * Returns the number of bytes written.
+     *
+     * @return size in bytes.
+     */
+    int size()
+    {
+        return buffer.position();
+    }
+
+    private void ensure(int n)
+    {
+        if (buffer.remaining() < n)
+        {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + n);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    public void write(int b)
+    {
+        ensure(1);
+        buffer.put((byte) b);
+    }
+
+    public void write(byte[] b)
+    {
+        write(b, 0, b.length);
+    }
+
+    public void write(byte[] b, int off, int len)
+    {
+        ensure(len);
+        buffer.put(b, off, len);
+    }
+
+    public void writeBoolean(boolean v)
+    {
+        write(v ? 1 : 0);
+    }
+
+    public void writeByte(int v)
+    {
+        write(v);
+    }
+
+    public void writeShort(int v)
+    {
+        ensure(2);
+        buffer.putShort((short) v);
+    }
+
+    public void writeChar(int v)
+    {
+        ensure(2);
+        buffer.putChar((char) v);
+    }
+
+    public void writeInt(int v)
+    {
+        ensure(4);
+        buffer.putInt(v);
+    }
+
+    public void writeLong(long v)
+    {
+        ensure(8);
+        buffer.putLong(v);
+    }
+
+    public void writeFloat(float v)
+    {
+        ensure(4);
+        buffer.putFloat(v);
+    }
+
+    public void writeDouble(double v)
+    {
+        ensure(8);
+        buffer.putDouble(v);
+    }
+
+    /**
+     * Writes an array of doubles.
+     *
+     * @param  values values to write.
+     */
+    void writeDoubles(double[] values)
+    {
+        ensure(8 * values.length);
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+
+    public void writeBytes(String s)
+    {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++)
+        {
+            buffer.put((byte) s.charAt(i));
+        }
+    }
+
+    public void writeChars(String s)
+    {
+        int n = s.length();
+        ensure(2 * n);
+        for (int i = 0; i < n; i++)
+        {
+            buffer.putChar(s.charAt(i));
+        }
+    }
+
+    public void writeUTF(String s)
+        throws IOException
+    {
+        //  DataOutputStream does the modified UTF-8 encoding that readUTF expects.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(s.length() + 2);
+        new DataOutputStream(bytes).writeUTF(s);
+        write(bytes.toByteArray());
+    }
+}
@@ -0,0 +1,311 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedList;
+import org.apache.logging.log4j.*;
+
+/**
+ * Writes checkpoints and other state files on a background thread, so that
+ * evolution does not wait for them to reach the disk.  The caller captures an
+ * immutable copy of the state, such as a Checkpoint, between steps, and the
+ * writer replaces the file with it through a temporary file that is forced to
+ * disk and renamed (see Checkpoint.write).
+ * <p>
+ * Writes are queued, at most capacity of them.  A checkpoint only matters until a
+ * newer one is written, so when the disk falls behind, the writer skips rather
+ * than blocking the evolution: a write replaces a queued write of the same file.
+ * Writes of different files, such as the state file of each period, are never
+ * dropped; when the queue is full of them, the caller waits for room.  Errors
+ * are logged by the writer thread.
+ *
+ * @author Jeff Ridder
+ */
+public class CheckpointWriter
+{
+    private final static Logger logger =
+        LogManager.getLogger(CheckpointWriter.class);
+
+    private static CheckpointWriter default_writer;
+
+    private final int capacity;
+
+    private final LinkedList<Job> queue = new LinkedList<Job>();
+
+    private final Thread thread;
+
+    private long num_queued;
+
+    private long num_done;
+
+    private long num_skipped;
+
+    private boolean closed;
+
+    /**
+     * Creates a new instance of CheckpointWriter and starts its thread.
+     *
+     * @param  capacity maximum number of queued writes.
+     */
+    public CheckpointWriter(int capacity)
+    {
+        this.capacity = Math.max(1, capacity);
+        this.num_queued = 0;
+        this.num_done = 0;
+        this.num_skipped = 0;
+        this.closed = false;
+
+        this.thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                writeLoop();
+            }
+        }, "JEvolve checkpoint writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns a writer shared by default, which finishes its writes when the JVM
+     * shuts down.
+     *
+     * @return default writer.
+     */
+    public static synchronized CheckpointWriter getDefault()
+    {
+        if (default_writer == null)
+        {
+            final CheckpointWriter writer = new CheckpointWriter(2);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    writer.close();
+                }
+            }));
+            default_writer = writer;
+        }
+
+        return default_writer;
+    }
+
+    /**
+     * Queues a checkpoint to be written to the specified file.
+     *
+     * @param  file file to write to.
+     * @param  checkpoint checkpoint.
+     */
+    public void write(File file, Checkpoint checkpoint)
+    {
+        write(file, checkpoint.getData());
+    }
+
+    /**
+     * Queues the whole content of the specified file.  The buffer is written
+     * from its position to its limit and must not be changed after it is
+     * queued.  A queued write of the same file is skipped.  If the queue is
+     * full, this waits until there is room, and if the writer has been closed,
+     * the file is written now.
+     *
+     * @param  file file to write to.
+     * @param  data content of the file.
+     */
+    public void write(File file, ByteBuffer data)
+    {
+        Job job = new Job(file.getAbsoluteFile(), data);
+        synchronized (this)
+        {
+            if (!closed)
+            {
+                Iterator<Job> it = queue.iterator();
+                while (it.hasNext())
+                {
+                    if (it.next().file.equals(job.file))
+                    {
+                        it.remove();
+                        skipped();
+                        break;
+                    }
+                }
+                while (queue.size() >= capacity && !closed &&
+                    thread.isAlive())
+                {
+                    try
+                    {
+                        wait(100);
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+
+                if (!closed && queue.size() < capacity)
+                {
+                    queue.addLast(job);
+                    num_queued++;
+                    notifyAll();
+                    return;
+                }
+            }
+        }
+
+        write(job);
+    }
+
+    /**
+     * Counts a queued write that was dropped.  Called with the lock held.
+     */
+    private void skipped()
+    {
+        num_done++;
+        num_skipped++;
+        logger.debug("Checkpoint writer is behind; skipped a checkpoint.");
+    }
+
+    /**
+     * Returns the number of queued writes that were skipped.
+     *
+     * @return number of writes skipped.
+     */
+    public synchronized long getNumSkipped()
+    {
+        return num_skipped;
+    }
+
+    /**
+     * Waits until everything queued so far has been written or skipped.
+     */
+    public void flush()
+    {
+        synchronized (this)
+        {
+            long target = num_queued;
+            while (num_done < target && thread.isAlive())
+            {
+                try
+                {
+                    wait(100);
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued so far and stops the thread.  Writes queued
+     * afterwards are done synchronously.
+     */
+    public void close()
+    {
+        synchronized (this)
+        {
+            closed = true;
+            notifyAll();
+        }
+        try
+        {
+            thread.join();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes jobs off the queue until closed and empty.
+     */
+    private void writeLoop()
+    {
+        while (true)
+        {
+            Job job;
+            synchronized (this)
+            {
+                while (queue.isEmpty() && !closed)
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        //  Only close stops the writer.
+                    }
+                }
+                if (queue.isEmpty())
+                {
+                    return;
+                }
+                job = queue.removeFirst();
+                notifyAll();
+            }
+
+            write(job);
+
+            synchronized (this)
+            {
+                num_done++;
+                notifyAll();
+            }
+        }
+    }
+
+    private static void write(Job job)
+    {
+        try
+        {
+            Checkpoint.replaceFile(job.file, job.data);
+            logger.debug("Wrote " + job.file.getAbsolutePath());
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not write checkpoint to: " +
+                job.file.getAbsolutePath());
+            logger.error("IO Exception: " + e);
+        }
+    }
+
+    /**
+     * Data queued for a file.
+     */
+    private static class Job
+    {
+        private final File file;
+
+        private final ByteBuffer data;
+
+        Job(File file, ByteBuffer data)
+        {
+            this.file = file;
+            this.data = data;
+        }
+    }
+}
@@ -18,8 +18,8 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.logging.log4j.*;
 
 /**
@@ -43,62 +43,81 @@ public class ChunkCrossover<E> extends Recombinator
     private final static Logger logger =
         LogManager.getLogger(ChunkCrossover.class);
 
-    private HashSet<Integer> getIndexes(int max, int current_index,
-        HashSet<Integer> goodIndexes, HashSet<Integer> badIndexes)
+    /**
+     * Walks the genotype from the top index down, collecting indexes to be
+     * crossed (good) and indexes to be avoided (bad) until every index from 1 to
+     * max has been classified or the walk drops to zero.  The good and bad indexes
+     * are kept as bitsets, and the walk is iterative so that long genotypes can't
+     * overflow the stack.
+     *
+     * @param  max highest index.
+     * @return bitset of the indexes to be crossed.
+     */
+    private long[] getIndexes(int max)
     {
-        if ((current_index <= 0) || (goodIndexes.size() + badIndexes.size() ==
-            max))
-        {
-            logger.debug("Done chunking, good Indexes, bad Indexes: ");
-            logger.debug(goodIndexes.toString());
-            logger.debug(badIndexes.toString());
-            return goodIndexes;
-        //exit out, we're done chunking
-        }
-        else if ((MersenneTwisterFast.getInstance().nextDouble()) < 0.5)
+        long[] good = new long[max > 0 ? (max >>> 6) + 2 : 1];
+        long[] bad = new long[good.length];
+
+        RandomSource rng = RandomSource.current();
+
+        int classified = 0;
+        int current_index = max;
+        while (current_index > 0 && classified != max)
         {
-            //collect a chunk
-            if (!((badIndexes.contains(current_index)) ||
-                (badIndexes.contains(current_index - 1)) ||
-                (badIndexes.contains(current_index + 1))))
+            if (rng.nextDouble() < 0.5)
             {
-                if (current_index <= max)
+                //collect a chunk
+                if (current_index <= max &&
+                    !isNeighborSet(bad, current_index, max) &&
+                    !isSet(good, current_index))
                 {
-                    goodIndexes.add(current_index);
+                    good[current_index >>> 6] |= 1L << current_index;
+                    classified++;
                 }
+                current_index += (int) (rng.nextGaussian() * 1.8);
             }
-            logger.debug("good indexes was denied index: " + current_index);
-            int nextIndex = (current_index + (int) (MersenneTwisterFast.getInstance().
-                nextGaussian() * 1.8));
-            logger.debug("Chunking, current index = " + current_index +
-                ", next index = " + nextIndex);
-            getIndexes(max, nextIndex, goodIndexes, badIndexes);
-        }
-        else if ((MersenneTwisterFast.getInstance().nextDouble()) < 0.5)
-        {
-            //avoid a chunk
-            if (!((goodIndexes.contains(current_index)) ||
-                (goodIndexes.contains(current_index - 1)) ||
-                (goodIndexes.contains(current_index + 1))))
+            else if (rng.nextDouble() < 0.5)
             {
-                if (current_index <= max)
+                //avoid a chunk
+                if (current_index <= max &&
+                    !isNeighborSet(good, current_index, max) &&
+                    !isSet(bad, current_index))
                 {
-                    badIndexes.add(current_index);
+                    bad[current_index >>> 6] |= 1L << current_index;
+                    classified++;
                 }
-            }
 
-            int nextIndex = (current_index + (int) (MersenneTwisterFast.getInstance().
-                nextGaussian() * 1.8));
-            // logger.debug("DeChunking, current index = %d, next index = %d\n",current_index, nextIndex);
-            getIndexes(max, current_index, goodIndexes, badIndexes);
+                //  The step is drawn but not taken, as it always has been.
+                rng.nextGaussian();
+            }
+            else
+            {
+                //we start with a high number, so we want a slow force pushing us the lower indexes so that the whole string may be seen by the chunker.
+                current_index--;
+            }
         }
-        else
+
+        if (logger.isDebugEnabled())
         {
-            //we start with a high number, so we want a slow force pushing us the lower indexes so that the whole string may be seen by the chunker.
-            getIndexes(max, --current_index, goodIndexes, badIndexes);
+            logger.debug("Done chunking, " + classified + " indexes classified");
         }
-        return goodIndexes;
-    //unreachable
+
+        return good;
+    }
+
+    private static boolean isSet(long[] bits, int index)
+    {
+        return (bits[index >>> 6] & (1L << index)) != 0L;
+    }
+
+    /**
+     * Returns whether the index or either neighbor is set.  Indexes are only ever
+     * set between 1 and max.
+     */
+    private static boolean isNeighborSet(long[] bits, int index, int max)
+    {
+        return isSet(bits, index) || isSet(bits, index - 1) ||
+            (index < max && isSet(bits, index + 1));
     }
 
     /**
@@ -113,7 +132,7 @@ public class ChunkCrossover<E> extends Recombinator
         Individual child1, Individual child2)
     {
         //if we aren't going to xover and the children don't exist, create them directly from their parents.
-        if (MersenneTwisterFast.getInstance().nextDouble() >
+        if (RandomSource.current().nextDouble() >
             parent2.getProbRecombination())
         {
             if (child1 != null)
@@ -134,42 +153,95 @@ public class ChunkCrossover<E> extends Recombinator
             GAIndividual<E> boy = (GAIndividual<E>) child1;
             GAIndividual<E> girl = (GAIndividual<E>) child2;
 
-            //choose a random location to crossover at.
-            int xoverPoint = (int) (MersenneTwisterFast.getInstance().nextDouble() * (mom.getGenome().
-                size() - 1));
+            //  A crossover point has always been drawn here, although chunking
+            //  doesn't use it.  Keep drawing it so the random sequence is unchanged.
+            RandomSource.current().nextDouble();
+
+            //collect indexes to crossover.
+            long[] mask = getIndexes(mom.getGenome().size() - 1);
 
-            if (!(boy.equals(null)))
+            int size = mom.getGenotypeSize();
+            if (boy != null)
             {
-                boy.getGenotype().clear();
+                applyMask(mask, size, mom.getGenotypeValues(), dad, boy);
             }
-            if (!(girl.equals(null)))
+            if (girl != null)
             {
-                girl.getGenotype().clear();
+                applyMask(mask, size, dad.getGenotypeValues(), mom, girl);
             }
+        }
+    }
 
-            //collect indexes to crossover.
-            HashSet<Integer> goodIndexes = new HashSet<Integer>();
-            HashSet<Integer> badIndexes = new HashSet<Integer>();
-            goodIndexes = getIndexes(mom.getGenome().size() - 1, mom.getGenome().
-                size() - 1, goodIndexes, badIndexes);
+    /**
+     * Fills the child's genotype, taking genes from one parent where the mask is
+     * set and from the other elsewhere.  Words of the mask with no bits or all
+     * bits set are copied from one parent without testing each bit.  The crossed
+     * genes that differ are recorded as changes relative to the kept parent, so
+     * that an incremental evaluator can start from its fitness.
+     *
+     * @param  mask bitset of crossed indexes.
+     * @param  size genotype size.
+     * @param  crossed genes to use where the mask is set.
+     * @param  parent parent whose genes are kept elsewhere.
+     * @param  child child to fill in.
+     */
+    private void applyMask(long[] mask, int size, List<E> crossed,
+        GAIndividual<E> parent, GAIndividual<E> child)
+    {
+        List<E> kept = parent.getGenotypeValues();
+
+        ArrayList<E> genotype = child.getGenotype();
+        if (genotype.size() != size)
+        {
+            genotype.clear();
+            genotype.addAll(kept.subList(0, size));
+        }
 
-            for (int i = 0; i < mom.getGenotype().size(); i++)
+        for (int base = 0; base < size; base += 64)
+        {
+            long word = base >>> 6 < mask.length ? mask[base >>> 6] : 0L;
+            int end = Math.min(size, base + 64);
+            if (word == 0L || word == -1L)
             {
-                if (goodIndexes.contains(i))
+                List<E> source = word == 0L ? kept : crossed;
+                for (int i = base; i < end; i++)
                 {
-                    girl.getGenotype().add(dad.getGenotype().get(i));
-                    boy.getGenotype().add(mom.getGenotype().get(i));
+                    genotype.set(i, source.get(i));
                 }
-                else
+            }
+            else
+            {
+                for (int i = base; i < end; i++)
                 {
-                    girl.getGenotype().add(mom.getGenotype().get(i));
-                    boy.getGenotype().add(dad.getGenotype().get(i));
+                    genotype.set(i, (word & (1L << i)) != 0L ? crossed.get(i) :
+                        kept.get(i));
                 }
             }
+        }
+
+        child.beginChanges(parent);
+        for (int w = 0; w < mask.length && child.getChangeSet() != null; w++)
+        {
+            long word = mask[w];
+            while (word != 0L)
+            {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (i >= size)
+                {
+                    break;
+                }
 
-            boy.setEvaluated(false);
-            girl.setEvaluated(false);
+                E old_value = kept.get(i);
+                if (old_value == null ? crossed.get(i) != null :
+                    !old_value.equals(crossed.get(i)))
+                {
+                    child.recordChange(i, old_value);
+                }
+            }
         }
+
+        child.setEvaluated(false);
+        child.invalidateGenotypeHash();
     }
 }
-
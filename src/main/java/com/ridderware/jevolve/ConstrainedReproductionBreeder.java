@@ -90,6 +90,7 @@ public class ConstrainedReproductionBreeder extends Breeder
         Individual dad;
         Individual boy;
         Individual girl;
+        Individual[] parents = new Individual[2];
 
         if (this.getSelector() == null || this.getRecombinator() == null ||
             this.getMutator() == null)
@@ -100,8 +101,9 @@ public class ConstrainedReproductionBreeder extends Breeder
         int numChildren = 0;
         while (numChildren != parent_pop.getPopulationSize())
         {
-            mom = getSelector().select(parent_pop);
-            dad = getSelector().select(parent_pop);
+            getSelector().selectMany(parent_pop, 2, parents);
+            mom = parents[0];
+            dad = parents[1];
 
             boy = child_pop.getIndividual(numChildren);
 
@@ -0,0 +1,77 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * An implementation of the cycle crossover (CX) operator of Oliver, Smith and
+ * Holland.  Oliver, I. M., Smith, D. J. and Holland, J. R. C., "A Study of
+ * Permutation Crossover Operators on the Traveling Salesman Problem," Proceedings
+ * of the Second International Conference on Genetic Algorithms, 1987.  Cycle
+ * crossover preserves the absolute position of every value: the genotype is
+ * divided into the cycles formed by the two parents, and the children take
+ * alternate cycles from each parent.  It should only be applied to individuals
+ * with homogeneous genomes.
+ *
+ * @param <E> gene type.
+ * @author Jeff Ridder
+ */
+public class CycleCrossover<E> extends PermutationCrossover<E>
+{
+    /**
+     * Performs the cycle crossover.  The son takes the first, third, etc. cycles
+     * from dad and the others from mom, and the daughter the reverse.
+     *
+     * @param  p1 dad.
+     * @param  p2 mom.
+     * @param  c1 son.
+     * @param  c2 daughter.
+     * @param  n permutation size.
+     * @param  s scratch space.
+     */
+    @Override
+    protected void crossover(int[] p1, int[] p2, int[] c1, int[] c2, int n,
+        Scratch s)
+    {
+        int stamp = s.nextStamp();
+        int[] marks = s.marks;
+
+        boolean from_dad = true;
+        for (int start = 0; start < n; start++)
+        {
+            if (marks[start] == stamp)
+            {
+                continue;
+            }
+
+            //  The next position in the cycle is where mom's value sits in dad,
+            //  which for the identity is the value itself.
+            int i = start;
+            do
+            {
+                marks[i] = stamp;
+                c1[i] = from_dad ? p1[i] : p2[i];
+                c2[i] = from_dad ? p2[i] : p1[i];
+                i = p2[i];
+            }
+            while (i != start);
+
+            from_dad = !from_dad;
+        }
+    }
+}
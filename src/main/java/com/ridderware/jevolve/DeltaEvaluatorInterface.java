@@ -0,0 +1,44 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * Interface for evaluators that can compute the change in fitness caused by a
+ * move on a PermutationIndividual without evaluating the whole permutation, e.g.,
+ * the four edges changed by a 2-opt move in a routing problem.  Delta evaluation
+ * applies to single objective problems, and the constraint error and success of
+ * the individual are assumed to be unchanged by the move.
+ *
+ * @author Jeff Ridder
+ */
+public interface DeltaEvaluatorInterface extends EvaluatorInterface
+{
+    /**
+     * Called before the move is applied to return the change in fitness it will
+     * cause.  The individual must not be modified.
+     *
+     * @param  ind individual to be moved.
+     * @param  move move type.
+     * @param  i first position of the move.
+     * @param  j second position of the move.
+     * @return change in fitness.
+     */
+    public double evaluateMove(PermutationIndividual ind,
+        PermutationIndividual.Move move, int i, int j);
+}
@@ -62,7 +62,8 @@ public class DeterministicCrowdingBreeder extends Breeder
      * @param  parent_pop parent population
      * @param  child_pop child population
      */
-    public void breedNextGeneration(Population parent_pop, Population child_pop)
+    public void breedNextGeneration(final Population parent_pop,
+        final Population child_pop)
     {
         Individual mom;
         Individual dad;
@@ -77,22 +78,25 @@ public class DeterministicCrowdingBreeder extends Breeder
 
         Collections.shuffle(parent_pop.getIndividuals());
 
-        for (int i = 0; i < parent_pop.getPopulationSize() - 1; i += 2)
+        breedPairs(parent_pop.getPopulationSize() / 2, new PairTask()
         {
-            mom = parent_pop.getIndividual(i);
-            dad = parent_pop.getIndividual(i + 1);
+            public void breed(int pair)
+            {
+                Individual mom = parent_pop.getIndividual(2 * pair);
+                Individual dad = parent_pop.getIndividual(2 * pair + 1);
 
-            boy = child_pop.getIndividual(i);
-            girl = child_pop.getIndividual(i + 1);
+                Individual boy = child_pop.getIndividual(2 * pair);
+                Individual girl = child_pop.getIndividual(2 * pair + 1);
 
-            getRecombinator().recombine(mom, dad, boy, girl);
+                getRecombinator().recombine(mom, dad, boy, girl);
 
-            getMutator().mutate(boy);
-            getMutator().mutate(girl);
+                getMutator().mutate(boy);
+                getMutator().mutate(girl);
 
-            boy.setPopulation(child_pop);
-            girl.setPopulation(child_pop);
-        }
+                boy.setPopulation(child_pop);
+                girl.setPopulation(child_pop);
+            }
+        });
 
         if (parent_pop.getPopulationSize() % 2 != 0)
         {
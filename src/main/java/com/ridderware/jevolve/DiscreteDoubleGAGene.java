@@ -18,8 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  *  A discrete gene with double-valued alleles.
  *
@@ -64,7 +62,7 @@ public class DiscreteDoubleGAGene extends DiscreteGAGene<Double>
      */
     public Double randomUniformValue()
     {
-        Double value = getAllele((int) (MersenneTwisterFast.getInstance().
+        Double value = getAllele((int) (RandomSource.current().
             nextDouble() * getNumAlleles()));
 
         return value;
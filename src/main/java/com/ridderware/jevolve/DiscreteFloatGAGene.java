@@ -18,8 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  *  A discrete gene with float-valued alleles.
  *
@@ -65,7 +63,7 @@ public class DiscreteFloatGAGene extends DiscreteGAGene<Float>
     @Override
     public Float randomUniformValue()
     {
-        Float value = getAllele((int) (MersenneTwisterFast.getInstance().
+        Float value = getAllele((int) (RandomSource.current().
             nextDouble() * getNumAlleles()));
 
         return value;
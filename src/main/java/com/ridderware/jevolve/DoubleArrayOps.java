@@ -0,0 +1,151 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk operations on double arrays for real-valued operators.  The arithmetic
+ * kernels are simple counted loops over primitive arrays with no calls or
+ * branches in the loop body, which is the form the JIT compiler vectorizes with
+ * SIMD instructions.  Operators on Double genotypes unbox the values once with
+ * toArray, run the kernels, and box the results once with setAll.
+ *
+ * @author Jeff Ridder
+ */
+public final class DoubleArrayOps
+{
+    private DoubleArrayOps()
+    {
+    }
+
+    /**
+     * Copies the values of the list into an array, allocating a new array if the
+     * specified one is null or too short.
+     *
+     * @param  values list of values.
+     * @param  array array to reuse, or null.
+     * @return array holding the values.
+     */
+    public static double[] toArray(List<Double> values, double[] array)
+    {
+        int n = values.size();
+        if (array == null || array.length < n)
+        {
+            array = new double[n];
+        }
+        for (int i = 0; i < n; i++)
+        {
+            array[i] = values.get(i);
+        }
+
+        return array;
+    }
+
+    /**
+     * Sets the list to the first n values of the array, reusing its elements.
+     *
+     * @param  values list to set.
+     * @param  array source values.
+     * @param  n number of values.
+     */
+    public static void setAll(ArrayList<Double> values, double[] array, int n)
+    {
+        if (values.size() > n)
+        {
+            values.subList(n, values.size()).clear();
+        }
+        int common = values.size();
+        for (int i = 0; i < common; i++)
+        {
+            values.set(i, array[i]);
+        }
+        values.ensureCapacity(n);
+        for (int i = common; i < n; i++)
+        {
+            values.add(array[i]);
+        }
+    }
+
+    /**
+     * Computes the arithmetical blend out = a * x + (1 - a) * y.
+     *
+     * @param  a blend weight of x.
+     * @param  x first operand.
+     * @param  y second operand.
+     * @param  out result, which may be x or y.
+     * @param  n number of values.
+     */
+    public static void blend(double a, double[] x, double[] y, double[] out,
+        int n)
+    {
+        double b = 1. - a;
+        for (int i = 0; i < n; i++)
+        {
+            out[i] = a * x[i] + b * y[i];
+        }
+    }
+
+    /**
+     * Adds scaled noise to the values: values += noise * scale.
+     *
+     * @param  values values to change.
+     * @param  noise noise values.
+     * @param  scale scale of each noise value, e.g., gene sigmas.
+     * @param  n number of values.
+     */
+    public static void addScaled(double[] values, double[] noise,
+        double[] scale, int n)
+    {
+        for (int i = 0; i < n; i++)
+        {
+            values[i] += noise[i] * scale[i];
+        }
+    }
+
+    /**
+     * Clamps each value to its bounds.
+     *
+     * @param  values values to clamp.
+     * @param  lower lower bounds.
+     * @param  upper upper bounds.
+     * @param  n number of values.
+     */
+    public static void clamp(double[] values, double[] lower, double[] upper,
+        int n)
+    {
+        for (int i = 0; i < n; i++)
+        {
+            values[i] = Math.max(Math.min(values[i], upper[i]), lower[i]);
+        }
+    }
+
+    /**
+     * Fills part of an array with standard Gaussian random numbers.
+     *
+     * @param  values array to fill.
+     * @param  offset first index to fill.
+     * @param  length number of values to fill.
+     */
+    public static void fillGaussian(double[] values, int offset, int length)
+    {
+        RandomSource.current().fillGaussian(values, offset, length);
+    }
+}
@@ -18,8 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  *  A continuous, double-valued gene.
  *
@@ -53,7 +51,7 @@ public class DoubleGAGene extends GAGene<Double>
      */
     public Double randomUniformValue()
     {
-        double value = getLowerBound() + MersenneTwisterFast.getInstance().
+        double value = getLowerBound() + RandomSource.current().
             nextDouble() * (getUpperBound() - getLowerBound());
 
         return value;
@@ -69,7 +67,7 @@ public class DoubleGAGene extends GAGene<Double>
      */
     public Double randomUniformValue(Double value, double multiplier)
     {
-        if (MersenneTwisterFast.getInstance().nextDouble() < 0.5)
+        if (RandomSource.current().nextDouble() < 0.5)
         {
             value += multiplier * (getUpperBound() - value);
         }
@@ -89,7 +87,7 @@ public class DoubleGAGene extends GAGene<Double>
      */
     public Double randomGaussianValue(Double value)
     {
-        value += MersenneTwisterFast.getInstance().nextGaussian() * getSigma();
+        value += RandomSource.current().nextGaussian() * getSigma();
 
         value = Math.min(value, getUpperBound());
 
@@ -108,7 +106,7 @@ public class DoubleGAGene extends GAGene<Double>
      */
     public Double randomGaussianValue(Double value, double multiplier)
     {
-        value += MersenneTwisterFast.getInstance().nextGaussian() * getSigma() *
+        value += RandomSource.current().nextGaussian() * getSigma() *
             multiplier;
 
         value = Math.min(value, getUpperBound());
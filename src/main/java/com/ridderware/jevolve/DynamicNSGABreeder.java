@@ -63,12 +63,14 @@ public class DynamicNSGABreeder extends Breeder
      * @param  parent_pop parent population.
      * @param  child_pop child population, which is ignored for this breeder.
      */
-    public void breedNextGeneration(Population parent_pop, Population child_pop)
+    public void breedNextGeneration(final Population parent_pop,
+        Population child_pop)
     {
         Individual mom;
         Individual dad;
         Individual boy;
         Individual girl;
+        Individual[] parents = new Individual[2];
 
         if (getSelector() == null || getRecombinator() == null ||
             getMutator() == null)
@@ -76,42 +78,46 @@ public class DynamicNSGABreeder extends Breeder
             logger.error("Selector, Recombinator, or Mutator not set");
         }
 
-        MultiObjectivePopulation pop = (MultiObjectivePopulation) parent_pop;
+        final MultiObjectivePopulation pop = (MultiObjectivePopulation) parent_pop;
 
         //  Pareto sort may already have been done (e.g., in the Problem), but let's not
         //  take any chances.  Do it here.
         pop.sortParetoRank();
 
-        MultiObjectivePopulation best_half = pop.clone();
+        //  The mating pool shares the best half with the population, and the
+        //  losers in the other half are overwritten in place by the children.
+        final Population best_half =
+            getMatingPool(pop, pop.getMaxPopulationSize() / 2);
 
-        for (int i = pop.getPopulationSize() - 1; i >=
-            pop.getMaxPopulationSize() / 2; i--)
-        {
-            best_half.removeIndividual(i);
-        }
+        final int first = pop.getMaxPopulationSize() / 2;
 
-        for (int i = pop.getMaxPopulationSize() / 2; i <
-            pop.getMaxPopulationSize() - 1; i += 2)
+        breedPairs((pop.getMaxPopulationSize() - first) / 2, new PairTask()
         {
-            mom = getSelector().select(best_half);
-            dad = getSelector().select(best_half);
+            public void breed(int pair)
+            {
+                Individual[] parents = new Individual[2];
+                getSelector().selectMany(best_half, 2, parents);
+                Individual mom = parents[0];
+                Individual dad = parents[1];
 
-            boy = pop.getIndividual(i);
-            girl = pop.getIndividual(i + 1);
+                Individual boy = pop.getIndividual(first + 2 * pair);
+                Individual girl = pop.getIndividual(first + 2 * pair + 1);
 
-            getRecombinator().recombine(mom, dad, boy, girl);
+                getRecombinator().recombine(mom, dad, boy, girl);
 
-            getMutator().mutate(boy);
-            getMutator().mutate(girl);
+                getMutator().mutate(boy);
+                getMutator().mutate(girl);
 
-            boy.setPopulation(parent_pop);
-            girl.setPopulation(parent_pop);
-        }
+                boy.setPopulation(parent_pop);
+                girl.setPopulation(parent_pop);
+            }
+        });
 
         if (pop.getPopulationSize() % 2 != 0)
         {
-            mom = getSelector().select(best_half);
-            dad = getSelector().select(best_half);
+            getSelector().selectMany(best_half, 2, parents);
+            mom = parents[0];
+            dad = parents[1];
 
             boy = pop.getIndividual(pop.getPopulationSize() - 1);
             girl = null;
@@ -0,0 +1,175 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * An implementation of the edge recombination crossover (ERX) operator of Whitley,
+ * Starkweather and Fuquay.  Whitley, D., Starkweather, T. and Fuquay, D.,
+ * "Scheduling Problems and Traveling Salesmen: The Genetic Edge Recombination
+ * Operator," Proceedings of the Third International Conference on Genetic
+ * Algorithms, 1989.  Edge recombination builds children mostly from the adjacencies
+ * (edges) of the parents, treating the genotype as a tour.  At each step it moves
+ * to the neighbor of the current value with the fewest remaining neighbors, breaking
+ * ties at random, or to a random unvisited value when there are none.  The son's
+ * tour starts with dad's first value and the daughter's with mom's.  It should only
+ * be applied to individuals with homogeneous genomes.
+ *
+ * @param <E> gene type.
+ * @author Jeff Ridder
+ */
+public class EdgeRecombinationCrossover<E> extends PermutationCrossover<E>
+{
+    /**
+     * Performs the edge recombination crossover.  The edge table holds at most
+     * four neighbors per value and visited values are removed from it in constant
+     * time, so each child is built in linear time.
+     *
+     * @param  p1 dad.
+     * @param  p2 mom.
+     * @param  c1 son.
+     * @param  c2 daughter.
+     * @param  n permutation size.
+     * @param  s scratch space.
+     */
+    @Override
+    protected void crossover(int[] p1, int[] p2, int[] c1, int[] c2, int n,
+        Scratch s)
+    {
+        build(p1, p2, c1, p1[0], n, s);
+        build(p1, p2, c2, p2[0], n, s);
+    }
+
+    /**
+     * Builds one child tour.
+     *
+     * @param  p1 dad.
+     * @param  p2 mom.
+     * @param  child child to fill in.
+     * @param  start first value of the tour.
+     * @param  n permutation size.
+     * @param  s scratch space.
+     */
+    private void build(int[] p1, int[] p2, int[] child, int start, int n,
+        Scratch s)
+    {
+        int[] edges = s.getBuffer(0, 4 * n);
+        int[] degree = s.getBuffer(1, n);
+        int[] unvisited = s.getBuffer(2, n);
+        int[] unvisited_pos = s.getBuffer(3, n);
+
+        for (int v = 0; v < n; v++)
+        {
+            degree[v] = 0;
+            unvisited[v] = v;
+            unvisited_pos[v] = v;
+        }
+        for (int i = 0; i < n; i++)
+        {
+            int next = i + 1 < n ? i + 1 : 0;
+            addEdge(edges, degree, p1[i], p1[next]);
+            addEdge(edges, degree, p2[i], p2[next]);
+        }
+
+        RandomSource rng = RandomSource.current();
+
+        int remaining = n;
+        int current = start;
+        for (int k = 0; k < n; k++)
+        {
+            child[k] = current;
+
+            //  Remove the current value from the unvisited list and from the
+            //  edge lists of its neighbors.
+            int last = unvisited[--remaining];
+            int p = unvisited_pos[current];
+            unvisited[p] = last;
+            unvisited_pos[last] = p;
+
+            int base = 4 * current;
+            for (int j = 0; j < degree[current]; j++)
+            {
+                removeEdge(edges, degree, edges[base + j], current);
+            }
+
+            if (remaining == 0)
+            {
+                break;
+            }
+
+            int next = -1;
+            int ties = 0;
+            for (int j = 0; j < degree[current]; j++)
+            {
+                int w = edges[base + j];
+                if (next < 0 || degree[w] < degree[next])
+                {
+                    next = w;
+                    ties = 1;
+                }
+                else if (degree[w] == degree[next] && rng.nextInt(++ties) == 0)
+                {
+                    next = w;
+                }
+            }
+
+            if (next < 0)
+            {
+                next = unvisited[rng.nextInt(remaining)];
+            }
+
+            current = next;
+        }
+    }
+
+    private static void addEdge(int[] edges, int[] degree, int a, int b)
+    {
+        if (a == b)
+        {
+            return;
+        }
+        addNeighbor(edges, degree, a, b);
+        addNeighbor(edges, degree, b, a);
+    }
+
+    private static void addNeighbor(int[] edges, int[] degree, int v, int w)
+    {
+        int base = 4 * v;
+        for (int j = 0; j < degree[v]; j++)
+        {
+            if (edges[base + j] == w)
+            {
+                return;
+            }
+        }
+        edges[base + degree[v]++] = w;
+    }
+
+    private static void removeEdge(int[] edges, int[] degree, int v, int w)
+    {
+        int base = 4 * v;
+        for (int j = 0; j < degree[v]; j++)
+        {
+            if (edges[base + j] == w)
+            {
+                edges[base + j] = edges[base + --degree[v]];
+                return;
+            }
+        }
+    }
+}
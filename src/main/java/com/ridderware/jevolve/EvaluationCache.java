@@ -0,0 +1,266 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of evaluation results keyed by genotype.  When attached to a
+ * population (see Population.setEvaluationCache), individuals whose genotype has
+ * already been evaluated receive the cached fitness, constraint error and success
+ * instead of being passed to the evaluator again.  The least recently used entries
+ * are evicted once the cache is full.
+ * <p>
+ * Caching is only correct for deterministic evaluators, i.e., those that always
+ * produce the same scores for the same genotype.  It should not be used for noisy
+ * problems or with evaluators whose fitness landscape changes over time (unless
+ * the cache is cleared when it does).  Only GAIndividuals are cached; other
+ * individuals are always evaluated.  The cache is synchronized so that it may be
+ * shared by populations that are evaluated concurrently.
+ *
+ * @author Jeff Ridder
+ */
+public class EvaluationCache
+{
+    private int max_entries;
+
+    private LinkedHashMap<GenotypeKey, CachedEvaluation> entries;
+
+    private GenotypeKey probe = new GenotypeKey();
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     *  Constructor for the EvaluationCache object
+     *
+     * @param  max_entries maximum number of genotypes held by the cache.
+     */
+    public EvaluationCache(int max_entries)
+    {
+        this.max_entries = max_entries;
+        this.entries =
+            new LinkedHashMap<GenotypeKey, CachedEvaluation>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<GenotypeKey, CachedEvaluation> eldest)
+            {
+                if (size() > EvaluationCache.this.max_entries)
+                {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the maximum number of genotypes held by the cache.
+     *
+     * @return max number of entries.
+     */
+    public int getMaxEntries()
+    {
+        return this.max_entries;
+    }
+
+    /**
+     * Returns the number of genotypes currently held by the cache.
+     *
+     * @return number of entries.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a cached result.
+     *
+     * @return number of hits.
+     */
+    public synchronized long getHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached result.
+     *
+     * @return number of misses.
+     */
+    public synchronized long getMisses()
+    {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of entries evicted to keep the cache within bounds.
+     *
+     * @return number of evictions.
+     */
+    public synchronized long getEvictions()
+    {
+        return this.evictions;
+    }
+
+    /**
+     * Returns the fraction of lookups that found a cached result.
+     *
+     * @return hit rate between 0 and 1.
+     */
+    public synchronized double getHitRate()
+    {
+        long lookups = hits + misses;
+
+        return lookups == 0 ? 0. : (double) hits / lookups;
+    }
+
+    /**
+     * Looks up the genotype of the specified individual and, if it is cached,
+     * sets the individual's fitness, constraint error and success from the cache.
+     *
+     * @param  ind individual to look up.
+     * @return true if the individual was found in the cache, false otherwise.
+     */
+    public synchronized boolean lookup(Individual ind)
+    {
+        if (!(ind instanceof GAIndividual))
+        {
+            return false;
+        }
+
+        probe.hash = ind.getGenotypeHash();
+        probe.genotype = ((GAIndividual<?>) ind).getGenotypeValues();
+
+        CachedEvaluation entry = entries.get(probe);
+
+        probe.genotype = null;
+
+        if (entry == null || entry.fitness.length != ind.getNumObjectives())
+        {
+            misses++;
+            return false;
+        }
+
+        if (entry.fitness.length == 1)
+        {
+            ind.setFitness(entry.fitness[0]);
+        }
+        else
+        {
+            for (int i = 0; i < entry.fitness.length; i++)
+            {
+                ind.setFitness(i, entry.fitness[i]);
+            }
+        }
+        ind.setConstraintError(entry.constraint_error);
+        ind.setSuccess(entry.success);
+
+        hits++;
+
+        return true;
+    }
+
+    /**
+     * Stores the evaluation results of the specified individual.
+     *
+     * @param  ind evaluated individual.
+     */
+    public synchronized void store(Individual ind)
+    {
+        if (!(ind instanceof GAIndividual) || max_entries <= 0)
+        {
+            return;
+        }
+
+        GenotypeKey key = new GenotypeKey();
+        key.hash = ind.getGenotypeHash();
+        key.genotype = new ArrayList<Object>(((GAIndividual<?>) ind).getGenotypeValues());
+
+        CachedEvaluation entry = new CachedEvaluation();
+        entry.fitness = ind.getFitnessArray().clone();
+        entry.constraint_error = ind.getConstraintError();
+        entry.success = ind.getSuccess();
+
+        entries.put(key, entry);
+    }
+
+    /**
+     * Empties the cache and resets the hit and miss counts.  This should be called
+     * whenever the fitness landscape changes.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Hash map key made up of the 64-bit genotype hash and the genotype values,
+     * which are only compared when the hashes match.
+     */
+    private static class GenotypeKey
+    {
+        private long hash;
+
+        private List<?> genotype;
+
+        @Override
+        public int hashCode()
+        {
+            return (int) (hash ^ (hash >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof GenotypeKey))
+            {
+                return false;
+            }
+
+            GenotypeKey key = (GenotypeKey) obj;
+
+            return this.hash == key.hash && this.genotype.equals(key.genotype);
+        }
+    }
+
+    /**
+     * Cached evaluation results.
+     */
+    private static class CachedEvaluation
+    {
+        private double[] fitness;
+
+        private double constraint_error;
+
+        private boolean success;
+    }
+}
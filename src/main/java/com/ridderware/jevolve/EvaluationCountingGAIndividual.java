@@ -18,6 +18,10 @@
  */
 package com.ridderware.jevolve;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * A GAIndividual with attributes for keeping track of the number of times it has been
  * evaluated.  We expect this to be useful for noisy problems where the number of
@@ -135,4 +139,38 @@ public class EvaluationCountingGAIndividual<E> extends GAIndividual<E>
 
         this.total_num_evaluations = ga_obj.total_num_evaluations;
     }
+
+    /**
+     * Writes the state of the individual, including its evaluation counts, to
+     * a checkpoint.
+     *
+     * @param  out checkpoint output.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public void writeCheckpoint(DataOutput out)
+        throws IOException
+    {
+        super.writeCheckpoint(out);
+
+        out.writeInt(total_num_evaluations);
+        out.writeInt(assigned_evaluations);
+    }
+
+    /**
+     * Reads the state of the individual, including its evaluation counts, from
+     * a checkpoint.
+     *
+     * @param  in checkpoint input.
+     * @throws IOException if the state cannot be read.
+     */
+    @Override
+    public void readCheckpoint(DataInput in)
+        throws IOException
+    {
+        super.readCheckpoint(in);
+
+        this.total_num_evaluations = in.readInt();
+        this.assigned_evaluations = in.readInt();
+    }
 }
@@ -18,8 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  * A basic flip mutator.  Flip mutation checks each gene for mutation (using
  * the individual's probability of mutation), and for mutated genes uses a 
@@ -40,15 +38,13 @@ public class FlipMutator<E> extends Mutator
     {
         GAIndividual<E> ga_ind = (GAIndividual<E>) ind;
 
-        for (int i = 0; i < ga_ind.getGenome().size(); i++)
+        int size = ga_ind.getGenome().size();
+        for (int i = nextLocus(-1, ind.getProbMutation(), size); i < size;
+            i = nextLocus(i, ind.getProbMutation(), size))
         {
-            if (MersenneTwisterFast.getInstance().nextDouble() <=
-                ind.getProbMutation())
-            {
-                ga_ind.setEvaluated(false);
-                ga_ind.setValue(i,
-                    ga_ind.getGenome().get(i).randomUniformValue());
-            }
+            ga_ind.setEvaluated(false);
+            ga_ind.setValue(i,
+                ga_ind.getGenome().get(i).randomUniformValue());
         }
     }
 }
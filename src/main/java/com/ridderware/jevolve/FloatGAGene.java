@@ -18,8 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  *  A continuous, float-valued gene.
  *
@@ -54,7 +52,7 @@ public class FloatGAGene extends GAGene<Float>
     @Override
     public Float randomUniformValue()
     {
-        float value = getLowerBound() + MersenneTwisterFast.getInstance().
+        float value = getLowerBound() + RandomSource.current().
             nextFloat() * (getUpperBound() - getLowerBound());
 
         return value;
@@ -71,7 +69,7 @@ public class FloatGAGene extends GAGene<Float>
     @Override
     public Float randomUniformValue(Float value, double multiplier)
     {
-        if (MersenneTwisterFast.getInstance().nextDouble() < 0.5)
+        if (RandomSource.current().nextDouble() < 0.5)
         {
             value += (float)(multiplier * (getUpperBound() - value));
         }
@@ -92,7 +90,7 @@ public class FloatGAGene extends GAGene<Float>
     @Override
     public Float randomGaussianValue(Float value)
     {
-        value += (float)(MersenneTwisterFast.getInstance().nextGaussian() * getSigma());
+        value += (float)(RandomSource.current().nextGaussian() * getSigma());
 
         value = Math.min(value, getUpperBound());
 
@@ -112,7 +110,7 @@ public class FloatGAGene extends GAGene<Float>
     @Override
     public Float randomGaussianValue(Float value, double multiplier)
     {
-        value += (float)(MersenneTwisterFast.getInstance().nextGaussian() * getSigma() *
+        value += (float)(RandomSource.current().nextGaussian() * getSigma() *
             multiplier);
 
         value = Math.min(value, getUpperBound());
@@ -20,12 +20,27 @@ package com.ridderware.jevolve;
 
 import org.apache.logging.log4j.*;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Generic class for genetic algorithm individuals.  This class extends the
  * base Individual class by adding attributes for genomes and genotypes.
+ * <p>
+ * Genotypes are copy-on-write: clones and deep copies share the genotype list of
+ * their source until one of them changes it, so children that pass through
+ * recombination and mutation unchanged never copy their genotype.  getGenotype
+ * returns a list that may be modified, copying it first if it is shared, so code
+ * that only reads the genotype should use getGenotypeValues, getValue and
+ * getGenotypeSize instead.  A list returned by getGenotype must not be kept and
+ * modified after the individual has been cloned or copied.
+ * <p>
+ * Changes made through setValue are recorded in the change set of the
+ * individual (see ChangeSet), while getGenotype and clearGenotype invalidate it.
  *
  * @param <E> gene type
  * @author Jeff Ridder
@@ -36,6 +51,8 @@ public class GAIndividual<E> extends Individual
 
     private ArrayList<E> genotype = new ArrayList<E>();
 
+    private boolean genotype_shared;
+
     private final static Logger logger = LogManager.getLogger(GAIndividual.class);
 
     /**
@@ -64,7 +81,10 @@ public class GAIndividual<E> extends Individual
      */
     public void setValue(int i, E value)
     {
-        genotype.set(i, value);
+        ArrayList<E> values = ownGenotype();
+        recordChange(i, values.get(i));
+        values.set(i, value);
+        invalidateGenotypeHash();
     }
 
     /**
@@ -78,12 +98,80 @@ public class GAIndividual<E> extends Individual
     }
 
     /**
-     * Returns the entire genotype.
+     * Returns the entire genotype for modification.  If the genotype is shared
+     * with another individual, it is copied first.  Since changes made through the
+     * list cannot be recorded, the change set and the genotype hash of the
+     * individual are invalidated.  Code that keeps the list and changes it after
+     * the hash has been read again must call invalidateGenotypeHash itself.
      *
      * @return  ArrayList of genotype values.
      */
     public ArrayList<E> getGenotype()
     {
+        invalidateChanges();
+        invalidateGenotypeHash();
+        return ownGenotype();
+    }
+
+    /**
+     * Returns the genotype for reading only.  The genotype is not copied even if
+     * it is shared, so the list must not be modified.
+     *
+     * @return list of genotype values.
+     */
+    public List<E> getGenotypeValues()
+    {
+        return genotype;
+    }
+
+    /**
+     * Returns whether the genotype is currently shared with another individual.
+     *
+     * @return true if shared.
+     */
+    public boolean getGenotypeShared()
+    {
+        return this.genotype_shared;
+    }
+
+    /**
+     * Makes sure this individual has its own copy of the genotype.
+     *
+     * @return genotype.
+     */
+    private ArrayList<E> ownGenotype()
+    {
+        if (genotype_shared)
+        {
+            genotype = new ArrayList<E>(genotype);
+            genotype_shared = false;
+        }
+
+        return genotype;
+    }
+
+    /**
+     * Empties the genotype so that it can be refilled, e.g., by a recombinator.
+     * A genotype shared with another individual is replaced by a new list
+     * rather than copied.  The change set and the genotype hash of the
+     * individual are invalidated.
+     *
+     * @return the empty genotype.
+     */
+    public ArrayList<E> clearGenotype()
+    {
+        invalidateChanges();
+        if (genotype_shared)
+        {
+            genotype = new ArrayList<E>(genome.size());
+            genotype_shared = false;
+        }
+        else
+        {
+            genotype.clear();
+        }
+
+        invalidateGenotypeHash();
         return genotype;
     }
 
@@ -155,7 +243,10 @@ public class GAIndividual<E> extends Individual
 
         obj.genome = this.genome;
 
-        obj.genotype = (ArrayList<E>) this.genotype.clone();
+        //  Share the genotype until one of us changes it.
+        obj.genotype = this.genotype;
+        obj.genotype_shared = true;
+        this.genotype_shared = true;
 
         return obj;
     }
@@ -175,7 +266,67 @@ public class GAIndividual<E> extends Individual
 
         this.genome = ga_obj.genome;
 
-        this.genotype = (ArrayList<E>) ga_obj.genotype.clone();
+        //  Share the genotype until one of us changes it.
+        if (this.genotype != ga_obj.genotype)
+        {
+            this.genotype = ga_obj.genotype;
+            this.genotype_shared = true;
+            ga_obj.genotype_shared = true;
+        }
+    }
+
+    /**
+     * Writes the state of the individual, including its genotype, to a
+     * checkpoint.  Genotype values must be of a type supported by
+     * Checkpoint.writeValue.
+     *
+     * @param  out checkpoint output.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public void writeCheckpoint(DataOutput out)
+        throws IOException
+    {
+        super.writeCheckpoint(out);
+
+        out.writeInt(genotype.size());
+        for (E value : genotype)
+        {
+            Checkpoint.writeValue(out, value);
+        }
+    }
+
+    /**
+     * Reads the state of the individual, including its genotype, from a
+     * checkpoint.
+     *
+     * @param  in checkpoint input.
+     * @throws IOException if the state cannot be read.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void readCheckpoint(DataInput in)
+        throws IOException
+    {
+        super.readCheckpoint(in);
+
+        int size = in.readInt();
+        if (size < 0)
+        {
+            throw new IOException("Bad genotype size " + size);
+        }
+
+        genotype = new ArrayList<E>(size);
+        genotype_shared = false;
+        for (int i = 0; i < size; i++)
+        {
+            genotype.add((E) Checkpoint.readValue(in));
+        }
+
+        if (getEvaluated())
+        {
+            beginChanges(this);
+        }
     }
 
     /**
@@ -184,11 +335,10 @@ public class GAIndividual<E> extends Individual
      */
     public void initialize()
     {
-        genotype.clear();
-
+        ArrayList<E> values = clearGenotype();
         for (GAGene<E> g : genome)
         {
-            genotype.add(g.randomUniformValue());
+            values.add(g.randomUniformValue());
         }
     }
 
@@ -240,9 +390,9 @@ public class GAIndividual<E> extends Individual
         GAIndividual<E> src = (GAIndividual<E>) ind;
 
         double distance = 0.;
-        for (int i = 0; i < src.getGenotype().size(); i++)
+        for (int i = 0; i < src.genotype.size(); i++)
         {
-            if (this.genotype.get(i) != src.getGenotype().get(i))
+            if (this.genotype.get(i) != src.genotype.get(i))
             {
                 distance += 1.;
             }
@@ -250,6 +400,54 @@ public class GAIndividual<E> extends Individual
 
         return distance;
     }
-}
 
+    /**
+     * Returns true if the genotype values of this and the specified individual
+     * are equal, element by element.
+     *
+     * @param  ind individual to compare with.
+     * @return true if the genotypes are identical, false otherwise.
+     */
+    @Override
+    public boolean genotypeEquals(Individual ind)
+    {
+        GAIndividual<E> src = (GAIndividual<E>) ind;
+
+        return this.genotype.equals(src.genotype);
+    }
+
+    /**
+     * Computes a 64-bit hash of the genotype values.  Floating point values are
+     * hashed from their full bit patterns to keep collisions rare.
+     *
+     * @return genotype hash.
+     */
+    @Override
+    protected long computeGenotypeHash()
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < genotype.size(); i++)
+        {
+            E value = genotype.get(i);
 
+            long bits;
+            if (value instanceof Double)
+            {
+                bits = Double.doubleToLongBits((Double) value);
+            }
+            else if (value instanceof Float)
+            {
+                bits = Float.floatToIntBits((Float) value);
+            }
+            else
+            {
+                bits = value == null ? 0L : value.hashCode();
+            }
+
+            hash = (hash ^ bits) * 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+
+        return hash ^ genotype.size();
+    }
+}
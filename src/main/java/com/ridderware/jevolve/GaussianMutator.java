@@ -18,7 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
 import org.apache.logging.log4j.*;
 
 /**
@@ -26,7 +25,8 @@ import org.apache.logging.log4j.*;
  *  positive mutation rate (>0), then for each locus throw the dice. If the dice are
  *  less than the individual's mutation rate, replace the value at that locus
  *  with its old value + a random gaussian value, using the sigma for that gene
- *  as the standard deviation.
+ *  as the standard deviation.  The loci are chosen first, and Double genes are
+ *  then mutated together (see Mutator.mutateGaussian).
  *
  * @param E gene type.
  * @author Jeff Ridder
@@ -47,17 +47,15 @@ public class GaussianMutator<E> extends Mutator
         {
             GAIndividual<E> ga_ind = (GAIndividual<E>) ind;
 
-            logger.debug("Ga Ind Genotype Size: " + ga_ind.getGenotype().size());
-            for (int i = 0; i < ga_ind.getGenotype().size(); i++)
+            logger.debug("Ga Ind Genotype Size: " + ga_ind.getGenotypeSize());
+            int size = ga_ind.getGenotypeSize();
+            GaussianBatch batch = gaussianBatch(size);
+            for (int i = nextLocus(-1, ind.getProbMutation(), size); i < size;
+                i = nextLocus(i, ind.getProbMutation(), size))
             {
-                if (MersenneTwisterFast.getInstance().nextDouble() <=
-                    ind.getProbMutation())
-                {
-                    ga_ind.setEvaluated(false);
-                    ga_ind.setValue(i,
-                        (ga_ind.getGenome().get(i)).randomGaussianValue(ga_ind.getValue(i)));
-                }
+                batch.add(i, 1.);
             }
+            mutateGaussian(ga_ind, batch, false);
         }
     }
 }
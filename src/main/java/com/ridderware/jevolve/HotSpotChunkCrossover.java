@@ -18,9 +18,7 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
 import org.apache.logging.log4j.*;
 
 /**
@@ -49,7 +47,7 @@ public class HotSpotChunkCrossover<E> extends Recombinator
         Individual child1, Individual child2)
     {
         //if we aren't going to xover, and the children don't exist, create them directly from their parents.
-        if (MersenneTwisterFast.getInstance().nextDouble() >
+        if (RandomSource.current().nextDouble() >
             parent2.getProbRecombination())
         {
             if (child1 != null)
@@ -83,25 +81,29 @@ public class HotSpotChunkCrossover<E> extends Recombinator
                 mom.getMaxNumChunks()) / 2);
 
             int numChunks = 0;
-            Set<Integer> xoverLocations = new HashSet<Integer>();
+            boolean[] xoverLocations = new boolean[dad.getGenotypeSize()];
+            int numXoverLocations = 0;
 
             // While we don't have too many chunks and there is enough space to get more chunks
-            while (numChunks < maxNumChunks && xoverLocations.size() <
+            while (numChunks < maxNumChunks && numXoverLocations <
                 Math.round(dad.getGenotypeSize() / 3))
             {
-                logger.debug("Looping to get chunks to xover. currently have: " +
-                    numChunks + " Max is: " + maxNumChunks);
-                logger.debug("Num XoverLocations: " + xoverLocations.size() +
-                    " should be < " + Math.round(dad.getGenotypeSize() / 3));
-                logger.debug("Dad genotype size: " + dad.getGenotypeSize());
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Looping to get chunks to xover. currently have: " +
+                        numChunks + " Max is: " + maxNumChunks);
+                    logger.debug("Num XoverLocations: " + numXoverLocations +
+                        " should be < " + Math.round(dad.getGenotypeSize() / 3));
+                    logger.debug("Dad genotype size: " + dad.getGenotypeSize());
+                }
 
-                int xoverPoint1 = dad.getHotSpotIndexFromPoints(MersenneTwisterFast.getInstance().
+                int xoverPoint1 = dad.getHotSpotIndexFromPoints(RandomSource.current().
                     nextInt(dad.getTotalHotSpotPoints()));
                 int xoverPoint2 = xoverPoint1;
 
                 while (xoverPoint1 == xoverPoint2)
                 {
-                    xoverPoint2 = dad.getHotSpotIndexFromPoints(MersenneTwisterFast.getInstance().
+                    xoverPoint2 = dad.getHotSpotIndexFromPoints(RandomSource.current().
                         nextInt(dad.getTotalHotSpotPoints()));
                 }
 
@@ -118,7 +120,7 @@ public class HotSpotChunkCrossover<E> extends Recombinator
                 boolean okay2add = true;
                 for (int i = xoverPoint1; i < xoverPoint2; i++)
                 {
-                    if (xoverLocations.contains(i))
+                    if (xoverLocations[i])
                     {
                         okay2add = false;
                         logger.debug("Cannot cross at xoverPoint1 or 2, sections already being crossed");
@@ -138,35 +140,36 @@ public class HotSpotChunkCrossover<E> extends Recombinator
                         xoverPoint1 + " to locus " + xoverPoint2);
                     for (; xoverPoint1 < xoverPoint2; xoverPoint1++)
                     {
-                        xoverLocations.add(xoverPoint1);
+                        xoverLocations[xoverPoint1] = true;
+                        numXoverLocations++;
                     }
                 }
             }
             logger.debug("Done chunking, we will cross :" +
-                xoverLocations.size() + " genes");
+                numXoverLocations + " genes");
 
-            boy.getGenotype().clear();
-            girl.getGenotype().clear();
-            for (int i = 0; i < mom.getGenotype().size(); i++)
+            ArrayList boyGenotype = boy.clearGenotype();
+            ArrayList girlGenotype = girl.clearGenotype();
+            for (int i = 0; i < mom.getGenotypeSize(); i++)
             {
-                if (xoverLocations.contains(i))
+                if (i < xoverLocations.length && xoverLocations[i])
                 {
-                    boy.getGenotype().add(mom.getGenotype().get(i));
-                    girl.getGenotype().add(dad.getGenotype().get(i));
+                    boyGenotype.add(mom.getValue(i));
+                    girlGenotype.add(dad.getValue(i));
                 }
                 else
                 {
-                    boy.getGenotype().add(dad.getGenotype().get(i));
-                    girl.getGenotype().add(mom.getGenotype().get(i));
+                    boyGenotype.add(dad.getValue(i));
+                    girlGenotype.add(mom.getValue(i));
                 }
             }
 
             logger.debug("Done crossing genes, setting up boy & girl hotspots");
 
             //move to junit test later.
-            if (boy.getGenotype().size() != dad.getGenotype().size() ||
-                boy.getGenotype().size() != mom.getGenotype().size() ||
-                boy.getGenotype().size() != girl.getGenotype().size())
+            if (boyGenotype.size() != dad.getGenotypeSize() ||
+                boyGenotype.size() != mom.getGenotypeSize() ||
+                boyGenotype.size() != girlGenotype.size())
             {
                 logger.error("Mismatching genotype sizes");
                 System.exit(1);
@@ -176,7 +179,9 @@ public class HotSpotChunkCrossover<E> extends Recombinator
             girl.setHotSpots(mom.getHotSpots());
 
             boy.setEvaluated(false);
+            boy.invalidateGenotypeHash();
             girl.setEvaluated(false);
+            girl.invalidateGenotypeHash();
         }
     }
 }
@@ -18,12 +18,18 @@
  */
 package com.ridderware.jevolve;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import org.apache.logging.log4j.*;
 
 /**
  * The HotSpotIndividual works with HotSpotChunkCrossover.  It keeps track of
  * the frequency of occurrence of crossover points in an attempt to locate those
- * that lead to improvement -- hot spots.
+ * that lead to improvement -- hot spots.  The hot spot points are also kept in a
+ * Fenwick (binary indexed) tree so that crossover points can be sampled in
+ * proportion to their points in O(log n) time.  Hot spot points should not be
+ * negative.
  *
  * @param E gene type
  * @author Jason HandUber
@@ -40,6 +46,10 @@ public class HotSpotIndividual<E> extends GAIndividual
 
     private int[] hotSpots;
 
+    private int[] tree;
+
+    private int totalPoints;
+
     /**
      *  Creates a new instance of HotSpotIndividual.
      */
@@ -47,6 +57,7 @@ public class HotSpotIndividual<E> extends GAIndividual
     {
         super();
         hotSpots = new int[getGenotypeSize()];
+        buildTree();
     }
 
     /**
@@ -59,6 +70,7 @@ public class HotSpotIndividual<E> extends GAIndividual
     {
         super();
         hotSpots = new int[getGenotypeSize()];
+        buildTree();
         this.maxNumChunks = maxNumChunks;
         this.initialValue = initialValue;
     }
@@ -71,10 +83,12 @@ public class HotSpotIndividual<E> extends GAIndividual
     public void setHotSpots(int[] hotSpots)
     {
         this.hotSpots = hotSpots.clone();
+        buildTree();
     }
 
     /**
-     *  Returns the hot spots.
+     *  Returns the hot spots.  The array must not be modified, since the
+     *  sampling tree would no longer match it; use setHotSpots instead.
      *
      * @return integer array.
      */
@@ -100,29 +114,78 @@ public class HotSpotIndividual<E> extends GAIndividual
      */
     public int getTotalHotSpotPoints()
     {
-        int hotSpotPoints = 0;
-        for (int i = 0; i < getGenotypeSize(); i++)
-        {
-            hotSpotPoints += hotSpots[i];
-        }
-        return hotSpotPoints;
+        return totalPoints;
     }
 
     /**
-     *  Returns the hot spot index for a specified point value.
+     *  Returns the hot spot index for a specified point value, i.e., the first
+     *  index at which the running total of hot spot points exceeds the value.
      *
-     * @param  pointValue  point value.
+     * @param  pointValue  point value, from 0 to the total points - 1.
      * @return  hot spot index.
      */
     public int getHotSpotIndexFromPoints(int pointValue)
     {
-        int currentIndex = 0;
-        int currentIndexPointValue = hotSpots[0];
-        while (currentIndexPointValue <= pointValue)
+        int n = hotSpots.length;
+        int step = Integer.highestOneBit(Math.max(n, 1));
+
+        //  Descend the tree to find the largest prefix whose total does not
+        //  exceed the point value.
+        int index = 0;
+        int remaining = pointValue;
+        for (; step > 0; step >>= 1)
+        {
+            int next = index + step;
+            if (next <= n && tree[next] <= remaining)
+            {
+                index = next;
+                remaining -= tree[next];
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Rebuilds the sampling tree and total from the hot spot array in O(n).
+     */
+    private void buildTree()
+    {
+        int n = hotSpots.length;
+        if (tree == null || tree.length != n + 1)
+        {
+            tree = new int[n + 1];
+        }
+
+        totalPoints = 0;
+        for (int i = 1; i <= n; i++)
+        {
+            tree[i] = hotSpots[i - 1];
+            totalPoints += hotSpots[i - 1];
+        }
+        for (int i = 1; i <= n; i++)
+        {
+            int parent = i + (i & -i);
+            if (parent <= n)
+            {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Adds points to the hot spot at the specified index.
+     *
+     * @param  index hot spot index.
+     * @param  points points to add.
+     */
+    private void addPoints(int index, int points)
+    {
+        hotSpots[index] += points;
+        totalPoints += points;
+        for (int i = index + 1; i < tree.length; i += i & -i)
         {
-            currentIndexPointValue += hotSpots[++currentIndex];
+            tree[i] += points;
         }
-        return currentIndex;
     }
 
     /**
@@ -139,6 +202,7 @@ public class HotSpotIndividual<E> extends GAIndividual
         {
             hotSpots[i] = initialValue;
         }
+        buildTree();
     }
 
     /**
@@ -150,8 +214,8 @@ public class HotSpotIndividual<E> extends GAIndividual
      */
     public void addCrossoverEvent(int location1, int location2)
     {
-        hotSpots[location1]++;
-        hotSpots[location2]++;
+        addPoints(location1, 1);
+        addPoints(location2, 1);
     }
 
     /**
@@ -176,6 +240,7 @@ public class HotSpotIndividual<E> extends GAIndividual
                     softResetFactor)));
             }
         }
+        buildTree();
     }
 
     /**
@@ -184,10 +249,11 @@ public class HotSpotIndividual<E> extends GAIndividual
      */
     public void hardReset()
     {
-        for (Integer i : hotSpots)
+        for (int i = 0; i < hotSpots.length; i++)
         {
-            i = initialValue;
+            hotSpots[i] = initialValue;
         }
+        buildTree();
     }
 
     /**
@@ -205,6 +271,8 @@ public class HotSpotIndividual<E> extends GAIndividual
 
         obj.hotSpots = hotSpots.clone();
         //array of ints
+        obj.tree = tree.clone();
+        obj.totalPoints = totalPoints;
 
         return obj;
     }
@@ -215,15 +283,72 @@ public class HotSpotIndividual<E> extends GAIndividual
      *
      * @param  obj individual to be deep copied.
      */
-    public void deepCopy(HotSpotIndividual<E> obj)
+    @Override
+    public void deepCopy(Individual obj)
     {
         super.deepCopy(obj);
 
-        this.maxNumChunks = obj.maxNumChunks;
-        this.initialValue = obj.initialValue;
+        HotSpotIndividual<E> src = (HotSpotIndividual<E>) obj;
+
+        this.maxNumChunks = src.maxNumChunks;
+        this.initialValue = src.initialValue;
+
+        if (this.hotSpots.length != src.hotSpots.length)
+        {
+            this.hotSpots = new int[src.hotSpots.length];
+            this.tree = new int[src.tree.length];
+        }
+        System.arraycopy(src.hotSpots, 0, this.hotSpots, 0,
+            src.hotSpots.length);
+        System.arraycopy(src.tree, 0, this.tree, 0, src.tree.length);
+        this.totalPoints = src.totalPoints;
+    }
 
-        this.hotSpots = obj.hotSpots;
-    //array of ints
+    /**
+     * Writes the state of the individual, including its hot spots, to a
+     * checkpoint.
+     *
+     * @param  out checkpoint output.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public void writeCheckpoint(DataOutput out)
+        throws IOException
+    {
+        super.writeCheckpoint(out);
+
+        out.writeInt(hotSpots.length);
+        for (int points : hotSpots)
+        {
+            out.writeInt(points);
+        }
+    }
+
+    /**
+     * Reads the state of the individual, including its hot spots, from a
+     * checkpoint.
+     *
+     * @param  in checkpoint input.
+     * @throws IOException if the state cannot be read.
+     */
+    @Override
+    public void readCheckpoint(DataInput in)
+        throws IOException
+    {
+        super.readCheckpoint(in);
+
+        int size = in.readInt();
+        if (size < 0)
+        {
+            throw new IOException("Bad number of hot spots " + size);
+        }
+
+        hotSpots = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            hotSpots[i] = in.readInt();
+        }
+        buildTree();
     }
 }
 
@@ -0,0 +1,45 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * An evaluator that can update the fitness of an individual from the fitness of
+ * the individual it was derived from and the changes made since (see ChangeSet).
+ * The population calls evaluateFitness(Individual, ChangeSet) in place of
+ * evaluateFitness(Individual) whenever the individual has a valid change set,
+ * and falls back to a full evaluation if it returns false.  Constraints are
+ * always evaluated in full.
+ *
+ * @author Jeff Ridder
+ */
+public interface IncrementalEvaluatorInterface extends EvaluatorInterface
+{
+    /**
+     * Called to evaluate the fitness of the specified individual incrementally.
+     * The individual fitness should be set via a setFitness call prior to
+     * returning true.  The base fitness of the change set must not be assumed
+     * to still be the individual's fitness, which breeders may have reset.
+     *
+     * @param  ind individual to be evaluated for fitness.
+     * @param  changes changes made to the individual since its base was evaluated.
+     * @return true if the fitness was evaluated, false if a full evaluation is
+     *      needed.
+     */
+    public boolean evaluateFitness(Individual ind, ChangeSet changes);
+}
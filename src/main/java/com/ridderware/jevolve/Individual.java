@@ -18,7 +18,11 @@
  */
 package com.ridderware.jevolve;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.*;
 
 /**
@@ -42,7 +46,9 @@ public abstract class Individual implements Cloneable, Serializable
         INCOMPARABLE
     }
 
-    private static long last_id = 0;
+    private final static AtomicLong last_id = new AtomicLong();
+
+    private final static ThreadLocal<long[]> id_block = new ThreadLocal<long[]>();
 
     private double[] fitness;
 
@@ -66,7 +72,13 @@ public abstract class Individual implements Cloneable, Serializable
 
     private Population pop;
 
-    private long id = ++last_id;
+    private long id = nextID();
+
+    private transient long genotype_hash;
+
+    private transient boolean genotype_hash_valid;
+
+    private transient ChangeSet change_set;
 
     private final static Logger logger = LogManager.getLogger(Individual.class);
 
@@ -116,6 +128,77 @@ public abstract class Individual implements Cloneable, Serializable
         this.pop = null;
     }
 
+    /**
+     * Returns a new, unique individual ID.  IDs come from the calling thread's
+     * reserved block if it has one (see reserveIDs), and otherwise from a global
+     * atomic counter.
+     *
+     * @return new ID.
+     */
+    protected static long nextID()
+    {
+        long[] block = id_block.get();
+        if (block != null && block[0] < block[1])
+        {
+            return block[0]++;
+        }
+
+        return last_id.incrementAndGet();
+    }
+
+    /**
+     * Reserves a contiguous block of IDs.  The block can then be handed out to a
+     * thread with setIDBlock, so that threads creating individuals concurrently
+     * don't contend for the counter and get the same IDs from run to run.
+     *
+     * @param  count number of IDs to reserve.
+     * @return first ID of the block.
+     */
+    public static long reserveIDs(long count)
+    {
+        return last_id.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Returns the last ID issued by the global counter.
+     *
+     * @return last ID.
+     */
+    static long getLastID()
+    {
+        return last_id.get();
+    }
+
+    /**
+     * Sets the last ID issued by the global counter, as when a run is restored
+     * from a checkpoint.
+     *
+     * @param  id last ID.
+     */
+    static void setLastID(long id)
+    {
+        last_id.set(id);
+    }
+
+    /**
+     * Sets the block of IDs used by the calling thread for new individuals.  If
+     * the block is used up, IDs are taken from the global counter.
+     *
+     * @param  first first ID of the block, from reserveIDs.
+     * @param  count number of IDs in the block, or 0 to clear the block.
+     */
+    public static void setIDBlock(long first, long count)
+    {
+        if (count <= 0)
+        {
+            id_block.remove();
+        }
+        else
+        {
+            id_block.set(new long[] {first, first + count});
+        }
+    }
+
     /**
      *  Sets the population that this individual belongs to.
      *
@@ -187,6 +270,70 @@ public abstract class Individual implements Cloneable, Serializable
     public void setEvaluated(boolean evaluated)
     {
         this.evaluated = evaluated;
+
+        if (evaluated)
+        {
+            beginChanges(this);
+        }
+    }
+
+    /**
+     * Returns the changes made to this individual since it was last evaluated
+     * or copied from an evaluated individual, or null if they are not known.
+     *
+     * @return change set, or null.
+     */
+    public ChangeSet getChangeSet()
+    {
+        return change_set != null && change_set.getValid() ? change_set : null;
+    }
+
+    /**
+     * Starts recording changes relative to the specified individual, whose
+     * genotype must be the same as this individual's.  Changes are only
+     * recorded if the base has been evaluated.
+     *
+     * @param  base individual whose fitness is the base of the change set.
+     */
+    protected void beginChanges(Individual base)
+    {
+        if (change_set == null)
+        {
+            if (!base.getEvaluated())
+            {
+                return;
+            }
+            change_set = new ChangeSet();
+        }
+
+        change_set.reset(base);
+    }
+
+    /**
+     * Records a change to the genotype.  Subclasses call this before changing the
+     * value at a locus.
+     *
+     * @param  locus index of the value being changed.
+     * @param  old_value value before the change.
+     */
+    protected void recordChange(int locus, Object old_value)
+    {
+        if (change_set != null)
+        {
+            change_set.add(locus, old_value);
+        }
+    }
+
+    /**
+     * Discards the change set after a change to the genotype that could not be
+     * recorded.
+     */
+    protected void invalidateChanges()
+    {
+        if (change_set != null)
+        {
+            change_set.invalidate();
+        }
     }
 
     /**
@@ -425,6 +572,60 @@ public abstract class Individual implements Cloneable, Serializable
      */
     public abstract double genotypeDistance(Individual ind);
 
+    /**
+     * Returns true if this individual has the same genotype as the specified
+     * individual.  The default implementation tests for a genotype distance of zero.
+     *
+     * @param  ind individual to compare with.
+     * @return true if the genotypes are identical, false otherwise.
+     */
+    public boolean genotypeEquals(Individual ind)
+    {
+        return genotypeDistance(ind) == 0.;
+    }
+
+    /**
+     * Returns a 64-bit hash of the genotype.  The hash is computed lazily and
+     * cached until invalidated, so operators that change the genotype must call
+     * invalidateGenotypeHash.  Individuals with equal genotypes always have
+     * equal hashes, so the hash may be used to find duplicates in constant time,
+     * with genotypeEquals resolving collisions.
+     *
+     * @return genotype hash.
+     */
+    public long getGenotypeHash()
+    {
+        if (!genotype_hash_valid)
+        {
+            genotype_hash = computeGenotypeHash();
+            genotype_hash_valid = true;
+        }
+
+        return genotype_hash;
+    }
+
+    /**
+     * Invalidates the cached genotype hash.  This must be called whenever the
+     * genotype is changed.
+     */
+    public void invalidateGenotypeHash()
+    {
+        this.genotype_hash_valid = false;
+    }
+
+    /**
+     * Computes the 64-bit genotype hash.  Subclasses should override this
+     * for their genotype representation.  The default returns the same value for
+     * every individual, which is correct but reduces duplicate detection to
+     * pairwise comparison.
+     *
+     * @return genotype hash.
+     */
+    protected long computeGenotypeHash()
+    {
+        return 0L;
+    }
+
     /**
      * Computes and returns the distance to the specified individual in terms
      * of fitness.
@@ -592,8 +793,13 @@ public abstract class Individual implements Cloneable, Serializable
             obj.pareto_rank = this.pareto_rank;
             obj.crowding_distance = this.crowding_distance;
             obj.pop = this.pop;
-            obj.id = ++last_id;
-            logger.debug("Cloning, id, lastId" + obj.id + "," + last_id);
+            obj.id = nextID();
+            obj.change_set = null;
+            obj.beginChanges(this);
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Cloning, id, lastId" + obj.id + "," + last_id.get());
+            }
 
             return obj;
         }
@@ -627,7 +833,81 @@ public abstract class Individual implements Cloneable, Serializable
         this.pareto_rank = obj.pareto_rank;
         this.crowding_distance = obj.crowding_distance;
         this.pop = obj.pop;
-        this.id = ++last_id;
-        logger.debug("Deep-Copying: id, last_id" + this.id + "," + last_id);
+        this.genotype_hash = obj.genotype_hash;
+        this.genotype_hash_valid = obj.genotype_hash_valid;
+        this.id = nextID();
+        beginChanges(obj);
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Deep-Copying: id, last_id" + this.id + "," + last_id.get());
+        }
+    }
+
+    /**
+     * Writes the state of the individual to a checkpoint (see Checkpoint).  This
+     * writes the ID, fitness, Pareto rank, crowding distance, constraint error
+     * and evaluation state, but not the user data.  Subclasses with state of their
+     * own, such as a genotype, override this to write it after calling the
+     * superclass method.
+     *
+     * @param  out checkpoint output.
+     * @throws IOException if the state cannot be written.
+     */
+    public void writeCheckpoint(DataOutput out)
+        throws IOException
+    {
+        out.writeLong(id);
+        out.writeInt(fitness.length);
+        for (double f : fitness)
+        {
+            out.writeDouble(f);
+        }
+        out.writeDouble(adjusted_fitness);
+        out.writeDouble(constraint_error);
+        out.writeInt(pareto_rank);
+        out.writeDouble(crowding_distance);
+        out.writeBoolean(success);
+        out.writeBoolean(evaluated);
+        out.writeDouble(prob_recombination);
+        out.writeDouble(prob_mutation);
+    }
+
+    /**
+     * Reads the state of the individual from a checkpoint, in the order in which
+     * writeCheckpoint wrote it.  Subclasses that override writeCheckpoint
+     * override this as well.
+     *
+     * @param  in checkpoint input.
+     * @throws IOException if the state cannot be read.
+     */
+    public void readCheckpoint(DataInput in)
+        throws IOException
+    {
+        id = in.readLong();
+        int num_objectives = in.readInt();
+        if (num_objectives < 0)
+        {
+            throw new IOException("Bad number of objectives " + num_objectives);
+        }
+        if (fitness.length != num_objectives)
+        {
+            fitness = new double[num_objectives];
+        }
+        for (int i = 0; i < num_objectives; i++)
+        {
+            fitness[i] = in.readDouble();
+        }
+        adjusted_fitness = in.readDouble();
+        constraint_error = in.readDouble();
+        pareto_rank = in.readInt();
+        crowding_distance = in.readDouble();
+        success = in.readBoolean();
+        evaluated = in.readBoolean();
+        prob_recombination = in.readDouble();
+        prob_mutation = in.readDouble();
+
+        //  The genotype read by subclasses is not a change from anything.
+        invalidateChanges();
+        invalidateGenotypeHash();
     }
 }
@@ -0,0 +1,172 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of discarded individuals that can be reused in place of newly cloned
+ * ones.  Individuals that are removed from a population (e.g., the losers of
+ * replacement) are recycled into the pool, and breeders acquire children from
+ * the pool by deep copying a template individual into a recycled one.  In
+ * steady state this means that breeding allocates almost no new individuals.
+ *
+ * @author Jeff Ridder
+ */
+public class IndividualPool
+{
+    private ArrayDeque<Individual> free = new ArrayDeque<Individual>();
+
+    private int max_size;
+
+    private long num_acquired;
+
+    private long num_reused;
+
+    /**
+     *  Constructor for the IndividualPool object
+     *
+     * @param  max_size maximum number of individuals held by the pool.
+     */
+    public IndividualPool(int max_size)
+    {
+        this.max_size = max_size;
+        this.num_acquired = 0;
+        this.num_reused = 0;
+    }
+
+    /**
+     * Sets the maximum number of individuals held by the pool.
+     *
+     * @param  max_size maximum pool size.
+     */
+    public synchronized void setMaxSize(int max_size)
+    {
+        this.max_size = max_size;
+
+        while (free.size() > max_size)
+        {
+            free.poll();
+        }
+    }
+
+    /**
+     * Returns the maximum number of individuals held by the pool.
+     *
+     * @return maximum pool size.
+     */
+    public int getMaxSize()
+    {
+        return this.max_size;
+    }
+
+    /**
+     * Returns the number of individuals currently available for reuse.
+     *
+     * @return number of pooled individuals.
+     */
+    public synchronized int size()
+    {
+        return free.size();
+    }
+
+    /**
+     * Returns the number of individuals acquired from the pool since it was
+     * created or last cleared.
+     *
+     * @return number of acquired individuals.
+     */
+    public synchronized long getNumAcquired()
+    {
+        return this.num_acquired;
+    }
+
+    /**
+     * Returns the number of acquisitions that were satisfied by a recycled
+     * individual rather than a new clone.
+     *
+     * @return number of reused individuals.
+     */
+    public synchronized long getNumReused()
+    {
+        return this.num_reused;
+    }
+
+    /**
+     * Returns a copy of the template individual.  A recycled individual is
+     * deep copied from the template if one of the same class is available,
+     * otherwise the template is cloned.  The pool may be shared by breeding
+     * threads; only the hand-off of a recycled individual is synchronized,
+     * the copy itself happens outside the lock.
+     *
+     * @param  template individual to copy.
+     * @return a copy of the template with a new ID.
+     */
+    public Individual acquire(Individual template)
+    {
+        Individual ind = null;
+
+        synchronized (this)
+        {
+            num_acquired++;
+
+            Individual head = free.peek();
+            if (head != null && head.getClass() == template.getClass())
+            {
+                ind = free.poll();
+                num_reused++;
+            }
+        }
+
+        if (ind != null)
+        {
+            ind.deepCopy(template);
+            return ind;
+        }
+
+        return template.clone();
+    }
+
+    /**
+     * Returns a discarded individual to the pool.  The caller must no longer
+     * reference the individual.  Individuals beyond the maximum pool size are
+     * simply left for the garbage collector.
+     *
+     * @param  ind individual to recycle.
+     */
+    public synchronized void recycle(Individual ind)
+    {
+        if (ind != null && free.size() < max_size)
+        {
+            ind.setPopulation(null);
+            ind.setUserData(null);
+            free.push(ind);
+        }
+    }
+
+    /**
+     * Empties the pool and resets the counters.
+     */
+    public synchronized void clear()
+    {
+        free.clear();
+        num_acquired = 0;
+        num_reused = 0;
+    }
+}
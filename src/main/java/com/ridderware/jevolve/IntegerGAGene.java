@@ -18,8 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  * An integer valued gene.
  *
@@ -54,7 +52,7 @@ public class IntegerGAGene extends GAGene<Integer>
      */
     public Integer randomUniformValue()
     {
-        Integer value = getLowerBound() + (MersenneTwisterFast.getInstance().
+        Integer value = getLowerBound() + (RandomSource.current().
             nextInt(getUpperBound() - getLowerBound() + 1));
 
         return value;
@@ -70,7 +68,7 @@ public class IntegerGAGene extends GAGene<Integer>
      */
     public Integer randomUniformValue(Integer value, double multiplier)
     {
-        if (MersenneTwisterFast.getInstance().nextDouble() < 0.5)
+        if (RandomSource.current().nextDouble() < 0.5)
         {
             value += (int) (multiplier * (getUpperBound() - value));
         }
@@ -90,7 +88,7 @@ public class IntegerGAGene extends GAGene<Integer>
      */
     public Integer randomGaussianValue(Integer value)
     {
-        value += (int) (MersenneTwisterFast.getInstance().nextGaussian() *
+        value += (int) (RandomSource.current().nextGaussian() *
             getSigma());
 
         value = Math.min(value, getUpperBound());
@@ -110,7 +108,7 @@ public class IntegerGAGene extends GAGene<Integer>
      */
     public Integer randomGaussianValue(Integer value, double multiplier)
     {
-        value += (int) (MersenneTwisterFast.getInstance().nextGaussian() *
+        value += (int) (RandomSource.current().nextGaussian() *
             getSigma() * multiplier);
 
         value = Math.min(value, getUpperBound());
@@ -19,16 +19,22 @@
 package com.ridderware.jevolve;
 
 import org.apache.logging.log4j.*;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Class for computing and recording statistics for multi-objective evolution.  This
  * class replaces MultiObjectiveStatistics due to its improved checkpointing.  That is,
  * it creates state files by serializing the entire Population object.  
+ * <p>
+ * Each period's Pareto output is a tab-separated .pareto file by default.
+ * setBinarySnapshots(true) writes a binary ParetoSnapshot instead, which is
+ * faster to write and to read back, and setStateFiles(false) turns off the
+ * state files.  To keep every generation's snapshot in a single compressed
+ * file, set a run archive (see Statistics.setRunArchive).
  *
  * @author Jeff Ridder
  */
@@ -44,6 +50,10 @@ public class MOStatistics extends Statistics
 
     private java.io.File paretoFile;
 
+    private boolean binary_snapshots = false;
+
+    private boolean state_files = true;
+
     /**
      *  Constructor for the MOStatistics object
      */
@@ -110,6 +120,50 @@ public class MOStatistics extends Statistics
         return this.period;
     }
 
+    /**
+     * Sets whether Pareto output is written as binary snapshots or as
+     * tab-separated text (the default).
+     *
+     * @param  binary_snapshots true for binary snapshots.
+     */
+    public void setBinarySnapshots(boolean binary_snapshots)
+    {
+        this.binary_snapshots = binary_snapshots;
+    }
+
+    /**
+     * Returns whether Pareto output is written as binary snapshots.
+     *
+     * @return true for binary snapshots.
+     */
+    public boolean getBinarySnapshots()
+    {
+        return binary_snapshots;
+    }
+
+    /**
+     * Sets whether the whole population is serialized to a state file each
+     * period.  This is on by default.  The population is serialized into
+     * memory, and the file is written by the checkpoint writer in the
+     * background (see getCheckpointWriter).
+     *
+     * @param  state_files true to write state files.
+     */
+    public void setStateFiles(boolean state_files)
+    {
+        this.state_files = state_files;
+    }
+
+    /**
+     * Returns whether state files are written.
+     *
+     * @return true if state files are written.
+     */
+    public boolean getStateFiles()
+    {
+        return state_files;
+    }
+
     /**
      * Prints a header over each column in Pareto files.
      *
@@ -121,14 +175,15 @@ public class MOStatistics extends Statistics
     {
         if (getFile() != null)
         {
-            String header = "Individual ID #";
-            header += "\tPareto Rank";
-            header += "\tConstraint Error";
-            header += "\tObjective 1 Fitness Score";
-            header += "\tObjective 2 Fitness Score";
-            header += "\tObjective 3 Fitness Score...";
-
-            string2file(append, header, getFile());
+            StringBuilder header = getLineBuffer();
+            header.append("Individual ID #");
+            header.append("\tPareto Rank");
+            header.append("\tConstraint Error");
+            header.append("\tObjective 1 Fitness Score");
+            header.append("\tObjective 2 Fitness Score");
+            header.append("\tObjective 3 Fitness Score...");
+
+            string2file(append, header.toString(), getFile());
         }
     }
 
@@ -141,51 +196,66 @@ public class MOStatistics extends Statistics
     @Override
     public void outputGenerationalStats(Population pop)
     {
-        String popStats = "";
-
         if (pop.getProblem().getStepper().getCurrentGeneration() >=
             last_output + period)
         {
-
-            for (Individual ind : pop.getIndividuals())
+            if (binary_snapshots || getRunArchive() != null)
+            {
+                paretoFile = new java.io.File(paretoDir.getAbsolutePath() +
+                    java.io.File.separator + "pareto_" +
+                    Double.toString(pop.getProblem().getStepper().
+                    getCurrentGeneration()) + ParetoSnapshot.EXTENSION);
+                logger.debug("Outputting pareto-snapshot to: " +
+                    paretoFile.getAbsolutePath());
+                snapshot2file(new ParetoSnapshot(pop), paretoFile);
+            }
+            else
             {
-                popStats += Long.toString(ind.getMyID()) + "\t";
-                logger.debug("Individual ID in Population: " + ind.getMyID());
-                popStats += Integer.toString(ind.getParetoRank()) + "\t";
-                popStats += Double.toString(ind.getConstraintError()) + "\t";
-                for (Double fitness : ind.getFitnessArray())
+                StringBuilder popStats = getLineBuffer();
+                for (Individual ind : pop.getIndividuals())
                 {
-                    popStats += Double.toString(fitness) + "\t";
+                    popStats.append(ind.getMyID()).append('\t');
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Individual ID in Population: " + ind.getMyID());
+                    }
+                    popStats.append(ind.getParetoRank()).append('\t');
+                    popStats.append(ind.getConstraintError()).append('\t');
+                    for (double fitness : ind.getFitnessArray())
+                    {
+                        popStats.append(fitness).append('\t');
+                    }
+                    popStats.append('\n');
                 }
-                popStats += "\n";
+                paretoFile = new java.io.File(paretoDir.getAbsolutePath() +
+                    java.io.File.separator + "pareto_" +
+                    Double.toString(pop.getProblem().getStepper().
+                    getCurrentGeneration()) + ".pareto");
+                logger.debug("Outputting pareto-file to: " +
+                    paretoFile.getAbsolutePath());
+                string2newFile(popStats.toString(), paretoFile);
             }
-            paretoFile = new java.io.File(paretoDir.getAbsolutePath() +
-                java.io.File.separator + "pareto_" +
-                Double.toString(pop.getProblem().getStepper().
-                getCurrentGeneration()) + ".pareto");
-            logger.debug("Outputting pareto-file to: " +
-                paretoFile.getAbsolutePath());
-            string2file(false, popStats, paretoFile);
-
-            try
+
+            if (state_files)
             {
-                FileOutputStream outFile = new FileOutputStream(new File(paretoFile.getParent() + File.separator + "main_" + pop.getProblem().
-                    getStepper().getCurrentGeneration() + ".state"));
-                ObjectOutputStream outStream = new ObjectOutputStream(outFile);
+                try
+                {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    ObjectOutputStream outStream = new ObjectOutputStream(bytes);
 
-                outStream.writeObject(pop);
+                    outStream.writeObject(pop);
 
-                outStream.flush();
-                outStream.close();
-                outFile.close();
-            }
-            catch (FileNotFoundException e)
-            {
-                e.printStackTrace();
-            }
-            catch (IOException e)
-            {
-                e.printStackTrace();
+                    outStream.flush();
+                    outStream.close();
+
+                    getCheckpointWriter().write(new File(paretoFile.getParent() + File.separator + "main_" + pop.getProblem().
+                        getStepper().getCurrentGeneration() + ".state"),
+                        ByteBuffer.wrap(bytes.toByteArray()));
+                }
+                catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
             }
 
             last_output = pop.getProblem().getStepper().getCurrentGeneration();
@@ -147,6 +147,43 @@ public class MTDynamicNSGAProblem extends Problem
 
     private final List<Future> futures = new ArrayList<Future>();
 
+    /**
+     * Returns whether the stepper is seeded, in which case each evaluation task
+     * gets its own random stream, so that the results don't depend on which
+     * evaluator thread runs it.
+     *
+     * @return true if seeded.
+     */
+    private boolean getSeeded()
+    {
+        return getStepper() != null && getStepper().getRandomSource() != null;
+    }
+
+    /**
+     * Runs the task with the specified stream bound to the calling thread.
+     *
+     * @param  stream random stream, or null to use the thread's current one.
+     * @param  task task to run.
+     */
+    private static void runWith(RandomSource stream, Runnable task)
+    {
+        if (stream == null)
+        {
+            task.run();
+            return;
+        }
+
+        RandomSource previous = RandomSource.setCurrent(stream);
+        try
+        {
+            task.run();
+        }
+        finally
+        {
+            RandomSource.setCurrent(previous);
+        }
+    }
+
     /**
      *  Evaluates all populations contained by the problem.
      */
@@ -166,6 +203,7 @@ public class MTDynamicNSGAProblem extends Problem
             chillen[i].setMaxPopulationSize(1);
             chillen[i].setElitist(papa.getElitist());
             chillen[i].setForceEvaluation(papa.getForceEvaluation());
+            chillen[i].setEvaluationCache(papa.getEvaluationCache());
             chillen[i].setMaxNumberOfElites(1);
             chillen[i].setNumberEvaluated(0);
             chillen[i].setProblem(papa.getProblem());
@@ -173,9 +211,15 @@ public class MTDynamicNSGAProblem extends Problem
             i++;
         }
 
+        final boolean seeded = getSeeded();
+        final long seed = seeded ? RandomSource.current().nextLong() : 0L;
+
+        int index = 0;
         for (final Population child : chillen)
         {
             final EvaluatorInterface evaluator;
+            final RandomSource stream =
+                seeded ? RandomSource.create(seed, index++) : null;
 
             try
             {
@@ -190,7 +234,13 @@ public class MTDynamicNSGAProblem extends Problem
             {
                 public void run()
                 {
-                    child.evaluate(evaluator);
+                    runWith(stream, new Runnable()
+                    {
+                        public void run()
+                        {
+                            child.evaluate(evaluator);
+                        }
+                    });
                     if (child.getDone())
                     {
                         done.set(true);
@@ -261,9 +311,15 @@ public class MTDynamicNSGAProblem extends Problem
             i++;
         }
 
+        final boolean seeded = getSeeded();
+        final long seed = seeded ? RandomSource.current().nextLong() : 0L;
+
+        int index = 0;
         for (final Population child : chillen)
         {
             final EvaluatorInterface evaluator;
+            final RandomSource stream =
+                seeded ? RandomSource.create(seed, index++) : null;
 
             try
             {
@@ -278,7 +334,13 @@ public class MTDynamicNSGAProblem extends Problem
             {
                 public void run()
                 {
-                    evaluator.postevaluate(child);
+                    runWith(stream, new Runnable()
+                    {
+                        public void run()
+                        {
+                            evaluator.postevaluate(child);
+                        }
+                    });
                     try
                     {
                         evaluatorsQ.put(evaluator);
@@ -75,17 +75,18 @@ public class MultiObjectivePopulation extends Population
         //    Find elites
         for (int i = 0; i < getMaxNumberOfElites(); i++)
         {
-            Individual ind = getIndividual(i).clone();
+            Individual ind = acquireIndividual(getIndividual(i));
             addElite(getIndividual(i));
-            removeIndividual(i);
-            addIndividual(i, ind);
+            getIndividuals().set(i, ind);
+            ind.setPopulation(this);
         }
 
         int num = getPopulationSize() - getMaxPopulationSize();
         for (int i = num - 1; i >= 0; i--)
         {
-            removeIndividual(getMaxPopulationSize() + i);
+            recycleIndividual(getIndividuals().remove(getMaxPopulationSize() + i));
         }
+        invalidateStatistics();
 
         if (getElites().size() != getMaxNumberOfElites())
         {
@@ -226,6 +227,7 @@ public class MultiObjectivePopulation extends Population
         }
 
         getIndividuals().addAll(temp_list);
+        invalidateStatistics();
 
         temp_list.clear();
     }
@@ -23,6 +23,10 @@ import java.io.File;
 
 /**
  * Class for computing and recording statistics for multi-objective evolution.
+ * Each period's Pareto output is a tab-separated .pareto file and a state
+ * file by default; setBinarySnapshots(true) writes a binary ParetoSnapshot
+ * instead of the text file, and setStateFiles(false) turns off the state files.
+ * If a run archive is set, the snapshots are appended to it instead.
  *
  * @author Jeff Ridder
  * @deprecated deprecated in favor of MOStatistics
@@ -41,6 +45,10 @@ public class MultiObjectiveStatistics extends Statistics
 
     private java.io.File paretoFile;
 
+    private boolean binary_snapshots = false;
+
+    private boolean state_files = true;
+
     /**
      *  Constructor for the MultiObjectiveStatistics object
      */
@@ -96,6 +104,48 @@ public class MultiObjectiveStatistics extends Statistics
         return this.period;
     }
 
+    /**
+     * Sets whether Pareto output is written as binary snapshots or as
+     * tab-separated text (the default).
+     *
+     * @param  binary_snapshots true for binary snapshots.
+     */
+    public void setBinarySnapshots(boolean binary_snapshots)
+    {
+        this.binary_snapshots = binary_snapshots;
+    }
+
+    /**
+     * Returns whether Pareto output is written as binary snapshots.
+     *
+     * @return true for binary snapshots.
+     */
+    public boolean getBinarySnapshots()
+    {
+        return binary_snapshots;
+    }
+
+    /**
+     * Sets whether the population is written to a state file each period.  This
+     * is on by default.
+     *
+     * @param  state_files true to write state files.
+     */
+    public void setStateFiles(boolean state_files)
+    {
+        this.state_files = state_files;
+    }
+
+    /**
+     * Returns whether state files are written.
+     *
+     * @return true if state files are written.
+     */
+    public boolean getStateFiles()
+    {
+        return state_files;
+    }
+
     /**
      * Prints a header over each column in Pareto files.
      *
@@ -107,14 +157,15 @@ public class MultiObjectiveStatistics extends Statistics
     {
         if (getFile() != null)
         {
-            String header = "Individual ID #";
-            header += "\tPareto Rank";
-            header += "\tConstraint Error";
-            header += "\tObjective 1 Fitness Score";
-            header += "\tObjective 2 Fitness Score";
-            header += "\tObjective 3 Fitness Score...";
-
-            string2file(append, header, getFile());
+            StringBuilder header = getLineBuffer();
+            header.append("Individual ID #");
+            header.append("\tPareto Rank");
+            header.append("\tConstraint Error");
+            header.append("\tObjective 1 Fitness Score");
+            header.append("\tObjective 2 Fitness Score");
+            header.append("\tObjective 3 Fitness Score...");
+
+            string2file(append, header.toString(), getFile());
         }
     }
 
@@ -127,34 +178,52 @@ public class MultiObjectiveStatistics extends Statistics
     @Override
     public void outputGenerationalStats(Population pop)
     {
-        String popStats = "";
-
         if (pop.getProblem().getStepper().getCurrentGeneration() >=
             last_output + period)
         {
-
-            for (Individual ind : pop.getIndividuals())
+            if (binary_snapshots || getRunArchive() != null)
+            {
+                paretoFile = new java.io.File(paretoDir.getAbsolutePath() +
+                    java.io.File.separator + "pareto_" +
+                    Double.toString(pop.getProblem().getStepper().
+                    getCurrentGeneration()) + ParetoSnapshot.EXTENSION);
+                logger.debug("Outputting pareto-snapshot to: " +
+                    paretoFile.getAbsolutePath());
+                snapshot2file(new ParetoSnapshot(pop), paretoFile);
+            }
+            else
             {
-                popStats += Long.toString(ind.getMyID()) + "\t";
-                logger.debug("Individual ID in Population: " + ind.getMyID());
-                popStats += Integer.toString(ind.getParetoRank()) + "\t";
-                popStats += Double.toString(ind.getConstraintError()) + "\t";
-                for (Double fitness : ind.getFitnessArray())
+                StringBuilder popStats = getLineBuffer();
+                for (Individual ind : pop.getIndividuals())
                 {
-                    popStats += Double.toString(fitness) + "\t";
+                    popStats.append(ind.getMyID()).append('\t');
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Individual ID in Population: " + ind.getMyID());
+                    }
+                    popStats.append(ind.getParetoRank()).append('\t');
+                    popStats.append(ind.getConstraintError()).append('\t');
+                    for (double fitness : ind.getFitnessArray())
+                    {
+                        popStats.append(fitness).append('\t');
+                    }
+                    popStats.append('\n');
                 }
-                popStats += "\n";
+                paretoFile = new java.io.File(paretoDir.getAbsolutePath() +
+                    java.io.File.separator + "pareto_" +
+                    Double.toString(pop.getProblem().getStepper().
+                    getCurrentGeneration()) + ".pareto");
+                logger.debug("Outputting pareto-file to: " +
+                    paretoFile.getAbsolutePath());
+                string2newFile(popStats.toString(), paretoFile);
+            }
+
+            if (state_files)
+            {
+                pop.population2file(new File(paretoFile.getParent() + File.separator +
+                    "state_" + pop.getProblem().getStepper().getCurrentGeneration() +
+                    ".state"), getCheckpointWriter());
             }
-            paretoFile = new java.io.File(paretoDir.getAbsolutePath() +
-                java.io.File.separator + "pareto_" +
-                Double.toString(pop.getProblem().getStepper().
-                getCurrentGeneration()) + ".pareto");
-            logger.debug("Outputting pareto-file to: " +
-                paretoFile.getAbsolutePath());
-            string2file(false, popStats, paretoFile);
-            pop.population2file(new File(paretoFile.getParent() + File.separator +
-                "state_" + pop.getProblem().getStepper().getCurrentGeneration() +
-                ".state"));
 
             last_output = pop.getProblem().getStepper().getCurrentGeneration();
         }
@@ -18,7 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
 import org.apache.logging.log4j.*;
 
 /**
@@ -48,7 +47,7 @@ public class MultiObjectiveTournament extends Selector
      */
     public Individual select(Population pop)
     {
-        Individual cand1 = pop.getIndividual(MersenneTwisterFast.getInstance().
+        Individual cand1 = pop.getIndividual(RandomSource.current().
             nextInt(pop.getIndividuals().size()));
 
         Individual cand2 = null;
@@ -61,7 +60,7 @@ public class MultiObjectiveTournament extends Selector
 
             do
             {
-                cand2 = pop.getIndividual(MersenneTwisterFast.getInstance().
+                cand2 = pop.getIndividual(RandomSource.current().
                     nextInt(pop.getIndividuals().size()));
             }
             while (cand2 == cand1);
@@ -18,18 +18,233 @@
  */
 package com.ridderware.jevolve;
 
+import java.util.List;
+
 /**
  * Abstract base class for mutation operators.
+ * <p>
+ * Mutators that test each locus against the individual's probability of mutation
+ * do so through nextLocus.  By default this draws one random number per locus.  In
+ * sparse mode it instead draws the gap to the next mutated locus from a geometric
+ * distribution, which gives each locus the same independent probability of
+ * mutation but costs one random number per mutated locus.  Sparse mode is much
+ * faster for long genotypes with low mutation rates, but it consumes random
+ * numbers differently, so runs are not repeatable across the two modes.
  *
  * @author Jeff Ridder
  */
 public abstract class Mutator
 {
+    private boolean sparse = false;
+
+    private final static ThreadLocal<GaussianBatch> gaussian_batch =
+        new ThreadLocal<GaussianBatch>()
+        {
+            @Override
+            protected GaussianBatch initialValue()
+            {
+                return new GaussianBatch();
+            }
+        };
+
+    /**
+     * Sets whether loci to mutate are chosen by geometric skipping.
+     *
+     * @param  sparse true for sparse mode, false to test every locus.
+     */
+    public void setSparse(boolean sparse)
+    {
+        this.sparse = sparse;
+    }
+
+    /**
+     * Returns whether loci to mutate are chosen by geometric skipping.
+     *
+     * @return true if in sparse mode.
+     */
+    public boolean getSparse()
+    {
+        return this.sparse;
+    }
+
+    /**
+     * Returns the next locus to mutate after the specified locus.  Start with a
+     * locus of -1 and stop when the returned locus equals the genotype size.
+     *
+     * @param  locus last locus mutated, or -1.
+     * @param  prob_mutation probability that each locus is mutated.
+     * @param  size genotype size.
+     * @return next locus to mutate, or size if there are no more.
+     */
+    protected int nextLocus(int locus, double prob_mutation, int size)
+    {
+        RandomSource rng = RandomSource.current();
+
+        if (!sparse)
+        {
+            for (int i = locus + 1; i < size; i++)
+            {
+                if (rng.nextDouble() <= prob_mutation)
+                {
+                    return i;
+                }
+            }
+            return size;
+        }
+
+        if (prob_mutation <= 0.)
+        {
+            return size;
+        }
+        if (prob_mutation >= 1.)
+        {
+            return Math.min(locus + 1, size);
+        }
+
+        //  Number of loci skipped before the next mutation: P(k) = (1-p)^k p.
+        double skip = Math.floor(Math.log(1. - rng.nextDouble()) /
+            Math.log1p(-prob_mutation));
+
+        if (skip >= size - locus - 1)
+        {
+            return size;
+        }
+
+        return locus + 1 + (int) skip;
+    }
+
     /**
      * Mutates the individual.
      *
      * @param  ind individual to be mutated.
      */
     public abstract void mutate(Individual ind);
+
+    /**
+     * Returns the Gaussian batch of the calling thread, emptied and large enough
+     * for a genotype of the specified size.
+     *
+     * @param  size genotype size.
+     * @return empty batch.
+     */
+    GaussianBatch gaussianBatch(int size)
+    {
+        GaussianBatch batch = gaussian_batch.get();
+        batch.clear(size);
+        return batch;
+    }
+
+    /**
+     * Adds Gaussian noise, scaled by each gene's sigma and the multiplier of its
+     * locus, to the values at the loci of the batch, and clamps them to the
+     * bounds of the genes.  If all of the genes are DoubleGAGenes, the values are
+     * unboxed into the batch's arrays and mutated in bulk with DoubleArrayOps;
+     * otherwise each gene mutates its own value with randomGaussianValue.
+     *
+     * @param  <E> gene type.
+     * @param  ind individual to be mutated.
+     * @param  batch loci to mutate.
+     * @param  multiplied true to pass the multipliers to randomGaussianValue,
+     *      false if they are all 1.
+     */
+    <E> void mutateGaussian(GAIndividual<E> ind, GaussianBatch batch,
+        boolean multiplied)
+    {
+        int m = batch.count;
+        if (m == 0)
+        {
+            return;
+        }
+        ind.setEvaluated(false);
+
+        List<GAGene<E>> genome = ind.getGenome();
+        boolean bulk = true;
+        for (int k = 0; k < m && bulk; k++)
+        {
+            bulk = genome.get(batch.loci[k]) instanceof DoubleGAGene;
+        }
+
+        if (!bulk)
+        {
+            for (int k = 0; k < m; k++)
+            {
+                int i = batch.loci[k];
+                ind.setValue(i, multiplied ?
+                    genome.get(i).randomGaussianValue(ind.getValue(i),
+                    batch.scale[k]) :
+                    genome.get(i).randomGaussianValue(ind.getValue(i)));
+            }
+            return;
+        }
+
+        for (int k = 0; k < m; k++)
+        {
+            int i = batch.loci[k];
+            GAGene<E> gene = genome.get(i);
+            batch.values[k] = (Double) ind.getValue(i);
+            batch.scale[k] *= (Double) gene.getSigma();
+            batch.lower[k] = (Double) gene.getLowerBound();
+            batch.upper[k] = (Double) gene.getUpperBound();
+        }
+
+        DoubleArrayOps.fillGaussian(batch.noise, 0, m);
+        DoubleArrayOps.addScaled(batch.values, batch.noise, batch.scale, m);
+        DoubleArrayOps.clamp(batch.values, batch.lower, batch.upper, m);
+
+        GAIndividual<Double> values = (GAIndividual<Double>) ind;
+        for (int k = 0; k < m; k++)
+        {
+            values.setValue(batch.loci[k], batch.values[k]);
+        }
+    }
+
+    /**
+     * The loci chosen for Gaussian mutation, each with a multiplier of its
+     * gene's sigma, and the arrays in which they are mutated.  Each thread has
+     * its own batch, which is reused from one individual to the next.
+     */
+    static class GaussianBatch
+    {
+        private int count;
+
+        private int[] loci = new int[0];
+
+        private double[] values;
+
+        private double[] noise;
+
+        private double[] scale;
+
+        private double[] lower;
+
+        private double[] upper;
+
+        private void clear(int size)
+        {
+            if (loci.length < size)
+            {
+                loci = new int[size];
+                values = new double[size];
+                noise = new double[size];
+                scale = new double[size];
+                lower = new double[size];
+                upper = new double[size];
+            }
+            count = 0;
+        }
+
+        /**
+         * Adds a locus to the batch.
+         *
+         * @param  locus locus to mutate.
+         * @param  multiplier multiplier of the gene's sigma.
+         */
+        void add(int locus, double multiplier)
+        {
+            loci[count] = locus;
+            scale[count] = multiplier;
+            count++;
+        }
+    }
 }
 
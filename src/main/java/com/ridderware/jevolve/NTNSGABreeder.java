@@ -62,12 +62,14 @@ public class NTNSGABreeder extends Breeder
      * @param  parent_pop parent population.
      * @param  child_pop child population, which is ignored for this breeder.
      */
-    public void breedNextGeneration(Population parent_pop, Population child_pop)
+    public void breedNextGeneration(final Population parent_pop,
+        Population child_pop)
     {
         Individual mom;
         Individual dad;
         Individual boy;
         Individual girl;
+        Individual[] parents = new Individual[2];
 
         if (getSelector() == null || getRecombinator() == null ||
             getMutator() == null)
@@ -75,52 +77,67 @@ public class NTNSGABreeder extends Breeder
             logger.error("Selector, Recombinator, or Mutator not set");
         }
 
-        MultiObjectivePopulation pop = (MultiObjectivePopulation) parent_pop;
+        final MultiObjectivePopulation pop = (MultiObjectivePopulation) parent_pop;
 
         //  Pareto sort may already have been done (e.g., in the Problem), but let's not
         //  take any chances.  Do it here.
         pop.sortParetoRank();
 
-        MultiObjectivePopulation best_half = pop.clone();
+        final Population best_half =
+            getMatingPool(pop, pop.getMaxPopulationSize() / 2);
 
+        //  The losers are recycled to provide storage for the children.
         for (int i = pop.getPopulationSize() - 1; i >=
             pop.getMaxPopulationSize() / 2; i--)
         {
-            best_half.removeIndividual(i);
-            pop.removeIndividual(i);
+            pop.recycleIndividual(pop.getIndividuals().remove(i));
         }
 
-        for (int i = pop.getMaxPopulationSize() - best_half.getPopulationSize(); i <
-            pop.getMaxPopulationSize() - 1; i += 2)
+        //  Children are collected by slot and added to the population in order
+        //  once all pairs have been bred.
+        final Individual[] children =
+            new Individual[2 * (best_half.getPopulationSize() / 2)];
+
+        breedPairs(children.length / 2, new PairTask()
         {
-            mom = getSelector().select(best_half);
-            dad = getSelector().select(best_half);
+            public void breed(int pair)
+            {
+                Individual[] parents = new Individual[2];
+                getSelector().selectMany(best_half, 2, parents);
+                Individual mom = parents[0];
+                Individual dad = parents[1];
 
-            boy = dad.clone();
-            girl = mom.clone();
+                Individual boy = pop.acquireIndividual(dad);
+                Individual girl = pop.acquireIndividual(mom);
 
-            getRecombinator().recombine(dad, mom, boy, girl);
+                getRecombinator().recombine(dad, mom, boy, girl);
 
-            getMutator().mutate(boy);
-            getMutator().mutate(girl);
+                getMutator().mutate(boy);
+                getMutator().mutate(girl);
 
-            boy.setPopulation(parent_pop);
-            girl.setPopulation(parent_pop);
+                boy.setPopulation(parent_pop);
+                girl.setPopulation(parent_pop);
 
-            assert (boy instanceof EvaluationCountingGAIndividual);
-            assert (girl instanceof EvaluationCountingGAIndividual);
+                assert (boy instanceof EvaluationCountingGAIndividual);
+                assert (girl instanceof EvaluationCountingGAIndividual);
 
-            ((EvaluationCountingGAIndividual) boy).resetTotalNumEvaluations();
+                ((EvaluationCountingGAIndividual) boy).resetTotalNumEvaluations();
 
-            ((EvaluationCountingGAIndividual) girl).resetTotalNumEvaluations();
-            for (int j = 0; j < boy.getNumObjectives(); j++)
-            {
-                boy.setFitness(j, 0.);
-                girl.setFitness(j, 0.);
+                ((EvaluationCountingGAIndividual) girl).resetTotalNumEvaluations();
+                for (int j = 0; j < boy.getNumObjectives(); j++)
+                {
+                    boy.setFitness(j, 0.);
+                    girl.setFitness(j, 0.);
+                }
+
+                children[2 * pair] = boy;
+                children[2 * pair + 1] = girl;
             }
+        });
 
-            pop.addIndividual(boy);
-            pop.addIndividual(girl);
+        for (Individual child : children)
+        {
+            pop.addIndividual(child);
         }
 
         if ((pop.getPopulationSize() % 2 != 0 && best_half.getPopulationSize() %
@@ -128,10 +145,11 @@ public class NTNSGABreeder extends Breeder
             (pop.getPopulationSize() % 2 == 0 && best_half.getPopulationSize() %
             2 != 0))
         {
-            mom = getSelector().select(best_half);
-            dad = getSelector().select(best_half);
+            getSelector().selectMany(best_half, 2, parents);
+            mom = parents[0];
+            dad = parents[1];
 
-            boy = dad.clone();
+            boy = pop.acquireIndividual(dad);
             girl = null;
 
             getRecombinator().recombine(dad, mom, boy, girl);
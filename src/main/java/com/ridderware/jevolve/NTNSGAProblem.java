@@ -19,7 +19,11 @@
 package com.ridderware.jevolve;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import org.apache.logging.log4j.*;
 
 /**
@@ -41,6 +45,9 @@ public class NTNSGAProblem extends Problem
 
     private int total_evals_per_generation;
 
+    private HashMap<Long, List<Individual>> genotype_groups =
+        new HashMap<Long, List<Individual>>();
+
     /** Creates a new instance of NTNSGAProblem */
     public NTNSGAProblem()
     {
@@ -178,28 +185,45 @@ public class NTNSGAProblem extends Problem
             getEvaluator(0).postevaluate(getPopulation(0));
         }
 
-        //	First, remove and average all genotypic duplicates.
-        List<Individual> removals = new ArrayList<Individual>();
-        List<Individual> duplicates = new ArrayList<Individual>();
+        //	First, remove and average all genotypic duplicates.  Individuals are
+        //  grouped by genotype hash so that only those in the same group need
+        //  to be compared with each other.
+        genotype_groups.clear();
+        for (Individual ind : getPopulation(0).getIndividuals())
+        {
+            Long hash = ind.getGenotypeHash();
+            List<Individual> group = genotype_groups.get(hash);
+            if (group == null)
+            {
+                group = new ArrayList<Individual>(1);
+                genotype_groups.put(hash, group);
+            }
+            group.add(ind);
+        }
+
+        Set<Individual> removals =
+            Collections.newSetFromMap(new IdentityHashMap<Individual, Boolean>());
         for (Individual test_ind : getPopulation(0).getIndividuals())
         {
-            if (!removals.contains(test_ind))
+            List<Individual> group =
+                genotype_groups.get(test_ind.getGenotypeHash());
+
+            if (group.size() > 1 && !removals.contains(test_ind))
             {
                 assert (test_ind instanceof EvaluationCountingGAIndividual);
                 EvaluationCountingGAIndividual ind =
                     (EvaluationCountingGAIndividual) test_ind;
 
-                duplicates.clear();
-                for (Individual dup_ind : getPopulation(0).getIndividuals())
+                for (Individual dup_ind : group)
                 {
-                    if (dup_ind != test_ind &&
-                        test_ind.genotypeDistance(dup_ind) == 0.)
+                    if (dup_ind != test_ind && !removals.contains(dup_ind) &&
+                        test_ind.genotypeEquals(dup_ind))
                     {
                         assert (dup_ind instanceof EvaluationCountingGAIndividual);
                         EvaluationCountingGAIndividual dup =
                             (EvaluationCountingGAIndividual) dup_ind;
 
-                        duplicates.add(dup_ind);
+                        removals.add(dup_ind);
 
                         int num_objectives = test_ind.getNumObjectives();
                         double fitness[] = new double[num_objectives];
@@ -211,17 +235,28 @@ public class NTNSGAProblem extends Problem
                             dup.getTotalNumEvaluations());
                     }
                 }
-
-                removals.addAll(duplicates);
             }
         }
 
         logger.debug("Removing " + removals.size() + " individuals");
 
-        for (Individual rem : removals)
+        //  Compact the population in a single pass rather than removing the
+        //  duplicates one at a time.
+        List<Individual> individuals = getPopulation(0).getIndividuals();
+        int num_kept = 0;
+        for (int i = 0; i < individuals.size(); i++)
         {
-            getPopulation(0).removeIndividual(rem);
+            Individual ind = individuals.get(i);
+            if (removals.contains(ind))
+            {
+                getPopulation(0).recycleIndividual(ind);
+            }
+            else
+            {
+                individuals.set(num_kept++, ind);
+            }
         }
+        individuals.subList(num_kept, individuals.size()).clear();
 
         logger.debug("Population size is now " + getPopulation(0).
             getPopulationSize());
@@ -76,15 +76,16 @@ public class NTNSGAStatistics extends MultiObjectiveStatistics
     {
         if (getFile() != null)
         {
-            String header = "Individual ID #";
-            header += "\tPareto Rank";
-            header += "\tNum Evals";
-            header += "\tConstraint Error";
-            header += "\tObjective 1 Fitness Score";
-            header += "\tObjective 2 Fitness Score";
-            header += "\tObjective 3 Fitness Score...";
+            StringBuilder header = getLineBuffer();
+            header.append("Individual ID #");
+            header.append("\tPareto Rank");
+            header.append("\tNum Evals");
+            header.append("\tConstraint Error");
+            header.append("\tObjective 1 Fitness Score");
+            header.append("\tObjective 2 Fitness Score");
+            header.append("\tObjective 3 Fitness Score...");
 
-            string2file(append, header, getFile());
+            string2file(append, header.toString(), getFile());
         }
     }
 
@@ -97,40 +98,57 @@ public class NTNSGAStatistics extends MultiObjectiveStatistics
     @Override
     public void outputGenerationalStats(Population pop)
     {
-        String popStats = "";
-
         if (pop.getProblem().getStepper().getCurrentGeneration() >=
             last_output + getPeriod())
         {
-
-            for (Individual ind : pop.getIndividuals())
+            if (getBinarySnapshots() || getRunArchive() != null)
             {
-                assert (ind instanceof EvaluationCountingGAIndividual);
-                EvaluationCountingGAIndividual ec_ind =
-                    (EvaluationCountingGAIndividual) ind;
-
-                popStats += Long.toString(ind.getMyID()) + "\t";
-                logger.debug("Individual ID in Population: " + ind.getMyID());
-                popStats += Integer.toString(ind.getParetoRank()) + "\t";
-                popStats += Integer.toString(ec_ind.getTotalNumEvaluations()) +
-                    "\t";
-                popStats += Double.toString(ind.getConstraintError()) + "\t";
-                for (Double fitness : ind.getFitnessArray())
+                paretoFile = new java.io.File(paretoDir.getAbsolutePath() +
+                    java.io.File.separator + "pareto_" +
+                    Double.toString(pop.getProblem().getStepper().
+                    getCurrentGeneration()) + ParetoSnapshot.EXTENSION);
+                logger.debug("Outputting pareto-snapshot to: " +
+                    paretoFile.getAbsolutePath());
+                snapshot2file(new ParetoSnapshot(pop), paretoFile);
+            }
+            else
+            {
+                StringBuilder popStats = getLineBuffer();
+                for (Individual ind : pop.getIndividuals())
                 {
-                    popStats += Double.toString(fitness) + "\t";
+                    assert (ind instanceof EvaluationCountingGAIndividual);
+                    EvaluationCountingGAIndividual ec_ind =
+                        (EvaluationCountingGAIndividual) ind;
+
+                    popStats.append(ind.getMyID()).append('\t');
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Individual ID in Population: " + ind.getMyID());
+                    }
+                    popStats.append(ind.getParetoRank()).append('\t');
+                    popStats.append(ec_ind.getTotalNumEvaluations()).append('\t');
+                    popStats.append(ind.getConstraintError()).append('\t');
+                    for (double fitness : ind.getFitnessArray())
+                    {
+                        popStats.append(fitness).append('\t');
+                    }
+                    popStats.append('\n');
                 }
-                popStats += "\n";
+                paretoFile = new java.io.File(paretoDir.getAbsolutePath() +
+                    java.io.File.separator + "pareto_" +
+                    Double.toString(pop.getProblem().getStepper().
+                    getCurrentGeneration()) + ".pareto");
+                logger.debug("Outputting pareto-file to: " +
+                    paretoFile.getAbsolutePath());
+                string2newFile(popStats.toString(), paretoFile);
+            }
+
+            if (getStateFiles())
+            {
+                pop.population2file(new File(paretoFile.getParent() + File.separator +
+                    "state_" + pop.getProblem().getStepper().getCurrentGeneration() +
+                    ".state"), getCheckpointWriter());
             }
-            paretoFile = new java.io.File(paretoDir.getAbsolutePath() +
-                java.io.File.separator + "pareto_" +
-                Double.toString(pop.getProblem().getStepper().
-                getCurrentGeneration()) + ".pareto");
-            logger.debug("Outputting pareto-file to: " +
-                paretoFile.getAbsolutePath());
-            string2file(false, popStats, paretoFile);
-            pop.population2file(new File(paretoFile.getParent() + File.separator +
-                "state_" + pop.getProblem().getStepper().getCurrentGeneration() +
-                ".state"));
 
             last_output = pop.getProblem().getStepper().getCurrentGeneration();
         }
@@ -18,8 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  *
  * @author Jeff Ridder
@@ -41,7 +39,7 @@ public class NTNSGATournament extends Selector
      */
     public Individual select(Population pop)
     {
-        Individual cand1 = pop.getIndividual(MersenneTwisterFast.getInstance().
+        Individual cand1 = pop.getIndividual(RandomSource.current().
             nextInt(pop.getIndividuals().size()));
 
         Individual cand2 = null;
@@ -53,7 +51,7 @@ public class NTNSGATournament extends Selector
         {
             do
             {
-                cand2 = pop.getIndividual(MersenneTwisterFast.getInstance().
+                cand2 = pop.getIndividual(RandomSource.current().
                     nextInt(pop.getIndividuals().size()));
             }
             while (cand2 == cand1);
@@ -67,7 +65,7 @@ public class NTNSGATournament extends Selector
             (EvaluationCountingGAIndividual) cand1;
         EvaluationCountingGAIndividual c2 =
             (EvaluationCountingGAIndividual) cand2;
-//        if ( MersenneTwisterFast.getInstance().nextDouble() < 0.5 )
+//        if ( RandomSource.current().nextDouble() < 0.5 )
 //        {
 //            if ( c1.getTotalNumEvaluations() >= c2.getTotalNumEvaluations() )
 //            {
@@ -18,7 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
 import org.apache.logging.log4j.*;
 
 /**
@@ -69,31 +68,28 @@ public class NonUniformGaussianMutator<E> extends Mutator
         {
             GAIndividual<E> ga_ind = (GAIndividual<E>) ind;
 
-            logger.debug("Ga Ind Genotype Size: " + ga_ind.getGenotype().size());
-            for (int i = 0; i < ga_ind.getGenotype().size(); i++)
+            logger.debug("Ga Ind Genotype Size: " + ga_ind.getGenotypeSize());
+            int size = ga_ind.getGenotypeSize();
+            GaussianBatch batch = gaussianBatch(size);
+            for (int i = nextLocus(-1, ind.getProbMutation(), size); i < size;
+                i = nextLocus(i, ind.getProbMutation(), size))
             {
-                if (MersenneTwisterFast.getInstance().nextDouble() <=
-                    ind.getProbMutation())
+                double nonuniform = 1.;
+                if (ga_ind.getPopulation() != null)
                 {
-                    ga_ind.setEvaluated(false);
+                    double cur_gen = ga_ind.getPopulation().getProblem().
+                        getStepper().getCurrentGeneration();
+                    double max_gen = ga_ind.getPopulation().getProblem().
+                        getStepper().getMaxGenerations();
 
-                    double nonuniform = 1.;
-                    if (ga_ind.getPopulation() != null)
-                    {
-                        double cur_gen = ga_ind.getPopulation().getProblem().
-                            getStepper().getCurrentGeneration();
-                        double max_gen = ga_ind.getPopulation().getProblem().
-                            getStepper().getMaxGenerations();
-
-                        nonuniform = MersenneTwisterFast.getInstance().
-                            nextDouble() * Math.pow(1. - cur_gen / max_gen,
-                            exponent);
-                    }
-
-                    ga_ind.setValue(i, ga_ind.getGenome().get(i).
-                        randomGaussianValue(ga_ind.getValue(i), nonuniform));
+                    nonuniform = RandomSource.current().
+                        nextDouble() * Math.pow(1. - cur_gen / max_gen,
+                        exponent);
                 }
+
+                batch.add(i, nonuniform);
             }
+            mutateGaussian(ga_ind, batch, true);
         }
     }
 }
@@ -18,8 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  * Michalewicz' nonuniform mutator.
  *
@@ -61,32 +59,29 @@ public class NonUniformMutator<E> extends Mutator
         {
             GAIndividual<E> ga_ind = (GAIndividual<E>) ind;
 
-            for (int i = 0; i < ga_ind.getGenotype().size(); i++)
+            int size = ga_ind.getGenotypeSize();
+            for (int i = nextLocus(-1, ind.getProbMutation(), size); i < size;
+                i = nextLocus(i, ind.getProbMutation(), size))
             {
-                if (MersenneTwisterFast.getInstance().nextDouble() <=
-                    ind.getProbMutation())
-                {
-                    ga_ind.setEvaluated(false);
-
-                    double nonuniform = 1.;
+                ga_ind.setEvaluated(false);
 
-                    if (ga_ind.getPopulation() != null)
-                    {
-                        double cur_gen = ga_ind.getPopulation().getProblem().
-                            getStepper().getCurrentGeneration();
-                        double max_gen = ga_ind.getPopulation().getProblem().
-                            getStepper().getMaxGenerations();
+                double nonuniform = 1.;
 
-                        nonuniform = MersenneTwisterFast.getInstance().
-                            nextDouble() * Math.pow(1. - cur_gen / max_gen,
-                            exponent);
-
-                    }
+                if (ga_ind.getPopulation() != null)
+                {
+                    double cur_gen = ga_ind.getPopulation().getProblem().
+                        getStepper().getCurrentGeneration();
+                    double max_gen = ga_ind.getPopulation().getProblem().
+                        getStepper().getMaxGenerations();
 
-                    ga_ind.setValue(i, ga_ind.getGenome().get(i).
-                        randomUniformValue(ga_ind.getValue(i), nonuniform));
+                    nonuniform = RandomSource.current().
+                        nextDouble() * Math.pow(1. - cur_gen / max_gen,
+                        exponent);
 
                 }
+
+                ga_ind.setValue(i, ga_ind.getGenome().get(i).
+                    randomUniformValue(ga_ind.getValue(i), nonuniform));
             }
         }
     }
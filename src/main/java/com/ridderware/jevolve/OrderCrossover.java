@@ -18,10 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-import java.util.ArrayList;
-import org.apache.logging.log4j.*;
-
 /**
  * An implementation of the order crossover (OX) operator of Davis.  Davis, L.,
  * "Applying Adaptive Algorithms to Epistatic Domains," Proceedings of the International
@@ -36,189 +32,67 @@ import org.apache.logging.log4j.*;
  * @param <E>
  * @author Jeff Ridder
  */
-public class OrderCrossover<E> extends Recombinator
+public class OrderCrossover<E> extends PermutationCrossover<E>
 {
-    private final static Logger logger =
-        LogManager.getLogger(OrderCrossover.class);
-
     /**
-     * Performs recombination of parents to produce children.
+     * Returns 2, since two distinct cut points can't be chosen in shorter
+     * genotypes.
      *
-     * @param  parent1 dad.
-     * @param  parent2 mom.
-     * @param  child1 son.
-     * @param  child2 daughter.
+     * @return genotype size.
      */
-    public void recombine(Individual parent1, Individual parent2,
-        Individual child1, Individual child2)
+    @Override
+    protected int getMinimumSize()
     {
-        if (MersenneTwisterFast.getInstance().nextDouble() >
-            parent2.getProbRecombination() ||
-            parent1.getGenotypeSize() <= 1)
-        {
-            if (child1 != null)
-            {
-                child1.deepCopy(parent1);
-            }
-            if (child2 != null)
-            {
-                child2.deepCopy(parent2);
-            }
-        }
-        else
-        {
-            GAIndividual<E> dad = (GAIndividual<E>) parent1;
-            GAIndividual<E> mom = (GAIndividual<E>) parent2;
-            GAIndividual<E> boy = (GAIndividual<E>) child1;
-            GAIndividual<E> girl = (GAIndividual<E>) child2;
-
-            int gsize = dad.getGenotypeSize();
-
-            if (mom.getGenotypeSize() != gsize)
-            {
-                logger.error("Before crossover, mom genotype is size " +
-                    mom.getGenotypeSize());
-            }
-
-            //choose 2 random locations to crossover at.
-            int xoverPoint1 = (int) (MersenneTwisterFast.getInstance().
-                nextDouble() * (mom.getGenotypeSize() - 1));
-            int xoverPoint2 = xoverPoint1;
-            while (xoverPoint1 == xoverPoint2)
-            {
-                xoverPoint2 = (int) (MersenneTwisterFast.getInstance().
-                    nextDouble() * (mom.getGenotypeSize() - 1));
-            }
+        return 2;
+    }
 
-            if (xoverPoint2 < xoverPoint1)
-            {
-                int temp = xoverPoint1;
-                xoverPoint1 = xoverPoint2;
-                xoverPoint2 = temp;
-            }
+    /**
+     * Performs the order crossover.  Each child keeps the segment between the cut
+     * points from one parent, and the remaining positions are filled, starting
+     * after the second cut point, with the other parent's values in the order
+     * they appear in that parent starting after the second cut point.  See
+     * Michalewicz, "Evolution Programs," p. 217.
+     *
+     * @param  p1 dad.
+     * @param  p2 mom.
+     * @param  c1 son.
+     * @param  c2 daughter.
+     * @param  n permutation size.
+     * @param  s scratch space.
+     */
+    @Override
+    protected void crossover(int[] p1, int[] p2, int[] c1, int[] c2, int n,
+        Scratch s)
+    {
+        chooseCutPoints(n, s);
 
-            if (!(boy.equals(null)))
-            {
-                boy.getGenotype().clear();
-            }
-            if (!(girl.equals(null)))
-            {
-                girl.getGenotype().clear();
-            }
+        cross(p1, p2, c1, n, s);
+        cross(p2, p1, c2, n, s);
+    }
 
-            ArrayList<E> dadhead = new ArrayList<E>();
-            ArrayList<E> dadmiddle = new ArrayList<E>();
-            ArrayList<E> dadtail = new ArrayList<E>();
-            ArrayList<E> momhead = new ArrayList<E>();
-            ArrayList<E> mommiddle = new ArrayList<E>();
-            ArrayList<E> momtail = new ArrayList<E>();
+    private void cross(int[] keep, int[] fill, int[] child, int n, Scratch s)
+    {
+        int stamp = s.nextStamp();
+        int[] marks = s.marks;
 
-            for (int i = 0; i < mom.getGenotype().size(); i++)
-            {
-                if (i <= xoverPoint1)
-                {
-                    momhead.add(mom.getGenotype().get(i));
-                }
-                else if (i <= xoverPoint2)
-                {
-                    mommiddle.add(mom.getGenotype().get(i));
-                }
-                else
-                {
-                    momtail.add(mom.getGenotype().get(i));
-                }
-            }
+        for (int i = s.cut1 + 1; i <= s.cut2; i++)
+        {
+            child[i] = keep[i];
+            marks[keep[i]] = stamp;
+        }
 
-            for (int i = 0; i < dad.getGenotype().size(); i++)
+        int k = s.cut2 + 1;
+        for (int j = s.cut2 + 1; j < n + s.cut2 + 1; j++)
+        {
+            int v = fill[j < n ? j : j - n];
+            if (marks[v] != stamp)
             {
-                if (i <= xoverPoint1)
-                {
-                    dadhead.add(dad.getGenotype().get(i));
-                }
-                else if (i <= xoverPoint2)
-                {
-                    dadmiddle.add(dad.getGenotype().get(i));
-                }
-                else
+                if (k == n)
                 {
-                    dadtail.add(dad.getGenotype().get(i));
+                    k = 0;
                 }
+                child[k++] = v;
             }
-
-            ArrayList<E> boyhead = new ArrayList<E>();
-            ArrayList<E> boymiddle = new ArrayList<E>();
-            ArrayList<E> boytail = new ArrayList<E>();
-            ArrayList<E> girlhead = new ArrayList<E>();
-            ArrayList<E> girlmiddle = new ArrayList<E>();
-            ArrayList<E> girltail = new ArrayList<E>();
-
-            //  See Michaelewicz "Evolution Programs" P. 217 for an explanation of this:
-            ArrayList<E> p2_sequence = new ArrayList<E>();
-            p2_sequence.addAll(momtail);
-            p2_sequence.addAll(momhead);
-            p2_sequence.addAll(mommiddle);
-
-            boymiddle.addAll(dadmiddle);
-
-            //  Now remove the middle of dad.
-            for (E val : dadmiddle)
-            {
-                p2_sequence.remove(val);
-            }
-
-            assert (p2_sequence.size() + boymiddle.size() == gsize);
-
-            //  Now fill in from second cut point
-            for (int i = 0; i < dadtail.size(); i++)
-            {
-                //  Pop the first item on the list and add to the tail
-                boytail.add(p2_sequence.remove(0));
-            }
-
-            //  What's left is the head
-            boyhead.addAll(p2_sequence);
-
-            assert (boyhead.size() + boymiddle.size() + boytail.size() == gsize);
-
-            //  Repeat for the boy
-            ArrayList<E> p1_sequence = new ArrayList<E>();
-            p1_sequence.addAll(dadtail);
-            p1_sequence.addAll(dadhead);
-            p1_sequence.addAll(dadmiddle);
-
-            girlmiddle.addAll(mommiddle);
-
-            //  Now remove the middle of mom from the sequence.
-            for (E val : mommiddle)
-            {
-                p1_sequence.remove(val);
-            }
-
-            assert (p1_sequence.size() + girlmiddle.size() == gsize);
-
-            //  Now fill in from second cut point
-            for (int i = 0; i < dadtail.size(); i++)
-            {
-                //  Pop the first item on the list and add to the tail
-                girltail.add(p1_sequence.remove(0));
-            }
-
-            //  What's left is the head
-            girlhead.addAll(p1_sequence);
-
-            assert (girlhead.size() + girlmiddle.size() + girltail.size() ==
-                gsize);
-
-            boy.getGenotype().addAll(boyhead);
-            boy.getGenotype().addAll(boymiddle);
-            boy.getGenotype().addAll(boytail);
-
-            girl.getGenotype().addAll(girlhead);
-            girl.getGenotype().addAll(girlmiddle);
-            girl.getGenotype().addAll(girltail);
-
-            boy.setEvaluated(false);
-            girl.setEvaluated(false);
         }
     }
 }
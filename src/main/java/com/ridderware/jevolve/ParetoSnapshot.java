@@ -0,0 +1,522 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * A snapshot of the IDs, Pareto ranks, constraint errors, objectives and
+ * genotypes of a population, held by column, with a compact binary file format.
+ * <p>
+ * A snapshot file is little-endian.  It begins with a 64-byte header:
+ * <pre>
+ *   0  magic "JEVP"
+ *   4  int     format version
+ *   8  int     flags (FLAG_EVALUATIONS, FLAG_GENOTYPE)
+ *  12  int     number of individuals, n
+ *  16  int     number of objectives
+ *  20  int     genotype size
+ *  24  double  generation
+ *  32  reserved, zero
+ * </pre>
+ * followed by one block per column, each padded to a multiple of 8 bytes:
+ * the IDs (n longs), the Pareto ranks (n ints), the numbers of evaluations if
+ * FLAG_EVALUATIONS is set (n ints), the constraint errors (n doubles), each
+ * objective in turn (n doubles), and each locus of the genotype in turn if
+ * FLAG_GENOTYPE is set (n doubles).  Genotype values are converted to doubles;
+ * genotypes that are not numeric are not written.  SnapshotReader reads a
+ * snapshot file in place, without decoding it.
+ *
+ * @author Jeff Ridder
+ */
+public class ParetoSnapshot
+{
+    /**
+     * Extension of snapshot files.
+     */
+    public final static String EXTENSION = ".snapshot";
+
+    /**
+     * Current version of the file format.
+     */
+    public final static int VERSION = 1;
+
+    /**
+     * Flag for a column of numbers of evaluations.
+     */
+    public final static int FLAG_EVALUATIONS = 1;
+
+    /**
+     * Flag for genotype columns.
+     */
+    public final static int FLAG_GENOTYPE = 2;
+
+    /**
+     * Size of the header in bytes.
+     */
+    public final static int HEADER_SIZE = 64;
+
+    final static int MAGIC = 0x5056454A;
+
+    private final double generation;
+
+    private final int num_individuals;
+
+    private final long[] ids;
+
+    private final int[] ranks;
+
+    private final int[] evaluations;
+
+    private final double[] constraint_errors;
+
+    private final double[][] objectives;
+
+    private final double[][] genotype;
+
+    /**
+     * Creates a new instance of ParetoSnapshot from the current state of the
+     * specified population.
+     *
+     * @param  pop population.
+     */
+    public ParetoSnapshot(Population pop)
+    {
+        this.generation = pop.getProblem() != null &&
+            pop.getProblem().getStepper() != null ?
+            pop.getProblem().getStepper().getCurrentGeneration() : -1.;
+
+        int n = pop.getPopulationSize();
+        this.num_individuals = n;
+
+        int num_objectives = Integer.MAX_VALUE;
+        int genotype_size = Integer.MAX_VALUE;
+        boolean counting = n > 0;
+        for (int i = 0; i < n; i++)
+        {
+            Individual ind = pop.getIndividual(i);
+            num_objectives = Math.min(num_objectives, ind.getNumObjectives());
+            genotype_size = Math.min(genotype_size, getNumericGenotypeSize(ind));
+            counting &= ind instanceof EvaluationCountingGAIndividual;
+        }
+        if (n == 0)
+        {
+            num_objectives = 0;
+            genotype_size = 0;
+        }
+
+        this.ids = new long[n];
+        this.ranks = new int[n];
+        this.evaluations = counting ? new int[n] : null;
+        this.constraint_errors = new double[n];
+        this.objectives = new double[num_objectives][n];
+        this.genotype = new double[genotype_size][n];
+
+        for (int i = 0; i < n; i++)
+        {
+            Individual ind = pop.getIndividual(i);
+            ids[i] = ind.getMyID();
+            ranks[i] = ind.getParetoRank();
+            if (counting)
+            {
+                evaluations[i] =
+                    ((EvaluationCountingGAIndividual) ind).getTotalNumEvaluations();
+            }
+            constraint_errors[i] = ind.getConstraintError();
+
+            double[] fitness = ind.getFitnessArray();
+            for (int j = 0; j < num_objectives; j++)
+            {
+                objectives[j][i] = fitness[j];
+            }
+
+            if (genotype_size > 0)
+            {
+                copyGenotype(ind, i);
+            }
+        }
+    }
+
+    private ParetoSnapshot(double generation, int num_individuals, long[] ids,
+        int[] ranks, int[] evaluations, double[] constraint_errors,
+        double[][] objectives, double[][] genotype)
+    {
+        this.generation = generation;
+        this.num_individuals = num_individuals;
+        this.ids = ids;
+        this.ranks = ranks;
+        this.evaluations = evaluations;
+        this.constraint_errors = constraint_errors;
+        this.objectives = objectives;
+        this.genotype = genotype;
+    }
+
+    /**
+     * Returns the number of genotype values that can be stored as doubles.
+     */
+    private static int getNumericGenotypeSize(Individual ind)
+    {
+        if (ind instanceof PermutationIndividual)
+        {
+            return ((PermutationIndividual) ind).getGenotypeSize();
+        }
+        if (ind instanceof GAIndividual)
+        {
+            List<?> values = ((GAIndividual<?>) ind).getGenotypeValues();
+            for (Object value : values)
+            {
+                if (!(value instanceof Number) && !(value instanceof Boolean))
+                {
+                    return 0;
+                }
+            }
+            return values.size();
+        }
+        return 0;
+    }
+
+    private void copyGenotype(Individual ind, int i)
+    {
+        if (ind instanceof PermutationIndividual)
+        {
+            PermutationIndividual perm = (PermutationIndividual) ind;
+            for (int j = 0; j < genotype.length; j++)
+            {
+                genotype[j][i] = perm.getValue(j);
+            }
+        }
+        else
+        {
+            List<?> values = ((GAIndividual<?>) ind).getGenotypeValues();
+            for (int j = 0; j < genotype.length; j++)
+            {
+                Object value = values.get(j);
+                genotype[j][i] = value instanceof Number ?
+                    ((Number) value).doubleValue() :
+                    ((Boolean) value).booleanValue() ? 1. : 0.;
+            }
+        }
+    }
+
+    /**
+     * Returns the generation at which the snapshot was taken.
+     *
+     * @return generation.
+     */
+    public double getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Returns the number of individuals.
+     *
+     * @return number of individuals.
+     */
+    public int getNumIndividuals()
+    {
+        return num_individuals;
+    }
+
+    /**
+     * Returns the number of objectives.
+     *
+     * @return number of objectives.
+     */
+    public int getNumObjectives()
+    {
+        return objectives.length;
+    }
+
+    /**
+     * Returns the number of genotype values per individual, which is 0 if
+     * genotypes were not stored.
+     *
+     * @return genotype size.
+     */
+    public int getGenotypeSize()
+    {
+        return genotype.length;
+    }
+
+    /**
+     * Returns the individuals' IDs.
+     *
+     * @return IDs.
+     */
+    public long[] getIDs()
+    {
+        return ids;
+    }
+
+    /**
+     * Returns the individuals' Pareto ranks.
+     *
+     * @return Pareto ranks.
+     */
+    public int[] getParetoRanks()
+    {
+        return ranks;
+    }
+
+    /**
+     * Returns the individuals' total numbers of evaluations, or null if they
+     * were not stored.
+     *
+     * @return numbers of evaluations.
+     */
+    public int[] getEvaluations()
+    {
+        return evaluations;
+    }
+
+    /**
+     * Returns the individuals' constraint errors.
+     *
+     * @return constraint errors.
+     */
+    public double[] getConstraintErrors()
+    {
+        return constraint_errors;
+    }
+
+    /**
+     * Returns the individuals' values of an objective.
+     *
+     * @param  index index of the objective.
+     * @return objective values.
+     */
+    public double[] getObjective(int index)
+    {
+        return objectives[index];
+    }
+
+    /**
+     * Returns the individuals' values at a locus of the genotype.
+     *
+     * @param  locus index into the genotype.
+     * @return genotype values.
+     */
+    public double[] getGenotype(int locus)
+    {
+        return genotype[locus];
+    }
+
+    /**
+     * Returns the size in bytes of the encoded snapshot.
+     *
+     * @return encoded size.
+     */
+    public int getEncodedSize()
+    {
+        int n = num_individuals;
+        int size = HEADER_SIZE + 8 * n + pad(4 * n) + 8 * n;
+        if (evaluations != null)
+        {
+            size += pad(4 * n);
+        }
+        size += 8 * n * (objectives.length + genotype.length);
+        return size;
+    }
+
+    /**
+     * Encodes the snapshot into the specified buffer, starting at its position.
+     *
+     * @param  buffer buffer with at least getEncodedSize bytes remaining.
+     */
+    public void encode(ByteBuffer buffer)
+    {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        int start = buffer.position();
+        int flags = (evaluations != null ? FLAG_EVALUATIONS : 0) |
+            (genotype.length > 0 ? FLAG_GENOTYPE : 0);
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(flags);
+        buffer.putInt(num_individuals);
+        buffer.putInt(objectives.length);
+        buffer.putInt(genotype.length);
+        buffer.putDouble(generation);
+        while (buffer.position() < start + HEADER_SIZE)
+        {
+            buffer.put((byte) 0);
+        }
+
+        buffer.asLongBuffer().put(ids);
+        buffer.position(buffer.position() + 8 * num_individuals);
+        putInts(buffer, ranks);
+        if (evaluations != null)
+        {
+            putInts(buffer, evaluations);
+        }
+        putDoubles(buffer, constraint_errors);
+        for (double[] column : objectives)
+        {
+            putDoubles(buffer, column);
+        }
+        for (double[] column : genotype)
+        {
+            putDoubles(buffer, column);
+        }
+
+        buffer.order(order);
+    }
+
+    /**
+     * Returns the encoded snapshot in a buffer ready to be written.
+     *
+     * @return encoded snapshot.
+     */
+    public ByteBuffer toByteBuffer()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(getEncodedSize());
+        encode(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes the snapshot to the specified file.
+     *
+     * @param  file file to write to.
+     * @throws IOException if the file could not be written.
+     */
+    public void write(File file)
+        throws IOException
+    {
+        ByteBuffer buffer = toByteBuffer();
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        try
+        {
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads a snapshot from the specified file.  To read only part of a large
+     * snapshot, use SnapshotReader.
+     *
+     * @param  file file to read.
+     * @return snapshot.
+     * @throws IOException if the file could not be read or is not a snapshot.
+     */
+    public static ParetoSnapshot read(File file)
+        throws IOException
+    {
+        SnapshotReader reader = SnapshotReader.open(file);
+        try
+        {
+            return copy(reader);
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Decodes a snapshot from the specified buffer, starting at its position.
+     * The buffer's position is left after the snapshot.
+     *
+     * @param  buffer buffer holding an encoded snapshot.
+     * @return snapshot.
+     * @throws IOException if the buffer does not hold a snapshot.
+     */
+    public static ParetoSnapshot decode(ByteBuffer buffer)
+        throws IOException
+    {
+        SnapshotReader reader = new SnapshotReader(buffer);
+        buffer.position(buffer.position() + reader.getEncodedSize());
+        return copy(reader);
+    }
+
+    /**
+     * Copies the snapshot read by the specified reader.
+     *
+     * @param  reader snapshot reader.
+     * @return snapshot.
+     */
+    static ParetoSnapshot copy(SnapshotReader reader)
+    {
+        int n = reader.getNumIndividuals();
+
+        long[] ids = new long[n];
+        reader.getIDColumn().get(ids);
+        int[] ranks = new int[n];
+        reader.getParetoRankColumn().get(ranks);
+        int[] evaluations = null;
+        if (reader.hasEvaluations())
+        {
+            evaluations = new int[n];
+            reader.getEvaluationsColumn().get(evaluations);
+        }
+        double[] constraint_errors = new double[n];
+        reader.getConstraintErrorColumn().get(constraint_errors);
+        double[][] objectives = new double[reader.getNumObjectives()][n];
+        for (int j = 0; j < objectives.length; j++)
+        {
+            reader.getObjectiveColumn(j).get(objectives[j]);
+        }
+        double[][] genotype = new double[reader.getGenotypeSize()][n];
+        for (int j = 0; j < genotype.length; j++)
+        {
+            reader.getGenotypeColumn(j).get(genotype[j]);
+        }
+
+        return new ParetoSnapshot(reader.getGeneration(), n, ids, ranks,
+            evaluations, constraint_errors, objectives, genotype);
+    }
+
+    private static int pad(int size)
+    {
+        return (size + 7) & ~7;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values)
+    {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + 4 * values.length);
+        if ((values.length & 1) != 0)
+        {
+            buffer.putInt(0);
+        }
+    }
+
+    private static void putDoubles(ByteBuffer buffer, double[] values)
+    {
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+}
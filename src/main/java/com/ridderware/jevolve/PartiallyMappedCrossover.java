@@ -0,0 +1,102 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * An implementation of the partially mapped crossover (PMX) operator of Goldberg
+ * and Lingle.  Goldberg, D. E. and Lingle, R., "Alleles, Loci, and the Traveling
+ * Salesman Problem," Proceedings of the First International Conference on Genetic
+ * Algorithms, 1985.  Each child keeps the segment between two cut points from one
+ * parent and takes the remaining positions from the other parent, resolving
+ * conflicts through the mapping defined by the two segments.  Like order crossover,
+ * PMX always produces feasible permutations and should only be applied to
+ * individuals with homogeneous genomes.
+ *
+ * @param <E> gene type.
+ * @author Jeff Ridder
+ */
+public class PartiallyMappedCrossover<E> extends PermutationCrossover<E>
+{
+    /**
+     * Returns 2, since two distinct cut points can't be chosen in shorter
+     * genotypes.
+     *
+     * @return genotype size.
+     */
+    @Override
+    protected int getMinimumSize()
+    {
+        return 2;
+    }
+
+    /**
+     * Performs the partially mapped crossover.  Each conflict is resolved by
+     * following a chain of the segment mapping, and since the chains are disjoint
+     * the total work is linear in the genotype size.
+     *
+     * @param  p1 dad.
+     * @param  p2 mom.
+     * @param  c1 son.
+     * @param  c2 daughter.
+     * @param  n permutation size.
+     * @param  s scratch space.
+     */
+    @Override
+    protected void crossover(int[] p1, int[] p2, int[] c1, int[] c2, int n,
+        Scratch s)
+    {
+        chooseCutPoints(n, s);
+
+        int cut1 = s.cut1;
+        int cut2 = s.cut2;
+
+        //  Position of each value in mom.  Dad is the identity, so the position
+        //  of v in dad is v.
+        int[] pos2 = s.pos;
+        for (int i = 0; i < n; i++)
+        {
+            pos2[p2[i]] = i;
+        }
+
+        for (int i = 0; i < n; i++)
+        {
+            if (i > cut1 && i <= cut2)
+            {
+                c1[i] = p1[i];
+                c2[i] = p2[i];
+            }
+            else
+            {
+                int v = p2[i];
+                while (v > cut1 && v <= cut2)
+                {
+                    v = p2[v];
+                }
+                c1[i] = v;
+
+                v = p1[i];
+                while (pos2[v] > cut1 && pos2[v] <= cut2)
+                {
+                    v = p1[pos2[v]];
+                }
+                c2[i] = v;
+            }
+        }
+    }
+}
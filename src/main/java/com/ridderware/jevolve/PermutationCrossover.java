@@ -0,0 +1,443 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.apache.logging.log4j.*;
+
+/**
+ * Abstract base class for crossover operators on permutation genotypes, i.e.,
+ * genotypes in which mom and dad hold the same set of values in different orders.
+ * Permutation crossovers reorder genotypes without regard to the genome, so they
+ * should only be applied to individuals with homogeneous genomes.
+ * <p>
+ * Before the crossover is performed, the parents are converted to permutations of
+ * the integers 0 to n-1, where each value is the position of the gene in dad's
+ * genotype.  Dad therefore becomes the identity permutation, and each of mom's
+ * values is also the position of that value in dad, which makes position lookups
+ * trivial.  Subclasses implement the crossover on these int arrays in linear time,
+ * and the children's genotypes are then filled from dad's values.  The int arrays
+ * are kept in per-thread scratch space and reused across calls.
+ * <p>
+ * Crossovers may be applied to GAIndividuals or to PermutationIndividuals, whose
+ * position index is used directly.
+ *
+ * @param <E> gene type.
+ * @author Jeff Ridder
+ */
+public abstract class PermutationCrossover<E> extends Recombinator
+{
+    private final static Logger logger =
+        LogManager.getLogger(PermutationCrossover.class);
+
+    private final static ThreadLocal<Scratch> scratch =
+        new ThreadLocal<Scratch>()
+        {
+            @Override
+            protected Scratch initialValue()
+            {
+                return new Scratch();
+            }
+        };
+
+    /**
+     * Performs recombination of parents to produce children.  If recombination
+     * is not performed, or the parents are not permutations of each other, the
+     * children are copies of the parents.
+     *
+     * @param  parent1 dad.
+     * @param  parent2 mom.
+     * @param  child1 son.
+     * @param  child2 daughter.
+     */
+    @Override
+    public void recombine(Individual parent1, Individual parent2,
+        Individual child1, Individual child2)
+    {
+        if (RandomSource.current().nextDouble() >
+            parent2.getProbRecombination() ||
+            parent1.getGenotypeSize() <= getMinimumSize() ||
+            !encodeParents(parent1, parent2))
+        {
+            if (child1 != null)
+            {
+                child1.deepCopy(parent1);
+            }
+            if (child2 != null)
+            {
+                child2.deepCopy(parent2);
+            }
+        }
+        else
+        {
+            Scratch s = scratch.get();
+            int n = parent1.getGenotypeSize();
+
+            crossover(s.p1, s.p2, s.c1, s.c2, n, s);
+
+            if (parent1 instanceof PermutationIndividual)
+            {
+                int[] values = ((PermutationIndividual) parent1).getOrder();
+                if (child1 != null)
+                {
+                    decode(values, s.c1, n, (PermutationIndividual) child1, s);
+                }
+                if (child2 != null)
+                {
+                    decode(values, s.c2, n, (PermutationIndividual) child2, s);
+                }
+            }
+            else
+            {
+                List<E> values = ((GAIndividual<E>) parent1).getGenotypeValues();
+                if (child1 != null)
+                {
+                    decode(values, s.c1, n, (GAIndividual<E>) child1);
+                }
+                if (child2 != null)
+                {
+                    decode(values, s.c2, n, (GAIndividual<E>) child2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the largest genotype size for which recombination is not
+     * performed.  The default is 1.
+     *
+     * @return genotype size.
+     */
+    protected int getMinimumSize()
+    {
+        return 1;
+    }
+
+    /**
+     * Performs the crossover on permutations of the integers 0 to n-1.  The
+     * arrays may be longer than n.
+     *
+     * @param  p1 dad, which is always the identity permutation.
+     * @param  p2 mom, where p2[i] is also the position of that value in dad.
+     * @param  c1 son, to be filled in.
+     * @param  c2 daughter, to be filled in.
+     * @param  n permutation size.
+     * @param  s per-thread scratch space for any additional buffers.
+     */
+    protected abstract void crossover(int[] p1, int[] p2, int[] c1, int[] c2,
+        int n, Scratch s);
+
+    /**
+     * Chooses two distinct cut points in [0, n-2] the way the order crossover
+     * has always done it, and stores them in ascending order in s.cut1 and s.cut2.
+     * The segment exchanged by the two-point permutation crossovers is then
+     * (cut1, cut2].  Requires n > 2.
+     *
+     * @param  n permutation size.
+     * @param  s scratch space.
+     */
+    protected void chooseCutPoints(int n, Scratch s)
+    {
+        int cut1 = (int) (RandomSource.current().nextDouble() *
+            (n - 1));
+        int cut2 = cut1;
+        while (cut1 == cut2)
+        {
+            cut2 = (int) (RandomSource.current().nextDouble() *
+                (n - 1));
+        }
+
+        if (cut2 < cut1)
+        {
+            int temp = cut1;
+            cut1 = cut2;
+            cut2 = temp;
+        }
+
+        s.cut1 = cut1;
+        s.cut2 = cut2;
+    }
+
+    /**
+     * Converts the parents to int permutations in the scratch space.
+     *
+     * @param  parent1 dad.
+     * @param  parent2 mom.
+     * @return false if mom is not a permutation of dad.
+     */
+    private boolean encodeParents(Individual parent1, Individual parent2)
+    {
+        int n = parent1.getGenotypeSize();
+        if (parent2.getGenotypeSize() != n)
+        {
+            logger.error("Cannot cross genotypes of size " + n + " and " +
+                parent2.getGenotypeSize());
+            return false;
+        }
+
+        Scratch s = scratch.get();
+        s.ensureCapacity(n);
+
+        int[] p1 = s.p1;
+        int[] p2 = s.p2;
+        int[] pos = s.pos;
+
+        if (parent1 instanceof PermutationIndividual)
+        {
+            PermutationIndividual dad = (PermutationIndividual) parent1;
+            int[] mom = ((PermutationIndividual) parent2).getOrder();
+            for (int i = 0; i < n; i++)
+            {
+                p1[i] = i;
+                p2[i] = dad.getPosition(mom[i]);
+            }
+
+            return true;
+        }
+
+        List<E> dad = ((GAIndividual<E>) parent1).getGenotypeValues();
+        List<E> mom = ((GAIndividual<E>) parent2).getGenotypeValues();
+
+        //  Integer genes in [0, n) index a position table directly; anything else
+        //  falls back to a hash lookup.
+        boolean direct = true;
+        for (int i = 0; i < n; i++)
+        {
+            pos[i] = -1;
+        }
+        for (int i = 0; i < n && direct; i++)
+        {
+            Object value = dad.get(i);
+            if (value instanceof Integer)
+            {
+                int v = (Integer) value;
+                if (v >= 0 && v < n && pos[v] < 0)
+                {
+                    pos[v] = i;
+                    continue;
+                }
+            }
+            direct = false;
+        }
+
+        if (direct)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                Object value = mom.get(i);
+                int v = value instanceof Integer ? (Integer) value : -1;
+                if (v < 0 || v >= n)
+                {
+                    return notPermutation();
+                }
+                p2[i] = pos[v];
+            }
+        }
+        else
+        {
+            HashMap<Object, Integer> index = s.index;
+            index.clear();
+            for (int i = 0; i < n; i++)
+            {
+                index.put(dad.get(i), i);
+            }
+            if (index.size() != n)
+            {
+                return notPermutation();
+            }
+            for (int i = 0; i < n; i++)
+            {
+                Integer k = index.get(mom.get(i));
+                if (k == null)
+                {
+                    return notPermutation();
+                }
+                p2[i] = k;
+            }
+            index.clear();
+        }
+
+        //  Make sure mom doesn't repeat any values.
+        int stamp = s.nextStamp();
+        int[] marks = s.marks;
+        for (int i = 0; i < n; i++)
+        {
+            if (marks[p2[i]] == stamp)
+            {
+                return notPermutation();
+            }
+            marks[p2[i]] = stamp;
+            p1[i] = i;
+        }
+
+        return true;
+    }
+
+    private boolean notPermutation()
+    {
+        logger.error("Parent genotypes are not permutations of each other");
+
+        return false;
+    }
+
+    /**
+     * Fills the child genotype from dad's values in the order given by the int
+     * permutation.
+     *
+     * @param  values dad's genotype.
+     * @param  c child permutation.
+     * @param  n permutation size.
+     * @param  child child to fill in.
+     */
+    private void decode(List<E> values, int[] c, int n, GAIndividual<E> child)
+    {
+        List<E> genotype = child.getGenotype();
+        if (genotype.size() == n)
+        {
+            for (int i = 0; i < n; i++)
+            {
+                genotype.set(i, values.get(c[i]));
+            }
+        }
+        else
+        {
+            genotype.clear();
+            for (int i = 0; i < n; i++)
+            {
+                genotype.add(values.get(c[i]));
+            }
+        }
+
+        child.setEvaluated(false);
+        child.invalidateGenotypeHash();
+    }
+
+    /**
+     * Fills the child permutation from dad's values in the order given by the
+     * int permutation.
+     *
+     * @param  values dad's permutation.
+     * @param  c child permutation.
+     * @param  n permutation size.
+     * @param  child child to fill in.
+     * @param  s scratch space.
+     */
+    private void decode(int[] values, int[] c, int n,
+        PermutationIndividual child, Scratch s)
+    {
+        int[] order = s.pos;
+        for (int i = 0; i < n; i++)
+        {
+            order[i] = values[c[i]];
+        }
+
+        child.setOrder(order, n);
+    }
+
+    /**
+     * Per-thread buffers reused across calls.  The parent and child arrays and the
+     * marks array are always at least as long as the genotype.  Subclasses can get
+     * additional buffers with getBuffer.
+     */
+    protected static class Scratch
+    {
+        /** Dad. */
+        protected int[] p1 = new int[0];
+
+        /** Mom. */
+        protected int[] p2 = new int[0];
+
+        /** Son. */
+        protected int[] c1 = new int[0];
+
+        /** Daughter. */
+        protected int[] c2 = new int[0];
+
+        /** Position table used during encoding. */
+        protected int[] pos = new int[0];
+
+        /**
+         * Marks array.  An element is marked when it equals the current stamp, so
+         * all marks are cleared in O(1) by calling nextStamp.
+         */
+        protected int[] marks = new int[0];
+
+        /** First cut point. */
+        protected int cut1;
+
+        /** Second cut point. */
+        protected int cut2;
+
+        private int stamp;
+
+        private int[][] buffers = new int[4][];
+
+        private HashMap<Object, Integer> index = new HashMap<Object, Integer>();
+
+        private void ensureCapacity(int n)
+        {
+            if (p1.length < n)
+            {
+                p1 = new int[n];
+                p2 = new int[n];
+                c1 = new int[n];
+                c2 = new int[n];
+                pos = new int[n];
+                marks = new int[n];
+                stamp = 0;
+            }
+        }
+
+        /**
+         * Returns a new stamp, clearing all marks.
+         *
+         * @return stamp.
+         */
+        protected int nextStamp()
+        {
+            if (++stamp == Integer.MAX_VALUE)
+            {
+                Arrays.fill(marks, 0);
+                stamp = 1;
+            }
+
+            return stamp;
+        }
+
+        /**
+         * Returns the buffer in the specified slot, which is at least the
+         * specified size.  Contents are not cleared between calls.
+         *
+         * @param  slot buffer slot, 0 to 3.
+         * @param  size minimum size.
+         * @return buffer.
+         */
+        protected int[] getBuffer(int slot, int size)
+        {
+            if (buffers[slot] == null || buffers[slot].length < size)
+            {
+                buffers[slot] = new int[size];
+            }
+
+            return buffers[slot];
+        }
+    }
+}
@@ -0,0 +1,533 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An individual whose genotype is a permutation of the integers 0 to n-1, as used
+ * for routing and scheduling problems.  The permutation is held in an int array
+ * together with its inverse, so the position of any value can be found in constant
+ * time.  Swap moves take constant time, and insertion, inversion and 2-opt moves
+ * take time proportional to the length of the segment they change.
+ * <p>
+ * If a DeltaEvaluatorInterface is set on an evaluated, single objective individual,
+ * each move asks it for the resulting change in fitness and the individual stays
+ * evaluated.  Otherwise moves mark the individual as not evaluated.
+ *
+ * @author Jeff Ridder
+ */
+public class PermutationIndividual extends Individual
+{
+    /**
+     * Moves that can be applied to a permutation.
+     */
+    public enum Move
+    {
+        /** Exchanges the values at positions i and j. */
+        SWAP,
+        /** Removes the value at position i and reinserts it at position j. */
+        INSERTION,
+        /** Reverses the values at positions i through j. */
+        INVERSION,
+        /**
+         * Replaces the tour edges leaving positions i and j by reversing the
+         * values at positions i+1 through j.
+         */
+        TWO_OPT
+    }
+
+    private int[] order;
+
+    private int[] position;
+
+    private transient DeltaEvaluatorInterface delta_evaluator;
+
+    /**
+     * Creates a new instance of PermutationIndividual holding the identity
+     * permutation.
+     *
+     * @param  size number of values in the permutation.
+     */
+    public PermutationIndividual(int size)
+    {
+        super();
+        setIdentity(size);
+    }
+
+    /**
+     * Creates a new instance of PermutationIndividual holding the identity
+     * permutation.
+     *
+     * @param  size number of values in the permutation.
+     * @param  numObjectives number of objectives.
+     */
+    public PermutationIndividual(int size, int numObjectives)
+    {
+        super(numObjectives);
+        setIdentity(size);
+    }
+
+    private void setIdentity(int size)
+    {
+        order = new int[size];
+        position = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            order[i] = i;
+            position[i] = i;
+        }
+    }
+
+    /**
+     * Sets the evaluator used to compute fitness changes for moves.
+     *
+     * @param  delta_evaluator evaluator, or null to re-evaluate after moves.
+     */
+    public void setDeltaEvaluator(DeltaEvaluatorInterface delta_evaluator)
+    {
+        this.delta_evaluator = delta_evaluator;
+    }
+
+    /**
+     * Returns the evaluator used to compute fitness changes for moves.
+     *
+     * @return evaluator, or null.
+     */
+    public DeltaEvaluatorInterface getDeltaEvaluator()
+    {
+        return this.delta_evaluator;
+    }
+
+    /**
+     * Sets the permutation.  The values are copied.
+     *
+     * @param  order permutation of the integers 0 to n-1.
+     */
+    public void setOrder(int[] order)
+    {
+        setOrder(order, order.length);
+    }
+
+    /**
+     * Sets the permutation from the first size values of the array.  The values
+     * are copied.
+     *
+     * @param  order array starting with a permutation of the integers 0 to
+     *      size-1.
+     * @param  size size of the permutation.
+     */
+    public void setOrder(int[] order, int size)
+    {
+        if (this.order.length != size)
+        {
+            this.order = new int[size];
+            this.position = new int[size];
+        }
+
+        System.arraycopy(order, 0, this.order, 0, size);
+        for (int i = 0; i < size; i++)
+        {
+            this.position[order[i]] = i;
+        }
+
+        invalidateChanges();
+        setEvaluated(false);
+        invalidateGenotypeHash();
+    }
+
+    /**
+     * Returns the permutation.  The array is owned by the individual and must not
+     * be modified; use the move methods or setOrder instead.
+     *
+     * @return permutation.
+     */
+    public int[] getOrder()
+    {
+        return this.order;
+    }
+
+    /**
+     * Returns the value at the specified position.
+     *
+     * @param  i position.
+     * @return value.
+     */
+    public int getValue(int i)
+    {
+        return order[i];
+    }
+
+    /**
+     * Returns the position of the specified value.
+     *
+     * @param  value value.
+     * @return position.
+     */
+    public int getPosition(int value)
+    {
+        return position[value];
+    }
+
+    /**
+     * Returns the size of the permutation.
+     *
+     * @return number of values.
+     */
+    @Override
+    public int getGenotypeSize()
+    {
+        return order.length;
+    }
+
+    /**
+     * Initializes the individual with a uniformly random permutation.
+     */
+    @Override
+    public void initialize()
+    {
+        RandomSource rng = RandomSource.current();
+
+        invalidateChanges();
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--)
+        {
+            int j = rng.nextInt(i + 1);
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+        for (int i = 0; i < order.length; i++)
+        {
+            position[order[i]] = i;
+        }
+
+        invalidateGenotypeHash();
+    }
+
+    /**
+     * Applies the specified move.
+     *
+     * @param  move move type.
+     * @param  i first position.
+     * @param  j second position.
+     */
+    public void applyMove(Move move, int i, int j)
+    {
+        boolean delta = delta_evaluator != null && getEvaluated() &&
+            getNumObjectives() == 1;
+        double change = delta ?
+            delta_evaluator.evaluateMove(this, move, i, j) : 0.;
+
+        switch (move)
+        {
+            case SWAP:
+                recordChange(i, order[i]);
+                recordChange(j, order[j]);
+                swapValues(i, j);
+                break;
+            case INSERTION:
+                invalidateChanges();
+                insertValue(i, j);
+                break;
+            case INVERSION:
+                invalidateChanges();
+                reverse(Math.min(i, j), Math.max(i, j));
+                break;
+            case TWO_OPT:
+                invalidateChanges();
+                reverse(Math.min(i, j) + 1, Math.max(i, j));
+                break;
+        }
+
+        invalidateGenotypeHash();
+
+        if (delta)
+        {
+            setFitness(getFitness() + change);
+            beginChanges(this);
+        }
+        else
+        {
+            setEvaluated(false);
+        }
+    }
+
+    /**
+     * Exchanges the values at the specified positions.
+     *
+     * @param  i first position.
+     * @param  j second position.
+     */
+    public void swap(int i, int j)
+    {
+        applyMove(Move.SWAP, i, j);
+    }
+
+    /**
+     * Removes the value at one position and reinserts it at another, shifting
+     * the values in between.
+     *
+     * @param  from position of the value to move.
+     * @param  to new position of the value.
+     */
+    public void insert(int from, int to)
+    {
+        applyMove(Move.INSERTION, from, to);
+    }
+
+    /**
+     * Reverses the values between the specified positions, inclusive.
+     *
+     * @param  i first position.
+     * @param  j second position.
+     */
+    public void invert(int i, int j)
+    {
+        applyMove(Move.INVERSION, i, j);
+    }
+
+    /**
+     * Performs a 2-opt move, treating the permutation as a tour: the edges
+     * leaving positions i and j are replaced by reversing the values at
+     * positions i+1 through j.
+     *
+     * @param  i first position.
+     * @param  j second position.
+     */
+    public void twoOpt(int i, int j)
+    {
+        applyMove(Move.TWO_OPT, i, j);
+    }
+
+    private void swapValues(int i, int j)
+    {
+        int vi = order[i];
+        int vj = order[j];
+        order[i] = vj;
+        order[j] = vi;
+        position[vj] = i;
+        position[vi] = j;
+    }
+
+    private void insertValue(int from, int to)
+    {
+        int value = order[from];
+        if (from < to)
+        {
+            for (int k = from; k < to; k++)
+            {
+                order[k] = order[k + 1];
+                position[order[k]] = k;
+            }
+        }
+        else
+        {
+            for (int k = from; k > to; k--)
+            {
+                order[k] = order[k - 1];
+                position[order[k]] = k;
+            }
+        }
+        order[to] = value;
+        position[value] = to;
+    }
+
+    private void reverse(int i, int j)
+    {
+        while (i < j)
+        {
+            swapValues(i++, j--);
+        }
+    }
+
+    /**
+     * Measures the distance between individuals as the number of positions at
+     * which their permutations differ.
+     *
+     * @param  ind individual to which my distance is to be measured.
+     * @return distance.
+     */
+    @Override
+    public double genotypeDistance(Individual ind)
+    {
+        int[] other = ((PermutationIndividual) ind).order;
+
+        double distance = 0.;
+        for (int i = 0; i < order.length; i++)
+        {
+            if (order[i] != other[i])
+            {
+                distance += 1.;
+            }
+        }
+
+        return distance;
+    }
+
+    /**
+     * Returns true if the permutations of this and the specified individual are
+     * equal.
+     *
+     * @param  ind individual to compare with.
+     * @return true if the permutations are identical, false otherwise.
+     */
+    @Override
+    public boolean genotypeEquals(Individual ind)
+    {
+        return Arrays.equals(order, ((PermutationIndividual) ind).order);
+    }
+
+    /**
+     * Computes a 64-bit hash of the permutation.
+     *
+     * @return genotype hash.
+     */
+    @Override
+    protected long computeGenotypeHash()
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < order.length; i++)
+        {
+            hash = (hash ^ order[i]) * 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+
+        return hash ^ order.length;
+    }
+
+    /**
+     * Returns the permutation as a string of space delimited values.
+     *
+     * @return string containing the permutation.
+     */
+    public String getGenotypeString()
+    {
+        StringBuilder sb = new StringBuilder(order.length * 4);
+        for (int i = 0; i < order.length; i++)
+        {
+            sb.append(order[i]).append(' ');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Clones the individual.
+     *
+     * @return a clone of the individual.
+     */
+    @Override
+    public PermutationIndividual clone()
+    {
+        PermutationIndividual obj = (PermutationIndividual) super.clone();
+
+        obj.order = this.order.clone();
+        obj.position = this.position.clone();
+
+        return obj;
+    }
+
+    /**
+     * Deep copies the individual.
+     *
+     * @param  obj individual to be deep copied.
+     */
+    @Override
+    public void deepCopy(Individual obj)
+    {
+        super.deepCopy(obj);
+
+        PermutationIndividual src = (PermutationIndividual) obj;
+
+        if (this.order.length != src.order.length)
+        {
+            this.order = new int[src.order.length];
+            this.position = new int[src.order.length];
+        }
+        System.arraycopy(src.order, 0, this.order, 0, src.order.length);
+        System.arraycopy(src.position, 0, this.position, 0,
+            src.position.length);
+        this.delta_evaluator = src.delta_evaluator;
+    }
+
+    /**
+     * Writes the state of the individual, including its permutation, to a
+     * checkpoint.
+     *
+     * @param  out checkpoint output.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public void writeCheckpoint(DataOutput out)
+        throws IOException
+    {
+        super.writeCheckpoint(out);
+
+        out.writeInt(order.length);
+        for (int value : order)
+        {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads the state of the individual, including its permutation, from a
+     * checkpoint.
+     *
+     * @param  in checkpoint input.
+     * @throws IOException if the state cannot be read or the permutation is
+     *      not valid.
+     */
+    @Override
+    public void readCheckpoint(DataInput in)
+        throws IOException
+    {
+        super.readCheckpoint(in);
+
+        int size = in.readInt();
+        if (size < 0)
+        {
+            throw new IOException("Bad permutation size " + size);
+        }
+
+        int[] values = new int[size];
+        boolean[] seen = new boolean[size];
+        for (int i = 0; i < size; i++)
+        {
+            values[i] = in.readInt();
+            if (values[i] < 0 || values[i] >= size || seen[values[i]])
+            {
+                throw new IOException("Checkpoint holds an invalid permutation");
+            }
+            seen[values[i]] = true;
+        }
+
+        //  setOrder marks the individual unevaluated.
+        boolean evaluated = getEvaluated();
+        setOrder(values);
+        setEvaluated(evaluated);
+    }
+}
@@ -0,0 +1,75 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * Mutates a PermutationIndividual by applying one of its moves at two randomly
+ * selected, distinct positions.  Moves are applied through the individual, so
+ * individuals with a delta evaluator are updated without full re-evaluation.
+ *
+ * @author Jeff Ridder
+ */
+public class PermutationMutator extends Mutator
+{
+    private PermutationIndividual.Move move;
+
+    /**
+     * Creates a new instance of PermutationMutator.
+     *
+     * @param  move move to apply.
+     */
+    public PermutationMutator(PermutationIndividual.Move move)
+    {
+        this.move = move;
+    }
+
+    /**
+     * Returns the move applied by this mutator.
+     *
+     * @return move.
+     */
+    public PermutationIndividual.Move getMove()
+    {
+        return this.move;
+    }
+
+    /**
+     * Mutates the individual.
+     *
+     * @param  ind individual to be mutated.
+     */
+    @Override
+    public void mutate(Individual ind)
+    {
+        RandomSource rng = RandomSource.current();
+
+        int size = ind.getGenotypeSize();
+        if (rng.nextDouble() <= ind.getProbMutation() && size > 1)
+        {
+            int i = rng.nextInt(size);
+            int j = rng.nextInt(size - 1);
+            if (j >= i)
+            {
+                j++;
+            }
+
+            ((PermutationIndividual) ind).applyMove(move, i, j);
+        }
+    }
+}
@@ -0,0 +1,575 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.List;
+import org.apache.logging.log4j.*;
+
+/**
+ * A disk-backed cache of evaluation results that survives restarts.  The cache is
+ * an open-addressing hash table (linear probing) in a memory-mapped file.  Each
+ * slot holds a 64-bit genotype hash, the constraint error, success flag and fitness
+ * values, and the genotype itself so that a hash match can be verified.  Because
+ * the slot layout is fixed, the genotype length and number of objectives are set
+ * when the file is created and individuals that don't match are simply not cached.
+ * Only numeric genotypes (Double, Float, Integer, Long, etc.) can be stored.
+ * <p>
+ * A cache opened for writing holds an exclusive lock on the file, so only one run
+ * may add to it at a time, but any number of concurrent runs may open the same
+ * file read-only.  The table does not grow; once it is 75% full new results are no
+ * longer stored.  Use a CachingEvaluator to put the cache in front of an evaluator.
+ * As with EvaluationCache, this is only correct for deterministic evaluators.
+ * <p>
+ * File layout (little-endian): a 64 byte header containing the magic number, format
+ * version, number of slots, genotype length, number of objectives and number of
+ * entries, followed by the slots.
+ *
+ * @author Jeff Ridder
+ */
+public class PersistentEvaluationCache
+{
+    private final static int MAGIC = 0x4a455643;
+
+    private final static int VERSION = 1;
+
+    private final static int HEADER_SIZE = 64;
+
+    private final static int COUNT_OFFSET = 24;
+
+    private final static double MAX_LOAD = 0.75;
+
+    private final static Logger logger =
+        LogManager.getLogger(PersistentEvaluationCache.class);
+
+    private File file;
+
+    private boolean read_only;
+
+    private RandomAccessFile raf;
+
+    private FileChannel channel;
+
+    private FileLock lock;
+
+    private MappedByteBuffer buffer;
+
+    private int num_slots;
+
+    private int genotype_size;
+
+    private int num_objectives;
+
+    private int slot_size;
+
+    private int count;
+
+    private long[] words;
+
+    private long hits;
+
+    private long misses;
+
+    private boolean full_warned;
+
+    /**
+     * Opens an existing cache file for reading only.  Any number of runs may
+     * share the same file this way.
+     *
+     * @param  file cache file.
+     * @throws IOException if the file cannot be opened or is not a cache file.
+     */
+    public PersistentEvaluationCache(File file)
+        throws IOException
+    {
+        this.file = file;
+        this.read_only = true;
+
+        raf = new RandomAccessFile(file, "r");
+        channel = raf.getChannel();
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        readHeader();
+    }
+
+    /**
+     * Opens the cache file for reading and writing, creating it if it doesn't
+     * exist.  If it exists, its genotype size and number of objectives must match
+     * those specified.
+     *
+     * @param  file cache file.
+     * @param  capacity number of results the cache should be able to hold.
+     * @param  genotype_size genotype length of cached individuals.
+     * @param  num_objectives number of objectives of cached individuals.
+     * @throws IOException if the file cannot be opened, is locked by another
+     *      writer, or does not match.
+     */
+    public PersistentEvaluationCache(File file, int capacity,
+        int genotype_size, int num_objectives)
+        throws IOException
+    {
+        this.file = file;
+        this.read_only = false;
+
+        boolean exists = file.exists() && file.length() > 0;
+
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        try
+        {
+            lock = channel.tryLock();
+        }
+        catch (OverlappingFileLockException e)
+        {
+            lock = null;
+        }
+        if (lock == null)
+        {
+            channel.close();
+            raf.close();
+            throw new IOException("Evaluation cache " + file.getAbsolutePath() +
+                " is already open for writing");
+        }
+
+        if (exists)
+        {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            readHeader();
+
+            if (this.genotype_size != genotype_size ||
+                this.num_objectives != num_objectives)
+            {
+                close();
+                throw new IOException("Evaluation cache " +
+                    file.getAbsolutePath() + " holds genotypes of size " +
+                    this.genotype_size + " with " + this.num_objectives +
+                    " objectives");
+            }
+        }
+        else
+        {
+            int slots = 1;
+            while (slots * MAX_LOAD < capacity)
+            {
+                slots <<= 1;
+            }
+
+            this.num_slots = slots;
+            this.genotype_size = genotype_size;
+            this.num_objectives = num_objectives;
+            this.slot_size = slotSize(genotype_size, num_objectives);
+            this.count = 0;
+
+            long length = HEADER_SIZE + (long) slots * slot_size;
+            if (length > Integer.MAX_VALUE)
+            {
+                close();
+                throw new IOException("Evaluation cache of " + length +
+                    " bytes is too large to map");
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, num_slots);
+            buffer.putInt(12, genotype_size);
+            buffer.putInt(16, num_objectives);
+            buffer.putInt(COUNT_OFFSET, 0);
+        }
+
+        this.words = new long[this.genotype_size];
+    }
+
+    /**
+     * Returns whether this cache was opened read-only.
+     *
+     * @return true if read-only, false otherwise.
+     */
+    public boolean getReadOnly()
+    {
+        return this.read_only;
+    }
+
+    /**
+     * Returns the cache file.
+     *
+     * @return cache file.
+     */
+    public File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * Returns the number of results stored in the cache.
+     *
+     * @return number of entries.
+     */
+    public synchronized int size()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the number of results the cache can hold.
+     *
+     * @return capacity.
+     */
+    public int getCapacity()
+    {
+        return (int) (num_slots * MAX_LOAD);
+    }
+
+    /**
+     * Returns the number of lookups that found a cached result.
+     *
+     * @return number of hits.
+     */
+    public synchronized long getHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached result.
+     *
+     * @return number of misses.
+     */
+    public synchronized long getMisses()
+    {
+        return this.misses;
+    }
+
+    /**
+     * Returns the fraction of lookups that found a cached result.
+     *
+     * @return hit rate between 0 and 1.
+     */
+    public synchronized double getHitRate()
+    {
+        long lookups = hits + misses;
+
+        return lookups == 0 ? 0. : (double) hits / lookups;
+    }
+
+    /**
+     * Looks up the genotype of the specified individual and, if it is cached,
+     * sets the individual's fitness, constraint error and success from the cache.
+     *
+     * @param  ind individual to look up.
+     * @return true if the individual was found in the cache, false otherwise.
+     */
+    public synchronized boolean lookup(Individual ind)
+    {
+        if (buffer == null || ind.getNumObjectives() != num_objectives ||
+            !encodeGenotype(ind))
+        {
+            return false;
+        }
+
+        long key = hashWords();
+        int slot = findSlot(key);
+
+        if (slot < 0 || buffer.getLong(slotOffset(slot)) != key)
+        {
+            misses++;
+            return false;
+        }
+
+        int offset = slotOffset(slot) + 8;
+        ind.setConstraintError(buffer.getDouble(offset));
+        ind.setSuccess(buffer.getLong(offset + 8) != 0L);
+        offset += 16;
+
+        if (num_objectives == 1)
+        {
+            ind.setFitness(buffer.getDouble(offset));
+        }
+        else
+        {
+            for (int i = 0; i < num_objectives; i++)
+            {
+                ind.setFitness(i, buffer.getDouble(offset + 8 * i));
+            }
+        }
+
+        hits++;
+
+        return true;
+    }
+
+    /**
+     * Stores the evaluation results of the specified individual.  Nothing is
+     * stored if the cache is read-only or full, or if the individual doesn't match
+     * the layout of the cache.
+     *
+     * @param  ind evaluated individual.
+     */
+    public synchronized void store(Individual ind)
+    {
+        if (read_only || buffer == null ||
+            ind.getNumObjectives() != num_objectives || !encodeGenotype(ind))
+        {
+            return;
+        }
+
+        if (count >= getCapacity())
+        {
+            if (!full_warned)
+            {
+                logger.warn("Evaluation cache " + file.getAbsolutePath() +
+                    " is full, no further results will be stored");
+                full_warned = true;
+            }
+            return;
+        }
+
+        long key = hashWords();
+        int slot = findSlot(key);
+        if (slot < 0)
+        {
+            return;
+        }
+
+        boolean empty = buffer.getLong(slotOffset(slot)) == 0L;
+
+        //  Write the payload before the key so that a reader never sees a key
+        //  without its results.
+        int offset = slotOffset(slot) + 8;
+        buffer.putDouble(offset, ind.getConstraintError());
+        buffer.putLong(offset + 8, ind.getSuccess() ? 1L : 0L);
+        offset += 16;
+        for (int i = 0; i < num_objectives; i++)
+        {
+            buffer.putDouble(offset, ind.getFitness(i));
+            offset += 8;
+        }
+        for (int i = 0; i < genotype_size; i++)
+        {
+            buffer.putLong(offset, words[i]);
+            offset += 8;
+        }
+        buffer.putLong(slotOffset(slot), key);
+
+        if (empty)
+        {
+            count++;
+            buffer.putInt(COUNT_OFFSET, count);
+        }
+    }
+
+    /**
+     * Forces any changes to be written to disk.
+     */
+    public synchronized void flush()
+    {
+        if (buffer != null && !read_only)
+        {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Flushes and closes the cache, releasing the file lock if held.
+     */
+    public synchronized void close()
+    {
+        flush();
+        buffer = null;
+
+        try
+        {
+            if (lock != null)
+            {
+                lock.release();
+                lock = null;
+            }
+            channel.close();
+            raf.close();
+        }
+        catch (IOException e)
+        {
+            logger.error("Could not close evaluation cache " +
+                file.getAbsolutePath() + ": " + e);
+        }
+    }
+
+    /**
+     * Reads and validates the file header.
+     *
+     * @throws IOException if the file is not a valid cache file.
+     */
+    private void readHeader()
+        throws IOException
+    {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+        {
+            close();
+            throw new IOException(file.getAbsolutePath() +
+                " is not an evaluation cache");
+        }
+        if (buffer.getInt(4) != VERSION)
+        {
+            close();
+            throw new IOException("Unsupported evaluation cache version " +
+                buffer.getInt(4));
+        }
+
+        num_slots = buffer.getInt(8);
+        genotype_size = buffer.getInt(12);
+        num_objectives = buffer.getInt(16);
+        count = buffer.getInt(COUNT_OFFSET);
+        slot_size = slotSize(genotype_size, num_objectives);
+        words = new long[genotype_size];
+
+        if (HEADER_SIZE + (long) num_slots * slot_size > buffer.capacity())
+        {
+            close();
+            throw new IOException("Evaluation cache " + file.getAbsolutePath() +
+                " is truncated");
+        }
+    }
+
+    /**
+     * Finds the slot holding the key, or the empty slot where it would be
+     * inserted.
+     *
+     * @param  key non-zero genotype key.
+     * @return slot index, or -1 if the table has no room.
+     */
+    private int findSlot(long key)
+    {
+        int mask = num_slots - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+
+        for (int probes = 0; probes < num_slots; probes++)
+        {
+            long stored = buffer.getLong(slotOffset(slot));
+            if (stored == 0L || (stored == key && genotypeMatches(slot)))
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns whether the genotype stored in the slot matches the encoded
+     * genotype.
+     *
+     * @param  slot slot index.
+     * @return true if they match.
+     */
+    private boolean genotypeMatches(int slot)
+    {
+        int offset = slotOffset(slot) + 24 + 8 * num_objectives;
+        for (int i = 0; i < genotype_size; i++)
+        {
+            if (buffer.getLong(offset + 8 * i) != words[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Encodes the individual's genotype as 64-bit words.
+     *
+     * @param  ind individual.
+     * @return false if the genotype can't be stored in this cache.
+     */
+    private boolean encodeGenotype(Individual ind)
+    {
+        if (!(ind instanceof GAIndividual) ||
+            ind.getGenotypeSize() != genotype_size)
+        {
+            return false;
+        }
+
+        List<?> genotype = ((GAIndividual<?>) ind).getGenotypeValues();
+        for (int i = 0; i < genotype_size; i++)
+        {
+            Object value = genotype.get(i);
+            if (value instanceof Double)
+            {
+                words[i] = Double.doubleToLongBits((Double) value);
+            }
+            else if (value instanceof Float)
+            {
+                words[i] = Float.floatToIntBits((Float) value);
+            }
+            else if (value instanceof Integer || value instanceof Long ||
+                value instanceof Short || value instanceof Byte)
+            {
+                words[i] = ((Number) value).longValue();
+            }
+            else
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Hashes the encoded genotype.  This must not change between versions of
+     * the file format, and never returns zero, which marks empty slots.
+     *
+     * @return genotype key.
+     */
+    private long hashWords()
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < genotype_size; i++)
+        {
+            hash = (hash ^ words[i]) * 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+
+        return hash == 0L ? 1L : hash;
+    }
+
+    private int slotOffset(int slot)
+    {
+        return HEADER_SIZE + slot * slot_size;
+    }
+
+    private static int slotSize(int genotype_size, int num_objectives)
+    {
+        return 24 + 8 * num_objectives + 8 * genotype_size;
+    }
+}
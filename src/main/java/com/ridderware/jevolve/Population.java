@@ -19,6 +19,7 @@
 package com.ridderware.jevolve;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 import org.apache.logging.log4j.*;
 
@@ -49,6 +50,16 @@ public class Population implements Cloneable, Serializable
 
     private boolean done;
 
+    private transient IndividualPool pool;
+
+    private transient EvaluationCache evaluation_cache;
+
+    private transient PopulationStatistics statistics;
+
+    private transient boolean statistics_valid;
+
+    private transient double statistics_generation;
+
     private final static Logger logger = LogManager.getLogger(Population.class);
 
     /**
@@ -69,6 +80,7 @@ public class Population implements Cloneable, Serializable
         this.force_evaluation = false;
 
         this.problem = null;
+        this.pool = new IndividualPool(0);
     }
 
     /**
@@ -99,6 +111,7 @@ public class Population implements Cloneable, Serializable
     public void setMaxPopulationSize(int max_pop_size)
     {
         this.max_pop_size = max_pop_size;
+        this.pool.setMaxSize(max_pop_size);
     }
 
     /**
@@ -112,6 +125,29 @@ public class Population implements Cloneable, Serializable
         this.force_evaluation = force_evaluation;
     }
 
+    /**
+     * Sets a cache of evaluation results to consult before passing individuals to
+     * the evaluator.  Individuals whose genotype is found in the cache are not
+     * re-evaluated, even when evaluation is forced.  Only use a cache with
+     * deterministic evaluators.  Set to null (the default) to disable caching.
+     *
+     * @param  evaluation_cache evaluation cache, or null.
+     */
+    public void setEvaluationCache(EvaluationCache evaluation_cache)
+    {
+        this.evaluation_cache = evaluation_cache;
+    }
+
+    /**
+     * Returns the evaluation cache, if any.
+     *
+     * @return evaluation cache, or null if caching is disabled.
+     */
+    public EvaluationCache getEvaluationCache()
+    {
+        return this.evaluation_cache;
+    }
+
     /**
      * Returns whether or not we are forcing the evaluation of individuals regardless
      * of whether they have been previously evaluated.
@@ -257,6 +293,78 @@ public class Population implements Cloneable, Serializable
         return num_evaluated;
     }
 
+    /**
+     * Returns the fitness and constraint error statistics of the population.  The
+     * statistics are computed in one sweep the first time they are asked for and
+     * shared until the population is changed through its own methods, evaluated,
+     * or moves to another generation.
+     *
+     * @return population statistics.
+     */
+    public synchronized PopulationStatistics getPopulationStatistics()
+    {
+        double generation = problem != null && problem.getStepper() != null ?
+            problem.getStepper().getCurrentGeneration() : -1.;
+
+        if (statistics == null)
+        {
+            statistics = new PopulationStatistics(this);
+        }
+        else if (!statistics_valid || statistics_generation != generation ||
+            statistics.getPopulationSize() != individuals.size())
+        {
+            statistics.compute(this);
+        }
+        statistics_valid = true;
+        statistics_generation = generation;
+
+        return statistics;
+    }
+
+    /**
+     * Discards the statistics of the population, so that they are recomputed
+     * when next asked for.  Code that changes fitness or the individuals' order
+     * other than through the population's own methods should call this.
+     */
+    public synchronized void invalidateStatistics()
+    {
+        statistics_valid = false;
+    }
+
+    /**
+     * Returns the pool of recycled individuals for this population.  The pool
+     * never holds more individuals than the maximum population size.
+     *
+     * @return individual pool.
+     */
+    public IndividualPool getIndividualPool()
+    {
+        return this.pool;
+    }
+
+    /**
+     * Returns a copy of the template individual, reusing a recycled individual
+     * from the pool when one is available rather than cloning.
+     *
+     * @param  template individual to copy.
+     * @return a copy of the template with a new ID.
+     */
+    public Individual acquireIndividual(Individual template)
+    {
+        return pool.acquire(template);
+    }
+
+    /**
+     * Returns an individual that has been discarded from the population to the
+     * pool for later reuse.  The individual must not be referenced elsewhere.
+     *
+     * @param  ind discarded individual.
+     */
+    public void recycleIndividual(Individual ind)
+    {
+        pool.recycle(ind);
+    }
+
     /**
      *  Returns the elites.
      *
@@ -268,7 +376,10 @@ public class Population implements Cloneable, Serializable
     }
 
     /**
-     * De-serializes the population from the specified file.
+     * De-serializes the population from the specified file written by
+     * population2file.  Individuals are cloned from the prototype and given the
+     * saved IDs and genotypes; they must be GAIndividuals of Doubles.  Use
+     * Checkpoint to restore the complete state of a run.
      *
      * @param  file file from which to read the population.
      */
@@ -283,6 +394,7 @@ public class Population implements Cloneable, Serializable
 
             this.getProblem().getStepper().setCurrentGeneration(inStream.readDouble());
             this.inStream2arrayList(inStream, individuals);
+            invalidateStatistics();
 
             if (elitist)
             {
@@ -303,7 +415,8 @@ public class Population implements Cloneable, Serializable
     }
 
     /**
-     *  Serializes the population to the specified file.
+     *  Serializes the IDs and genotypes of the population to the specified file.
+     *  Use Checkpoint to save the complete state of a run.
      *
      * @param  file file to which to write the population.
      */
@@ -312,21 +425,7 @@ public class Population implements Cloneable, Serializable
         try
         {
             FileOutputStream outFile = new FileOutputStream(file);
-            ObjectOutputStream outStream = new ObjectOutputStream(outFile);
-
-            logger.debug("Writing double generation from Population @ gen: " + this.getProblem().
-                getStepper().getCurrentGeneration());
-            outStream.writeDouble(this.getProblem().getStepper().
-                getCurrentGeneration());
-            arrayList2outStream(outStream, individuals);
-
-            if (elitist)
-            {
-                arrayList2outStream(outStream, elites);
-            }
-
-            outStream.flush();
-            outStream.close();
+            population2outStream(outFile);
             outFile.close();
         }
         catch (FileNotFoundException e)
@@ -339,6 +438,55 @@ public class Population implements Cloneable, Serializable
         }
     }
 
+    /**
+     *  Serializes the IDs and genotypes of the population into memory, and
+     *  queues them to be written to the specified file by the checkpoint
+     *  writer, so the caller does not wait for the disk.
+     *
+     * @param  file file to which to write the population.
+     * @param  writer checkpoint writer.
+     */
+    public void population2file(java.io.File file, CheckpointWriter writer)
+    {
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                64 * (individuals.size() + elites.size()) + 64);
+            population2outStream(bytes);
+            writer.write(file, ByteBuffer.wrap(bytes.toByteArray()));
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the generation, individuals and elites in the format read by
+     * file2population.
+     *
+     * @param  out stream to write to.
+     * @throws IOException if the stream cannot be written.
+     */
+    private void population2outStream(OutputStream out)
+        throws IOException
+    {
+        ObjectOutputStream outStream = new ObjectOutputStream(out);
+
+        logger.debug("Writing double generation from Population @ gen: " + this.getProblem().
+            getStepper().getCurrentGeneration());
+        outStream.writeDouble(this.getProblem().getStepper().
+            getCurrentGeneration());
+        arrayList2outStream(outStream, individuals);
+
+        if (elitist)
+        {
+            arrayList2outStream(outStream, elites);
+        }
+
+        outStream.flush();
+    }
+
     /**
      * Finds and maintains the elite individuals.
      */
@@ -358,15 +506,16 @@ public class Population implements Cloneable, Serializable
         //    Find elites
         for (int i = 0; i < max_elites; i++)
         {
-            Individual ind = individuals.get(i).clone();
+            Individual ind = acquireIndividual(individuals.get(i));
             elites.add(ind);
         }
 
         int num = individuals.size() - normal_pop_size;
         for (int i = num - 1; i >= 0; i--)
         {
-            individuals.remove(normal_pop_size + i);
+            recycleIndividual(individuals.remove(normal_pop_size + i));
         }
+        invalidateStatistics();
 
         if (elites.size() != max_elites)
         {
@@ -385,6 +534,7 @@ public class Population implements Cloneable, Serializable
     public void clearPopulation()
     {
         individuals.clear();
+        invalidateStatistics();
     }
 
     /**
@@ -395,6 +545,7 @@ public class Population implements Cloneable, Serializable
     public void evaluate(EvaluatorInterface evaluator)
     {
         standaloneEvaluate(evaluator);
+        invalidateStatistics();
     }
 
     /**
@@ -407,6 +558,7 @@ public class Population implements Cloneable, Serializable
         {
             individuals.add(ind);
             ind.setPopulation(this);
+            invalidateStatistics();
         }
     }
 
@@ -421,6 +573,7 @@ public class Population implements Cloneable, Serializable
         {
             individuals.add(i, ind);
             ind.setPopulation(this);
+            invalidateStatistics();
         }
     }
 
@@ -432,6 +585,7 @@ public class Population implements Cloneable, Serializable
     public void removeIndividual(Individual ind)
     {
         individuals.remove(ind);
+        invalidateStatistics();
     }
 
     /**
@@ -444,6 +598,7 @@ public class Population implements Cloneable, Serializable
         if (index < individuals.size() && index >= 0)
         {
             individuals.remove(index);
+            invalidateStatistics();
         }
     }
 
@@ -453,6 +608,7 @@ public class Population implements Cloneable, Serializable
     public void sortFitness()
     {
         Collections.sort(individuals, new FitnessComparator());
+        invalidateStatistics();
     }
 
     /**
@@ -515,6 +671,11 @@ public class Population implements Cloneable, Serializable
 
             obj.problem = this.problem;
 
+            obj.pool = new IndividualPool(this.max_pop_size);
+
+            obj.statistics = null;
+            obj.statistics_valid = false;
+
             //        Don't clone elites
             for (Individual i : this.individuals)
             {
@@ -552,7 +713,7 @@ public class Population implements Cloneable, Serializable
                 temps += Double.toString(fit) + "\t";
             }
 
-            for (Double gene : ((GAIndividual<Double>) ind).getGenotype())
+            for (Double gene : ((GAIndividual<Double>) ind).getGenotypeValues())
             {
                 temps += Double.toString(gene) + "\t";
             }
@@ -565,24 +726,46 @@ public class Population implements Cloneable, Serializable
     }
 
     /**
-     * Evaluates the entire population on a single processor.
+     * Evaluates the entire population on a single processor.  Individuals whose
+     * changes since their base are known are evaluated incrementally if the
+     * evaluator supports it (see IncrementalEvaluatorInterface), unless
+     * evaluation is forced.
      *
      * @param  evaluator EvaluatorInterface object.
      */
     private void standaloneEvaluate(EvaluatorInterface evaluator)
     {
+        IncrementalEvaluatorInterface incremental =
+            evaluator instanceof IncrementalEvaluatorInterface && !force_evaluation ?
+            (IncrementalEvaluatorInterface) evaluator : null;
+
         num_evaluated = 0;
         done = false;
         for (Individual i : individuals)
         {
             if (!i.getEvaluated() || force_evaluation)
             {
-                evaluator.evaluateConstraints(i);
-                evaluator.evaluateFitness(i);
+                if (evaluation_cache == null || !evaluation_cache.lookup(i))
+                {
+                    evaluator.evaluateConstraints(i);
+
+                    ChangeSet changes =
+                        incremental != null ? i.getChangeSet() : null;
+                    if (changes == null ||
+                        !incremental.evaluateFitness(i, changes))
+                    {
+                        evaluator.evaluateFitness(i);
+                    }
+
+                    ++num_evaluated;
+
+                    if (evaluation_cache != null)
+                    {
+                        evaluation_cache.store(i);
+                    }
+                }
 
                 i.setEvaluated(true);
-
-                ++num_evaluated;
             }
 
             if (i.getSuccess())
@@ -607,12 +790,18 @@ public class Population implements Cloneable, Serializable
             int popSize = inStream.readInt();
             for (int i = 0; i < popSize; i++)
             {
-                arrayList.get(i).setMyID(inStream.readLong());
+                GAIndividual<Double> ind = (GAIndividual<Double>) prototype.clone();
+                ind.setMyID(inStream.readLong());
                 genotypeSize = inStream.readInt();
+                ArrayList<Double> genotype = ind.getGenotype();
+                genotype.clear();
                 for (int j = 0; j < genotypeSize; j++)
                 {
-                    ((GAIndividual) arrayList.get(j)).getGenotype().add(inStream.readDouble());
+                    genotype.add(inStream.readDouble());
                 }
+                ind.invalidateGenotypeHash();
+                ind.setPopulation(this);
+                arrayList.add(ind);
             }
         }
         catch (IOException e)
@@ -640,7 +829,7 @@ public class Population implements Cloneable, Serializable
                     ind.getGenotypeSize() + " ";
                 outStream.writeLong(ind.getMyID());
                 outStream.writeInt(ind.getGenotypeSize());
-                for (Double gene : ((GAIndividual<Double>) ind).getGenotype())
+                for (Double gene : ((GAIndividual<Double>) ind).getGenotypeValues())
                 {
                     outStream.writeDouble(gene);
                 }
@@ -717,6 +906,7 @@ public class Population implements Cloneable, Serializable
         individuals = (ArrayList<Individual>) in.readObject();
         num_evaluated = in.readInt();
         done = in.readBoolean();
+        pool = new IndividualPool(max_pop_size);
     }
 
     /**
@@ -0,0 +1,177 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * Statistics of a population's fitness and constraint error, computed in a
+ * single sweep over its individuals.  For each objective, the statistics are
+ * kept over all individuals and over the feasible ones (those with no
+ * constraint error).  Indexes are positions in the population when the
+ * statistics were computed.
+ * <p>
+ * Population.getPopulationStatistics computes these once and shares them until
+ * the population changes, so the statistics writers and any visualization of a
+ * generation do not each walk the population.
+ *
+ * @author Jeff Ridder
+ */
+public class PopulationStatistics
+{
+    private RunningStatistics[] objectives;
+
+    private RunningStatistics[] feasible_objectives;
+
+    private final RunningStatistics constraint_error;
+
+    private int num_objectives;
+
+    private int population_size;
+
+    /**
+     * Creates a new instance of PopulationStatistics for the specified population.
+     *
+     * @param  pop population.
+     */
+    public PopulationStatistics(Population pop)
+    {
+        this.objectives = new RunningStatistics[0];
+        this.feasible_objectives = new RunningStatistics[0];
+        this.constraint_error = new RunningStatistics();
+        compute(pop);
+    }
+
+    /**
+     * Recomputes the statistics for the specified population.
+     *
+     * @param  pop population.
+     */
+    public void compute(Population pop)
+    {
+        population_size = pop.getPopulationSize();
+        num_objectives = population_size > 0 ?
+            pop.getIndividual(0).getNumObjectives() : 0;
+
+        if (objectives.length < num_objectives)
+        {
+            objectives = grow(objectives, num_objectives);
+            feasible_objectives = grow(feasible_objectives, num_objectives);
+        }
+        for (int j = 0; j < num_objectives; j++)
+        {
+            objectives[j].reset();
+            feasible_objectives[j].reset();
+        }
+        constraint_error.reset();
+
+        for (int i = 0; i < population_size; i++)
+        {
+            Individual ind = pop.getIndividual(i);
+            double[] fitness = ind.getFitnessArray();
+            double error = ind.getConstraintError();
+            int n = Math.min(num_objectives, fitness.length);
+
+            for (int j = 0; j < n; j++)
+            {
+                objectives[j].add(fitness[j], i);
+            }
+            if (error == 0.)
+            {
+                for (int j = 0; j < n; j++)
+                {
+                    feasible_objectives[j].add(fitness[j], i);
+                }
+            }
+            constraint_error.add(error, i);
+        }
+    }
+
+    /**
+     * Returns the number of individuals in the population.
+     *
+     * @return population size.
+     */
+    public int getPopulationSize()
+    {
+        return population_size;
+    }
+
+    /**
+     * Returns the number of objectives.
+     *
+     * @return number of objectives.
+     */
+    public int getNumObjectives()
+    {
+        return num_objectives;
+    }
+
+    /**
+     * Returns the statistics of an objective over all individuals.
+     *
+     * @param  index index of the objective.
+     * @return objective statistics.
+     */
+    public RunningStatistics getObjective(int index)
+    {
+        checkObjective(index);
+        return objectives[index];
+    }
+
+    /**
+     * Returns the statistics of an objective over the feasible individuals.
+     *
+     * @param  index index of the objective.
+     * @return objective statistics.
+     */
+    public RunningStatistics getFeasibleObjective(int index)
+    {
+        checkObjective(index);
+        return feasible_objectives[index];
+    }
+
+    /**
+     * Returns the statistics of the constraint error.
+     *
+     * @return constraint error statistics.
+     */
+    public RunningStatistics getConstraintError()
+    {
+        return constraint_error;
+    }
+
+    private void checkObjective(int index)
+    {
+        if (index < 0 || index >= num_objectives)
+        {
+            throw new IndexOutOfBoundsException("Objective " + index +
+                " of " + num_objectives);
+        }
+    }
+
+    private static RunningStatistics[] grow(RunningStatistics[] stats, int n)
+    {
+        RunningStatistics[] grown = new RunningStatistics[n];
+        System.arraycopy(stats, 0, grown, 0, stats.length);
+        for (int j = stats.length; j < n; j++)
+        {
+            grown[j] = new RunningStatistics();
+        }
+        return grown;
+    }
+}
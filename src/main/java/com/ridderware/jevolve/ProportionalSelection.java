@@ -0,0 +1,150 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * Base class for selectors that select individuals with probability
+ * proportional to a non-negative weight, by default their adjusted fitness.
+ * The weights are normalized by their sum, which the selector computes itself.
+ * <p>
+ * Subclasses build a wheel (e.g., an alias table or prefix sums) from the
+ * weights once per generation, so that each selection is O(1) or O(log N)
+ * instead of O(N).  The wheel is rebuilt when the population, its size or the
+ * generation of its problem's stepper changes.  Populations that are not run
+ * by a stepper should call reset whenever their fitness changes.  Selections
+ * made while a steady state breeder replaces individuals use the weights from
+ * the start of the generation.
+ * <p>
+ * Building and reading the wheel is thread-safe, so these selectors may be
+ * used with parallel breeding.
+ *
+ * @author Jeff Ridder
+ */
+public abstract class ProportionalSelection extends Selector
+{
+    private volatile Wheel wheel;
+
+    /**
+     * Discards the current wheel, so that it is rebuilt at the next selection.
+     */
+    public void reset()
+    {
+        this.wheel = null;
+    }
+
+    /**
+     * Returns the selection weight of an individual.  This implementation returns
+     * its adjusted fitness.  Negative and NaN weights are treated as zero.
+     *
+     * @param  ind individual.
+     * @return weight.
+     */
+    protected double getWeight(Individual ind)
+    {
+        return ind.getAdjustedFitness();
+    }
+
+    /**
+     * Returns the wheel for the population, building it if necessary.
+     *
+     * @param  pop population from which to select.
+     * @return wheel.
+     */
+    protected Wheel getWheel(Population pop)
+    {
+        Wheel w = this.wheel;
+        double generation = getGeneration(pop);
+
+        if (w == null || !w.matches(pop, generation))
+        {
+            synchronized (this)
+            {
+                w = this.wheel;
+                if (w == null || !w.matches(pop, generation))
+                {
+                    int n = pop.getPopulationSize();
+                    double[] weights = new double[n];
+                    double total = 0.;
+                    for (int i = 0; i < n; i++)
+                    {
+                        double weight = getWeight(pop.getIndividual(i));
+                        weights[i] = weight > 0. ? weight : 0.;
+                        total += weights[i];
+                    }
+
+                    //  With no weight at all, every individual is equally likely.
+                    if (!(total > 0.) || Double.isInfinite(total))
+                    {
+                        for (int i = 0; i < n; i++)
+                        {
+                            weights[i] = 1.;
+                        }
+                        total = n;
+                    }
+
+                    w = buildWheel(weights, total);
+                    w.pop = pop;
+                    w.generation = generation;
+                    w.size = n;
+                    this.wheel = w;
+                }
+            }
+        }
+
+        return w;
+    }
+
+    /**
+     * Builds the wheel from the weights of the individuals.
+     *
+     * @param  weights weights of the individuals, in population order.
+     * @param  total sum of the weights, which is positive.
+     * @return wheel.
+     */
+    protected abstract Wheel buildWheel(double[] weights, double total);
+
+    private static double getGeneration(Population pop)
+    {
+        if (pop.getProblem() == null || pop.getProblem().getStepper() == null)
+        {
+            return -1.;
+        }
+
+        return pop.getProblem().getStepper().getCurrentGeneration();
+    }
+
+    /**
+     * Selection data built from the weights of one population in one
+     * generation.
+     */
+    protected abstract static class Wheel
+    {
+        private Population pop;
+
+        private double generation;
+
+        private int size;
+
+        private boolean matches(Population pop, double generation)
+        {
+            return this.pop == pop && this.generation == generation &&
+                this.size == pop.getPopulationSize();
+        }
+    }
+}
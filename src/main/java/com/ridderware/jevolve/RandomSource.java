@@ -0,0 +1,605 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import com.ridderware.jrandom.MersenneTwisterFast;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A source of random numbers for the evolutionary operators.  Operators, genes,
+ * initializers and evaluators get their random numbers from RandomSource.current(),
+ * which is the global Mersenne Twister unless the calling thread has its own
+ * stream bound to it.
+ * <p>
+ * A stepper with a seed (see Stepper.setSeed) binds a stream created from the seed
+ * to the thread that runs the evolution, and each unit of parallel work, such as a
+ * chunk of offspring pairs (see Breeder.setParallelism) or the evaluation of an
+ * individual by MTDynamicNSGAProblem, is given its own stream derived from that
+ * one with create(seed, stream).  Since the streams depend only on the seed and
+ * the index of the work, and not on which thread does it, a seeded run is
+ * repeatable bit for bit without contention on a shared generator.  Seeded
+ * streams also generate their uniform and Gaussian deviates in blocks, and code
+ * that needs many deviates at once should use fillUniform and fillGaussian.
+ * <p>
+ * Seeded streams are SplitMix64 generators, which produce the same sequences as
+ * java.util.SplittableRandom.  The complete state of a seeded stream, including
+ * deviates generated but not yet handed out, can be read without advancing it
+ * (see Checkpoint), and a stream created from that state continues exactly
+ * where the original would.  The global source has no such state.
+ *
+ * @author Jeff Ridder
+ */
+public abstract class RandomSource
+{
+    private final static RandomSource global = new MersenneTwisterSource();
+
+    private final static ThreadLocal<RandomSource> bound =
+        new ThreadLocal<RandomSource>();
+
+    /**
+     * Returns the random source for the calling thread.
+     *
+     * @return random source.
+     */
+    public static RandomSource current()
+    {
+        RandomSource source = bound.get();
+
+        return source != null ? source : global;
+    }
+
+    /**
+     * Sets the random source for the calling thread.
+     *
+     * @param  source random source, or null to use the global source.
+     * @return the source previously set for the thread, or null if there was
+     *      none, so that it can be restored.
+     */
+    public static RandomSource setCurrent(RandomSource source)
+    {
+        RandomSource previous = bound.get();
+
+        if (source == null)
+        {
+            bound.remove();
+        }
+        else
+        {
+            bound.set(source);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Creates an independent random stream with the specified seed.  Streams with
+     * the same seed produce the same sequence.
+     *
+     * @param  seed seed.
+     * @return random source.
+     */
+    public static RandomSource create(long seed)
+    {
+        return new SeededSource(seed);
+    }
+
+    /**
+     * Creates the specified stream of a family of independent random streams
+     * sharing a seed.  The seed and stream index are mixed, so streams with
+     * neighboring indexes are uncorrelated.
+     *
+     * @param  seed seed shared by the family of streams.
+     * @param  stream index of the stream.
+     * @return random source.
+     */
+    public static RandomSource create(long seed, long stream)
+    {
+        return new SeededSource(mix(seed + mix(stream + 0x9E3779B97F4A7C15L)));
+    }
+
+    /**
+     * Returns whether this is a seeded stream, whose sequence is repeatable.
+     * The global source is not.
+     *
+     * @return true for a seeded stream.
+     */
+    public boolean isSeeded()
+    {
+        return false;
+    }
+
+    /**
+     * Returns the complete state of a seeded stream, without changing it.
+     *
+     * @return state, or null if the source is not a seeded stream.
+     */
+    byte[] getState()
+    {
+        return null;
+    }
+
+    /**
+     * Creates a seeded stream that continues from a state returned by getState.
+     *
+     * @param  state state of a seeded stream.
+     * @return random source.
+     * @throws IOException if the state is not that of a seeded stream.
+     */
+    static RandomSource fromState(byte[] state)
+        throws IOException
+    {
+        return SeededSource.fromState(state);
+    }
+
+    /**
+     * Returns a new source that is statistically independent of this one.  The
+     * new source is determined by the state of this one, which advances.
+     *
+     * @return random source.
+     */
+    public RandomSource split()
+    {
+        return new SeededSource(nextLong());
+    }
+
+    /**
+     * Returns a uniformly distributed long.
+     *
+     * @return random long.
+     */
+    public long nextLong()
+    {
+        return ((long) nextInt(1 << 16) << 48) ^
+            ((long) nextInt(1 << 24) << 24) ^ nextInt(1 << 24);
+    }
+
+    /**
+     * Returns a uniformly distributed double in [0, 1).
+     *
+     * @return random double.
+     */
+    public abstract double nextDouble();
+
+    /**
+     * Returns a uniformly distributed float in [0, 1).
+     *
+     * @return random float.
+     */
+    public abstract float nextFloat();
+
+    /**
+     * Returns a uniformly distributed int in [0, n).
+     *
+     * @param  n bound, which must be positive.
+     * @return random int.
+     */
+    public abstract int nextInt(int n);
+
+    /**
+     * Returns a normally distributed double with mean 0 and standard deviation 1.
+     *
+     * @return random Gaussian.
+     */
+    public abstract double nextGaussian();
+
+    /**
+     * Fills part of an array with uniformly distributed doubles in [0, 1).
+     * This implementation calls nextDouble for each element; sources that
+     * generate deviates in blocks override it.
+     *
+     * @param  values array to fill.
+     * @param  offset first index to fill.
+     * @param  length number of values to fill.
+     */
+    public void fillUniform(double[] values, int offset, int length)
+    {
+        for (int i = offset; i < offset + length; i++)
+        {
+            values[i] = nextDouble();
+        }
+    }
+
+    /**
+     * Fills part of an array with normally distributed doubles with mean 0 and
+     * standard deviation 1.  This implementation calls nextGaussian for each
+     * element; sources that generate deviates in blocks override it.
+     *
+     * @param  values array to fill.
+     * @param  offset first index to fill.
+     * @param  length number of values to fill.
+     */
+    public void fillGaussian(double[] values, int offset, int length)
+    {
+        for (int i = offset; i < offset + length; i++)
+        {
+            values[i] = nextGaussian();
+        }
+    }
+
+    /**
+     * The SplitMix64 finalizer.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The global Mersenne Twister.
+     */
+    private static class MersenneTwisterSource extends RandomSource
+    {
+        @Override
+        public double nextDouble()
+        {
+            return MersenneTwisterFast.getInstance().nextDouble();
+        }
+
+        @Override
+        public float nextFloat()
+        {
+            return MersenneTwisterFast.getInstance().nextFloat();
+        }
+
+        @Override
+        public int nextInt(int n)
+        {
+            return MersenneTwisterFast.getInstance().nextInt(n);
+        }
+
+        @Override
+        public double nextGaussian()
+        {
+            return MersenneTwisterFast.getInstance().nextGaussian();
+        }
+    }
+
+    /**
+     * An independently seeded stream, for use by a single thread.  Uniform and
+     * Gaussian deviates are generated in blocks and handed out from a cursor;
+     * Gaussians use the ziggurat method.
+     */
+    private static class SeededSource extends RandomSource
+    {
+        private final static int BLOCK_SIZE = 256;
+
+        private SplitMix random;
+
+        private final double[] uniforms = new double[BLOCK_SIZE];
+
+        private int next_uniform = BLOCK_SIZE;
+
+        private final double[] gaussians = new double[BLOCK_SIZE];
+
+        private int next_gaussian = BLOCK_SIZE;
+
+        SeededSource(long seed)
+        {
+            this.random = new SplitMix(seed);
+        }
+
+        SeededSource(SplitMix random)
+        {
+            this.random = random;
+        }
+
+        @Override
+        public boolean isSeeded()
+        {
+            return true;
+        }
+
+        /**
+         * The state is the generator's seed and gamma, then, for the uniform
+         * and the Gaussian blocks, the cursor and the deviates not yet handed
+         * out.
+         */
+        @Override
+        byte[] getState()
+        {
+            ByteBuffer state = ByteBuffer.allocate(24 +
+                8 * (2 * BLOCK_SIZE - next_uniform - next_gaussian));
+            state.putLong(random.seed);
+            state.putLong(random.gamma);
+            state.putInt(next_uniform);
+            for (int i = next_uniform; i < BLOCK_SIZE; i++)
+            {
+                state.putDouble(uniforms[i]);
+            }
+            state.putInt(next_gaussian);
+            for (int i = next_gaussian; i < BLOCK_SIZE; i++)
+            {
+                state.putDouble(gaussians[i]);
+            }
+            return state.array();
+        }
+
+        static SeededSource fromState(byte[] bytes)
+            throws IOException
+        {
+            ByteBuffer state = ByteBuffer.wrap(bytes);
+            try
+            {
+                long seed = state.getLong();
+                long gamma = state.getLong();
+                if ((gamma & 1L) == 0)
+                {
+                    throw new IOException("Bad random state");
+                }
+                SeededSource source = new SeededSource(new SplitMix(seed, gamma));
+                source.next_uniform = readBlock(state, source.uniforms);
+                source.next_gaussian = readBlock(state, source.gaussians);
+                if (state.hasRemaining())
+                {
+                    throw new IOException("Bad random state");
+                }
+                return source;
+            }
+            catch (RuntimeException e)
+            {
+                throw new IOException("Bad random state", e);
+            }
+        }
+
+        private static int readBlock(ByteBuffer state, double[] block)
+            throws IOException
+        {
+            int next = state.getInt();
+            if (next < 0 || next > BLOCK_SIZE)
+            {
+                throw new IOException("Bad random state");
+            }
+            for (int i = next; i < BLOCK_SIZE; i++)
+            {
+                block[i] = state.getDouble();
+            }
+            return next;
+        }
+
+        @Override
+        public RandomSource split()
+        {
+            return new SeededSource(random.split());
+        }
+
+        @Override
+        public long nextLong()
+        {
+            return random.nextLong();
+        }
+
+        @Override
+        public double nextDouble()
+        {
+            if (next_uniform == BLOCK_SIZE)
+            {
+                fillUniform(uniforms, 0, BLOCK_SIZE);
+                next_uniform = 0;
+            }
+
+            return uniforms[next_uniform++];
+        }
+
+        @Override
+        public float nextFloat()
+        {
+            return (random.nextInt() >>> 8) * 0x1.0p-24f;
+        }
+
+        @Override
+        public int nextInt(int n)
+        {
+            return random.nextInt(n);
+        }
+
+        @Override
+        public double nextGaussian()
+        {
+            if (next_gaussian == BLOCK_SIZE)
+            {
+                fillGaussian(gaussians, 0, BLOCK_SIZE);
+                next_gaussian = 0;
+            }
+
+            return gaussians[next_gaussian++];
+        }
+
+        @Override
+        public void fillUniform(double[] values, int offset, int length)
+        {
+            for (int i = offset; i < offset + length; i++)
+            {
+                values[i] = (random.nextLong() >>> 11) * 0x1.0p-53;
+            }
+        }
+
+        @Override
+        public void fillGaussian(double[] values, int offset, int length)
+        {
+            for (int i = offset; i < offset + length; i++)
+            {
+                values[i] = Ziggurat.next(random);
+            }
+        }
+    }
+
+    /**
+     * The SplitMix64 generator, with the same algorithm and therefore the same
+     * sequences as java.util.SplittableRandom, but with its state accessible.
+     */
+    private static class SplitMix
+    {
+        private final static long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+        private long seed;
+
+        private final long gamma;
+
+        SplitMix(long seed)
+        {
+            this(seed, GOLDEN_GAMMA);
+        }
+
+        SplitMix(long seed, long gamma)
+        {
+            this.seed = seed;
+            this.gamma = gamma;
+        }
+
+        long nextLong()
+        {
+            return mix(seed += gamma);
+        }
+
+        int nextInt()
+        {
+            return mix32(seed += gamma);
+        }
+
+        int nextInt(int bound)
+        {
+            if (bound <= 0)
+            {
+                throw new IllegalArgumentException("bound must be positive");
+            }
+
+            int r = mix32(seed += gamma);
+            int m = bound - 1;
+            if ((bound & m) == 0)
+            {
+                r &= m;
+            }
+            else
+            {
+                for (int u = r >>> 1; u + m - (r = u % bound) < 0;
+                    u = mix32(seed += gamma) >>> 1)
+                {
+                }
+            }
+            return r;
+        }
+
+        double nextDouble()
+        {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+        SplitMix split()
+        {
+            long s = nextLong();
+            return new SplitMix(s, mixGamma(seed += gamma));
+        }
+
+        private static int mix32(long z)
+        {
+            z = (z ^ (z >>> 33)) * 0x62A9D9ED799705F5L;
+            return (int) (((z ^ (z >>> 28)) * 0xCB24D0A5C88C35B3L) >>> 32);
+        }
+
+        private static long mixGamma(long z)
+        {
+            z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+            z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            z = (z ^ (z >>> 33)) | 1L;
+            int n = Long.bitCount(z ^ (z >>> 1));
+            return n < 24 ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+        }
+    }
+
+    /**
+     * The ziggurat method for normal deviates, with 128 layers (Doornik's
+     * ZIGNOR variant of Marsaglia and Tsang).  A single 64-bit draw supplies
+     * both the layer and the position within it, and about 98% of deviates
+     * need nothing more than a comparison and a multiplication.
+     */
+    private static class Ziggurat
+    {
+        private final static int LAYERS = 128;
+
+        private final static double R = 3.442619855899;
+
+        private final static double V = 9.91256303526217e-3;
+
+        private final static double[] x = new double[LAYERS + 1];
+
+        private final static double[] ratio = new double[LAYERS];
+
+        static
+        {
+            double f = Math.exp(-0.5 * R * R);
+            x[0] = V / f;
+            x[1] = R;
+            x[LAYERS] = 0.;
+            for (int i = 2; i < LAYERS; i++)
+            {
+                x[i] = Math.sqrt(-2. * Math.log(V / x[i - 1] + f));
+                f = Math.exp(-0.5 * x[i] * x[i]);
+            }
+            for (int i = 0; i < LAYERS; i++)
+            {
+                ratio[i] = x[i + 1] / x[i];
+            }
+        }
+
+        static double next(SplitMix random)
+        {
+            while (true)
+            {
+                long bits = random.nextLong();
+                int i = (int) (bits & (LAYERS - 1));
+                double u = 2. * ((bits >>> 11) * 0x1.0p-53) - 1.;
+
+                if (Math.abs(u) < ratio[i])
+                {
+                    return u * x[i];
+                }
+
+                if (i == 0)
+                {
+                    return tail(random, u < 0.);
+                }
+
+                double z = u * x[i];
+                double f0 = Math.exp(-0.5 * (x[i] * x[i] - z * z));
+                double f1 = Math.exp(-0.5 * (x[i + 1] * x[i + 1] - z * z));
+                if (f1 + random.nextDouble() * (f0 - f1) < 1.)
+                {
+                    return z;
+                }
+            }
+        }
+
+        private static double tail(SplitMix random, boolean negative)
+        {
+            double t;
+            double y;
+            do
+            {
+                t = Math.log(1. - random.nextDouble()) / R;
+                y = Math.log(1. - random.nextDouble());
+            }
+            while (-2. * y < t * t);
+
+            return negative ? t - R : R - t;
+        }
+    }
+}
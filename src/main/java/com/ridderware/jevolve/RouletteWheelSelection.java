@@ -18,68 +18,162 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-import org.apache.logging.log4j.*;
-
 /**
- * A basic roulette wheel selection operator using adjusted fitness.
+ * A basic roulette wheel selection operator using adjusted fitness.  The wheel
+ * is a Vose alias table built once per generation (see ProportionalSelection),
+ * so each selection takes constant time and the population is left unchanged.
  *
  * @author Jeff Ridder
  */
-public class RouletteWheelSelection extends Selector
+public class RouletteWheelSelection extends ProportionalSelection
 {
-    private final static Logger logger =
-        LogManager.getLogger(RouletteWheelSelection.class);
-
-    private double population_adjusted_fitness;
-
-
     /**
-     *  Constructor for the TournamentSelection object
+     *  Constructor for the RouletteWheelSelection object
      */
     public RouletteWheelSelection()
     {
-        this.population_adjusted_fitness = Double.MAX_VALUE;
     }
 
     /**
-     * Sets the cumulative adjusted fitness for the population.  Necessary for determining selection of individuals.
-     * @param popFitness
+     * Formerly set the cumulative adjusted fitness for the population.  The sum
+     * is now computed when the wheel is built, so this does nothing.
+     *
+     * @param popFitness cumulative adjusted fitness, which is ignored.
+     * @deprecated the selector computes the sum itself.
      */
+    @Deprecated
     public void setPopAdjustedFitness(double popFitness)
     {
-        this.population_adjusted_fitness = popFitness;
     }
 
-
     /**
-     *  This implementation of tournament selection goes through the randomly
-     *  chosen individuals in the tournament. If the currentWinner (starting with
-     *  the first person defaulted as the current Winner) has a lower fitness than
-     *  the currentCompetitor and the currentCompetitor gets lucky (by rolling
-     *  dice < kParam), then the currentCompetitor becomes the current winner. If
-     *  k = 1.0 this has the effect of returning the highest fitness individual
-     *  from the tournament pool.
+     * Selects an individual with probability proportional to its adjusted
+     * fitness.
      *
      * @param  pop population from which to select.
      * @return  selected individual
      */
     public Individual select(Population pop)
     {
-        pop.sortFitness();
+        AliasTable table = (AliasTable) getWheel(pop);
+
+        return pop.getIndividual(table.spin(RandomSource.current()));
+    }
+
+    /**
+     * Selects n individuals, each with probability proportional to its adjusted
+     * fitness.
+     *
+     * @param  pop population from which to select.
+     * @param  n number of individuals to select.
+     * @param  out array receiving the selected individuals.
+     */
+    @Override
+    public void selectMany(Population pop, int n, Individual[] out)
+    {
+        AliasTable table = (AliasTable) getWheel(pop);
+        RandomSource rng = RandomSource.current();
+
+        for (int i = 0; i < n; i++)
+        {
+            out[i] = pop.getIndividual(table.spin(rng));
+        }
+    }
 
-        double prob = MersenneTwisterFast.getInstance().nextDouble();
+    /**
+     * Builds a Vose alias table from the weights.
+     *
+     * @param  weights weights of the individuals.
+     * @param  total sum of the weights.
+     * @return alias table.
+     */
+    @Override
+    protected Wheel buildWheel(double[] weights, double total)
+    {
+        int n = weights.length;
+        AliasTable table = new AliasTable(n);
+
+        //  Scale the weights to an average of 1, then pair each slot below 1
+        //  with one above 1 that fills the rest of it.
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int num_small = 0;
+        int num_large = 0;
+        for (int i = 0; i < n; i++)
+        {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.)
+            {
+                small[num_small++] = i;
+            }
+            else
+            {
+                large[num_large++] = i;
+            }
+        }
+
+        while (num_small > 0 && num_large > 0)
+        {
+            int s = small[--num_small];
+            int l = large[--num_large];
+
+            table.prob[s] = scaled[s];
+            table.alias[s] = l;
+
+            scaled[l] = (scaled[l] + scaled[s]) - 1.;
+            if (scaled[l] < 1.)
+            {
+                small[num_small++] = l;
+            }
+            else
+            {
+                large[num_large++] = l;
+            }
+        }
+
+        //  Whatever is left is 1 up to rounding.
+        while (num_large > 0)
+        {
+            int l = large[--num_large];
+            table.prob[l] = 1.;
+            table.alias[l] = l;
+        }
+        while (num_small > 0)
+        {
+            int s = small[--num_small];
+            table.prob[s] = 1.;
+            table.alias[s] = s;
+        }
+
+        return table;
+    }
+
+    /**
+     * Alias table for constant time sampling.
+     */
+    private static class AliasTable extends Wheel
+    {
+        private final double[] prob;
+
+        private final int[] alias;
+
+        AliasTable(int n)
+        {
+            this.prob = new double[n];
+            this.alias = new int[n];
+        }
 
-        double sumAdj = 0.0;
-        int i = 0;
-        Individual ind = null;
-        do
+        /**
+         * Returns the index of a randomly selected individual, using a single
+         * random number for both the slot and the coin flip.
+         */
+        int spin(RandomSource rng)
         {
-            ind = pop.getIndividual(i);
-            sumAdj += ind.getAdjustedFitness()/population_adjusted_fitness;
-            i++;
-        } while(sumAdj < prob);
+            double u = rng.nextDouble() * prob.length;
+            int i = Math.min((int) u, prob.length - 1);
 
-        return ind;
+            return u - i < prob[i] ? i : alias[i];
+        }
     }
 }
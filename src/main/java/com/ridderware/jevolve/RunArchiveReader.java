@@ -0,0 +1,423 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import org.apache.logging.log4j.*;
+
+/**
+ * Random access to the generations of a run archive written by
+ * RunArchiveWriter.  The index at the end of the archive is read when it is
+ * opened, so any generation can be decompressed by reading only its block and
+ * that of its keyframe, whose dictionaries are cached.  An archive without an
+ * index, because it was not closed, is indexed by walking
+ * its blocks.  Reads use positional I/O, so a reader may be shared by threads,
+ * and processAll decompresses generations in parallel.  To read an archive
+ * from start to end, RunArchiveStream is simpler.
+ *
+ * @author Jeff Ridder
+ */
+public class RunArchiveReader
+    implements Closeable
+{
+    private final static Logger logger =
+        LogManager.getLogger(RunArchiveReader.class);
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    private double[] generations;
+
+    private long[] offsets;
+
+    private int[] sizes;
+
+    /**
+     * Dictionaries of the most recently read keyframes, by index.
+     */
+    private final Map<Integer, byte[]> dictionaries =
+        new LinkedHashMap<Integer, byte[]>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> e)
+            {
+                return size() > 16;
+            }
+        };
+
+    private RunArchiveReader(File file, FileChannel channel)
+    {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens an archive.
+     *
+     * @param  file archive file.
+     * @return reader of the archive.
+     * @throws IOException if the file could not be read or is not an archive.
+     */
+    public static RunArchiveReader open(File file)
+        throws IOException
+    {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        RunArchiveReader reader = new RunArchiveReader(file, channel);
+        try
+        {
+            ByteBuffer header = reader.read(0, RunArchiveWriter.HEADER_SIZE);
+            if (header.getInt(0) != RunArchiveWriter.MAGIC)
+            {
+                throw new IOException("Not a run archive: " + file);
+            }
+            int version = header.getInt(4);
+            if (version != RunArchiveWriter.VERSION)
+            {
+                throw new IOException("Unsupported run archive version " +
+                    version);
+            }
+
+            if (!reader.readIndex())
+            {
+                logger.warn("Run archive " + file.getAbsolutePath() +
+                    " has no index; reading its blocks.");
+                reader.scanBlocks();
+            }
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+        return reader;
+    }
+
+    /**
+     * Reads the index from the end of the archive.
+     *
+     * @return true if the archive has an intact index.
+     */
+    private boolean readIndex()
+        throws IOException
+    {
+        long size = channel.size();
+        if (size < RunArchiveWriter.HEADER_SIZE + RunArchiveWriter.TRAILER_SIZE +
+            8)
+        {
+            return false;
+        }
+
+        ByteBuffer trailer = read(size - RunArchiveWriter.TRAILER_SIZE,
+            RunArchiveWriter.TRAILER_SIZE);
+        long index_offset = trailer.getLong(0);
+        int n = trailer.getInt(8);
+        int crc_value = trailer.getInt(12);
+        if (trailer.getInt(16) != RunArchiveWriter.INDEX_MAGIC || n < 0 ||
+            index_offset < RunArchiveWriter.HEADER_SIZE ||
+            index_offset + 8 + (long) RunArchiveWriter.INDEX_ENTRY_SIZE * n !=
+            size - RunArchiveWriter.TRAILER_SIZE)
+        {
+            return false;
+        }
+
+        int length = 8 + RunArchiveWriter.INDEX_ENTRY_SIZE * n;
+        ByteBuffer index = read(index_offset, length);
+        CRC32 crc = new CRC32();
+        crc.update(index.array(), 0, length);
+        if ((int) crc.getValue() != crc_value ||
+            index.getInt() != RunArchiveWriter.TAG_INDEX || index.getInt() != n)
+        {
+            return false;
+        }
+
+        generations = new double[n];
+        offsets = new long[n];
+        sizes = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            generations[i] = index.getDouble();
+            offsets[i] = index.getLong();
+            sizes[i] = index.getInt();
+            index.getInt();
+        }
+        return true;
+    }
+
+    /**
+     * Indexes the archive by walking its blocks, up to the first that is
+     * incomplete.
+     */
+    private void scanBlocks()
+        throws IOException
+    {
+        long size = channel.size();
+        generations = new double[64];
+        offsets = new long[64];
+        sizes = new int[64];
+
+        int n = 0;
+        long offset = RunArchiveWriter.HEADER_SIZE;
+        while (offset + RunArchiveWriter.BLOCK_HEADER_SIZE <= size)
+        {
+            ByteBuffer header = read(offset, RunArchiveWriter.BLOCK_HEADER_SIZE);
+            if (!RunArchiveWriter.isBlock(header, offset, size))
+            {
+                break;
+            }
+            if (n == offsets.length)
+            {
+                generations = Arrays.copyOf(generations, 2 * n);
+                offsets = Arrays.copyOf(offsets, 2 * n);
+                sizes = Arrays.copyOf(sizes, 2 * n);
+            }
+            generations[n] = header.getDouble(24);
+            offsets[n] = offset;
+            sizes[n] = header.getInt(16);
+            n++;
+            offset += RunArchiveWriter.BLOCK_HEADER_SIZE + header.getInt(4);
+        }
+
+        generations = Arrays.copyOf(generations, n);
+        offsets = Arrays.copyOf(offsets, n);
+        sizes = Arrays.copyOf(sizes, n);
+    }
+
+    private ByteBuffer read(long position, int length)
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length).
+            order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new EOFException("Run archive " + file + " is truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Returns the archive file.
+     *
+     * @return file.
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Returns the number of generations in the archive.
+     *
+     * @return number of generations.
+     */
+    public int getNumGenerations()
+    {
+        return generations.length;
+    }
+
+    /**
+     * Returns the generation of a snapshot.
+     *
+     * @param  index index of the snapshot in the archive.
+     * @return generation.
+     */
+    public double getGeneration(int index)
+    {
+        return generations[index];
+    }
+
+    /**
+     * Returns the generations in the archive.
+     *
+     * @return generations, in the order of the archive.
+     */
+    public double[] getGenerations()
+    {
+        return Arrays.copyOf(generations, generations.length);
+    }
+
+    /**
+     * Returns the number of individuals in a snapshot.
+     *
+     * @param  index index of the snapshot in the archive.
+     * @return number of individuals.
+     */
+    public int getNumIndividuals(int index)
+    {
+        return sizes[index];
+    }
+
+    /**
+     * Finds the snapshot of the specified generation.
+     *
+     * @param  generation generation.
+     * @return index of the last snapshot of the generation, or -1 if there is
+     *      none.
+     */
+    public int find(double generation)
+    {
+        for (int i = generations.length - 1; i >= 0; i--)
+        {
+            if (generations[i] == generation)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decompresses a snapshot.
+     *
+     * @param  index index of the snapshot in the archive.
+     * @return reader of the snapshot.
+     * @throws IOException if the snapshot could not be read or is corrupt.
+     */
+    public SnapshotReader read(int index)
+        throws IOException
+    {
+        return RunArchiveWriter.decodeBlock(inflate(index));
+    }
+
+    /**
+     * Decompresses a block, and caches the dictionary if it is a keyframe.
+     *
+     * @param  index index of the block in the archive.
+     * @return transformed snapshot.
+     */
+    private byte[] inflate(int index)
+        throws IOException
+    {
+        ByteBuffer header = read(offsets[index],
+            RunArchiveWriter.BLOCK_HEADER_SIZE);
+        if (!RunArchiveWriter.isBlock(header, offsets[index], channel.size()))
+        {
+            throw new IOException("Run archive " + file + " has a bad block at " +
+                offsets[index]);
+        }
+
+        int keyframe = RunArchiveWriter.getKeyframe(header);
+        if (keyframe >= index)
+        {
+            throw new IOException("Run archive " + file + " has a bad " +
+                "keyframe at " + offsets[index]);
+        }
+        byte[] dictionary = keyframe >= 0 ? getDictionary(keyframe) : null;
+
+        ByteBuffer compressed = read(offsets[index] +
+            RunArchiveWriter.BLOCK_HEADER_SIZE, header.getInt(4));
+        Inflater inflater = new Inflater();
+        try
+        {
+            byte[] block = RunArchiveWriter.inflateBlock(header,
+                compressed.array(), dictionary, inflater);
+            if (keyframe < 0)
+            {
+                synchronized (dictionaries)
+                {
+                    dictionaries.put(index,
+                        RunArchiveWriter.dictionary(block, block.length));
+                }
+            }
+            return block;
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private byte[] getDictionary(int keyframe)
+        throws IOException
+    {
+        synchronized (dictionaries)
+        {
+            byte[] dictionary = dictionaries.get(keyframe);
+            if (dictionary != null)
+            {
+                return dictionary;
+            }
+        }
+
+        byte[] block = inflate(keyframe);
+        return RunArchiveWriter.dictionary(block, block.length);
+    }
+
+    /**
+     * Decompresses each of the snapshots and runs the task on it, on up to
+     * parallelism threads.  The results are returned in the order of the
+     * archive.
+     *
+     * @param  <T> type of the results.
+     * @param  parallelism number of threads.
+     * @param  task task to run on each snapshot.
+     * @return results of the task.
+     * @throws IOException if a snapshot could not be read or the task failed.
+     */
+    public <T> List<T> processAll(int parallelism,
+        final SnapshotReader.Task<T> task)
+        throws IOException
+    {
+        List<Callable<T>> jobs = new ArrayList<Callable<T>>(generations.length);
+        for (int i = 0; i < generations.length; i++)
+        {
+            final int index = i;
+            jobs.add(new Callable<T>()
+            {
+                public T call()
+                    throws IOException
+                {
+                    return task.process(read(index));
+                }
+            });
+        }
+
+        return SnapshotReader.invokeAll(jobs, parallelism);
+    }
+
+    /**
+     * Closes the archive.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    public void close()
+        throws IOException
+    {
+        channel.close();
+    }
+}
@@ -0,0 +1,193 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Inflater;
+import org.apache.logging.log4j.*;
+
+/**
+ * Reads the generations of a run archive written by RunArchiveWriter in order,
+ * through one buffered sequential pass over the file.  The index is not
+ * needed, so an archive that is still being written, or was never closed, can
+ * be read up to its last complete block.
+ *
+ * @author Jeff Ridder
+ */
+public class RunArchiveStream
+    implements Closeable
+{
+    private final static Logger logger =
+        LogManager.getLogger(RunArchiveStream.class);
+
+    private final File file;
+
+    private final DataInputStream in;
+
+    private final Inflater inflater = new Inflater();
+
+    private final ByteBuffer header =
+        ByteBuffer.allocate(RunArchiveWriter.BLOCK_HEADER_SIZE).
+        order(ByteOrder.LITTLE_ENDIAN);
+
+    private byte[] compressed = new byte[0];
+
+    private int index;
+
+    private int keyframe = -1;
+
+    private byte[] dictionary;
+
+    private long offset;
+
+    private final long size;
+
+    private boolean done;
+
+    /**
+     * Opens an archive for reading from its start.
+     *
+     * @param  file archive file.
+     * @throws IOException if the file could not be read or is not an archive.
+     */
+    public RunArchiveStream(File file)
+        throws IOException
+    {
+        this.file = file;
+        this.size = file.length();
+        this.in = new DataInputStream(new BufferedInputStream(
+            new FileInputStream(file), 1 << 16));
+        this.done = false;
+
+        try
+        {
+            byte[] start = new byte[RunArchiveWriter.HEADER_SIZE];
+            in.readFully(start);
+            ByteBuffer buffer = ByteBuffer.wrap(start).
+                order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != RunArchiveWriter.MAGIC)
+            {
+                throw new IOException("Not a run archive: " + file);
+            }
+            int version = buffer.getInt(4);
+            if (version != RunArchiveWriter.VERSION)
+            {
+                throw new IOException("Unsupported run archive version " +
+                    version);
+            }
+        }
+        catch (IOException e)
+        {
+            close();
+            throw e;
+        }
+        this.offset = RunArchiveWriter.HEADER_SIZE;
+    }
+
+    /**
+     * Reads the next snapshot.
+     *
+     * @return reader of the snapshot, or null after the last one.
+     * @throws IOException if the archive could not be read or a block is
+     *      corrupt.
+     */
+    public SnapshotReader next()
+        throws IOException
+    {
+        if (done)
+        {
+            return null;
+        }
+
+        header.clear();
+        try
+        {
+            in.readFully(header.array());
+        }
+        catch (EOFException e)
+        {
+            return finish(offset == size);
+        }
+
+        if (header.getInt(0) == RunArchiveWriter.TAG_INDEX)
+        {
+            return finish(true);
+        }
+        if (!RunArchiveWriter.isBlock(header, offset, size))
+        {
+            return finish(false);
+        }
+
+        int compressed_length = header.getInt(4);
+        if (compressed.length < compressed_length)
+        {
+            compressed = new byte[compressed_length];
+        }
+        in.readFully(compressed, 0, compressed_length);
+
+        int block_keyframe = RunArchiveWriter.getKeyframe(header);
+        if (block_keyframe >= 0 && block_keyframe != keyframe)
+        {
+            throw new IOException("Run archive " + file + " is missing the " +
+                "keyframe of the block at " + offset);
+        }
+        byte[] block = RunArchiveWriter.inflateBlock(header, compressed,
+            block_keyframe >= 0 ? dictionary : null, inflater);
+        if (block_keyframe < 0)
+        {
+            keyframe = index;
+            dictionary = RunArchiveWriter.dictionary(block, block.length);
+        }
+        offset += RunArchiveWriter.BLOCK_HEADER_SIZE + compressed_length;
+        index++;
+
+        return RunArchiveWriter.decodeBlock(block);
+    }
+
+    private SnapshotReader finish(boolean clean)
+    {
+        if (!clean)
+        {
+            logger.warn("Run archive " + file.getAbsolutePath() +
+                " ends in an incomplete block at " + offset);
+        }
+        done = true;
+        return null;
+    }
+
+    /**
+     * Closes the archive.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    public void close()
+        throws IOException
+    {
+        inflater.end();
+        in.close();
+    }
+}
@@ -0,0 +1,678 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.apache.logging.log4j.*;
+
+/**
+ * Streams the ParetoSnapshots of every generation of a run into a single
+ * compressed archive, to be read with RunArchiveReader or RunArchiveStream.
+ * <p>
+ * An archive is little-endian.  It begins with a 16-byte header (magic "JEVA",
+ * format version, and eight reserved bytes), followed by one block per
+ * snapshot:
+ * <pre>
+ *   0  int     TAG_BLOCK
+ *   4  int     compressed length
+ *   8  int     length of the snapshot
+ *  12  int     CRC-32 of the transformed snapshot
+ *  16  int     number of individuals
+ *  20  int     index of the keyframe block, or -1 if the block is a keyframe
+ *  24  double  generation
+ *  32  snapshot, transformed and compressed with Deflater
+ * </pre>
+ * Successive generations share most of their gene values, so every
+ * keyframe interval'th block is a keyframe, and the blocks up to the next are
+ * compressed with the last 32K of the keyframe's transformed snapshot as the
+ * preset dictionary of Deflater.  Reading any generation thus takes at most two
+ * blocks.
+ * <p>
+ * Before compression, the snapshot is transformed: IDs are replaced by their
+ * differences, the ID, rank and evaluation columns are shuffled so that the
+ * first bytes of all of their values come first, then the second bytes, and so
+ * on, and the doubles (constraint errors, objectives and genotype) are stored
+ * individual by individual rather than column by column, so that the values an
+ * individual inherited appear as they did in its parents.  The header of the
+ * snapshot is not transformed.
+ * <p>
+ * close writes an index of the blocks after the last one: TAG_INDEX, the number
+ * of blocks, and for each its generation (double), offset (long) and number of
+ * individuals (int, padded to 8 bytes), followed by a 20-byte trailer holding
+ * the offset of the index (long), the number of blocks, the CRC-32 of the index
+ * and the magic "JEVI".  An archive that was not closed can still be read
+ * block by block.
+ *
+ * @author Jeff Ridder
+ */
+public class RunArchiveWriter
+    implements Closeable
+{
+    /**
+     * Extension of run archive files.
+     */
+    public final static String EXTENSION = ".archive";
+
+    /**
+     * Current version of the file format.
+     */
+    public final static int VERSION = 1;
+
+    final static int MAGIC = 0x4156454A;
+
+    final static int INDEX_MAGIC = 0x4956454A;
+
+    final static int TAG_BLOCK = 1;
+
+    final static int TAG_INDEX = 2;
+
+    final static int HEADER_SIZE = 16;
+
+    final static int BLOCK_HEADER_SIZE = 32;
+
+    final static int INDEX_ENTRY_SIZE = 24;
+
+    final static int TRAILER_SIZE = 20;
+
+    final static int DICTIONARY_SIZE = 32768;
+
+    private final static Logger logger =
+        LogManager.getLogger(RunArchiveWriter.class);
+
+    private final File file;
+
+    private RandomAccessFile raf;
+
+    private final Deflater deflater;
+
+    private long position;
+
+    private int num_blocks;
+
+    private double[] generations = new double[64];
+
+    private long[] offsets = new long[64];
+
+    private int[] sizes = new int[64];
+
+    private long raw_size;
+
+    private byte[] raw = new byte[0];
+
+    private byte[] scratch = new byte[0];
+
+    private byte[] compressed = new byte[0];
+
+    private int keyframe_interval = 8;
+
+    private int keyframe = -1;
+
+    private byte[] dictionary;
+
+    /**
+     * Creates a new archive, replacing the specified file.
+     *
+     * @param  file archive file.
+     * @throws IOException if the file could not be created.
+     */
+    public RunArchiveWriter(File file)
+        throws IOException
+    {
+        this(file, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a new archive, replacing the specified file.
+     *
+     * @param  file archive file.
+     * @param  level Deflater compression level, 0 to 9.
+     * @throws IOException if the file could not be created.
+     */
+    public RunArchiveWriter(File file, int level)
+        throws IOException
+    {
+        this.file = file;
+        this.deflater = new Deflater(level);
+        this.raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).
+            order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(0L);
+        header.flip();
+        write(header);
+    }
+
+    /**
+     * Returns the archive file.
+     *
+     * @return file.
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Sets the number of blocks from one keyframe to the next.  Longer intervals
+     * compress better as long as the population changes slowly; 1 compresses
+     * every snapshot on its own.
+     *
+     * @param  keyframe_interval number of blocks, at least 1.
+     */
+    public synchronized void setKeyframeInterval(int keyframe_interval)
+    {
+        if (keyframe_interval < 1)
+        {
+            throw new IllegalArgumentException("Keyframe interval must be " +
+                "at least 1: " + keyframe_interval);
+        }
+        this.keyframe_interval = keyframe_interval;
+    }
+
+    /**
+     * Returns the number of blocks from one keyframe to the next.
+     *
+     * @return number of blocks.
+     */
+    public synchronized int getKeyframeInterval()
+    {
+        return keyframe_interval;
+    }
+
+    /**
+     * Returns the number of snapshots appended.
+     *
+     * @return number of snapshots.
+     */
+    public synchronized int getNumGenerations()
+    {
+        return num_blocks;
+    }
+
+    /**
+     * Returns the total size of the snapshots appended before compression.
+     *
+     * @return size in bytes.
+     */
+    public synchronized long getRawSize()
+    {
+        return raw_size;
+    }
+
+    /**
+     * Returns the size of the archive so far.
+     *
+     * @return size in bytes.
+     */
+    public synchronized long getSize()
+    {
+        return position;
+    }
+
+    /**
+     * Appends a snapshot of the population.
+     *
+     * @param  pop population.
+     * @throws IOException if the snapshot could not be written.
+     */
+    public void append(Population pop)
+        throws IOException
+    {
+        append(new ParetoSnapshot(pop));
+    }
+
+    /**
+     * Appends a snapshot.
+     *
+     * @param  snapshot snapshot.
+     * @throws IOException if the snapshot could not be written.
+     */
+    public synchronized void append(ParetoSnapshot snapshot)
+        throws IOException
+    {
+        if (raf == null)
+        {
+            throw new IOException("Run archive " + file + " is closed");
+        }
+
+        int length = snapshot.getEncodedSize();
+        if (raw.length < length)
+        {
+            raw = new byte[length];
+            scratch = new byte[length];
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(raw, 0, length);
+        snapshot.encode(buffer);
+        transform(raw, length, scratch);
+
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, length);
+
+        boolean is_keyframe = keyframe < 0 ||
+            num_blocks - keyframe >= keyframe_interval;
+        deflater.reset();
+        if (!is_keyframe)
+        {
+            deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        int compressed_length = 0;
+        if (compressed.length < BLOCK_HEADER_SIZE + length / 2 + 64)
+        {
+            compressed = new byte[BLOCK_HEADER_SIZE + length / 2 + 64];
+        }
+        while (!deflater.finished())
+        {
+            if (BLOCK_HEADER_SIZE + compressed_length == compressed.length)
+            {
+                byte[] grown = new byte[2 * compressed.length];
+                System.arraycopy(compressed, 0, grown, 0, compressed.length);
+                compressed = grown;
+            }
+            compressed_length += deflater.deflate(compressed,
+                BLOCK_HEADER_SIZE + compressed_length,
+                compressed.length - BLOCK_HEADER_SIZE - compressed_length);
+        }
+
+        ByteBuffer block = ByteBuffer.wrap(compressed, 0,
+            BLOCK_HEADER_SIZE + compressed_length).order(ByteOrder.LITTLE_ENDIAN);
+        block.putInt(0, TAG_BLOCK);
+        block.putInt(4, compressed_length);
+        block.putInt(8, length);
+        block.putInt(12, (int) crc.getValue());
+        block.putInt(16, snapshot.getNumIndividuals());
+        block.putInt(20, is_keyframe ? -1 : keyframe);
+        block.putDouble(24, snapshot.getGeneration());
+
+        if (num_blocks == offsets.length)
+        {
+            generations = Arrays.copyOf(generations, 2 * num_blocks);
+            offsets = Arrays.copyOf(offsets, 2 * num_blocks);
+            sizes = Arrays.copyOf(sizes, 2 * num_blocks);
+        }
+        generations[num_blocks] = snapshot.getGeneration();
+        offsets[num_blocks] = position;
+        sizes[num_blocks] = snapshot.getNumIndividuals();
+
+        write(block);
+        if (is_keyframe)
+        {
+            keyframe = num_blocks;
+            dictionary = dictionary(raw, length);
+        }
+        num_blocks++;
+        raw_size += length;
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Archived generation " + snapshot.getGeneration() +
+                ": " + length + " bytes compressed to " + compressed_length);
+        }
+    }
+
+    /**
+     * Writes the index, forces the archive to disk and closes it.
+     *
+     * @throws IOException if the archive could not be written.
+     */
+    public synchronized void close()
+        throws IOException
+    {
+        if (raf == null)
+        {
+            return;
+        }
+
+        try
+        {
+            ByteBuffer index = ByteBuffer.allocate(8 +
+                INDEX_ENTRY_SIZE * num_blocks + TRAILER_SIZE).
+                order(ByteOrder.LITTLE_ENDIAN);
+            index.putInt(TAG_INDEX);
+            index.putInt(num_blocks);
+            for (int i = 0; i < num_blocks; i++)
+            {
+                index.putDouble(generations[i]);
+                index.putLong(offsets[i]);
+                index.putInt(sizes[i]);
+                index.putInt(0);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(index.array(), 0, index.position());
+
+            long index_offset = position;
+            index.putLong(index_offset);
+            index.putInt(num_blocks);
+            index.putInt((int) crc.getValue());
+            index.putInt(INDEX_MAGIC);
+            index.flip();
+
+            write(index);
+            raf.getChannel().force(true);
+        }
+        finally
+        {
+            raf.close();
+            raf = null;
+            deflater.end();
+        }
+
+        logger.debug("Closed run archive " + file.getAbsolutePath() + " of " +
+            num_blocks + " generations, " + raw_size + " bytes in " + position);
+    }
+
+    private void write(ByteBuffer data)
+        throws IOException
+    {
+        FileChannel channel = raf.getChannel();
+        position += data.remaining();
+        while (data.hasRemaining())
+        {
+            channel.write(data);
+        }
+    }
+
+    /**
+     * Transforms an encoded snapshot in place for compression.
+     *
+     * @param  snapshot encoded snapshot.
+     * @param  length length of the snapshot.
+     * @param  scratch array at least as long as the snapshot.
+     * @throws IOException if the array does not hold a snapshot.
+     */
+    static void transform(byte[] snapshot, int length, byte[] scratch)
+        throws IOException
+    {
+        convert(snapshot, length, scratch, true);
+    }
+
+    /**
+     * Undoes transform in place.
+     *
+     * @param  snapshot transformed snapshot.
+     * @param  length length of the snapshot.
+     * @param  scratch array at least as long as the snapshot.
+     * @throws IOException if the array does not hold a snapshot.
+     */
+    static void untransform(byte[] snapshot, int length, byte[] scratch)
+        throws IOException
+    {
+        convert(snapshot, length, scratch, false);
+    }
+
+    private static void convert(byte[] snapshot, int length, byte[] scratch,
+        boolean forward)
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(snapshot, 0, length).
+            order(ByteOrder.LITTLE_ENDIAN);
+        SnapshotReader layout = new SnapshotReader(buffer);
+        int n = layout.getNumIndividuals();
+
+        //  Going forward, each column is shuffled last, so it is unshuffled
+        //  first going back.
+        if (forward)
+        {
+            deltaLongs(buffer, ParetoSnapshot.HEADER_SIZE, n, true);
+            shuffle(snapshot, ParetoSnapshot.HEADER_SIZE, n, 8, scratch);
+        }
+        else
+        {
+            unshuffle(snapshot, ParetoSnapshot.HEADER_SIZE, n, 8, scratch);
+            deltaLongs(buffer, ParetoSnapshot.HEADER_SIZE, n, false);
+        }
+
+        convertInts(snapshot, layout.getRanksOffset(), n, scratch, forward);
+        if (layout.getEvaluationsOffset() >= 0)
+        {
+            convertInts(snapshot, layout.getEvaluationsOffset(), n, scratch,
+                forward);
+        }
+
+        int num_columns = 1 + layout.getNumObjectives() +
+            layout.getGenotypeSize();
+        if (forward)
+        {
+            transpose(snapshot, layout.getConstraintErrorsOffset(), num_columns,
+                n, scratch);
+        }
+        else
+        {
+            transpose(snapshot, layout.getConstraintErrorsOffset(), n,
+                num_columns, scratch);
+        }
+    }
+
+    private static void convertInts(byte[] snapshot, int offset, int n,
+        byte[] scratch, boolean forward)
+    {
+        if (forward)
+        {
+            shuffle(snapshot, offset, n, 4, scratch);
+        }
+        else
+        {
+            unshuffle(snapshot, offset, n, 4, scratch);
+        }
+    }
+
+    private static void deltaLongs(ByteBuffer buffer, int offset, int n,
+        boolean forward)
+    {
+        if (forward)
+        {
+            for (int i = n - 1; i > 0; i--)
+            {
+                int p = offset + 8 * i;
+                buffer.putLong(p, buffer.getLong(p) - buffer.getLong(p - 8));
+            }
+        }
+        else
+        {
+            for (int i = 1; i < n; i++)
+            {
+                int p = offset + 8 * i;
+                buffer.putLong(p, buffer.getLong(p) + buffer.getLong(p - 8));
+            }
+        }
+    }
+
+    /**
+     * Transposes a rows by columns matrix of doubles stored row by row.
+     */
+    private static void transpose(byte[] data, int offset, int rows,
+        int columns, byte[] scratch)
+    {
+        for (int r = 0; r < rows; r++)
+        {
+            for (int c = 0; c < columns; c++)
+            {
+                System.arraycopy(data, offset + 8 * (r * columns + c), scratch,
+                    8 * (c * rows + r), 8);
+            }
+        }
+        System.arraycopy(scratch, 0, data, offset, 8 * rows * columns);
+    }
+
+    private static void shuffle(byte[] data, int offset, int n, int width,
+        byte[] scratch)
+    {
+        for (int i = 0; i < n; i++)
+        {
+            for (int b = 0; b < width; b++)
+            {
+                scratch[b * n + i] = data[offset + i * width + b];
+            }
+        }
+        System.arraycopy(scratch, 0, data, offset, n * width);
+    }
+
+    private static void unshuffle(byte[] data, int offset, int n, int width,
+        byte[] scratch)
+    {
+        for (int i = 0; i < n; i++)
+        {
+            for (int b = 0; b < width; b++)
+            {
+                scratch[offset + i * width + b] = data[offset + b * n + i];
+            }
+        }
+        System.arraycopy(scratch, offset, data, offset, n * width);
+    }
+
+    /**
+     * Returns the preset dictionary that a keyframe provides to the blocks
+     * after it.
+     *
+     * @param  block transformed snapshot of the keyframe.
+     * @param  length length of the snapshot.
+     * @return dictionary.
+     */
+    static byte[] dictionary(byte[] block, int length)
+    {
+        return Arrays.copyOfRange(block, Math.max(0, length - DICTIONARY_SIZE),
+            length);
+    }
+
+    /**
+     * Returns the index of the keyframe of a block.
+     *
+     * @param  header block header, from its position.
+     * @return index of the keyframe, or -1 if the block is a keyframe.
+     */
+    static int getKeyframe(ByteBuffer header)
+    {
+        return header.getInt(header.position() + 20);
+    }
+
+    /**
+     * Decompresses a block, without undoing its transform.
+     *
+     * @param  header block header, from its position.
+     * @param  compressed compressed snapshot.
+     * @param  dictionary dictionary of the block's keyframe, or null for a
+     *      keyframe.
+     * @param  inflater inflater to use.
+     * @return transformed snapshot.
+     * @throws IOException if the block is corrupt.
+     */
+    static byte[] inflateBlock(ByteBuffer header, byte[] compressed,
+        byte[] dictionary, Inflater inflater)
+        throws IOException
+    {
+        int p = header.position();
+        int compressed_length = header.getInt(p + 4);
+        int length = header.getInt(p + 8);
+        int crc_value = header.getInt(p + 12);
+
+        byte[] block = new byte[length];
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressed_length);
+        try
+        {
+            int n = 0;
+            while (n < length && !inflater.finished())
+            {
+                int inflated = inflater.inflate(block, n, length - n);
+                if (inflated == 0 && inflater.needsDictionary())
+                {
+                    if (dictionary == null)
+                    {
+                        throw new IOException("Run archive block needs the " +
+                            "dictionary of a keyframe");
+                    }
+                    inflater.setDictionary(dictionary);
+                }
+                else if (inflated == 0 && inflater.needsInput())
+                {
+                    break;
+                }
+                n += inflated;
+            }
+            if (n != length || !inflater.finished())
+            {
+                throw new IOException("Run archive block has the wrong length");
+            }
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException("Run archive block is corrupt: " +
+                e.getMessage());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(block, 0, length);
+        if ((int) crc.getValue() != crc_value)
+        {
+            throw new IOException("Run archive block fails its checksum");
+        }
+        return block;
+    }
+
+    /**
+     * Undoes the transform of a decompressed block into a new snapshot, leaving
+     * the block as it is, so that it can still provide a dictionary.
+     *
+     * @param  block transformed snapshot.
+     * @return reader of the snapshot.
+     * @throws IOException if the block does not hold a snapshot.
+     */
+    static SnapshotReader decodeBlock(byte[] block)
+        throws IOException
+    {
+        byte[] snapshot = Arrays.copyOf(block, block.length);
+        untransform(snapshot, snapshot.length, new byte[snapshot.length]);
+        return new SnapshotReader(ByteBuffer.wrap(snapshot));
+    }
+
+    /**
+     * Checks a block header read from the specified offset of an archive of the
+     * specified size.
+     *
+     * @param  header block header, from its position.
+     * @param  offset offset of the block.
+     * @param  size size of the archive.
+     * @return true if the header is a block header and the block fits.
+     */
+    static boolean isBlock(ByteBuffer header, long offset, long size)
+    {
+        int p = header.position();
+        int compressed_length = header.getInt(p + 4);
+        int length = header.getInt(p + 8);
+        return header.getInt(p) == TAG_BLOCK && compressed_length >= 0 &&
+            length >= ParetoSnapshot.HEADER_SIZE &&
+            offset + BLOCK_HEADER_SIZE + compressed_length <= size;
+    }
+}
@@ -0,0 +1,185 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * Accumulates the count, minimum, maximum, mean and variance of a stream of
+ * values in a single pass, using Welford's update for the mean and the sum of
+ * squared deviations.  The positions of the first minimum and the first maximum
+ * in the stream are kept as well.
+ *
+ * @author Jeff Ridder
+ */
+public class RunningStatistics
+{
+    private int count;
+
+    private double min;
+
+    private double max;
+
+    private int min_index;
+
+    private int max_index;
+
+    private double mean;
+
+    private double m2;
+
+    /**
+     * Creates a new, empty instance of RunningStatistics.
+     */
+    public RunningStatistics()
+    {
+        reset();
+    }
+
+    /**
+     * Empties the accumulator.
+     */
+    public void reset()
+    {
+        this.count = 0;
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+        this.min_index = -1;
+        this.max_index = -1;
+        this.mean = 0.;
+        this.m2 = 0.;
+    }
+
+    /**
+     * Adds a value to the accumulator.
+     *
+     * @param  value value to add.
+     * @param  index position of the value, reported by getMinIndex and
+     *      getMaxIndex.
+     */
+    public void add(double value, int index)
+    {
+        if (count == 0)
+        {
+            min = value;
+            max = value;
+            min_index = index;
+            max_index = index;
+        }
+        else if (value < min)
+        {
+            min = value;
+            min_index = index;
+        }
+        else if (value > max)
+        {
+            max = value;
+            max_index = index;
+        }
+
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Returns the number of values added.
+     *
+     * @return number of values.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the smallest value, or positive infinity if there are none.
+     *
+     * @return minimum.
+     */
+    public double getMin()
+    {
+        return min;
+    }
+
+    /**
+     * Returns the largest value, or negative infinity if there are none.
+     *
+     * @return maximum.
+     */
+    public double getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Returns the index of the first smallest value, or -1 if there are none.
+     *
+     * @return index of the minimum.
+     */
+    public int getMinIndex()
+    {
+        return min_index;
+    }
+
+    /**
+     * Returns the index of the first largest value, or -1 if there are none.
+     *
+     * @return index of the maximum.
+     */
+    public int getMaxIndex()
+    {
+        return max_index;
+    }
+
+    /**
+     * Returns the mean, or NaN if there are no values.
+     *
+     * @return mean.
+     */
+    public double getMean()
+    {
+        return count > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * Returns the sample variance, which is 0 for a single value and NaN if there
+     * are no values.
+     *
+     * @return variance.
+     */
+    public double getVariance()
+    {
+        if (count == 0)
+        {
+            return Double.NaN;
+        }
+
+        return count > 1 ? m2 / (count - 1.) : 0.;
+    }
+
+    /**
+     * Returns the sample standard deviation.
+     *
+     * @return standard deviation.
+     */
+    public double getStandardDeviation()
+    {
+        return Math.sqrt(getVariance());
+    }
+}
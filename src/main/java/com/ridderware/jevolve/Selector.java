@@ -25,6 +25,8 @@ package com.ridderware.jevolve;
  */
 public abstract class Selector
 {
+    private final ThreadLocal<Sample> samples = new ThreadLocal<Sample>();
+
     /**
      * Selects an individual from the population according to the criteria 
      * implemented by specific methods.
@@ -33,5 +35,77 @@ public abstract class Selector
      * @return selected individual.
      */
     public abstract Individual select(Population pop);
-}
 
+    /**
+     * Selects n individuals from the population into the specified array.  This
+     * implementation simply calls select n times; selectors that need to prepare
+     * the population before selecting override it to do so once per batch.
+     *
+     * @param  pop population from which to select.
+     * @param  n number of individuals to select.
+     * @param  out array receiving the selected individuals in its first n
+     *      elements.
+     */
+    public void selectMany(Population pop, int n, Individual[] out)
+    {
+        for (int i = 0; i < n; i++)
+        {
+            out[i] = select(pop);
+        }
+    }
+
+    /**
+     * Draws k distinct indexes uniformly from 0 to n-1 by a partial Fisher-Yates
+     * shuffle of an index buffer owned by the calling thread.  The sample is
+     * returned in the first k elements of the buffer and is valid until the next
+     * call on the same thread.  Since a partial shuffle of any permutation yields
+     * a uniform sample, the buffer is only reset when n or the thread's random
+     * source changes; the reset on a new source keeps the samples of a seeded
+     * stream independent of what the thread drew before it.
+     *
+     * @param  n number of indexes to draw from.
+     * @param  k number of indexes to draw, no more than n.
+     * @return buffer holding the sample in its first k elements.
+     */
+    protected int[] sampleIndexes(int n, int k)
+    {
+        RandomSource rng = RandomSource.current();
+        Sample sample = samples.get();
+        if (sample == null || sample.indexes.length != n || sample.rng != rng)
+        {
+            sample = new Sample(n, rng);
+            samples.set(sample);
+        }
+
+        int[] indexes = sample.indexes;
+        for (int i = 0; i < k; i++)
+        {
+            int j = i + rng.nextInt(n - i);
+            int temp = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = temp;
+        }
+
+        return indexes;
+    }
+
+    /**
+     * The index buffer of one thread and the random source that shuffles it.
+     */
+    private static class Sample
+    {
+        private final int[] indexes;
+
+        private final RandomSource rng;
+
+        Sample(int n, RandomSource rng)
+        {
+            this.indexes = new int[n];
+            for (int i = 0; i < n; i++)
+            {
+                indexes[i] = i;
+            }
+            this.rng = rng;
+        }
+    }
+}
@@ -58,12 +58,14 @@ public class SimpleGenerationalBreeder extends Breeder
      * @param  parent_pop parent population.
      * @param  child_pop child population.
      */
-    public void breedNextGeneration(Population parent_pop, Population child_pop)
+    public void breedNextGeneration(final Population parent_pop,
+        final Population child_pop)
     {
         Individual mom;
         Individual dad;
         Individual boy;
         Individual girl;
+        Individual[] parents = new Individual[2];
 
         if (getSelector() == null || getRecombinator() == null ||
             getMutator() == null)
@@ -71,27 +73,33 @@ public class SimpleGenerationalBreeder extends Breeder
             logger.error("Selector, Recombinator, or Mutator not set");
         }
 
-        for (int i = 0; i < parent_pop.getPopulationSize() - 1; i += 2)
+        breedPairs(parent_pop.getPopulationSize() / 2, new PairTask()
         {
-            mom = getSelector().select(parent_pop);
-            dad = getSelector().select(parent_pop);
+            public void breed(int pair)
+            {
+                Individual[] parents = new Individual[2];
+                getSelector().selectMany(parent_pop, 2, parents);
+                Individual mom = parents[0];
+                Individual dad = parents[1];
 
-            boy = child_pop.getIndividual(i);
-            girl = child_pop.getIndividual(i + 1);
+                Individual boy = child_pop.getIndividual(2 * pair);
+                Individual girl = child_pop.getIndividual(2 * pair + 1);
 
-            getRecombinator().recombine(mom, dad, boy, girl);
+                getRecombinator().recombine(mom, dad, boy, girl);
 
-            getMutator().mutate(boy);
-            getMutator().mutate(girl);
+                getMutator().mutate(boy);
+                getMutator().mutate(girl);
 
-            boy.setPopulation(child_pop);
-            girl.setPopulation(child_pop);
-        }
+                boy.setPopulation(child_pop);
+                girl.setPopulation(child_pop);
+            }
+        });
 
         if (parent_pop.getPopulationSize() % 2 != 0)
         {
-            mom = getSelector().select(parent_pop);
-            dad = getSelector().select(parent_pop);
+            getSelector().selectMany(parent_pop, 2, parents);
+            mom = parents[0];
+            dad = parents[1];
 
             boy = child_pop.getIndividual(parent_pop.getPopulationSize() - 1);
             girl = null;
@@ -18,7 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
 import java.util.ArrayList;
 import org.apache.logging.log4j.*;
 
@@ -51,7 +50,7 @@ public class SinglePointCrossover<E> extends Recombinator
     public void recombine(Individual parent1, Individual parent2,
         Individual child1, Individual child2)
     {
-        if (MersenneTwisterFast.getInstance().nextDouble() >
+        if (RandomSource.current().nextDouble() >
             parent2.getProbRecombination())
         {
             if (child1 != null)
@@ -80,44 +79,38 @@ public class SinglePointCrossover<E> extends Recombinator
             }
 
             //choose a random location to crossover at. one location insures equal sized children.
-            int xoverPoint = (int) (MersenneTwisterFast.getInstance().nextDouble() * (mom.getGenome().
+            int xoverPoint = (int) (RandomSource.current().nextDouble() * (mom.getGenome().
                 size() - 1));
 
-            if (!(boy.equals(null)))
-            {
-                boy.getGenotype().clear();
-            }
-            if (!(girl.equals(null)))
-            {
-                girl.getGenotype().clear();
-            }
+            ArrayList<E> boyGenotype = boy.clearGenotype();
+            ArrayList<E> girlGenotype = girl.clearGenotype();
 
             ArrayList<E> momhead = new ArrayList<E>();
             ArrayList<E> momtail = new ArrayList<E>();
             ArrayList<E> dadhead = new ArrayList<E>();
             ArrayList<E> dadtail = new ArrayList<E>();
 
-            for (int i = 0; i < mom.getGenotype().size(); i++)
+            for (int i = 0; i < mom.getGenotypeSize(); i++)
             {
                 if (i <= xoverPoint)
                 {
-                    momhead.add(mom.getGenotype().get(i));
+                    momhead.add(mom.getValue(i));
                 }
                 else
                 {
-                    momtail.add(mom.getGenotype().get(i));
+                    momtail.add(mom.getValue(i));
                 }
             }
 
-            for (int i = 0; i < dad.getGenotype().size(); i++)
+            for (int i = 0; i < dad.getGenotypeSize(); i++)
             {
                 if (i <= xoverPoint)
                 {
-                    dadhead.add(dad.getGenotype().get(i));
+                    dadhead.add(dad.getValue(i));
                 }
                 else
                 {
-                    dadtail.add(dad.getGenotype().get(i));
+                    dadtail.add(dad.getValue(i));
                 }
             }
 
@@ -133,11 +126,11 @@ public class SinglePointCrossover<E> extends Recombinator
                     dadtail.size());
             }
 
-            boy.getGenotype().addAll(momhead);
-            boy.getGenotype().addAll(dadtail);
+            boyGenotype.addAll(momhead);
+            boyGenotype.addAll(dadtail);
 
-            girl.getGenotype().addAll(dadhead);
-            girl.getGenotype().addAll(momtail);
+            girlGenotype.addAll(dadhead);
+            girlGenotype.addAll(momtail);
 
             if (boy.getGenotypeSize() != gsize)
             {
@@ -154,7 +147,9 @@ public class SinglePointCrossover<E> extends Recombinator
             }
 
             boy.setEvaluated(false);
+            boy.invalidateGenotypeHash();
             girl.setEvaluated(false);
+            girl.invalidateGenotypeHash();
         }
     }
 }
@@ -0,0 +1,684 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Random access to an encoded ParetoSnapshot without decoding it.  A snapshot
+ * file is memory-mapped by open, and any individual's ID, rank, objectives or
+ * genotype is read straight from the mapping by index, so only the pages that
+ * are touched are read from disk.  Columns can also be viewed whole as
+ * read-only buffers.  A reader is immutable and may be shared by threads until
+ * it is closed.  Closing a reader drops its reference to the mapping, which is
+ * unmapped once it is garbage collected; the reader cannot be used afterwards.
+ * <p>
+ * processAll runs a task over many snapshot files in parallel, such as those
+ * of every generation of a run listed by list, for analysis across
+ * generations.
+ *
+ * @author Jeff Ridder
+ */
+public class SnapshotReader
+    implements Closeable
+{
+    /**
+     * A task run on each snapshot by processAll.
+     *
+     * @param <T> type of the result of the task.
+     */
+    public interface Task<T>
+    {
+        /**
+         * Processes a snapshot.
+         *
+         * @param  snapshot reader of the snapshot.
+         * @return result.
+         * @throws IOException if the snapshot cannot be processed.
+         */
+        public T process(SnapshotReader snapshot)
+            throws IOException;
+    }
+
+    private volatile ByteBuffer data;
+
+    private final double generation;
+
+    private final int flags;
+
+    private final int num_individuals;
+
+    private final int num_objectives;
+
+    private final int genotype_size;
+
+    private final int ranks_offset;
+
+    private final int evaluations_offset;
+
+    private final int errors_offset;
+
+    private final int objectives_offset;
+
+    private final int genotype_offset;
+
+    private final int size;
+
+    /**
+     * Creates a new instance of SnapshotReader over the snapshot encoded in the
+     * buffer from its position.  The buffer's position is not changed.
+     *
+     * @param  buffer buffer holding an encoded snapshot.
+     * @throws IOException if the buffer does not hold a snapshot.
+     */
+    public SnapshotReader(ByteBuffer buffer)
+        throws IOException
+    {
+        ByteBuffer view = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (view.remaining() < ParetoSnapshot.HEADER_SIZE ||
+            view.getInt(0) != ParetoSnapshot.MAGIC)
+        {
+            throw new IOException("Not a Pareto snapshot");
+        }
+
+        int version = view.getInt(4);
+        if (version != ParetoSnapshot.VERSION)
+        {
+            throw new IOException("Unsupported Pareto snapshot version " +
+                version);
+        }
+
+        this.flags = view.getInt(8);
+        this.num_individuals = view.getInt(12);
+        this.num_objectives = view.getInt(16);
+        this.genotype_size = view.getInt(20);
+        this.generation = view.getDouble(24);
+
+        int n = num_individuals;
+        if (n < 0 || num_objectives < 0 || genotype_size < 0 ||
+            (flags & ParetoSnapshot.FLAG_GENOTYPE) == 0 && genotype_size != 0)
+        {
+            throw new IOException("Corrupt Pareto snapshot header");
+        }
+
+        long offset = ParetoSnapshot.HEADER_SIZE + 8L * n;
+        long ranks = offset;
+        offset += pad(4L * n);
+        long evaluations = -1;
+        if ((flags & ParetoSnapshot.FLAG_EVALUATIONS) != 0)
+        {
+            evaluations = offset;
+            offset += pad(4L * n);
+        }
+        long errors = offset;
+        offset += 8L * n;
+        long objectives = offset;
+        offset += 8L * n * num_objectives;
+        long genotype = offset;
+        offset += 8L * n * genotype_size;
+
+        if (view.remaining() < offset)
+        {
+            throw new IOException("Pareto snapshot is truncated");
+        }
+
+        this.ranks_offset = (int) ranks;
+        this.evaluations_offset = (int) evaluations;
+        this.errors_offset = (int) errors;
+        this.objectives_offset = (int) objectives;
+        this.genotype_offset = (int) genotype;
+        this.size = (int) offset;
+
+        view.limit(size);
+        this.data = view.slice().asReadOnlyBuffer().
+            order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Memory-maps a snapshot file.
+     *
+     * @param  file snapshot file.
+     * @return reader of the snapshot.
+     * @throws IOException if the file could not be mapped or is not a snapshot.
+     */
+    public static SnapshotReader open(File file)
+        throws IOException
+    {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try
+        {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE)
+            {
+                throw new IOException("Snapshot " + file + " is too large");
+            }
+
+            //  The mapping outlives the channel.
+            return new SnapshotReader(
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the generation at which the snapshot was taken.
+     *
+     * @return generation.
+     */
+    public double getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Returns the number of individuals.
+     *
+     * @return number of individuals.
+     */
+    public int getNumIndividuals()
+    {
+        return num_individuals;
+    }
+
+    /**
+     * Returns the number of objectives.
+     *
+     * @return number of objectives.
+     */
+    public int getNumObjectives()
+    {
+        return num_objectives;
+    }
+
+    /**
+     * Returns the number of genotype values per individual, zero if the
+     * genotype was not written.
+     *
+     * @return genotype size.
+     */
+    public int getGenotypeSize()
+    {
+        return genotype_size;
+    }
+
+    /**
+     * Returns whether the snapshot holds the individuals' numbers of
+     * evaluations.
+     *
+     * @return true if it does.
+     */
+    public boolean hasEvaluations()
+    {
+        return evaluations_offset >= 0;
+    }
+
+    /**
+     * Returns the size of the encoded snapshot in bytes.
+     *
+     * @return size.
+     */
+    public int getEncodedSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the offset of the Pareto ranks in the encoded snapshot.
+     */
+    int getRanksOffset()
+    {
+        return ranks_offset;
+    }
+
+    /**
+     * Returns the offset of the numbers of evaluations in the encoded
+     * snapshot, or -1 if there are none.
+     */
+    int getEvaluationsOffset()
+    {
+        return evaluations_offset;
+    }
+
+    /**
+     * Returns the offset of the constraint errors in the encoded snapshot.  The
+     * objectives and the genotype follow them, each a column of doubles.
+     */
+    int getConstraintErrorsOffset()
+    {
+        return errors_offset;
+    }
+
+    /**
+     * Returns the ID of an individual.
+     *
+     * @param  i index of the individual.
+     * @return ID.
+     */
+    public long getID(int i)
+    {
+        return data().getLong(ParetoSnapshot.HEADER_SIZE + 8 * check(i));
+    }
+
+    /**
+     * Returns the Pareto rank of an individual.
+     *
+     * @param  i index of the individual.
+     * @return Pareto rank.
+     */
+    public int getParetoRank(int i)
+    {
+        return data().getInt(ranks_offset + 4 * check(i));
+    }
+
+    /**
+     * Returns the number of evaluations of an individual.
+     *
+     * @param  i index of the individual.
+     * @return number of evaluations.
+     * @throws IllegalStateException if the snapshot has no numbers of
+     *      evaluations.
+     */
+    public int getEvaluations(int i)
+    {
+        if (evaluations_offset < 0)
+        {
+            throw new IllegalStateException("Snapshot has no evaluations");
+        }
+        return data().getInt(evaluations_offset + 4 * check(i));
+    }
+
+    /**
+     * Returns the constraint error of an individual.
+     *
+     * @param  i index of the individual.
+     * @return constraint error.
+     */
+    public double getConstraintError(int i)
+    {
+        return data().getDouble(errors_offset + 8 * check(i));
+    }
+
+    /**
+     * Returns the fitness of an individual in one objective.
+     *
+     * @param  i index of the individual.
+     * @param  objective index of the objective.
+     * @return fitness.
+     */
+    public double getObjective(int i, int objective)
+    {
+        return data().getDouble(objectives_offset +
+            8 * (checkColumn(objective, num_objectives) * num_individuals +
+            check(i)));
+    }
+
+    /**
+     * Copies the fitness of an individual in every objective into an array.
+     *
+     * @param  i index of the individual.
+     * @param  fitness array of at least getNumObjectives elements, or null to
+     *      allocate one.
+     * @return array holding the fitness.
+     */
+    public double[] getObjectives(int i, double[] fitness)
+    {
+        check(i);
+        ByteBuffer data = data();
+        if (fitness == null)
+        {
+            fitness = new double[num_objectives];
+        }
+        for (int j = 0; j < num_objectives; j++)
+        {
+            fitness[j] = data.getDouble(objectives_offset +
+                8 * (j * num_individuals + i));
+        }
+        return fitness;
+    }
+
+    /**
+     * Returns one genotype value of an individual.
+     *
+     * @param  i index of the individual.
+     * @param  locus locus.
+     * @return genotype value.
+     */
+    public double getGene(int i, int locus)
+    {
+        return data().getDouble(genotype_offset +
+            8 * (checkColumn(locus, genotype_size) * num_individuals +
+            check(i)));
+    }
+
+    /**
+     * Copies the genotype of an individual into an array.
+     *
+     * @param  i index of the individual.
+     * @param  genotype array of at least getGenotypeSize elements, or null to
+     *      allocate one.
+     * @return array holding the genotype.
+     */
+    public double[] getGenotype(int i, double[] genotype)
+    {
+        check(i);
+        ByteBuffer data = data();
+        if (genotype == null)
+        {
+            genotype = new double[genotype_size];
+        }
+        for (int j = 0; j < genotype_size; j++)
+        {
+            genotype[j] = data.getDouble(genotype_offset +
+                8 * (j * num_individuals + i));
+        }
+        return genotype;
+    }
+
+    /**
+     * Returns a read-only view of the IDs.
+     *
+     * @return IDs.
+     */
+    public LongBuffer getIDColumn()
+    {
+        return column(ParetoSnapshot.HEADER_SIZE, 8).asLongBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the Pareto ranks.
+     *
+     * @return Pareto ranks.
+     */
+    public IntBuffer getParetoRankColumn()
+    {
+        return column(ranks_offset, 4).asIntBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the numbers of evaluations, or null if the
+     * snapshot has none.
+     *
+     * @return numbers of evaluations.
+     */
+    public IntBuffer getEvaluationsColumn()
+    {
+        return evaluations_offset >= 0 ?
+            column(evaluations_offset, 4).asIntBuffer() : null;
+    }
+
+    /**
+     * Returns a read-only view of the constraint errors.
+     *
+     * @return constraint errors.
+     */
+    public DoubleBuffer getConstraintErrorColumn()
+    {
+        return column(errors_offset, 8).asDoubleBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the fitness of every individual in one
+     * objective.
+     *
+     * @param  objective index of the objective.
+     * @return fitness.
+     */
+    public DoubleBuffer getObjectiveColumn(int objective)
+    {
+        return column(objectives_offset + 8 * num_individuals *
+            checkColumn(objective, num_objectives), 8).asDoubleBuffer();
+    }
+
+    /**
+     * Returns a read-only view of one genotype value of every individual.
+     *
+     * @param  locus locus.
+     * @return genotype values.
+     */
+    public DoubleBuffer getGenotypeColumn(int locus)
+    {
+        return column(genotype_offset + 8 * num_individuals *
+            checkColumn(locus, genotype_size), 8).asDoubleBuffer();
+    }
+
+    /**
+     * Releases the mapping of the snapshot.  Column views taken before the
+     * reader was closed remain readable.
+     */
+    public void close()
+    {
+        data = null;
+    }
+
+    /**
+     * Copies the whole snapshot into memory.
+     *
+     * @return snapshot.
+     */
+    public ParetoSnapshot toSnapshot()
+    {
+        return ParetoSnapshot.copy(this);
+    }
+
+    /**
+     * Lists the snapshot files in a directory, in order of the generation in
+     * their names (as written by MOStatistics, e.g., pareto_12.0.snapshot).
+     * Files whose names hold no generation come last, by name.
+     *
+     * @param  dir directory.
+     * @return snapshot files.
+     */
+    public static List<File> list(File dir)
+    {
+        ArrayList<File> files = new ArrayList<File>();
+        File[] all = dir.listFiles();
+        if (all != null)
+        {
+            for (File file : all)
+            {
+                if (file.isFile() &&
+                    file.getName().endsWith(ParetoSnapshot.EXTENSION))
+                {
+                    files.add(file);
+                }
+            }
+        }
+
+        Collections.sort(files, new Comparator<File>()
+        {
+            public int compare(File a, File b)
+            {
+                int c = Double.compare(getGeneration(a), getGeneration(b));
+                return c != 0 ? c : a.getName().compareTo(b.getName());
+            }
+        });
+
+        return files;
+    }
+
+    private static double getGeneration(File file)
+    {
+        String name = file.getName();
+        name = name.substring(name.lastIndexOf('_') + 1,
+            name.length() - ParetoSnapshot.EXTENSION.length());
+        try
+        {
+            return Double.parseDouble(name);
+        }
+        catch (NumberFormatException e)
+        {
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Maps each of the files and runs the task on it, on up to parallelism
+     * threads.  Each reader is closed once the task returns, so the task must
+     * not keep it.  The results are returned in the order of the files.
+     *
+     * @param  <T> type of the results.
+     * @param  files snapshot files.
+     * @param  parallelism number of threads.
+     * @param  task task to run on each snapshot.
+     * @return results of the task.
+     * @throws IOException if a file could not be read or the task failed.
+     */
+    public static <T> List<T> processAll(List<File> files, int parallelism,
+        final Task<T> task)
+        throws IOException
+    {
+        List<Callable<T>> jobs = new ArrayList<Callable<T>>(files.size());
+        for (final File file : files)
+        {
+            jobs.add(new Callable<T>()
+            {
+                public T call()
+                    throws IOException
+                {
+                    SnapshotReader snapshot = open(file);
+                    try
+                    {
+                        return task.process(snapshot);
+                    }
+                    finally
+                    {
+                        snapshot.close();
+                    }
+                }
+            });
+        }
+
+        return invokeAll(jobs, parallelism);
+    }
+
+    /**
+     * Runs the jobs on up to parallelism threads, returning their results in
+     * order.
+     *
+     * @param  <T> type of the results.
+     * @param  jobs jobs.
+     * @param  parallelism number of threads.
+     * @return results of the jobs.
+     * @throws IOException if a job failed.
+     */
+    static <T> List<T> invokeAll(List<Callable<T>> jobs, int parallelism)
+        throws IOException
+    {
+        ArrayList<T> results = new ArrayList<T>(jobs.size());
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try
+        {
+            for (Future<T> f : pool.invokeAll(jobs))
+            {
+                results.add(f.get());
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Snapshot processing interrupted");
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        return results;
+    }
+
+    private ByteBuffer data()
+    {
+        ByteBuffer buffer = data;
+        if (buffer == null)
+        {
+            throw new IllegalStateException("Snapshot reader is closed");
+        }
+        return buffer;
+    }
+
+    private int check(int i)
+    {
+        if (i < 0 || i >= num_individuals)
+        {
+            throw new IndexOutOfBoundsException("Individual " + i + " of " +
+                num_individuals);
+        }
+        return i;
+    }
+
+    private static int checkColumn(int j, int n)
+    {
+        if (j < 0 || j >= n)
+        {
+            throw new IndexOutOfBoundsException("Column " + j + " of " + n);
+        }
+        return j;
+    }
+
+    private ByteBuffer column(int offset, int width)
+    {
+        ByteBuffer view = data().duplicate();
+        view.position(offset);
+        view.limit(offset + width * num_individuals);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long pad(long size)
+    {
+        return (size + 7) & ~7L;
+    }
+}
@@ -19,9 +19,8 @@
 package com.ridderware.jevolve;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import org.apache.logging.log4j.*;
 
@@ -36,6 +35,14 @@ public class Statistics
 
     private Individual best_ever;
 
+    private StatisticsWriter writer;
+
+    private CheckpointWriter checkpoint_writer;
+
+    private RunArchiveWriter archive;
+
+    private final StringBuilder line_buffer = new StringBuilder();
+
     private final static Logger logger = LogManager.getLogger(Statistics.class);
 
     /**
@@ -78,6 +85,105 @@ public class Statistics
         return file;
     }
 
+    /**
+     * Sets the writer through which statistics are written.  By default, this is
+     * the writer shared by all Statistics objects.
+     *
+     * @param  writer statistics writer.
+     */
+    public void setWriter(StatisticsWriter writer)
+    {
+        this.writer = writer;
+    }
+
+    /**
+     * Returns the writer through which statistics are written.
+     *
+     * @return statistics writer.
+     */
+    public StatisticsWriter getWriter()
+    {
+        if (writer == null)
+        {
+            writer = StatisticsWriter.getDefault();
+        }
+        return writer;
+    }
+
+    /**
+     * Sets the writer through which state files are written in the background.
+     * By default, this is the shared CheckpointWriter.
+     *
+     * @param  checkpoint_writer checkpoint writer.
+     */
+    public void setCheckpointWriter(CheckpointWriter checkpoint_writer)
+    {
+        this.checkpoint_writer = checkpoint_writer;
+    }
+
+    /**
+     * Returns the writer through which state files are written.
+     *
+     * @return checkpoint writer.
+     */
+    public CheckpointWriter getCheckpointWriter()
+    {
+        if (checkpoint_writer == null)
+        {
+            checkpoint_writer = CheckpointWriter.getDefault();
+        }
+        return checkpoint_writer;
+    }
+
+    /**
+     * Sets a run archive to which the multi-objective statistics append each
+     * period's Pareto snapshot, instead of writing a text or snapshot file of
+     * its own.  The caller closes the archive at the end of the run.
+     *
+     * @param  archive run archive, or null to write snapshot files.
+     */
+    public void setRunArchive(RunArchiveWriter archive)
+    {
+        this.archive = archive;
+    }
+
+    /**
+     * Returns the run archive, or null if snapshots are written to files.
+     *
+     * @return run archive.
+     */
+    public RunArchiveWriter getRunArchive()
+    {
+        return archive;
+    }
+
+    /**
+     * Waits until all statistics and state files written so far have reached
+     * their files.
+     */
+    public void flush()
+    {
+        getWriter().flush();
+        if (checkpoint_writer != null)
+        {
+            checkpoint_writer.flush();
+        }
+    }
+
+    /**
+     * Closes the statistics file once everything written to it so far has
+     * reached it, and waits for that.  Statistics written afterwards open the
+     * file again.
+     */
+    public void close()
+    {
+        if (file != null)
+        {
+            getWriter().closeFile(file);
+        }
+        flush();
+    }
+
     /**
      * Returns the sum of all fitness scores for the individuals.
      *
@@ -245,17 +351,13 @@ public class Statistics
             logger.warn("Error. Statistics (getAvgFitnessStndDev) called with a 0-sized population");
         }
 
-        double numerator = 0.;
-        double avgFitness = getAvgFitness(individuals);
-
-        for (Individual ind : individuals)
+        RunningStatistics stats = new RunningStatistics();
+        for (int i = 0; i < individuals.size(); i++)
         {
-            numerator += Math.pow((ind.getFitness() - avgFitness), 2.);
+            stats.add(individuals.get(i).getFitness(), i);
         }
 
-        double variance = numerator / (individuals.size() - 1.);
-
-        return (Math.sqrt(variance));
+        return stats.getStandardDeviation();
     }
 
     /**
@@ -272,17 +374,13 @@ public class Statistics
             logger.error("Error. Statistics (getAdjFitnessStndDev) called with a 0-sized population");
         }
 
-        double numerator = 0.;
-        double avgAdjFitness = getAvgAdjustedFitness(individuals);
-
-        for (Individual ind : individuals)
+        RunningStatistics stats = new RunningStatistics();
+        for (int i = 0; i < individuals.size(); i++)
         {
-            numerator += Math.pow((ind.getFitness() - avgAdjFitness), 2.);
+            stats.add(individuals.get(i).getAdjustedFitness(), i);
         }
 
-        double variance = numerator / (individuals.size() - 1.);
-
-        return Math.sqrt(variance);
+        return stats.getStandardDeviation();
     }
 
     /**
@@ -294,13 +392,14 @@ public class Statistics
     {
         if (file != null)
         {
-            String header = "\"Generation #\"";
-            header += "\t\"Minimum Fitness Score\"";
-            header += "\t\"Average Fitness Score\"";
-            header += "\t\"Maximum Fitness Score\"";
-            header += "\t\"Average Fitness Score Standard Deviation\"";
-
-            string2file(append, header, file);
+            StringBuilder header = getLineBuffer();
+            header.append("\"Generation #\"");
+            header.append("\t\"Minimum Fitness Score\"");
+            header.append("\t\"Average Fitness Score\"");
+            header.append("\t\"Maximum Fitness Score\"");
+            header.append("\t\"Average Fitness Score Standard Deviation\"");
+
+            string2file(append, header.toString(), file);
         }
     }
 
@@ -330,37 +429,61 @@ public class Statistics
             logger.error("Error. Statistics (outputGenerationalStats) called with a 0-sized population");
         }
 
-        int minFitInd = getMinFitnessIndex(individuals);
+        RunningStatistics fitness = pop.getPopulationStatistics().getObjective(0);
+        int minFitInd = fitness.getMinIndex();
 
         if (best_ever == null || individuals.get(minFitInd).getFitness() <
             best_ever.getFitness())
         {
-            best_ever = individuals.get(minFitInd).clone();
+            if (best_ever == null || best_ever.getClass() != individuals.get(
+                minFitInd).getClass())
+            {
+                best_ever = individuals.get(minFitInd).clone();
+            }
+            else
+            {
+                best_ever.deepCopy(individuals.get(minFitInd));
+            }
         }
 
+        StringBuilder line = getLineBuffer();
         //generation #
-        String line = "  " + generation;
+        line.append("  ").append(generation);
         //minimum fitness score
-        line += "\t\t\t" +
-            (individuals.get(minFitInd)).getFitness();
+        line.append("\t\t\t").append(fitness.getMin());
         //average fitness
-        line += "\t\t\t" + getAvgFitness(individuals);
+        line.append("\t\t\t").append(fitness.getMean());
         //maximum fitness score
-        line += "\t\t\t" + individuals.get(getMaxFitnessIndex(individuals)).
-            getFitness();
+        line.append("\t\t\t").append(fitness.getMax());
         //average fitness standard deviation
-        line += "\t\t\t" + getFitnessStndDev(individuals);
+        line.append("\t\t\t").append(fitness.getStandardDeviation());
+
+        string2file(true, line.toString(), file);
+    }
 
-        string2file(true, line, file);
+    /**
+     * Returns an empty buffer for formatting a line of statistics.  The buffer is
+     * reused from line to line, so it is only valid until the next call.
+     *
+     * @return empty string buffer.
+     */
+    protected StringBuilder getLineBuffer()
+    {
+        line_buffer.setLength(0);
+        return line_buffer;
     }
 
     /**
-     * Writes a string to a file.
+     * Writes a string to a file.  The line is queued on the statistics writer,
+     * which keeps the file open for later lines until close is called.  Since
+     * the line is written in the background, an error in writing it is logged by
+     * the writer and reported by the calls for the same file that follow.
      *
      * @param  append  true appends data, false overwrites.
      * @param  line    line to write to file.
      * @param  file file to write to.
-     * @return a boolean : returns true if there was a IOException.
+     * @return a boolean : returns true if there was no file to write to, or if
+     *      the last write to the file failed.
      */
     protected boolean string2file(boolean append, String line, File file)
     {
@@ -369,26 +492,80 @@ public class Statistics
             return true;
         }
 
-        boolean error = false;
-        line.trim();
+        getWriter().writeLine(file, append, line);
 
-        try
+        return getWriter().hasFailed(file);
+    }
+
+    /**
+     * Writes a string as the whole content of a file, which is closed once
+     * written.  Use this for files written once, such as per-generation
+     * snapshots, which would otherwise be held open.
+     *
+     * @param  text  text to write to file.
+     * @param  file file to write to.
+     * @return a boolean : returns true if there was no file to write to, or if
+     *      the last write to the file failed.
+     */
+    protected boolean string2newFile(String text, File file)
+    {
+        if (file == null)
+        {
+            return true;
+        }
+
+        getWriter().writeFile(file, text);
+
+        return getWriter().hasFailed(file);
+    }
+
+    /**
+     * Writes binary data as the whole content of a file.  The data is written
+     * from the buffer's position to its limit, and the buffer must not be
+     * changed afterwards.
+     *
+     * @param  data  data to write to file.
+     * @param  file file to write to.
+     * @return a boolean : returns true if there was no file to write to, or if
+     *      the last write to the file failed.
+     */
+    protected boolean bytes2newFile(ByteBuffer data, File file)
+    {
+        if (file == null)
+        {
+            return true;
+        }
+
+        getWriter().writeFile(file, data);
+
+        return getWriter().hasFailed(file);
+    }
+
+    /**
+     * Writes a Pareto snapshot to a file, or appends it to the run archive if
+     * there is one.
+     *
+     * @param  snapshot snapshot to write.
+     * @param  file file to write to if there is no run archive.
+     */
+    protected void snapshot2file(ParetoSnapshot snapshot, File file)
+    {
+        if (archive == null)
         {
-            FileWriter fw = new FileWriter(file, append);
-            PrintWriter outFile = new PrintWriter(fw);
+            bytes2newFile(snapshot.toByteBuffer(), file);
+            return;
+        }
 
-            outFile.println(line);
-            outFile.close();
+        try
+        {
+            archive.append(snapshot);
         }
         catch (IOException e)
         {
-            logger.error("ERROR - Could not write to file: " +
-                file.getAbsolutePath());
+            logger.error("ERROR - Could not append to run archive: " +
+                archive.getFile().getAbsolutePath());
             logger.error("IO Exception: " + e);
-            error = true;
         }
-
-        return error;
     }
 }
 
@@ -0,0 +1,491 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.*;
+
+/**
+ * Writes statistics output on a background thread, so that evolution does not
+ * wait for the disk.  Text queued for a file is appended to a buffered writer
+ * that stays open until the file is closed with closeFile (or, if the text is
+ * the whole content of a file, until it is written), and the thread writes
+ * whatever has been queued in one batch before flushing its files.  Text for each
+ * file is written in the order in which it was queued.  Binary files, such as
+ * Pareto snapshots, are written whole through a FileChannel.
+ * <p>
+ * The queue is bounded, so a producer only waits if the disk falls that many
+ * writes behind.  Errors are logged by the writer thread, and hasFailed reports
+ * whether the last write to a file failed.  By default, all Statistics objects
+ * share one writer, which is flushed when the JVM shuts down.
+ *
+ * @author Jeff Ridder
+ */
+public class StatisticsWriter
+{
+    private final static Logger logger =
+        LogManager.getLogger(StatisticsWriter.class);
+
+    private static StatisticsWriter default_writer;
+
+    private final BlockingQueue<Job> queue;
+
+    private final Map<File, Writer> open_files = new HashMap<File, Writer>();
+
+    private final Set<File> failed_files = ConcurrentHashMap.newKeySet();
+
+    private final Thread thread;
+
+    private long num_queued;
+
+    private long num_written;
+
+    private volatile boolean closed;
+
+    /**
+     * Held by producers from their check of closed until their job is queued,
+     * and by close to set closed, so no job is queued after the thread has
+     * finished.  The thread itself never takes it.
+     */
+    private final Object queue_lock = new Object();
+
+    /**
+     * Creates a new instance of StatisticsWriter and starts its thread.
+     *
+     * @param  capacity maximum number of queued writes.
+     */
+    public StatisticsWriter(int capacity)
+    {
+        this.queue = new ArrayBlockingQueue<Job>(capacity);
+        this.num_queued = 0;
+        this.num_written = 0;
+        this.closed = false;
+
+        this.thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                writeLoop();
+            }
+        }, "JEvolve statistics writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the writer shared by default by all Statistics objects.
+     *
+     * @return default writer.
+     */
+    public static synchronized StatisticsWriter getDefault()
+    {
+        if (default_writer == null)
+        {
+            final StatisticsWriter writer = new StatisticsWriter(1024);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    writer.close();
+                }
+            }));
+            default_writer = writer;
+        }
+
+        return default_writer;
+    }
+
+    /**
+     * Queues a line of text for the specified file.  The file is kept open for
+     * further lines.
+     *
+     * @param  file file to write to.
+     * @param  append true to append to the file, false to overwrite it if it is
+     *      not already open.
+     * @param  line line of text, to which a line separator is added.
+     */
+    public void writeLine(File file, boolean append, String line)
+    {
+        enqueue(new Job(file, append, line, false));
+    }
+
+    /**
+     * Queues the whole content of the specified file, which is overwritten and
+     * closed once written.
+     *
+     * @param  file file to write to.
+     * @param  text text, to which a line separator is added.
+     */
+    public void writeFile(File file, String text)
+    {
+        enqueue(new Job(file, false, text, true));
+    }
+
+    /**
+     * Queues the whole binary content of the specified file, which is
+     * overwritten through a FileChannel.  The buffer is written from its
+     * position to its limit and must not be changed after it is queued.
+     *
+     * @param  file file to write to.
+     * @param  data content of the file.
+     */
+    public void writeFile(File file, ByteBuffer data)
+    {
+        enqueue(new Job(file, data));
+    }
+
+    /**
+     * Queues the closing of the specified file, after any text already queued for
+     * it has been written.  Text queued for the file afterwards opens it again.
+     *
+     * @param  file file to close.
+     */
+    public void closeFile(File file)
+    {
+        enqueue(new Job(file, true, null, true));
+    }
+
+    /**
+     * Returns whether the last write to the specified file failed.  Since text
+     * is written in the background, this only covers text that has been written,
+     * which after flush is all of the text queued before it.
+     *
+     * @param  file file.
+     * @return true if the last write to the file failed.
+     */
+    public boolean hasFailed(File file)
+    {
+        return failed_files.contains(file.getAbsoluteFile());
+    }
+
+    /**
+     * Returns the number of files held open by the writer.
+     *
+     * @return number of open files.
+     */
+    int getNumOpenFiles()
+    {
+        synchronized (open_files)
+        {
+            return open_files.size();
+        }
+    }
+
+    /**
+     * Waits until everything queued so far has been written and flushed.
+     */
+    public void flush()
+    {
+        synchronized (this)
+        {
+            long target = num_queued;
+            while (num_written < target && thread.isAlive())
+            {
+                try
+                {
+                    wait(100);
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued so far, closes all files and stops the thread.
+     * Text queued afterwards is written synchronously.
+     */
+    public void close()
+    {
+        synchronized (queue_lock)
+        {
+            closed = true;
+        }
+        flush();
+        thread.interrupt();
+        try
+        {
+            thread.join();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Job job)
+    {
+        synchronized (queue_lock)
+        {
+            if (!closed)
+            {
+                synchronized (this)
+                {
+                    num_queued++;
+                }
+
+                try
+                {
+                    queue.put(job);
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                    logger.error("Interrupted while queueing output for " +
+                        job.file.getAbsolutePath());
+                    synchronized (this)
+                    {
+                        num_queued--;
+                    }
+                }
+                return;
+            }
+        }
+
+        //  The thread may still be writing earlier jobs, so wait for it to
+        //  finish to keep the order of each file.
+        try
+        {
+            thread.join();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (open_files)
+        {
+            write(job);
+            closeAll();
+        }
+    }
+
+    /**
+     * Takes batches of jobs off the queue until closed.
+     */
+    private void writeLoop()
+    {
+        ArrayList<Job> batch = new ArrayList<Job>();
+        while (!closed || !queue.isEmpty())
+        {
+            try
+            {
+                batch.add(queue.take());
+            }
+            catch (InterruptedException ex)
+            {
+                if (closed)
+                {
+                    queue.drainTo(batch);
+                    if (batch.isEmpty())
+                    {
+                        break;
+                    }
+                }
+                else
+                {
+                    continue;
+                }
+            }
+            queue.drainTo(batch);
+
+            synchronized (open_files)
+            {
+                for (Job job : batch)
+                {
+                    write(job);
+                }
+                for (Map.Entry<File, Writer> entry : open_files.entrySet())
+                {
+                    try
+                    {
+                        entry.getValue().flush();
+                    }
+                    catch (IOException e)
+                    {
+                        logger.error("ERROR - Could not write to file: " +
+                            entry.getKey().getAbsolutePath());
+                        logger.error("IO Exception: " + e);
+                        failed_files.add(entry.getKey());
+                    }
+                }
+            }
+
+            synchronized (this)
+            {
+                num_written += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+        }
+
+        synchronized (open_files)
+        {
+            closeAll();
+        }
+    }
+
+    /**
+     * Writes a job.  Called with the open_files lock held.
+     */
+    private void write(Job job)
+    {
+        File key = job.file.getAbsoluteFile();
+        Writer out = open_files.get(key);
+        try
+        {
+            if (job.data != null)
+            {
+                if (out != null)
+                {
+                    open_files.remove(key);
+                    out.close();
+                }
+                writeChannel(key, job.data);
+                failed_files.remove(key);
+                return;
+            }
+
+            if (out != null && (!job.append || job.close))
+            {
+                open_files.remove(key);
+                out.close();
+                out = null;
+            }
+            if (job.text == null)
+            {
+                return;
+            }
+            if (out == null)
+            {
+                out = new BufferedWriter(new FileWriter(key, job.append), 1 << 16);
+                if (!job.close)
+                {
+                    open_files.put(key, out);
+                }
+            }
+
+            out.write(job.text);
+            out.write(System.lineSeparator());
+
+            if (job.close)
+            {
+                out.close();
+            }
+            failed_files.remove(key);
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not write to file: " +
+                key.getAbsolutePath());
+            logger.error("IO Exception: " + e);
+            open_files.remove(key);
+            failed_files.add(key);
+        }
+    }
+
+    private static void writeChannel(File file, ByteBuffer data)
+        throws IOException
+    {
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        try
+        {
+            while (data.hasRemaining())
+            {
+                channel.write(data);
+            }
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Closes all open files.  Called with the open_files lock held.
+     */
+    private void closeAll()
+    {
+        for (Map.Entry<File, Writer> entry : open_files.entrySet())
+        {
+            try
+            {
+                entry.getValue().close();
+            }
+            catch (IOException e)
+            {
+                logger.error("ERROR - Could not close file: " +
+                    entry.getKey().getAbsolutePath());
+                failed_files.add(entry.getKey());
+            }
+        }
+        open_files.clear();
+    }
+
+    /**
+     * Text or binary data queued for a file, or the closing of a file if it
+     * has neither.
+     */
+    private static class Job
+    {
+        private final File file;
+
+        private final boolean append;
+
+        private final String text;
+
+        private final boolean close;
+
+        private final ByteBuffer data;
+
+        Job(File file, boolean append, String text, boolean close)
+        {
+            this.file = file;
+            this.append = append;
+            this.text = text;
+            this.close = close;
+            this.data = null;
+        }
+
+        Job(File file, ByteBuffer data)
+        {
+            this.file = file;
+            this.append = false;
+            this.text = null;
+            this.close = true;
+            this.data = data;
+        }
+    }
+}
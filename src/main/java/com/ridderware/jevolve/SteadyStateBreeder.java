@@ -76,6 +76,7 @@ public class SteadyStateBreeder extends Breeder
         Individual dad;
         Individual boy;
         Individual girl;
+        Individual[] parents = new Individual[2];
 
         if (getSelector() == null || getRecombinator() == null ||
             getMutator() == null)
@@ -89,24 +90,22 @@ public class SteadyStateBreeder extends Breeder
         //  take any chances.  Do it here.
         pop.sortFitness();
 
-        Population best_part = pop.clone();
-
         //  This needs to be an even number
         int num_replaced = (int) (percent_replacement / 2 / 100. *
             pop.getPopulationSize()) * 2;
 
         int pop_size = pop.getPopulationSize();
 
-        for (int i = pop_size - 1; i >= pop_size - num_replaced; i--)
-        {
-            best_part.removeIndividual(i);
-        }
+        //  The mating pool shares the survivors with the population, and the
+        //  replaced individuals are overwritten in place by the children.
+        Population best_part = getMatingPool(pop, pop_size - num_replaced);
 
         for (int i = best_part.getPopulationSize(); i <
             pop.getMaxPopulationSize() - 1; i += 2)
         {
-            mom = getSelector().select(best_part);
-            dad = getSelector().select(best_part);
+            getSelector().selectMany(best_part, 2, parents);
+            mom = parents[0];
+            dad = parents[1];
 
             boy = pop.getIndividual(i);
             girl = pop.getIndividual(i + 1);
@@ -122,8 +121,9 @@ public class SteadyStateBreeder extends Breeder
 
         if (pop.getPopulationSize() % 2 != 0)
         {
-            mom = getSelector().select(best_part);
-            dad = getSelector().select(best_part);
+            getSelector().selectMany(best_part, 2, parents);
+            mom = parents[0];
+            dad = parents[1];
 
             boy = pop.getIndividual(pop.getPopulationSize() - 1);
             girl = null;
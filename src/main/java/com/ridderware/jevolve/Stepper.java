@@ -18,6 +18,8 @@
  */
 package com.ridderware.jevolve;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import org.apache.logging.log4j.*;
 
@@ -41,6 +43,18 @@ public class Stepper
 
     private boolean done = false;
 
+    private RandomSource random;
+
+    private File checkpoint_file;
+
+    private double checkpoint_period;
+
+    private double last_checkpoint;
+
+    private CheckpointJournal journal;
+
+    private CheckpointWriter checkpoint_writer;
+
     /**
      *  Constructor for the Stepper object
      */
@@ -60,6 +74,113 @@ public class Stepper
         this.screen = screen;
     }
 
+    /**
+     * Seeds the evolution.  While the stepper initializes and steps its problems,
+     * the calling thread uses a random stream created from the seed (see
+     * RandomSource), so a seeded run is repeatable.  Unseeded steppers use the
+     * global random source.
+     *
+     * @param  seed seed.
+     */
+    public void setSeed(long seed)
+    {
+        this.random = RandomSource.create(seed);
+    }
+
+    /**
+     * Replaces the random stream of the stepper with one restored from a
+     * checkpoint.
+     *
+     * @param  random random source.
+     */
+    void setRandomSource(RandomSource random)
+    {
+        this.random = random;
+    }
+
+    /**
+     * Returns the random source of the stepper, or null if it has not been
+     * seeded.
+     *
+     * @return random source.
+     */
+    public RandomSource getRandomSource()
+    {
+        return this.random;
+    }
+
+    /**
+     * Sets the file to which evolve and resume write a checkpoint of the run (see
+     * Checkpoint) every period generations.  Checkpoints are written between
+     * steps, and each replaces the last.
+     *
+     * @param  file checkpoint file, or null for no checkpoints.
+     * @param  period number of generations between checkpoints.
+     */
+    public void setCheckpoint(File file, double period)
+    {
+        this.checkpoint_file = file;
+        this.checkpoint_period = period;
+    }
+
+    /**
+     * Returns the checkpoint file, or null if checkpoints are not written.
+     *
+     * @return checkpoint file.
+     */
+    public File getCheckpointFile()
+    {
+        return this.checkpoint_file;
+    }
+
+    /**
+     * Sets the writer with which checkpoints are written in the background.
+     * The stepper only pauses to capture each checkpoint into memory, and the
+     * writer writes it to disk while the evolution goes on, skipping checkpoints
+     * if it falls behind.  By default, checkpoints are written by the stepper
+     * before the next step.
+     *
+     * @param  checkpoint_writer checkpoint writer, or null to write checkpoints
+     *      synchronously.
+     */
+    public void setCheckpointWriter(CheckpointWriter checkpoint_writer)
+    {
+        this.checkpoint_writer = checkpoint_writer;
+    }
+
+    /**
+     * Returns the background checkpoint writer, or null if checkpoints are
+     * written synchronously.
+     *
+     * @return checkpoint writer.
+     */
+    public CheckpointWriter getCheckpointWriter()
+    {
+        return this.checkpoint_writer;
+    }
+
+    /**
+     * Sets the journal to which evolve and resume append the changes to the run
+     * every generation (see CheckpointJournal).  The journal is closed when the
+     * run ends.
+     *
+     * @param  journal checkpoint journal, or null for none.
+     */
+    public void setCheckpointJournal(CheckpointJournal journal)
+    {
+        this.journal = journal;
+    }
+
+    /**
+     * Returns the checkpoint journal, or null if there is none.
+     *
+     * @return checkpoint journal.
+     */
+    public CheckpointJournal getCheckpointJournal()
+    {
+        return this.journal;
+    }
+
     /**
      *  Sets the max number of generations to execute.
      *
@@ -140,9 +261,17 @@ public class Stepper
      */
     public void initialize()
     {
-        for (Problem problem : problems)
+        RandomSource previous = bindRandomSource();
+        try
+        {
+            for (Problem problem : problems)
+            {
+                problem.initialize();
+            }
+        }
+        finally
         {
-            problem.initialize();
+            restoreRandomSource(previous);
         }
     }
 
@@ -153,8 +282,50 @@ public class Stepper
     {
         this.initialize();
 //        current_generation = 0.;
-        for (; current_generation <= this.max_generations; current_generation +=
-                1.)
+        run();
+    }
+
+    /**
+     * Resumes the evolution from a checkpoint.  The stepper and its problems must
+     * be configured as they were for the run that wrote the checkpoint.  The
+     * problems are initialized as for a new run, so that they set up all of their
+     * populations, and the checkpoint then replaces the contents.  A seeded run
+     * continues exactly as the original did.  An unseeded run did not record its
+     * random numbers, so it continues from the same populations but not the same
+     * random numbers (see Checkpoint).
+     *
+     * @param  file checkpoint file.
+     * @throws IOException if the checkpoint could not be read or does not match
+     *      the stepper.
+     */
+    public void resume(File file)
+        throws IOException
+    {
+        resume(Checkpoint.read(file));
+    }
+
+    /**
+     * Resumes the evolution from a checkpoint, e.g., one replayed from a
+     * checkpoint journal with CheckpointJournal.replay.
+     *
+     * @param  checkpoint checkpoint.
+     * @throws IOException if the checkpoint does not match the stepper.
+     */
+    public void resume(Checkpoint checkpoint)
+        throws IOException
+    {
+        this.initialize();
+        checkpoint.restore(this);
+        run();
+    }
+
+    /**
+     * Steps the evolution from the current generation until done.
+     */
+    private void run()
+    {
+        last_checkpoint = current_generation;
+        while (current_generation <= this.max_generations)
         {
             if (screen)
             {
@@ -167,6 +338,96 @@ public class Stepper
             {
                 break;
             }
+
+            current_generation += 1.;
+
+            if (checkpoint_file != null &&
+                current_generation >= last_checkpoint + checkpoint_period)
+            {
+                writeCheckpoint();
+            }
+
+            if (journal != null)
+            {
+                appendJournal();
+            }
+        }
+
+        if (checkpoint_writer != null)
+        {
+            checkpoint_writer.flush();
+        }
+
+        if (journal != null)
+        {
+            try
+            {
+                journal.close();
+            }
+            catch (IOException e)
+            {
+                logger.error("IO Exception: " + e);
+            }
+        }
+
+        //  Release the breeding threads, and close the statistics files.
+        //  Statistics are written in the background, so wait for them here
+        //  rather than during the run.
+        for (Problem problem : problems)
+        {
+            for (int i = 0; i < problem.getNumBreeders(); i++)
+            {
+                problem.getBreeder(i).shutdown();
+            }
+            if (problem.getStatistics() != null)
+            {
+                problem.getStatistics().close();
+            }
+        }
+    }
+
+    /**
+     * Writes a checkpoint of the run, or queues it on the checkpoint writer.  A
+     * failure is logged, and the run goes on.
+     */
+    private void writeCheckpoint()
+    {
+        try
+        {
+            Checkpoint checkpoint = Checkpoint.capture(this);
+            if (checkpoint_writer != null)
+            {
+                checkpoint_writer.write(checkpoint_file, checkpoint);
+            }
+            else
+            {
+                checkpoint.write(checkpoint_file);
+            }
+            last_checkpoint = current_generation;
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not write checkpoint to: " +
+                checkpoint_file.getAbsolutePath());
+            logger.error("IO Exception: " + e);
+        }
+    }
+
+    /**
+     * Appends the changes of the last step to the checkpoint journal.  A failure
+     * is logged, and the run goes on.
+     */
+    private void appendJournal()
+    {
+        try
+        {
+            journal.append(this);
+        }
+        catch (IOException e)
+        {
+            logger.error("ERROR - Could not append to checkpoint journal: " +
+                journal.getFile().getAbsolutePath());
+            logger.error("IO Exception: " + e);
         }
     }
 
@@ -174,6 +435,45 @@ public class Stepper
      * Executes an evolution step.
      */
     public void step()
+    {
+        RandomSource previous = bindRandomSource();
+        try
+        {
+            stepProblems();
+        }
+        finally
+        {
+            restoreRandomSource(previous);
+        }
+    }
+
+    /**
+     * Binds the random source of the stepper, if any, to the calling thread.
+     *
+     * @return previously bound source, to be restored.
+     */
+    private RandomSource bindRandomSource()
+    {
+        return random != null ? RandomSource.setCurrent(random) : null;
+    }
+
+    /**
+     * Restores the random source that was bound before bindRandomSource.
+     *
+     * @param  previous previously bound source.
+     */
+    private void restoreRandomSource(RandomSource previous)
+    {
+        if (random != null)
+        {
+            RandomSource.setCurrent(previous);
+        }
+    }
+
+    /**
+     * Executes an evolution step for each problem.
+     */
+    private void stepProblems()
     {
         done = false;
         for (Problem problem : problems)
@@ -199,8 +499,14 @@ public class Stepper
             problem.replaceIndividuals();
         }
 
+        //  Postevaluation and replacement may have changed fitness in place, so
+        //  population statistics are recomputed once for all consumers.
         for (Problem problem : problems)
         {
+            for (int i = 0; i < problem.getNumPopulations(); i++)
+            {
+                problem.getPopulation(i).invalidateStatistics();
+            }
             problem.writeStatistics();
         }
 
@@ -0,0 +1,232 @@
+/* %%
+ * 
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+/**
+ * Stochastic universal sampling using adjusted fitness.  Rather than spinning a
+ * roulette wheel once per selection, a single spin places evenly spaced
+ * pointers around the wheel, so that the number of times each individual is
+ * selected is within one of its expected value.  The prefix sums of the wheel
+ * are built once per generation (see ProportionalSelection).
+ * <p>
+ * A pass places one pointer per individual and hands out the results in random
+ * order.  select, and selectMany for fewer individuals than the population
+ * size, take the next results of the current pass, starting a new pass when it
+ * is used up.  Each thread keeps its own pass, and starts a new one whenever
+ * its random source changes.  Under parallel breeding each chunk of pairs has
+ * its own random source, so each chunk draws from a pass of its own and the
+ * selections are repeatable for any number of threads.  selectMany for at least
+ * as many individuals as the population size places that many pointers in a
+ * single spin.
+ *
+ * @author Jeff Ridder
+ */
+public class StochasticUniversalSampling extends ProportionalSelection
+{
+    private final ThreadLocal<Pass> passes = new ThreadLocal<Pass>();
+
+    /**
+     * Creates a new instance of StochasticUniversalSampling.
+     */
+    public StochasticUniversalSampling()
+    {
+    }
+
+    /**
+     * Selects the next individual of the current sampling pass.
+     *
+     * @param  pop population from which to select.
+     * @return selected individual.
+     */
+    public Individual select(Population pop)
+    {
+        return pop.getIndividual(getPass(pop).next());
+    }
+
+    /**
+     * Selects n individuals.  If n is less than the population size, they are
+     * the next n results of the current sampling pass; otherwise they come from
+     * a single spin of n evenly spaced pointers.  Either way, the selected
+     * individuals are returned in random order.
+     *
+     * @param  pop population from which to select.
+     * @param  n number of individuals to select.
+     * @param  out array receiving the selected individuals.
+     */
+    @Override
+    public void selectMany(Population pop, int n, Individual[] out)
+    {
+        if (n < pop.getPopulationSize())
+        {
+            Pass pass = getPass(pop);
+            for (int i = 0; i < n; i++)
+            {
+                out[i] = pop.getIndividual(pass.next());
+            }
+            return;
+        }
+
+        int[] indexes = new int[n];
+        spin((PrefixSums) getWheel(pop), RandomSource.current(), indexes);
+        for (int i = 0; i < n; i++)
+        {
+            out[i] = pop.getIndividual(indexes[i]);
+        }
+    }
+
+    /**
+     * Returns the sampling pass of the calling thread, starting a new one if
+     * the wheel or the random source has changed since it was started, or if
+     * it is used up.
+     *
+     * @param  pop population from which to select.
+     * @return sampling pass with at least one result left.
+     */
+    private Pass getPass(Population pop)
+    {
+        PrefixSums sums = (PrefixSums) getWheel(pop);
+        RandomSource rng = RandomSource.current();
+
+        Pass pass = passes.get();
+        if (pass == null || pass.sums != sums || pass.rng != rng ||
+            pass.next == pass.order.length)
+        {
+            if (pass == null || pass.order.length != sums.cumulative.length)
+            {
+                pass = new Pass(sums.cumulative.length);
+                passes.set(pass);
+            }
+            pass.sums = sums;
+            pass.rng = rng;
+            pass.next = 0;
+            spin(sums, rng, pass.order);
+        }
+
+        return pass;
+    }
+
+    /**
+     * Places one evenly spaced pointer per element of the array around the
+     * wheel with a single spin, and stores the selected indexes in the array
+     * in random order.
+     *
+     * @param  sums prefix sums of the wheel.
+     * @param  rng random source.
+     * @param  indexes array receiving the selected indexes.
+     */
+    private static void spin(PrefixSums sums, RandomSource rng, int[] indexes)
+    {
+        int n = indexes.length;
+        double step = sums.total / n;
+        double pointer = rng.nextDouble() * step;
+        int j = 0;
+        for (int i = 0; i < n; i++)
+        {
+            j = sums.find(pointer, j);
+            indexes[i] = j;
+            pointer += step;
+        }
+
+        for (int i = n - 1; i > 0; i--)
+        {
+            int k = rng.nextInt(i + 1);
+            int temp = indexes[i];
+            indexes[i] = indexes[k];
+            indexes[k] = temp;
+        }
+    }
+
+    /**
+     * Builds the prefix sums of the weights.
+     *
+     * @param  weights weights of the individuals.
+     * @param  total sum of the weights.
+     * @return prefix sums.
+     */
+    @Override
+    protected Wheel buildWheel(double[] weights, double total)
+    {
+        PrefixSums sums = new PrefixSums(weights.length, total);
+
+        double sum = 0.;
+        for (int i = 0; i < weights.length; i++)
+        {
+            sum += weights[i];
+            sums.cumulative[i] = sum;
+        }
+
+        return sums;
+    }
+
+    /**
+     * Prefix sums of the weights.
+     */
+    private static class PrefixSums extends Wheel
+    {
+        private final double[] cumulative;
+
+        private final double total;
+
+        PrefixSums(int n, double total)
+        {
+            this.cumulative = new double[n];
+            this.total = total;
+        }
+
+        /**
+         * Returns the first index at or after start whose cumulative weight
+         * exceeds the pointer.
+         */
+        int find(double pointer, int start)
+        {
+            int last = cumulative.length - 1;
+            while (start < last && cumulative[start] <= pointer)
+            {
+                start++;
+            }
+
+            return start;
+        }
+    }
+
+    /**
+     * A sampling pass of one thread: the indexes selected by one spin, in
+     * random order, and the wheel and random source they were drawn from.
+     */
+    private static class Pass
+    {
+        private final int[] order;
+
+        private PrefixSums sums;
+
+        private RandomSource rng;
+
+        private int next;
+
+        Pass(int n)
+        {
+            this.order = new int[n];
+        }
+
+        int next()
+        {
+            return order[next++];
+        }
+    }
+}
@@ -18,8 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-
 /**
  * An implementation of swap mutation.  Swap mutation swaps the values of two randomly selected
  * values in the genotype.  Note that this may only be applied to genomes in which all genes are
@@ -32,24 +30,24 @@ public class SwapMutator<E> extends Mutator
 {
     public void mutate(Individual ind)
     {
-        if (MersenneTwisterFast.getInstance().nextDouble() <=
+        if (RandomSource.current().nextDouble() <=
             ind.getProbMutation() &&
             ind.getGenotypeSize() > 1)
         {
             GAIndividual<E> ga_ind = (GAIndividual<E>) ind;
 
             //  Choose two randome indices to swap
-            int p1 = (int) (MersenneTwisterFast.getInstance().nextDouble() *
+            int p1 = (int) (RandomSource.current().nextDouble() *
                 ga_ind.getGenotypeSize());
             int p2 = p1;
             while (p1 == p2)
             {
-                p2 = (int) (MersenneTwisterFast.getInstance().nextDouble() *
+                p2 = (int) (RandomSource.current().nextDouble() *
                     ga_ind.getGenotypeSize());
             }
 
-            E p1_val = ga_ind.getGenotype().get(p1);
-            E p2_val = ga_ind.getGenotype().get(p2);
+            E p1_val = ga_ind.getValue(p1);
+            E p2_val = ga_ind.getValue(p2);
             ga_ind.setValue(p1, p2_val);
             ga_ind.setValue(p2, p1_val);
 
@@ -18,8 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
-import java.util.HashSet;
 import org.apache.logging.log4j.*;
 
 /**
@@ -111,33 +109,84 @@ public class TournamentSelection extends Selector
      */
     public Individual select(Population pop)
     {
-        if (tournamentSize > pop.getPopulationSize())
+        checkTournamentSize(pop);
+
+        int[] selectedIndexes =
+            sampleIndexes(pop.getPopulationSize(), tournamentSize);
+
+        return play(pop, selectedIndexes, 0);
+    }
+
+    /**
+     * Selects n individuals by playing n tournaments.  If the population is
+     * large enough, the players of all n tournaments are drawn as one sample,
+     * so no individual plays in more than one of them; otherwise each
+     * tournament draws its own players, as select does.
+     *
+     * @param  pop population from which to select.
+     * @param  n number of individuals to select.
+     * @param  out array receiving the selected individuals in its first n
+     *      elements.
+     */
+    @Override
+    public void selectMany(Population pop, int n, Individual[] out)
+    {
+        checkTournamentSize(pop);
+
+        if (n * tournamentSize > pop.getPopulationSize())
         {
-            tournamentSize = pop.getPopulationSize();
-            logger.info("\nNote: Tournament Size is Greater than Population Size. \n\t==> Setting Tournament Size to Population Size\n");
+            super.selectMany(pop, n, out);
+            return;
         }
 
-        HashSet<Integer> selectedIndexes = new HashSet<Integer>();
+        int[] selectedIndexes =
+            sampleIndexes(pop.getPopulationSize(), n * tournamentSize);
 
-        int selectMe = -1;
-        while (selectedIndexes.size() < tournamentSize)
+        for (int i = 0; i < n; i++)
         {
-            selectMe =
-                MersenneTwisterFast.getInstance().nextInt(pop.getPopulationSize());
-            selectedIndexes.add(selectMe);
+            out[i] = play(pop, selectedIndexes, i * tournamentSize);
         }
+    }
 
-        int currentWinner = selectMe;
-        for (Integer person : selectedIndexes)
+    /**
+     * Limits the tournament size to the population size.
+     *
+     * @param  pop population from which to select.
+     */
+    private void checkTournamentSize(Population pop)
+    {
+        if (tournamentSize > pop.getPopulationSize())
+        {
+            tournamentSize = pop.getPopulationSize();
+            logger.info("\nNote: Tournament Size is Greater than Population Size. \n\t==> Setting Tournament Size to Population Size\n");
+        }
+    }
+
+    /**
+     * Plays a tournament among the players at the specified offset in the
+     * sample.
+     *
+     * @param  pop population from which to select.
+     * @param  selectedIndexes sample of indexes.
+     * @param  offset index in the sample of the first player.
+     * @return  winner of the tournament.
+     */
+    private Individual play(Population pop, int[] selectedIndexes, int offset)
+    {
+        Individual currentWinner = pop.getIndividual(selectedIndexes[offset]);
+        double winnerFitness = currentWinner.getFitness();
+        for (int i = offset + 1; i < offset + tournamentSize; i++)
         {
-            if ((pop.getIndividual(person).getFitness() < pop.getIndividual(currentWinner).
-                getFitness()) &&
-                (MersenneTwisterFast.getInstance().nextDouble() < kParam))
+            Individual person = pop.getIndividual(selectedIndexes[i]);
+            double personFitness = person.getFitness();
+            if (personFitness < winnerFitness &&
+                RandomSource.current().nextDouble() < kParam)
             {
                 currentWinner = person;
+                winnerFitness = personFitness;
             }
         }
 
-        return pop.getIndividual(currentWinner);
+        return currentWinner;
     }
 }
@@ -18,7 +18,6 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
 import java.util.ArrayList;
 
 /**
@@ -48,7 +47,7 @@ public class TwoPointCrossover<E> extends Recombinator
         Individual child1, Individual child2)
     {
         //if we aren't going to xover, and the children don't exist, create them directly from their parents.
-        if (MersenneTwisterFast.getInstance().nextDouble() >
+        if (RandomSource.current().nextDouble() >
             parent2.getProbRecombination())
         {
             if (child1 != null)
@@ -70,12 +69,12 @@ public class TwoPointCrossover<E> extends Recombinator
             GAIndividual<E> girl = (GAIndividual<E>) child2;
 
             //choose 2 random locations to crossover at.
-            int xoverPoint1 = (int) (MersenneTwisterFast.getInstance().
+            int xoverPoint1 = (int) (RandomSource.current().
                 nextDouble() * (mom.getGenome().size() - 1));
             int xoverPoint2 = xoverPoint1;
             while (xoverPoint1 == xoverPoint2)
             {
-                xoverPoint2 = (int) (MersenneTwisterFast.getInstance().
+                xoverPoint2 = (int) (RandomSource.current().
                     nextDouble() * (mom.getGenome().size() - 1));
             }
 
@@ -86,14 +85,8 @@ public class TwoPointCrossover<E> extends Recombinator
                 xoverPoint2 = temp;
             }
 
-            if (!(boy.equals(null)))
-            {
-                boy.getGenotype().clear();
-            }
-            if (!(girl.equals(null)))
-            {
-                girl.getGenotype().clear();
-            }
+            ArrayList<E> boyGenotype = boy.clearGenotype();
+            ArrayList<E> girlGenotype = girl.clearGenotype();
 
             ArrayList<E> dadhead = new ArrayList<E>();
             ArrayList<E> dadmiddle = new ArrayList<E>();
@@ -102,48 +95,50 @@ public class TwoPointCrossover<E> extends Recombinator
             ArrayList<E> mommiddle = new ArrayList<E>();
             ArrayList<E> momtail = new ArrayList<E>();
 
-            for (int i = 0; i < mom.getGenotype().size(); i++)
+            for (int i = 0; i < mom.getGenotypeSize(); i++)
             {
                 if (i <= xoverPoint1)
                 {
-                    momhead.add(mom.getGenotype().get(i));
+                    momhead.add(mom.getValue(i));
                 }
                 else if (i <= xoverPoint2)
                 {
-                    mommiddle.add(mom.getGenotype().get(i));
+                    mommiddle.add(mom.getValue(i));
                 }
                 else
                 {
-                    momtail.add(mom.getGenotype().get(i));
+                    momtail.add(mom.getValue(i));
                 }
             }
 
-            for (int i = 0; i < dad.getGenotype().size(); i++)
+            for (int i = 0; i < dad.getGenotypeSize(); i++)
             {
                 if (i <= xoverPoint1)
                 {
-                    dadhead.add(dad.getGenotype().get(i));
+                    dadhead.add(dad.getValue(i));
                 }
                 else if (i <= xoverPoint2)
                 {
-                    dadmiddle.add(dad.getGenotype().get(i));
+                    dadmiddle.add(dad.getValue(i));
                 }
                 else
                 {
-                    dadtail.add(dad.getGenotype().get(i));
+                    dadtail.add(dad.getValue(i));
                 }
             }
 
-            boy.getGenotype().addAll(momhead);
-            boy.getGenotype().addAll(dadmiddle);
-            boy.getGenotype().addAll(momtail);
+            boyGenotype.addAll(momhead);
+            boyGenotype.addAll(dadmiddle);
+            boyGenotype.addAll(momtail);
 
-            girl.getGenotype().addAll(dadhead);
-            girl.getGenotype().addAll(mommiddle);
-            girl.getGenotype().addAll(dadtail);
+            girlGenotype.addAll(dadhead);
+            girlGenotype.addAll(mommiddle);
+            girlGenotype.addAll(dadtail);
 
             boy.setEvaluated(false);
+            boy.invalidateGenotypeHash();
             girl.setEvaluated(false);
+            girl.invalidateGenotypeHash();
         }
     }
 }
@@ -18,7 +18,7 @@
  */
 package com.ridderware.jevolve;
 
-import com.ridderware.jrandom.MersenneTwisterFast;
+import java.util.ArrayList;
 
 /**
  * An implementation of uniform crossover.
@@ -39,7 +39,7 @@ public class UniformCrossover<E> extends Recombinator
     public void recombine(Individual parent1, Individual parent2,
         Individual child1, Individual child2)
     {
-        if (MersenneTwisterFast.getInstance().nextDouble() >
+        if (RandomSource.current().nextDouble() >
             parent2.getProbRecombination())
         {
             if (child1 != null)
@@ -58,31 +58,27 @@ public class UniformCrossover<E> extends Recombinator
             GAIndividual<E> boy = (GAIndividual<E>) child1;
             GAIndividual<E> girl = (GAIndividual<E>) child2;
 
-            if (!(boy.equals(null)))
-            {
-                boy.getGenotype().clear();
-            }
-            if (!(girl.equals(null)))
-            {
-                girl.getGenotype().clear();
-            }
+            ArrayList<E> boyGenotype = boy.clearGenotype();
+            ArrayList<E> girlGenotype = girl.clearGenotype();
 
-            for (int i = 0; i < mom.getGenotype().size(); i++)
+            for (int i = 0; i < mom.getGenotypeSize(); i++)
             {
-                if (MersenneTwisterFast.getInstance().nextDouble() < 0.5)
+                if (RandomSource.current().nextDouble() < 0.5)
                 {
-                    boy.getGenotype().add(mom.getValue(i));
-                    girl.getGenotype().add(dad.getValue(i));
+                    boyGenotype.add(mom.getValue(i));
+                    girlGenotype.add(dad.getValue(i));
                 }
                 else
                 {
-                    boy.getGenotype().add(dad.getValue(i));
-                    girl.getGenotype().add(mom.getValue(i));
+                    boyGenotype.add(dad.getValue(i));
+                    girlGenotype.add(mom.getValue(i));
                 }
             }
 
             boy.setEvaluated(false);
+            boy.invalidateGenotypeHash();
             girl.setEvaluated(false);
+            girl.invalidateGenotypeHash();
         }
     }
 }
@@ -22,10 +22,9 @@ import com.ridderware.jevolve.GAIndividual;
 import com.ridderware.jevolve.Individual;
 import com.ridderware.jevolve.Population;
 import com.ridderware.jevolve.EvaluatorInterface;
-import com.ridderware.jevolve.RouletteWheelSelection;
 import com.ridderware.jevolve.Selector;
-import com.ridderware.jrandom.MersenneTwisterFast;
-import java.util.ArrayList;
+import com.ridderware.jevolve.RandomSource;
+import java.util.List;
 import java.util.Observable;
 
 /**
@@ -83,18 +82,6 @@ public class DeJongEval extends Observable implements EvaluatorInterface
         //  Updates graph
         super.setChanged();
         super.notifyObservers(pop);
-
-        if (selector instanceof RouletteWheelSelection)
-        {
-            //  We need to compute population adjusted fitness.
-            double sumAdjFit = 0.0;
-            for (int i = 0; i < pop.getPopulationSize(); i++)
-            {
-                sumAdjFit += pop.getIndividual(i).getAdjustedFitness();
-            }
-
-            ((RouletteWheelSelection) selector).setPopAdjustedFitness(sumAdjFit);
-        }
     }
 
     /**
@@ -111,19 +98,19 @@ public class DeJongEval extends Observable implements EvaluatorInterface
         switch (f)
         {
             case 1:
-                fitness = f1(ga_ind.getGenotype());
+                fitness = f1(ga_ind.getGenotypeValues());
                 break;
             case 2:
-                fitness = f2(ga_ind.getGenotype());
+                fitness = f2(ga_ind.getGenotypeValues());
                 break;
             case 3:
-                fitness = f3(ga_ind.getGenotype());
+                fitness = f3(ga_ind.getGenotypeValues());
                 break;
             case 4:
-                fitness = f4(ga_ind.getGenotype());
+                fitness = f4(ga_ind.getGenotypeValues());
                 break;
             case 5:
-                fitness = f5(ga_ind.getGenotype());
+                fitness = f5(ga_ind.getGenotypeValues());
                 break;
             default:
         }
@@ -138,7 +125,7 @@ public class DeJongEval extends Observable implements EvaluatorInterface
     }
 
     /* Decode the bit string */
-    private int decode(ArrayList<Integer> c, int j, int k)
+    private int decode(List<Integer> c, int j, int k)
     {
         int sum, x, n;
 
@@ -157,7 +144,7 @@ public class DeJongEval extends Observable implements EvaluatorInterface
 
 
     /* 3 variables, 10 bits/variable. */
-    private double f1(ArrayList<Integer> c)
+    private double f1(List<Integer> c)
     {
         int x;
         double sum;
@@ -176,7 +163,7 @@ public class DeJongEval extends Observable implements EvaluatorInterface
     }
 
     /* 2 variables, 12 bits/variable. */
-    private double f2(ArrayList<Integer> c)
+    private double f2(List<Integer> c)
     {
         double x1, x2;
 
@@ -190,7 +177,7 @@ public class DeJongEval extends Observable implements EvaluatorInterface
     }
 
     /* 5 variables, 10 bits/variable. */
-    private double f3(ArrayList<Integer> c)
+    private double f3(List<Integer> c)
     {
         int x;
         int sum;
@@ -218,7 +205,7 @@ public class DeJongEval extends Observable implements EvaluatorInterface
 
     /* 30 variables, 8 bits/variable. ssrand() needs to be defined to be
     a (0,1) gaussian random variable */
-    private double f4(ArrayList<Integer> c)
+    private double f4(List<Integer> c)
     {
         int x;
         double sum;
@@ -233,7 +220,7 @@ public class DeJongEval extends Observable implements EvaluatorInterface
                 ((double) (decode(c, (x * 8), (x * 8) + 7) - 128) / 100.0);
             temp2 = temp * temp;
             temp4 = temp2 * temp2;
-            sum = sum + ((double) x * temp4) + MersenneTwisterFast.getInstance().
+            sum = sum + ((double) x * temp4) + RandomSource.current().
                 nextGaussian();
         }
 
@@ -241,7 +228,7 @@ public class DeJongEval extends Observable implements EvaluatorInterface
     }
 
     /* 2 variables, 17 bits/variable. */
-    private double f5_j(ArrayList<Integer> c, int j)
+    private double f5_j(List<Integer> c, int j)
     {
         double save, temp, temp2, temp6;
 
@@ -261,7 +248,7 @@ public class DeJongEval extends Observable implements EvaluatorInterface
         return (save + temp6 + (double) (j + 1));
     }
 
-    private double f5(ArrayList<Integer> c)
+    private double f5(List<Integer> c)
     {
         int x;
         double sum;
@@ -18,17 +18,19 @@
  */
 package com.ridderware.jevolve.examples.onemax;
 
+import com.ridderware.jevolve.ChangeSet;
 import com.ridderware.jevolve.GAIndividual;
 import com.ridderware.jevolve.Individual;
 import com.ridderware.jevolve.Population;
-import com.ridderware.jevolve.EvaluatorInterface;
+import com.ridderware.jevolve.IncrementalEvaluatorInterface;
 
 /**
- * An evaluator for the one-max problem.
+ * An evaluator for the one-max problem.  Since the fitness is a count, it is
+ * updated incrementally from the changed genes when they are known.
  *
  * @author Jeff Ridder
  */
-public class OneMax implements EvaluatorInterface
+public class OneMax implements IncrementalEvaluatorInterface
 {
     /**
      * Method to evaluate constraints.  Empty.
@@ -72,7 +74,7 @@ public class OneMax implements EvaluatorInterface
         }
         
         int sumOnes = 0;
-        for (Integer genotype : ga_ind.getGenotype())
+        for (Integer genotype : ga_ind.getGenotypeValues())
         {
             if (genotype.equals(1))
             {
@@ -80,7 +82,7 @@ public class OneMax implements EvaluatorInterface
             }
         }
         
-        if (sumOnes == ga_ind.getGenotype().size())
+        if (sumOnes == ga_ind.getGenotypeSize())
         {
             ga_ind.setSuccess(true);
         }
@@ -88,5 +90,39 @@ public class OneMax implements EvaluatorInterface
 //        ga_ind.setFitness(1. / (double) sumOnes);
         ga_ind.setFitness(-sumOnes);
     }
+
+    /**
+     *  Evaluates fitness from the base fitness and the changed genes.
+     *
+     * @param  ind individual to evaluate.
+     * @param  changes changes since the base was evaluated.
+     * @return true.
+     */
+    public boolean evaluateFitness(Individual ind, ChangeSet changes)
+    {
+        GAIndividual<Integer> ga_ind = (GAIndividual<Integer>) ind;
+
+        int sumOnes = (int) -changes.getBaseFitness(0);
+        for (int i = 0; i < changes.size(); i++)
+        {
+            if (changes.getOldValue(i).equals(1))
+            {
+                sumOnes -= 1;
+            }
+            if (ga_ind.getValue(changes.getLocus(i)).equals(1))
+            {
+                sumOnes += 1;
+            }
+        }
+
+        if (sumOnes == ga_ind.getGenotypeSize())
+        {
+            ga_ind.setSuccess(true);
+        }
+
+        ga_ind.setFitness(-sumOnes);
+
+        return true;
+    }
 }
 
@@ -118,6 +118,8 @@ public class MoMain
         
         NTNSGAStatistics stats = new NTNSGAStatistics();
         stats.setPeriod(20);
+        //  TrueParetoFinder reads the binary snapshots.
+        stats.setBinarySnapshots(true);
         prob.setStatistics(stats);
         
         /////////////////////////////////
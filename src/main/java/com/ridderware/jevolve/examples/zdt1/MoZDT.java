@@ -23,7 +23,7 @@ import com.ridderware.jevolve.EvaluatorInterface;
 import com.ridderware.jevolve.GAIndividual;
 import com.ridderware.jevolve.Individual;
 import com.ridderware.jevolve.Population;
-import com.ridderware.jrandom.MersenneTwisterFast;
+import com.ridderware.jevolve.RandomSource;
 
 
 /**
@@ -92,9 +92,9 @@ public class MoZDT implements EvaluatorInterface
         double f[] = new double[2];
         for ( int i = 0; i < num_evals; i++ )
         {
-            f[0] += MersenneTwisterFast.getInstance().nextGaussian() *
+            f[0] += RandomSource.current().nextGaussian() *
                     noise_sigma + ga_ind.getValue(0);
-            f[1] += MersenneTwisterFast.getInstance().nextGaussian() *
+            f[1] += RandomSource.current().nextGaussian() *
                     noise_sigma + g*(1.-Math.sqrt(ga_ind.getValue(0)/g));
         }
         
@@ -18,7 +18,8 @@
  */
 package com.ridderware.jevolve.examples.zdt1;
 
-import  com.ridderware.jevolve.GAIndividual;
+import com.ridderware.jevolve.ParetoSnapshot;
+import com.ridderware.jevolve.SnapshotReader;
 import java.io.*;
 import java.util.ArrayList;
 
@@ -33,51 +34,39 @@ public class TrueParetoFinder
             System.exit(1);
         }
         
-        File stateFile = new File(System.getProperty("user.dir")+File.separator+"state_"+args[0]+".0.state");
-        ArrayList<GAIndividual<Double>> individuals = new ArrayList<GAIndividual<Double>>(100);
+        File snapshotFile = new File(System.getProperty("user.dir")+File.separator+"pareto_"+args[0]+".0"+ParetoSnapshot.EXTENSION);
+        ArrayList<String> outputData = new ArrayList<String>(100);
 
         try
         {
-            FileInputStream inFile = new FileInputStream(stateFile);
-            ObjectInputStream inStream = new ObjectInputStream(inFile);
-            
-            //generation of this population
-            inStream.readDouble();
-            
-            inStream2arrayList(inStream, individuals);
-            
-            inFile.close();
-            inStream.close();
-        }
-        catch (FileNotFoundException e)
-        {
-            e.printStackTrace();
+            //  The genotypes are read straight from the mapped snapshot.
+            SnapshotReader snapshot = SnapshotReader.open(snapshotFile);
+            try
+            {
+                double[] genotype = new double[snapshot.getGenotypeSize()];
+                
+                for (int i = 0; i < snapshot.getNumIndividuals(); i++)
+                {
+                    double[] scores = evaluateFitness(snapshot.getGenotype(i, genotype));
+                    
+                    StringBuilder outputLine = new StringBuilder();
+                    for (double score : scores)
+                    {
+                        outputLine.append(score).append('\t');
+                    }
+                    outputData.add(outputLine.toString());
+                }
+            }
+            finally
+            {
+                snapshot.close();
+            }
         }
         catch (IOException e)
         {
             e.printStackTrace();
         }
         
-        
-        ArrayList<String> outputData = new ArrayList<String>(100);
-        
-        
-        //Now we've got the population.
-        
-        String outputLine;
-        for (GAIndividual<Double> ind : individuals)
-        {
-            evaluateFitness(ind);
-            
-            outputLine = "";
-            
-            for (Double score : ind.getFitnessArray())
-            {
-                outputLine+=(score + "\t");
-            }
-            outputData.add(outputLine);
-        }
-        
         File outputFile = new File("true_pareto_"+args[0]+".pareto");
         arrayList2file(outputFile, outputData);
         System.out.println("Created: "+ outputFile.getAbsolutePath());
@@ -87,55 +76,21 @@ public class TrueParetoFinder
     /**
      * Method evaluateFitness
      *
-     * @param    ind                 an Individual
+     * @param    genotype            genotype of an individual
+     * @return   ZDT1 scores of the genotype
      *
      */
-    private static void evaluateFitness(GAIndividual<Double> ga_ind)
+    private static double[] evaluateFitness(double[] genotype)
     {
         double g = 0.;
-        for ( int i = 1; i < ga_ind.getGenotypeSize(); i++ )
+        for ( int i = 1; i < genotype.length; i++ )
         {
-            g += ga_ind.getValue(i);
+            g += genotype[i];
         }
-        g = 1. + 9.*g/(ga_ind.getGenotypeSize()-1);
+        g = 1. + 9.*g/(genotype.length-1);
         
-        ga_ind.getFitnessArray()[0] = ga_ind.getValue(0);
-        ga_ind.getFitnessArray()[1] = g*(1.-Math.sqrt(ga_ind.getValue(0)/g));
         //setup to minimize
-    }
-    
-    
-    /**
-     *  Method inStream2arrayList
-     *
-     * @param  inStream   an ObjectInputStream
-     * @param  arrayList  an ArrayList
-     */
-    private static void inStream2arrayList(ObjectInputStream inStream, ArrayList<GAIndividual<Double>> arrayList)
-    {
-        int genotypeSize;
-        try
-        {
-            int popSize = inStream.readInt();
-            for (int i = 0; i < popSize; i++)
-            {
-                arrayList.add(new GAIndividual<Double>(2));
-                arrayList.get(i).setMyID(inStream.readLong());
-                
-                genotypeSize = inStream.readInt();
-                
-                for (int j = 0; j < genotypeSize; j++)
-                {
-                    arrayList.get(i).getGenotype().add(inStream.readDouble());
-                }
-            }
-        }
-        catch (IOException e)
-        {
-            System.err.println("IOException while reading population in from ObjectInputStream.");
-            System.err.println("Check the format of the output file (and thus input stream).");
-            e.printStackTrace();
-        }
+        return new double[] {genotype[0], g*(1.-Math.sqrt(genotype[0]/g))};
     }
     
     
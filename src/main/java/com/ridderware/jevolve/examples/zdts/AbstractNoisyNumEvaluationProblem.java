@@ -110,7 +110,7 @@ public abstract class AbstractNoisyNumEvaluationProblem implements
         assert (ind.getFitnessArray().length == 2);
         GAIndividual<Double> ga_ind = (GAIndividual<Double>) ind;
 
-        double[] noiselessFitness = getNoiselessFitness(ga_ind.getGenotype());
+        double[] noiselessFitness = getNoiselessFitness(ga_ind.getGenotypeValues());
 
         if (ga_ind instanceof ILikeEvaluations)
         {
@@ -19,7 +19,7 @@
 package com.ridderware.jevolve.examples.zdts;
 
 import com.ridderware.jevolve.GAIndividual;
-import com.ridderware.jrandom.MersenneTwisterFast;
+import com.ridderware.jevolve.RandomSource;
 
 /**
  * Some utilities to convert noiseless fitness evaluations to noisy ones.
@@ -48,13 +48,15 @@ public class NoisyEvaluationUtils
     {
 //        ga_ind.setNoiselessFitness(noiselessFitnesses);
         final int numObjectives = ga_ind.getNumObjectives();
+        final double[] noise = new double[numEvals * numObjectives];
+        RandomSource.current().fillGaussian(noise, 0, noise.length);
         for (int e = 0; e < numEvals; e++)
         {
             final double[] mySampleOfFit = new double[numObjectives];
             System.arraycopy(noiselessFitnesses, 0, mySampleOfFit, 0, numObjectives);
             for (int f = 0; f < numObjectives; f++)
             {
-                final double ran = MersenneTwisterFast.getInstance().nextGaussian();
+                final double ran = noise[e * numObjectives + f];
                 mySampleOfFit[f] += (ran * noiseLevels[f]);
                 assert (!Double.isInfinite(mySampleOfFit[f]) && !Double.isNaN(mySampleOfFit[f]));
             }
@@ -89,11 +91,13 @@ public class NoisyEvaluationUtils
         final int numObjectives = ga_ind.getNumObjectives();
         final double[] mySampleOfFit = new double[numObjectives];
         System.arraycopy(noiselessFitnesses, 0, mySampleOfFit, 0, numObjectives);
+        final double[] noise = new double[numEvals * numObjectives];
+        RandomSource.current().fillGaussian(noise, 0, noise.length);
         for (int e = 0; e < numEvals; e++)
         {
             for (int f = 0; f < numObjectives; f++)
             {
-                final double ran = MersenneTwisterFast.getInstance().nextGaussian();
+                final double ran = noise[e * numObjectives + f];
                 mySampleOfFit[f] += (ran * noiseLevels[f]);
                 assert (!Double.isInfinite(mySampleOfFit[f]) && !Double.isNaN(mySampleOfFit[f]));
             }
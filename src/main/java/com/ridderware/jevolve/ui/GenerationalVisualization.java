@@ -18,8 +18,8 @@
  */
 package com.ridderware.jevolve.ui;
 
-import com.ridderware.jevolve.Individual;
 import com.ridderware.jevolve.Population;
+import com.ridderware.jevolve.RunningStatistics;
 import java.awt.Color;
 import java.awt.EventQueue;
 import java.awt.GridBagConstraints;
@@ -31,8 +31,6 @@ import java.util.Observer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JInternalFrame;
-import org.apache.commons.math3.stat.descriptive.moment.Mean;
-import org.apache.commons.math3.stat.descriptive.moment.StandardDeviation;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.ChartUtilities;
@@ -179,27 +177,16 @@ public class GenerationalVisualization
     public void handleUpdate(Population pop)
     {
         final double gen = pop.getProblem().getStepper().getCurrentGeneration();
-        final Mean mean = new Mean();
-        final StandardDeviation sigma = new StandardDeviation();
-        //means & standard devs
+        //means, standard devs, best & worst
+        final RunningStatistics stats;
         if (fitnessIndex >= 0)
         {
-            for (Individual individual : pop.getIndividuals())
-            {
-                if (individual.getConstraintError() == 0)
-                {
-                    mean.increment(individual.getFitness(fitnessIndex));
-                    sigma.increment(individual.getFitness(fitnessIndex));
-                }
-            }
+            stats = pop.getPopulationStatistics().getFeasibleObjective(
+                    fitnessIndex);
         }
         else if (fitnessIndex == -1)
         {
-            for (Individual individual : pop.getIndividuals())
-            {
-                mean.increment(individual.getConstraintError());
-                sigma.increment(individual.getConstraintError());
-            }
+            stats = pop.getPopulationStatistics().getConstraintError();
         }
         else
         {
@@ -212,50 +199,18 @@ public class GenerationalVisualization
         {
 
             double leMean =
-                   bound(mean.getResult(), minGraphBound, maxGraphBound);
-            double leSigma = bound(sigma.getResult(), minGraphBound,
+                   bound(stats.getMean(), minGraphBound, maxGraphBound);
+            double leSigma = bound(stats.getStandardDeviation(), minGraphBound,
                                    maxGraphBound);
 
             meanSeries.add(gen, leMean, leMean-leSigma, leMean+leSigma);
 
-            //best & worst
-            if (fitnessIndex != -1)
-            {
-                double best = Double.POSITIVE_INFINITY, worst = Double.NEGATIVE_INFINITY;
-                for (Individual individual : pop.getIndividuals())
-                {
-                    if (individual.getConstraintError() == 0)
-                    {
-                        best = Math.min(best,
-                                        individual.getFitness(fitnessIndex));
-                        worst = Math.max(worst, individual.getFitness(
-                                fitnessIndex));
-                    }
-                }
-                double boundBest = bound(best, minGraphBound, maxGraphBound);
-                double boundWorst = bound(worst, minGraphBound, maxGraphBound);
-                minSeries.add(gen, boundBest);
-                maxSeries.add(gen, boundWorst);
-//                System.out.println("Best Fitness: "+ best +" Bound --> "+ boundBest);
-//                System.out.println("Best Fitness: "+ worst +" Bound --> "+ boundWorst);
-            }
-            else
-            {
-                double best = Double.POSITIVE_INFINITY, worst =
-                                                        Double.NEGATIVE_INFINITY;
-                for (Individual individual : pop.getIndividuals())
-                {
-                    best = Math.min(best, individual.getConstraintError());
-                    worst = Math.max(worst, individual.getConstraintError());
-                }
-                double boundBest = bound(best, minGraphBound, maxGraphBound);
-                double boundWorst = bound(worst, minGraphBound, maxGraphBound);
-                minSeries.add(gen, boundBest);
-                maxSeries.add(gen, boundWorst);
-//                System.out.println("Best Fitness: "+ best +" Bound --> "+ boundBest);
-//                System.out.println("Best Fitness: "+ worst +" Bound --> "+ boundWorst);
-            }
-//            System.out.println("Fitness Index: " + fitnessIndex+ " Gen: "+ gen+" Worst: "+ worst +" Best: "+ best +" Avg: "+ mean.getResult()+" Stnd Dev: "+ sigma.getResult());
+            double boundBest = bound(stats.getMin(), minGraphBound,
+                                     maxGraphBound);
+            double boundWorst = bound(stats.getMax(), minGraphBound,
+                                      maxGraphBound);
+            minSeries.add(gen, boundBest);
+            maxSeries.add(gen, boundWorst);
         }
     }
 
@@ -0,0 +1,299 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import com.ridderware.jevolve.examples.onemax.OneMax;
+import com.ridderware.jevolve.examples.zdt1.MoZDT;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * Tests parallel breeding, and that the breeding threads are released at the
+ * end of a run.
+ *
+ * @author Jeff Ridder
+ */
+public class BreederTest
+{
+    /**
+     * Creates a OneMax run bred by a SimpleGenerationalBreeder.
+     */
+    static Stepper createRun(int parallelism, int generations)
+    {
+        GAIndividual<Integer> ind = new GAIndividual<Integer>();
+        IntegerGAGene gene = new IntegerGAGene(0, 1, 100);
+        for (int i = 0; i < 64; i++)
+        {
+            ind.getGenome().add(gene);
+        }
+        ind.setProbMutation(0.02);
+        ind.setProbRecombination(0.9);
+
+        SimpleGenerationalBreeder breeder = new SimpleGenerationalBreeder(
+            new TournamentSelection(), new SinglePointCrossover<Integer>(),
+            new FlipMutator());
+        breeder.setParallelism(parallelism);
+
+        SimpleProblem problem = new SimpleProblem();
+        problem.addBreeder(breeder);
+        problem.addInitializer(new SimpleInitializer());
+        problem.addEvaluator(new OneMax());
+        Population pop = new Population(ind);
+        pop.setMaxPopulationSize(100);
+        problem.addPopulation(pop);
+
+        Stepper stepper = new Stepper();
+        stepper.addProblem(problem);
+        stepper.setMaxGenerations(generations);
+        return stepper;
+    }
+
+    /**
+     * Breeds one generation of a population of random genotypes from a
+     * seeded stream with the specified selector, and returns the children's
+     * genotypes.
+     */
+    static String breedSeeded(Selector selector, int parallelism, long seed)
+    {
+        Random random = new Random(11L);
+        GAIndividual<Integer> template = new GAIndividual<Integer>();
+        IntegerGAGene gene = new IntegerGAGene(0, 9, 1);
+        for (int i = 0; i < 20; i++)
+        {
+            template.getGenome().add(gene);
+        }
+        template.setProbMutation(0.05);
+        template.setProbRecombination(0.9);
+
+        Population parents = new Population(template);
+        Population children = new Population(template);
+        for (int k = 0; k < 100; k++)
+        {
+            GAIndividual<Integer> ind = template.clone();
+            ind.clearGenotype();
+            int sum = 0;
+            for (int i = 0; i < 20; i++)
+            {
+                int value = random.nextInt(10);
+                ind.getGenotype().add(value);
+                sum += value;
+            }
+            ind.setFitness(sum);
+            parents.addIndividual(ind);
+            children.addIndividual(ind.clone());
+        }
+
+        SimpleGenerationalBreeder breeder = new SimpleGenerationalBreeder(
+            selector, new UniformCrossover<Integer>(),
+            new FlipMutator<Integer>());
+        breeder.setParallelism(parallelism);
+
+        RandomSource.setCurrent(RandomSource.create(seed));
+        try
+        {
+            breeder.breedNextGeneration(parents, children);
+        }
+        finally
+        {
+            RandomSource.setCurrent(null);
+            breeder.shutdown();
+        }
+
+        StringBuilder description = new StringBuilder();
+        for (Individual ind : children.getIndividuals())
+        {
+            description.append(((GAIndividual<?>) ind).getGenotypeValues());
+            description.append('\n');
+        }
+        return description.toString();
+    }
+
+    @Test
+    public void testParallelBreedingDoesNotDependOnThreads()
+    {
+        String expected = breedSeeded(new TournamentSelection(), 1, 5L);
+        assertEquals(expected, breedSeeded(new TournamentSelection(), 3, 5L));
+        assertEquals(expected, breedSeeded(new TournamentSelection(), 8, 5L));
+        assertFalse(expected.equals(
+            breedSeeded(new TournamentSelection(), 2, 6L)));
+    }
+
+    @Test
+    public void testStochasticUniversalSamplingDoesNotDependOnThreads()
+    {
+        String expected = breedSeeded(new StochasticUniversalSampling(), 1, 5L);
+        assertEquals(expected,
+            breedSeeded(new StochasticUniversalSampling(), 3, 5L));
+        assertEquals(expected,
+            breedSeeded(new StochasticUniversalSampling(), 8, 5L));
+    }
+
+    /**
+     * Creates a ZDT1 run bred by a DynamicNSGABreeder.
+     */
+    static Stepper createMultiObjectiveRun(int parallelism, int generations)
+    {
+        GAIndividual<Double> ind = new GAIndividual<Double>(2);
+        DoubleGAGene gene = new DoubleGAGene(0., 1., 0.025);
+        for (int i = 0; i < 30; i++)
+        {
+            ind.getGenome().add(gene);
+        }
+        ind.setProbMutation(0.03);
+        ind.setProbRecombination(0.8);
+
+        DynamicNSGABreeder breeder = new DynamicNSGABreeder(
+            new MultiObjectiveTournament(), new SinglePointCrossover<Double>(),
+            new GaussianMutator<Double>());
+        breeder.setParallelism(parallelism);
+
+        DynamicNSGAProblem problem = new DynamicNSGAProblem();
+        problem.addBreeder(breeder);
+        problem.addInitializer(new SimpleInitializer());
+        MoZDT evaluator = new MoZDT();
+        evaluator.setNoiseSigma(0.);
+        problem.addEvaluator(evaluator);
+        MultiObjectivePopulation pop = new MultiObjectivePopulation(ind);
+        pop.setMaxPopulationSize(100);
+        problem.addPopulation(pop);
+
+        Stepper stepper = new Stepper();
+        stepper.addProblem(problem);
+        stepper.setMaxGenerations(generations);
+        return stepper;
+    }
+
+    /**
+     * Returns the genotypes and fitness of the final population, in order.
+     */
+    static String describe(Stepper stepper)
+    {
+        StringBuilder description = new StringBuilder();
+        for (Individual ind : stepper.getProblems().get(0).getPopulation(0).
+            getIndividuals())
+        {
+            description.append(((GAIndividual<?>) ind).getGenotypeValues());
+            for (double fitness : ind.getFitnessArray())
+            {
+                description.append(' ').append(fitness);
+            }
+            description.append('\n');
+        }
+        return description.toString();
+    }
+
+    @Test
+    public void testSeededRunDoesNotDependOnThreads()
+    {
+        String expected = null;
+        for (int parallelism : new int[] {1, 2, 5})
+        {
+            Stepper stepper = createRun(parallelism, 30);
+            stepper.setSeed(42L);
+            stepper.evolve();
+
+            String result = describe(stepper);
+            if (expected == null)
+            {
+                expected = result;
+            }
+            assertEquals("parallelism " + parallelism, expected, result);
+        }
+    }
+
+    @Test
+    public void testSeededMultiObjectiveRunDoesNotDependOnThreads()
+    {
+        String expected = null;
+        for (int parallelism : new int[] {1, 3})
+        {
+            Stepper stepper = createMultiObjectiveRun(parallelism, 30);
+            stepper.setSeed(7L);
+            stepper.evolve();
+
+            String result = describe(stepper);
+            if (expected == null)
+            {
+                expected = result;
+            }
+            assertEquals("parallelism " + parallelism, expected, result);
+        }
+    }
+
+    @Test
+    public void testSeedsGiveDifferentRuns()
+    {
+        Stepper first = createRun(1, 10);
+        first.setSeed(1L);
+        first.evolve();
+        Stepper second = createRun(1, 10);
+        second.setSeed(2L);
+        second.evolve();
+
+        assertNotEquals(describe(first), describe(second));
+    }
+
+    private static Set<Thread> getPoolWorkers()
+    {
+        Set<Thread> workers = new HashSet<Thread>();
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+        {
+            if (thread.getName().startsWith("ForkJoinPool-") && thread.isAlive())
+            {
+                workers.add(thread);
+            }
+        }
+        return workers;
+    }
+
+    @Test
+    public void testRunReleasesBreedingThreads()
+        throws InterruptedException
+    {
+        Set<Thread> before = getPoolWorkers();
+
+        Stepper stepper = createRun(4, 5);
+        stepper.evolve();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        Set<Thread> started = getPoolWorkers();
+        started.removeAll(before);
+        for (Thread worker : started)
+        {
+            worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            assertFalse("breeding thread still running: " + worker.getName(),
+                worker.isAlive());
+        }
+    }
+
+    @Test
+    public void testBreederIsReusableAfterShutdown()
+    {
+        Stepper stepper = createRun(4, 3);
+        stepper.evolve();
+
+        stepper.setMaxGenerations(6);
+        stepper.evolve();
+        assertEquals(100,
+            stepper.getProblems().get(0).getPopulation(0).getPopulationSize());
+    }
+}
@@ -0,0 +1,216 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import com.ridderware.jevolve.examples.onemax.OneMax;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the change sets recorded by individuals, and incremental evaluation
+ * from them.
+ *
+ * @author Jeff Ridder
+ */
+public class ChangeSetTest
+{
+    private static GAIndividual<Integer> createIndividual(int... genotype)
+    {
+        GAIndividual<Integer> ind = new GAIndividual<Integer>();
+        IntegerGAGene gene = new IntegerGAGene(0, 1, 1);
+        for (int value : genotype)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(value);
+        }
+        return ind;
+    }
+
+    private static GAIndividual<Integer> createEvaluated(int... genotype)
+    {
+        GAIndividual<Integer> ind = createIndividual(genotype);
+        ind.setFitness(-2.);
+        ind.setConstraintError(0.5);
+        ind.setEvaluated(true);
+        return ind;
+    }
+
+    @Test
+    public void testSetValueRecordsTheBaseValues()
+    {
+        GAIndividual<Integer> ind = createEvaluated(1, 0, 1, 0);
+        ChangeSet changes = ind.getChangeSet();
+        assertNotNull(changes);
+        assertEquals(0, changes.size());
+        assertEquals(-2., changes.getBaseFitness(0), 0.);
+        assertEquals(0.5, changes.getBaseConstraintError(), 0.);
+
+        ind.setValue(1, 1);
+        ind.setValue(3, 1);
+        ind.setValue(1, 0);
+        assertEquals(2, changes.size());
+
+        //  A locus changed twice keeps the value it had in the base.
+        for (int i = 0; i < changes.size(); i++)
+        {
+            assertEquals(0, changes.getOldValue(i));
+        }
+        assertTrue(changes.getLocus(0) != changes.getLocus(1));
+    }
+
+    @Test
+    public void testUnevaluatedIndividualsHaveNoChangeSet()
+    {
+        GAIndividual<Integer> ind = createIndividual(1, 0);
+        ind.setValue(0, 0);
+        assertNull(ind.getChangeSet());
+        assertNull(ind.clone().getChangeSet());
+    }
+
+    @Test
+    public void testUntrackedWritesInvalidate()
+    {
+        GAIndividual<Integer> ind = createEvaluated(1, 0, 1);
+        ind.setValue(0, 0);
+        ind.getGenotype();
+        assertNull(ind.getChangeSet());
+
+        ind = createEvaluated(1, 0, 1);
+        ind.clearGenotype();
+        assertNull(ind.getChangeSet());
+
+        ind = createEvaluated(1, 0, 1);
+        ind.initialize();
+        assertNull(ind.getChangeSet());
+
+        //  Evaluating again starts a new set.
+        ind.setEvaluated(true);
+        assertNotNull(ind.getChangeSet());
+        assertEquals(0, ind.getChangeSet().size());
+    }
+
+    @Test
+    public void testCopiesRecordAgainstTheirSource()
+    {
+        GAIndividual<Integer> parent = createEvaluated(1, 1, 0);
+        parent.setValue(0, 0);
+
+        GAIndividual<Integer> child = parent.clone();
+        ChangeSet changes = child.getChangeSet();
+        assertNotNull(changes);
+        assertNotSame(parent.getChangeSet(), changes);
+        assertEquals(0, changes.size());
+
+        child.setValue(2, 1);
+        assertEquals(1, changes.size());
+        assertEquals(1, parent.getChangeSet().size());
+
+        GAIndividual<Integer> other = createEvaluated(0, 0, 0);
+        other.setValue(1, 1);
+        other.deepCopy(parent);
+        assertEquals(0, other.getChangeSet().size());
+    }
+
+    @Test
+    public void testLargeChangeSetsAreInvalidated()
+    {
+        int size = ChangeSet.MAX_CHANGES + 10;
+        GAIndividual<Integer> ind = createIndividual(new int[size]);
+        ind.setEvaluated(true);
+        for (int i = 0; i < ChangeSet.MAX_CHANGES; i++)
+        {
+            ind.setValue(i, 1);
+        }
+        assertEquals(ChangeSet.MAX_CHANGES, ind.getChangeSet().size());
+
+        ind.setValue(ChangeSet.MAX_CHANGES, 1);
+        assertNull(ind.getChangeSet());
+    }
+
+    @Test
+    public void testPermutationMoves()
+    {
+        PermutationIndividual ind = new PermutationIndividual(5);
+        ind.setEvaluated(true);
+        ind.swap(0, 3);
+        ChangeSet changes = ind.getChangeSet();
+        assertEquals(2, changes.size());
+        for (int i = 0; i < changes.size(); i++)
+        {
+            assertEquals(changes.getLocus(i), changes.getOldValue(i));
+        }
+
+        ind.invert(1, 4);
+        assertNull(ind.getChangeSet());
+    }
+
+    @Test
+    public void testIncrementalOneMaxMatchesFullEvaluation()
+    {
+        Random random = new Random(38L);
+        final int[] incremental = new int[1];
+        OneMax evaluator = new OneMax()
+        {
+            @Override
+            public boolean evaluateFitness(Individual ind, ChangeSet changes)
+            {
+                incremental[0]++;
+                return super.evaluateFitness(ind, changes);
+            }
+        };
+        int size = 40;
+        GAIndividual<Integer> template = createIndividual(new int[size]);
+        Population pop = new Population(template);
+        for (int k = 0; k < 20; k++)
+        {
+            GAIndividual<Integer> ind = template.clone();
+            ind.initialize();
+            pop.addIndividual(ind);
+        }
+        pop.evaluate(evaluator);
+        assertEquals(0, incremental[0]);
+
+        for (int generation = 0; generation < 10; generation++)
+        {
+            for (Individual ind : pop.getIndividuals())
+            {
+                GAIndividual<Integer> ga_ind = (GAIndividual<Integer>) ind;
+                for (int j = 0; j < 3; j++)
+                {
+                    ga_ind.setValue(random.nextInt(size), random.nextInt(2));
+                }
+                ga_ind.setEvaluated(false);
+            }
+            pop.evaluate(evaluator);
+
+            for (Individual ind : pop.getIndividuals())
+            {
+                GAIndividual<Integer> ga_ind = (GAIndividual<Integer>) ind;
+                int ones = 0;
+                for (int i = 0; i < size; i++)
+                {
+                    ones += ga_ind.getValue(i);
+                }
+                assertEquals(-ones, ind.getFitness(), 0.);
+            }
+        }
+        assertEquals(200, incremental[0]);
+    }
+}
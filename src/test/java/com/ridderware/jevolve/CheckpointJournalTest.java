@@ -0,0 +1,166 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Test;
+
+/**
+ * Tests checkpoint journals.
+ *
+ * @author Jeff Ridder
+ */
+public class CheckpointJournalTest
+{
+    private static File createFile()
+        throws IOException
+    {
+        File file = File.createTempFile("run", CheckpointJournal.EXTENSION);
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Steps the stepper by hand for the number of generations, appending to the
+     * journal after each step as a run does.
+     */
+    private static void step(Stepper stepper, CheckpointJournal journal,
+        int generations)
+        throws IOException
+    {
+        for (int g = 0; g < generations; g++)
+        {
+            stepper.step();
+            stepper.setCurrentGeneration(stepper.getCurrentGeneration() + 1.);
+            journal.append(stepper);
+        }
+    }
+
+    @Test
+    public void testReplayMatchesCheckpoint()
+        throws IOException
+    {
+        File file = createFile();
+        CheckpointJournal journal = new CheckpointJournal(file);
+        journal.setBaseInterval(3);
+
+        Stepper stepper = BreederTest.createMultiObjectiveRun(1, 10);
+        stepper.setSeed(5L);
+        stepper.initialize();
+        journal.append(stepper);
+        for (int g = 0; g < 10; g++)
+        {
+            step(stepper, journal, 1);
+            assertEquals("generation " + stepper.getCurrentGeneration(),
+                Checkpoint.capture(stepper).getData(),
+                CheckpointJournal.replay(file).getData());
+        }
+        journal.close();
+    }
+
+    @Test
+    public void testTornEntryIsDiscarded()
+        throws IOException
+    {
+        File file = createFile();
+        CheckpointJournal journal = new CheckpointJournal(file);
+        journal.setBaseInterval(100);
+
+        Stepper stepper = BreederTest.createMultiObjectiveRun(1, 10);
+        stepper.setSeed(9L);
+        stepper.initialize();
+        step(stepper, journal, 3);
+        journal.close();
+
+        //  Begin with a new base, so that the entry after it is a delta.
+        journal.setBaseInterval(0);
+        journal.append(stepper);
+        journal.setBaseInterval(100);
+        Checkpoint expected = Checkpoint.capture(stepper);
+        step(stepper, journal, 1);
+        journal.close();
+        assertEquals(1, journal.getNumDeltas());
+
+        //  A crash in the middle of writing the last entry.
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            raf.setLength(raf.length() - 5);
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        Checkpoint replayed = CheckpointJournal.replay(file);
+        assertEquals(expected.getGeneration(), replayed.getGeneration(), 0.);
+        assertEquals(expected.getData(), replayed.getData());
+    }
+
+    @Test
+    public void testJournalDoesNotChangeASeededRun()
+        throws IOException
+    {
+        Stepper plain = BreederTest.createMultiObjectiveRun(1, 15);
+        plain.setSeed(13L);
+        plain.evolve();
+
+        Stepper journaled = BreederTest.createMultiObjectiveRun(1, 15);
+        journaled.setSeed(13L);
+        journaled.setCheckpointJournal(new CheckpointJournal(createFile()));
+        journaled.evolve();
+
+        assertEquals(BreederTest.describe(plain),
+            BreederTest.describe(journaled));
+    }
+
+    @Test
+    public void testResumeFromJournalContinuesASeededRun()
+        throws IOException
+    {
+        Stepper full = BreederTest.createRun(1, 12);
+        full.setSeed(31L);
+        full.evolve();
+
+        File file = createFile();
+        Stepper first = BreederTest.createRun(1, 6);
+        first.setSeed(31L);
+        first.setCheckpointJournal(new CheckpointJournal(file));
+        first.evolve();
+
+        //  The last entry is of the generation after the last step.
+        Checkpoint checkpoint = CheckpointJournal.replay(file);
+        assertEquals(7., checkpoint.getGeneration(), 0.);
+
+        Stepper resumed = BreederTest.createRun(1, 12);
+        resumed.resume(checkpoint);
+
+        assertEquals(BreederTest.describe(full), BreederTest.describe(resumed));
+    }
+
+    @Test(expected = IOException.class)
+    public void testEmptyJournalIsRejected()
+        throws IOException
+    {
+        CheckpointJournal.replay(createFile());
+    }
+}
@@ -0,0 +1,192 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Test;
+
+/**
+ * Tests checkpoints of complete runs.
+ *
+ * @author Jeff Ridder
+ */
+public class CheckpointTest
+{
+    private static File createFile()
+        throws IOException
+    {
+        File file = File.createTempFile("run", Checkpoint.EXTENSION);
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void testRoundTrip()
+        throws IOException
+    {
+        Stepper stepper = BreederTest.createMultiObjectiveRun(1, 5);
+        stepper.setSeed(3L);
+        stepper.evolve();
+
+        File file = createFile();
+        Checkpoint.capture(stepper).write(file);
+
+        Stepper restored = BreederTest.createMultiObjectiveRun(1, 5);
+        restored.initialize();
+        Checkpoint checkpoint = Checkpoint.read(file);
+        assertEquals(stepper.getCurrentGeneration(), checkpoint.getGeneration(),
+            0.);
+        checkpoint.restore(restored);
+
+        assertEquals(stepper.getCurrentGeneration(),
+            restored.getCurrentGeneration(), 0.);
+        assertEquals(BreederTest.describe(stepper),
+            BreederTest.describe(restored));
+
+        Population pop = stepper.getProblems().get(0).getPopulation(0);
+        Population restored_pop = restored.getProblems().get(0).getPopulation(0);
+        for (int i = 0; i < pop.getPopulationSize(); i++)
+        {
+            Individual ind = pop.getIndividuals().get(i);
+            Individual restored_ind = restored_pop.getIndividuals().get(i);
+            assertEquals(ind.getMyID(), restored_ind.getMyID());
+            assertEquals(ind.getParetoRank(), restored_ind.getParetoRank());
+            assertEquals(ind.getConstraintError(),
+                restored_ind.getConstraintError(), 0.);
+            assertSame(restored_pop, restored_ind.getPopulation());
+        }
+    }
+
+    @Test
+    public void testCheckpointsDoNotChangeASeededRun()
+        throws IOException
+    {
+        Stepper plain = BreederTest.createRun(1, 20);
+        plain.setSeed(11L);
+        plain.evolve();
+
+        Stepper checkpointed = BreederTest.createRun(1, 20);
+        checkpointed.setSeed(11L);
+        checkpointed.setCheckpoint(createFile(), 3);
+        checkpointed.evolve();
+
+        assertEquals(BreederTest.describe(plain),
+            BreederTest.describe(checkpointed));
+    }
+
+    @Test
+    public void testResumeContinuesASeededRun()
+        throws IOException
+    {
+        Stepper full = BreederTest.createRun(2, 20);
+        full.setSeed(23L);
+        full.evolve();
+
+        //  Stopping at generation 10 leaves the checkpoint taken before it.
+        File file = createFile();
+        Stepper first = BreederTest.createRun(2, 10);
+        first.setSeed(23L);
+        first.setCheckpoint(file, 10);
+        first.evolve();
+        assertEquals(10., Checkpoint.read(file).getGeneration(), 0.);
+
+        Stepper resumed = BreederTest.createRun(2, 20);
+        resumed.resume(file);
+
+        assertEquals(full.getCurrentGeneration(), resumed.getCurrentGeneration(),
+            0.);
+        assertEquals(BreederTest.describe(full), BreederTest.describe(resumed));
+    }
+
+    @Test
+    public void testUnseededRunRestoresPopulations()
+        throws IOException
+    {
+        Stepper stepper = BreederTest.createRun(1, 3);
+        stepper.evolve();
+        Checkpoint checkpoint = Checkpoint.capture(stepper);
+
+        Stepper restored = BreederTest.createRun(1, 3);
+        restored.initialize();
+        checkpoint.restore(restored);
+
+        assertNull(restored.getRandomSource());
+        assertEquals(BreederTest.describe(stepper),
+            BreederTest.describe(restored));
+    }
+
+    @Test
+    public void testCorruptCheckpointIsRejected()
+        throws IOException
+    {
+        Stepper stepper = BreederTest.createRun(1, 2);
+        stepper.setSeed(1L);
+        stepper.evolve();
+
+        File file = createFile();
+        Checkpoint.capture(stepper).write(file);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            raf.seek(raf.length() / 2);
+            int b = raf.read();
+            raf.seek(raf.length() / 2);
+            raf.write(b ^ 0x55);
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        try
+        {
+            Checkpoint.read(file);
+            fail("corrupt checkpoint was read");
+        }
+        catch (IOException e)
+        {
+            assertTrue(e.getMessage(), e.getMessage().contains("checksum"));
+        }
+    }
+
+    @Test
+    public void testMismatchedStepperIsRejected()
+        throws IOException
+    {
+        Stepper stepper = BreederTest.createRun(1, 2);
+        stepper.evolve();
+        Checkpoint checkpoint = Checkpoint.capture(stepper);
+
+        Stepper other = BreederTest.createMultiObjectiveRun(1, 2);
+        other.initialize();
+        try
+        {
+            checkpoint.restore(other);
+            fail("checkpoint restored into a different run");
+        }
+        catch (IOException e)
+        {
+            //  The prototype classes differ.
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests the ordering, skipping and flushing of background checkpoint writes.
+ *
+ * @author Jeff Ridder
+ */
+public class CheckpointWriterTest
+{
+    private static File createFile()
+        throws IOException
+    {
+        File file = File.createTempFile("run", Checkpoint.EXTENSION);
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static ByteBuffer createData(int value, int size)
+    {
+        ByteBuffer data = ByteBuffer.allocate(size);
+        while (data.hasRemaining())
+        {
+            data.put((byte) value);
+        }
+        data.flip();
+        return data;
+    }
+
+    private static byte[] read(File file)
+        throws IOException
+    {
+        return Files.readAllBytes(file.toPath());
+    }
+
+    @Test
+    public void testFlushWaitsForEveryFile()
+        throws IOException
+    {
+        CheckpointWriter writer = new CheckpointWriter(1);
+        try
+        {
+            //  More distinct files than the queue holds: none are dropped.
+            List<File> files = new ArrayList<File>();
+            for (int k = 0; k < 20; k++)
+            {
+                File file = createFile();
+                files.add(file);
+                writer.write(file, createData(k, 4096));
+            }
+            writer.flush();
+
+            for (int k = 0; k < files.size(); k++)
+            {
+                byte[] expected = new byte[4096];
+                Arrays.fill(expected, (byte) k);
+                assertArrayEquals(expected, read(files.get(k)));
+            }
+            assertEquals(0, writer.getNumSkipped());
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testLastWriteOfAFileWins()
+        throws IOException
+    {
+        CheckpointWriter writer = new CheckpointWriter(4);
+        try
+        {
+            File file = createFile();
+            File other = createFile();
+            for (int k = 0; k < 200; k++)
+            {
+                writer.write(file, createData(k, 1 + k));
+                writer.write(other, createData(-k, 1));
+            }
+            writer.flush();
+
+            //  Superseded writes may be skipped, but never overwrite a newer
+            //  one.
+            byte[] expected = new byte[200];
+            Arrays.fill(expected, (byte) 199);
+            assertArrayEquals(expected, read(file));
+            assertArrayEquals(new byte[] {(byte) -199}, read(other));
+            assertTrue(writer.getNumSkipped() < 400);
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testWritesAfterCloseAreSynchronous()
+        throws IOException
+    {
+        CheckpointWriter writer = new CheckpointWriter(2);
+        File file = createFile();
+        writer.write(file, createData(1, 10));
+        writer.close();
+        assertEquals(10, file.length());
+
+        writer.write(file, createData(2, 20));
+        assertEquals(20, file.length());
+    }
+
+    @Test
+    public void testBackgroundCheckpointsMatchSynchronousOnes()
+        throws IOException
+    {
+        //  Both runs number their individuals from the same ID.
+        long last_id = Individual.getLastID();
+        File sync_file = createFile();
+        Stepper sync = BreederTest.createRun(1, 12);
+        sync.setSeed(29L);
+        sync.setCheckpoint(sync_file, 4);
+        sync.evolve();
+
+        File async_file = createFile();
+        CheckpointWriter writer = new CheckpointWriter(2);
+        try
+        {
+            Individual.setLastID(last_id);
+            Stepper async = BreederTest.createRun(1, 12);
+            async.setSeed(29L);
+            async.setCheckpoint(async_file, 4);
+            async.setCheckpointWriter(writer);
+            async.evolve();
+
+            //  The run flushes the writer when it ends.
+            assertArrayEquals(read(sync_file), read(async_file));
+            assertEquals(BreederTest.describe(sync), BreederTest.describe(async));
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests that the chunk crossover swaps whole loci between the parents and
+ * writes children of any size, that it gives the same children as the
+ * recursive, HashSet-based version it replaced, and that it records the
+ * crossed genes in the children's change sets.
+ *
+ * @author Jeff Ridder
+ */
+public class ChunkCrossoverTest
+{
+    private static GAIndividual<Integer> createIndividual(int size, int offset)
+    {
+        GAIndividual<Integer> ind = new GAIndividual<Integer>();
+        IntegerGAGene gene = new IntegerGAGene(0, 1000000, 1);
+        for (int i = 0; i < size; i++)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(offset + i);
+        }
+        ind.setProbRecombination(1.);
+        return ind;
+    }
+
+    /**
+     * The chunk walk as it was, drawing from the current random source.
+     */
+    private static HashSet<Integer> getIndexes(int max, int current_index,
+        HashSet<Integer> good, HashSet<Integer> bad)
+    {
+        if (current_index <= 0 || good.size() + bad.size() == max)
+        {
+            return good;
+        }
+        else if (RandomSource.current().nextDouble() < 0.5)
+        {
+            if (!(bad.contains(current_index) ||
+                bad.contains(current_index - 1) ||
+                bad.contains(current_index + 1)))
+            {
+                if (current_index <= max)
+                {
+                    good.add(current_index);
+                }
+            }
+            int next_index = current_index +
+                (int) (RandomSource.current().nextGaussian() * 1.8);
+            getIndexes(max, next_index, good, bad);
+        }
+        else if (RandomSource.current().nextDouble() < 0.5)
+        {
+            if (!(good.contains(current_index) ||
+                good.contains(current_index - 1) ||
+                good.contains(current_index + 1)))
+            {
+                if (current_index <= max)
+                {
+                    bad.add(current_index);
+                }
+            }
+            RandomSource.current().nextGaussian();
+            getIndexes(max, current_index, good, bad);
+        }
+        else
+        {
+            getIndexes(max, --current_index, good, bad);
+        }
+        return good;
+    }
+
+    /**
+     * Returns the son and daughter of the original operator.
+     */
+    private static List<List<Integer>> reference(List<Integer> dad,
+        List<Integer> mom)
+    {
+        RandomSource.current().nextDouble();
+        RandomSource.current().nextDouble();
+
+        int max = mom.size() - 1;
+        HashSet<Integer> good = getIndexes(max, max, new HashSet<Integer>(),
+            new HashSet<Integer>());
+
+        List<Integer> boy = new ArrayList<Integer>();
+        List<Integer> girl = new ArrayList<Integer>();
+        for (int i = 0; i < mom.size(); i++)
+        {
+            boy.add(good.contains(i) ? mom.get(i) : dad.get(i));
+            girl.add(good.contains(i) ? dad.get(i) : mom.get(i));
+        }
+
+        List<List<Integer>> children = new ArrayList<List<Integer>>();
+        children.add(boy);
+        children.add(girl);
+        return children;
+    }
+
+    private static void recombine(GAIndividual<Integer> dad,
+        GAIndividual<Integer> mom, GAIndividual<Integer> boy,
+        GAIndividual<Integer> girl, long seed)
+    {
+        RandomSource.setCurrent(RandomSource.create(seed));
+        try
+        {
+            new ChunkCrossover<Integer>().recombine(dad, mom, boy, girl);
+        }
+        finally
+        {
+            RandomSource.setCurrent(null);
+        }
+    }
+
+    /**
+     * Checks that each locus of the son comes from one parent and the same
+     * locus of the daughter from the other.
+     */
+    private static int checkChildren(int size, int offset,
+        GAIndividual<Integer> boy, GAIndividual<Integer> girl)
+    {
+        assertEquals(size, boy.getGenotypeSize());
+        assertEquals(size, girl.getGenotypeSize());
+
+        int crossed = 0;
+        for (int i = 0; i < size; i++)
+        {
+            int value = boy.getValue(i);
+            assertTrue(value == i || value == offset + i);
+            assertEquals(value == i ? offset + i : i, (int) girl.getValue(i));
+            if (value != i)
+            {
+                crossed++;
+            }
+        }
+        return crossed;
+    }
+
+    @Test
+    public void testChildrenTakeEachLocusFromOneParent()
+    {
+        Random random = new Random(32L);
+        for (int trial = 0; trial < 500; trial++)
+        {
+            //  Sizes around and across the 64-bit words of the bitsets.
+            int size = 1 + random.nextInt(trial % 5 == 0 ? 300 : 70);
+            GAIndividual<Integer> dad = createIndividual(size, 0);
+            GAIndividual<Integer> mom = createIndividual(size, 1000);
+            List<Integer> dad_values = new ArrayList<Integer>(dad.getGenotype());
+            List<Integer> mom_values = new ArrayList<Integer>(mom.getGenotype());
+
+            //  Children of a different size, as a breeder may hand over.
+            GAIndividual<Integer> boy = createIndividual(trial % 3, 5000);
+            GAIndividual<Integer> girl = createIndividual(size, 5000);
+            boy.setEvaluated(true);
+            girl.setEvaluated(true);
+            new ChunkCrossover<Integer>().recombine(dad, mom, boy, girl);
+
+            checkChildren(size, 1000, boy, girl);
+            assertFalse(boy.getEvaluated());
+            assertFalse(girl.getEvaluated());
+
+            //  The parents are left alone.
+            assertEquals(dad_values, dad.getGenotype());
+            assertEquals(mom_values, mom.getGenotype());
+        }
+    }
+
+    @Test
+    public void testMatchesReference()
+    {
+        Random random = new Random(32L);
+        for (int trial = 0; trial < 500; trial++)
+        {
+            //  Sizes around and across the 64-bit words of the bitsets.
+            int size = 1 + random.nextInt(trial % 5 == 0 ? 300 : 70);
+            GAIndividual<Integer> dad = createIndividual(size, 0);
+            GAIndividual<Integer> mom = createIndividual(size, 1000);
+            long seed = random.nextLong();
+
+            List<List<Integer>> expected;
+            RandomSource.setCurrent(RandomSource.create(seed));
+            try
+            {
+                expected = reference(dad.getGenotypeValues(),
+                    mom.getGenotypeValues());
+            }
+            finally
+            {
+                RandomSource.setCurrent(null);
+            }
+
+            //  Children of a different size, as a breeder may hand over.
+            GAIndividual<Integer> boy = createIndividual(trial % 3, 5000);
+            GAIndividual<Integer> girl = createIndividual(size, 5000);
+            recombine(dad, mom, boy, girl, seed);
+
+            assertEquals("trial " + trial, expected.get(0), boy.getGenotype());
+            assertEquals("trial " + trial, expected.get(1), girl.getGenotype());
+            assertFalse(boy.getEvaluated());
+            assertFalse(girl.getEvaluated());
+        }
+    }
+
+    @Test
+    public void testChangesAreRecordedAgainstTheKeptParent()
+    {
+        Random random = new Random(7L);
+        for (int trial = 0; trial < 50; trial++)
+        {
+            int size = 2 + random.nextInt(100);
+            GAIndividual<Integer> dad = createIndividual(size, 0);
+            GAIndividual<Integer> mom = createIndividual(size, 1000);
+            dad.setFitness(3.);
+            dad.setEvaluated(true);
+            mom.setFitness(4.);
+            mom.setEvaluated(true);
+
+            GAIndividual<Integer> boy = createIndividual(size, 0);
+            GAIndividual<Integer> girl = createIndividual(size, 0);
+            recombine(dad, mom, boy, girl, random.nextLong());
+
+            //  Undoing the recorded changes gives back the kept parent.
+            check(dad, boy);
+            check(mom, girl);
+        }
+    }
+
+    private static void check(GAIndividual<Integer> parent,
+        GAIndividual<Integer> child)
+    {
+        ChangeSet changes = child.getChangeSet();
+        if (changes == null)
+        {
+            //  Too many changes to record.
+            return;
+        }
+
+        assertEquals(parent.getFitness(), changes.getBaseFitness(0), 0.);
+        List<Integer> genotype =
+            new ArrayList<Integer>(child.getGenotypeValues());
+        int differences = 0;
+        for (int i = 0; i < genotype.size(); i++)
+        {
+            if (!genotype.get(i).equals(parent.getValue(i)))
+            {
+                differences++;
+            }
+        }
+        assertEquals(differences, changes.size());
+        for (int i = 0; i < changes.size(); i++)
+        {
+            genotype.set(changes.getLocus(i), (Integer) changes.getOldValue(i));
+        }
+        assertEquals(parent.getGenotypeValues(), genotype);
+    }
+
+    @Test
+    public void testLongGenotype()
+    {
+        int size = 200000;
+        GAIndividual<Integer> dad = createIndividual(size, 0);
+        GAIndividual<Integer> mom = createIndividual(size, size);
+        GAIndividual<Integer> boy = createIndividual(size, 0);
+        GAIndividual<Integer> girl = createIndividual(size, 0);
+        new ChunkCrossover<Integer>().recombine(dad, mom, boy, girl);
+
+        int crossed = checkChildren(size, size, boy, girl);
+        assertTrue(crossed > 0 && crossed < size);
+    }
+}
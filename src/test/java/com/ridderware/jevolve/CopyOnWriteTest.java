@@ -0,0 +1,155 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests that copies of GA individuals share their genotype only until one of
+ * them writes to it.
+ *
+ * @author Jeff Ridder
+ */
+public class CopyOnWriteTest
+{
+    private static GAIndividual<Double> createIndividual(double... genotype)
+    {
+        GAIndividual<Double> ind = new GAIndividual<Double>();
+        DoubleGAGene gene = new DoubleGAGene(-10., 10., 1.);
+        for (double value : genotype)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(value);
+        }
+        ind.setProbRecombination(1.);
+        return ind;
+    }
+
+    @Test
+    public void testCloneSharesUntilWritten()
+    {
+        GAIndividual<Double> ind = createIndividual(1., 2., 3.);
+        GAIndividual<Double> copy = ind.clone();
+        assertTrue(ind.getGenotypeShared());
+        assertTrue(copy.getGenotypeShared());
+        assertSame(ind.getGenotypeValues(), copy.getGenotypeValues());
+
+        copy.setValue(0, 9.);
+        assertFalse(copy.getGenotypeShared());
+        assertNotSame(ind.getGenotypeValues(), copy.getGenotypeValues());
+        assertEquals(Arrays.asList(1., 2., 3.), ind.getGenotypeValues());
+        assertEquals(Arrays.asList(9., 2., 3.), copy.getGenotypeValues());
+
+        //  The other individual still believes it shares, and copies once.
+        ind.getGenotype().add(4.);
+        assertEquals(Arrays.asList(1., 2., 3., 4.), ind.getGenotypeValues());
+        assertEquals(Arrays.asList(9., 2., 3.), copy.getGenotypeValues());
+        assertFalse(ind.getGenotypeShared());
+    }
+
+    @Test
+    public void testDeepCopySharesUntilWritten()
+    {
+        GAIndividual<Double> ind = createIndividual(1., 2., 3.);
+        GAIndividual<Double> copy = createIndividual(5.);
+        copy.deepCopy(ind);
+        assertSame(ind.getGenotypeValues(), copy.getGenotypeValues());
+
+        copy.initialize();
+        assertEquals(Arrays.asList(1., 2., 3.), ind.getGenotypeValues());
+        assertEquals(3, copy.getGenotypeSize());
+        assertNotSame(ind.getGenotypeValues(), copy.getGenotypeValues());
+    }
+
+    @Test
+    public void testClearGenotypeLeavesTheSharerAlone()
+    {
+        GAIndividual<Double> ind = createIndividual(1., 2., 3.);
+        GAIndividual<Double> copy = ind.clone();
+
+        ArrayList<Double> values = copy.clearGenotype();
+        assertTrue(values.isEmpty());
+        assertSame(values, copy.getGenotypeValues());
+        assertFalse(copy.getGenotypeShared());
+        assertEquals(Arrays.asList(1., 2., 3.), ind.getGenotypeValues());
+
+        //  An unshared genotype is emptied in place.
+        values.add(7.);
+        assertSame(values, copy.clearGenotype());
+        assertEquals(0, copy.getGenotypeSize());
+    }
+
+    @Test
+    public void testChildrenOfCrossoverDoNotAliasTheirParents()
+    {
+        List<Recombinator> recombinators = new ArrayList<Recombinator>();
+        recombinators.add(new UniformCrossover<Double>());
+        recombinators.add(new SinglePointCrossover<Double>());
+        recombinators.add(new TwoPointCrossover<Double>());
+        recombinators.add(new ArithmeticalDoubleCrossover());
+
+        for (Recombinator recombinator : recombinators)
+        {
+            GAIndividual<Double> dad = createIndividual(1., 2., 3., 4., 5.);
+            GAIndividual<Double> mom = createIndividual(6., 7., 8., 9., 10.);
+
+            //  The children start out as copies of their parents, as they do
+            //  in the breeders.
+            GAIndividual<Double> boy = dad.clone();
+            GAIndividual<Double> girl = mom.clone();
+            recombinator.recombine(dad, mom, boy, girl);
+
+            String message = recombinator.getClass().getSimpleName();
+            assertEquals(message, Arrays.asList(1., 2., 3., 4., 5.),
+                dad.getGenotypeValues());
+            assertEquals(message, Arrays.asList(6., 7., 8., 9., 10.),
+                mom.getGenotypeValues());
+            assertEquals(message, 5, boy.getGenotypeSize());
+            assertEquals(message, 5, girl.getGenotypeSize());
+
+            //  Writing to a child leaves the parents alone.
+            boy.setValue(0, -1.);
+            girl.getGenotype().set(4, -1.);
+            assertEquals(message, 1., dad.getValue(0), 0.);
+            assertEquals(message, 10., mom.getValue(4), 0.);
+        }
+    }
+
+    @Test
+    public void testPassThroughChildrenShareUntilMutated()
+    {
+        GAIndividual<Double> dad = createIndividual(1., 2., 3.);
+        GAIndividual<Double> mom = createIndividual(4., 5., 6.);
+        mom.setProbRecombination(0.);
+
+        GAIndividual<Double> boy = createIndividual(0., 0., 0.);
+        GAIndividual<Double> girl = createIndividual(0., 0., 0.);
+        new UniformCrossover<Double>().recombine(dad, mom, boy, girl);
+        assertSame(dad.getGenotypeValues(), boy.getGenotypeValues());
+
+        boy.setProbMutation(1.);
+        new FlipMutator<Double>().mutate(boy);
+        assertEquals(Arrays.asList(1., 2., 3.), dad.getGenotypeValues());
+        assertNotSame(dad.getGenotypeValues(), boy.getGenotypeValues());
+    }
+}
@@ -0,0 +1,122 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Tests the double[] kernels against their per-element formulas, and the
+ * arithmetical crossover built on them.
+ *
+ * @author Jeff Ridder
+ */
+public class DoubleArrayOpsTest
+{
+    @Test
+    public void testToArrayAndSetAll()
+    {
+        ArrayList<Double> values = new ArrayList<Double>(Arrays.asList(1., 2., 3.));
+        double[] array = DoubleArrayOps.toArray(values, null);
+        assertArrayEquals(new double[] {1., 2., 3.}, array, 0.);
+
+        //  A long enough array is reused.
+        double[] longer = new double[5];
+        assertSame(longer, DoubleArrayOps.toArray(values, longer));
+
+        DoubleArrayOps.setAll(values, new double[] {4., 5., 6., 7.}, 4);
+        assertEquals(Arrays.asList(4., 5., 6., 7.), values);
+        DoubleArrayOps.setAll(values, new double[] {8., 9., 0., 0.}, 2);
+        assertEquals(Arrays.asList(8., 9.), values);
+    }
+
+    @Test
+    public void testKernels()
+    {
+        double[] x = {1., -2., 3.5, 0.};
+        double[] y = {0.5, 4., -1., 2.};
+        double[] out = new double[4];
+        DoubleArrayOps.blend(0.25, x, y, out, 4);
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(0.25 * x[i] + 0.75 * y[i], out[i], 0.);
+        }
+
+        double[] values = x.clone();
+        DoubleArrayOps.addScaled(values, y, new double[] {1., 2., 3., 4.}, 3);
+        assertArrayEquals(new double[] {1.5, 6., 0.5, 0.}, values, 0.);
+
+        DoubleArrayOps.clamp(values, new double[] {2., 0., 0., 0.},
+            new double[] {3., 5., 1., 1.}, 4);
+        assertArrayEquals(new double[] {2., 5., 0.5, 0.}, values, 0.);
+
+        double[] noise = new double[10];
+        DoubleArrayOps.fillGaussian(noise, 2, 6);
+        assertEquals(0., noise[0], 0.);
+        assertEquals(0., noise[1], 0.);
+        assertEquals(0., noise[8], 0.);
+        assertEquals(0., noise[9], 0.);
+        assertTrue(noise[2] != 0. && noise[7] != 0.);
+    }
+
+    private static GAIndividual<Double> createIndividual(double... genotype)
+    {
+        GAIndividual<Double> ind = new GAIndividual<Double>();
+        DoubleGAGene gene = new DoubleGAGene(-10., 10., 1.);
+        for (double value : genotype)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(value);
+        }
+        ind.setProbRecombination(1.);
+        return ind;
+    }
+
+    @Test
+    public void testArithmeticalCrossoverBlendsTheParents()
+    {
+        GAIndividual<Double> dad = createIndividual(1., 2., 3., 4.);
+        GAIndividual<Double> mom = createIndividual(5., -6., 7., 0.);
+        GAIndividual<Double> boy = createIndividual(9.);
+        GAIndividual<Double> girl = createIndividual(9., 9., 9., 9., 9.);
+        boy.setEvaluated(true);
+
+        new ArithmeticalDoubleCrossover().recombine(dad, mom, boy, girl);
+
+        assertEquals(4, boy.getGenotypeSize());
+        assertEquals(4, girl.getGenotypeSize());
+        assertFalse(boy.getEvaluated());
+
+        //  Recover the blend weight from the first locus.
+        double a = (boy.getValue(0) - 1.) / 4.;
+        assertTrue(a >= 0. && a < 1.);
+        for (int i = 0; i < 4; i++)
+        {
+            double d = dad.getValue(i);
+            double m = mom.getValue(i);
+            assertEquals(a * m + (1. - a) * d, boy.getValue(i), 1e-12);
+            assertEquals(a * d + (1. - a) * m, girl.getValue(i), 1e-12);
+        }
+
+        //  A missing child is skipped.
+        new ArithmeticalDoubleCrossover().recombine(dad, mom, null, girl);
+    }
+}
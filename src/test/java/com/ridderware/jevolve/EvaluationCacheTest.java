@@ -0,0 +1,144 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the genotype-keyed evaluation cache.
+ *
+ * @author Jeff Ridder
+ */
+public class EvaluationCacheTest
+{
+    private static GAIndividual<Integer> createIndividual(int... genotype)
+    {
+        GAIndividual<Integer> ind = new GAIndividual<Integer>();
+        IntegerGAGene gene = new IntegerGAGene(0, 9, 1);
+        for (int value : genotype)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(value);
+        }
+        return ind;
+    }
+
+    private static GAIndividual<Integer> createEvaluated(double fitness,
+        int... genotype)
+    {
+        GAIndividual<Integer> ind = createIndividual(genotype);
+        ind.setFitness(fitness);
+        ind.setConstraintError(fitness / 10.);
+        ind.setSuccess(fitness > 1.);
+        return ind;
+    }
+
+    @Test
+    public void testLookupReturnsStoredResults()
+    {
+        EvaluationCache cache = new EvaluationCache(10);
+        cache.store(createEvaluated(2., 1, 2, 3));
+
+        GAIndividual<Integer> ind = createIndividual(1, 2, 3);
+        assertTrue(cache.lookup(ind));
+        assertEquals(2., ind.getFitness(), 0.);
+        assertEquals(0.2, ind.getConstraintError(), 0.);
+        assertTrue(ind.getSuccess());
+
+        assertFalse(cache.lookup(createIndividual(3, 2, 1)));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0.);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted()
+    {
+        EvaluationCache cache = new EvaluationCache(2);
+        cache.store(createEvaluated(1., 1));
+        cache.store(createEvaluated(2., 2));
+
+        //  Using the first entry makes the second the least recently used.
+        assertTrue(cache.lookup(createIndividual(1)));
+        cache.store(createEvaluated(3., 3));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.lookup(createIndividual(1)));
+        assertFalse(cache.lookup(createIndividual(2)));
+        assertTrue(cache.lookup(createIndividual(3)));
+
+        cache.store(createEvaluated(4., 4));
+        assertEquals(2, cache.getEvictions());
+        assertFalse(cache.lookup(createIndividual(1)));
+        assertTrue(cache.lookup(createIndividual(3)));
+        assertTrue(cache.lookup(createIndividual(4)));
+    }
+
+    @Test
+    public void testChangedGenotypeIsLookedUpAgain()
+    {
+        EvaluationCache cache = new EvaluationCache(10);
+        cache.store(createEvaluated(5., 4, 5, 6));
+
+        GAIndividual<Integer> ind = createIndividual(4, 5, 7);
+        assertFalse(cache.lookup(ind));
+        ind.getGenotype().set(2, 6);
+        assertTrue(cache.lookup(ind));
+        assertEquals(5., ind.getFitness(), 0.);
+    }
+
+    @Test
+    public void testStoredGenotypeIsCopied()
+    {
+        EvaluationCache cache = new EvaluationCache(10);
+        GAIndividual<Integer> ind = createEvaluated(5., 1, 1);
+        cache.store(ind);
+        ind.getGenotype().set(0, 8);
+
+        assertTrue(cache.lookup(createIndividual(1, 1)));
+        assertFalse(cache.lookup(createIndividual(8, 1)));
+    }
+
+    @Test
+    public void testEmptyCacheStoresNothing()
+    {
+        EvaluationCache cache = new EvaluationCache(0);
+        cache.store(createEvaluated(1., 1));
+        assertEquals(0, cache.size());
+        assertFalse(cache.lookup(createIndividual(1)));
+    }
+
+    @Test
+    public void testClear()
+    {
+        EvaluationCache cache = new EvaluationCache(1);
+        cache.store(createEvaluated(1., 1));
+        cache.store(createEvaluated(2., 2));
+        cache.lookup(createIndividual(2));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+        assertFalse(cache.lookup(createIndividual(2)));
+    }
+}
@@ -0,0 +1,203 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests the bulk Gaussian mutation of Double genes.
+ *
+ * @author Jeff Ridder
+ */
+public class GaussianMutatorTest
+{
+    private static GAIndividual<Double> createIndividual(int size, double sigma)
+    {
+        GAIndividual<Double> ind = new GAIndividual<Double>();
+        DoubleGAGene gene = new DoubleGAGene(-1., 1., sigma);
+        for (int i = 0; i < size; i++)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(0.5 - i / (double) size);
+        }
+        ind.setProbMutation(1.);
+        return ind;
+    }
+
+    @Test
+    public void testMatchesPerGeneMutation()
+    {
+        int size = 30;
+        GAIndividual<Double> ind = createIndividual(size, 0.1);
+
+        //  Every locus draws a uniform deviate to be chosen, then each gets
+        //  one Gaussian deviate.
+        RandomSource expected_random = RandomSource.create(17L);
+        double[] expected = new double[size];
+        for (int i = 0; i < size; i++)
+        {
+            expected_random.nextDouble();
+        }
+        for (int i = 0; i < size; i++)
+        {
+            double value = ind.getValue(i) +
+                expected_random.nextGaussian() * 0.1;
+            expected[i] = Math.max(Math.min(value, 1.), -1.);
+        }
+
+        RandomSource.setCurrent(RandomSource.create(17L));
+        try
+        {
+            new GaussianMutator<Double>().mutate(ind);
+        }
+        finally
+        {
+            RandomSource.setCurrent(null);
+        }
+
+        for (int i = 0; i < size; i++)
+        {
+            assertEquals("locus " + i, expected[i], ind.getValue(i), 0.);
+        }
+        assertFalse(ind.getEvaluated());
+    }
+
+    @Test
+    public void testNoiseIsScaledBySigma()
+    {
+        //  Values near zero with a small sigma are never clamped, so the
+        //  changes are sigma times standard normal deviates.
+        int size = 20000;
+        double sigma = 0.001;
+        GAIndividual<Double> ind = createIndividual(size, sigma);
+        for (int i = 0; i < size; i++)
+        {
+            ind.setValue(i, 0.);
+        }
+        ind.setEvaluated(true);
+
+        new GaussianMutator<Double>().mutate(ind);
+
+        double sum = 0.;
+        double sum2 = 0.;
+        for (int i = 0; i < size; i++)
+        {
+            double z = ind.getValue(i) / sigma;
+            sum += z;
+            sum2 += z * z;
+        }
+        double mean = sum / size;
+        assertEquals(0., mean, 5. / Math.sqrt(size));
+        assertEquals(1., sum2 / size - mean * mean, 0.05);
+        assertFalse(ind.getEvaluated());
+    }
+
+    @Test
+    public void testUnchosenLociAreLeftAlone()
+    {
+        GAIndividual<Double> ind = createIndividual(1000, 0.1);
+        ind.setProbMutation(0.1);
+        double[] before = new double[1000];
+        for (int i = 0; i < 1000; i++)
+        {
+            before[i] = ind.getValue(i);
+        }
+
+        new GaussianMutator<Double>().mutate(ind);
+
+        int changed = 0;
+        for (int i = 0; i < 1000; i++)
+        {
+            if (ind.getValue(i) != before[i])
+            {
+                changed++;
+            }
+        }
+        assertEquals(100., changed, 50.);
+    }
+
+    @Test
+    public void testClampsToBounds()
+    {
+        GAIndividual<Double> ind = createIndividual(200, 10.);
+
+        new GaussianMutator<Double>().mutate(ind);
+
+        int at_bound = 0;
+        for (int i = 0; i < ind.getGenotypeSize(); i++)
+        {
+            double value = ind.getValue(i);
+            assertTrue(value >= -1. && value <= 1.);
+            if (value == -1. || value == 1.)
+            {
+                at_bound++;
+            }
+        }
+        assertTrue(at_bound > 100);
+    }
+
+    @Test
+    public void testNonUniformLeavesFinalGenerationAlone()
+    {
+        GAIndividual<Double> ind = createIndividual(30, 0.1);
+        Population pop = new Population(ind);
+        SimpleProblem problem = new SimpleProblem();
+        problem.addPopulation(pop);
+        Stepper stepper = new Stepper();
+        stepper.addProblem(problem);
+        stepper.setMaxGenerations(10);
+        stepper.setCurrentGeneration(10.);
+        ind.setPopulation(pop);
+
+        double[] before = new double[30];
+        for (int i = 0; i < 30; i++)
+        {
+            before[i] = ind.getValue(i);
+        }
+
+        new NonUniformGaussianMutator<Double>(1.).mutate(ind);
+
+        for (int i = 0; i < 30; i++)
+        {
+            assertEquals(before[i], ind.getValue(i), 0.);
+        }
+    }
+
+    @Test
+    public void testMixedGenesMutateGeneByGene()
+    {
+        GAIndividual<Integer> ind = new GAIndividual<Integer>();
+        IntegerGAGene gene = new IntegerGAGene(0, 10, 3);
+        for (int i = 0; i < 50; i++)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(5);
+        }
+        ind.setProbMutation(1.);
+
+        new GaussianMutator<Integer>().mutate(ind);
+
+        for (int i = 0; i < 50; i++)
+        {
+            int value = ind.getValue(i);
+            assertTrue(value >= 0 && value <= 10);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import org.junit.Test;
+
+/**
+ * Tests that the cached genotype hash follows changes to the genotype.
+ *
+ * @author Jeff Ridder
+ */
+public class GenotypeHashTest
+{
+    private static GAIndividual<Double> createIndividual(double... genotype)
+    {
+        GAIndividual<Double> ind = new GAIndividual<Double>();
+        DoubleGAGene gene = new DoubleGAGene(-10., 10., 1.);
+        for (double value : genotype)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(value);
+        }
+        ind.setProbRecombination(1.);
+        return ind;
+    }
+
+    @Test
+    public void testEqualGenotypesHaveEqualHashes()
+    {
+        GAIndividual<Double> a = createIndividual(1., 2., 3.);
+        GAIndividual<Double> b = createIndividual(1., 2., 3.);
+        assertEquals(a.getGenotypeHash(), b.getGenotypeHash());
+        assertTrue(a.genotypeEquals(b));
+
+        assertFalse(a.getGenotypeHash() ==
+            createIndividual(1., 3., 2.).getGenotypeHash());
+        assertFalse(a.getGenotypeHash() ==
+            createIndividual(1., 2.).getGenotypeHash());
+    }
+
+    @Test
+    public void testSetValueInvalidatesTheHash()
+    {
+        GAIndividual<Double> ind = createIndividual(1., 2., 3.);
+        long hash = ind.getGenotypeHash();
+
+        ind.setValue(1, 5.);
+        assertEquals(createIndividual(1., 5., 3.).getGenotypeHash(),
+            ind.getGenotypeHash());
+        assertFalse(hash == ind.getGenotypeHash());
+    }
+
+    @Test
+    public void testWritesThroughGetGenotypeInvalidateTheHash()
+    {
+        GAIndividual<Double> ind = createIndividual(1., 2., 3.);
+        ind.getGenotypeHash();
+
+        ind.getGenotype().set(0, 4.);
+        assertEquals(createIndividual(4., 2., 3.).getGenotypeHash(),
+            ind.getGenotypeHash());
+
+        ind.getGenotype().add(6.);
+        assertEquals(createIndividual(4., 2., 3., 6.).getGenotypeHash(),
+            ind.getGenotypeHash());
+
+        //  A kept list changed after the hash was read must be invalidated.
+        ArrayList<Double> genotype = ind.getGenotype();
+        ind.getGenotypeHash();
+        genotype.remove(3);
+        ind.invalidateGenotypeHash();
+        assertEquals(createIndividual(4., 2., 3.).getGenotypeHash(),
+            ind.getGenotypeHash());
+    }
+
+    @Test
+    public void testCopiesKeepTheirOwnHash()
+    {
+        GAIndividual<Double> ind = createIndividual(1., 2., 3.);
+        long hash = ind.getGenotypeHash();
+
+        GAIndividual<Double> copy = ind.clone();
+        assertEquals(hash, copy.getGenotypeHash());
+        copy.setValue(2, 0.);
+        assertFalse(hash == copy.getGenotypeHash());
+        assertEquals(hash, ind.getGenotypeHash());
+
+        GAIndividual<Double> other = createIndividual(7., 8., 9.);
+        other.getGenotypeHash();
+        other.deepCopy(ind);
+        assertEquals(hash, other.getGenotypeHash());
+
+        ind.initialize();
+        assertEquals(createIndividual(ind.getValue(0), ind.getValue(1),
+            ind.getValue(2)).getGenotypeHash(), ind.getGenotypeHash());
+    }
+
+    @Test
+    public void testRecombinedChildrenAreRehashed()
+    {
+        GAIndividual<Double> dad = createIndividual(1., 2., 3., 4.);
+        GAIndividual<Double> mom = createIndividual(5., 6., 7., 8.);
+        GAIndividual<Double> boy = dad.clone();
+        GAIndividual<Double> girl = mom.clone();
+        boy.getGenotypeHash();
+        girl.getGenotypeHash();
+
+        new UniformCrossover<Double>().recombine(dad, mom, boy, girl);
+
+        assertEquals(createIndividual(boy.getValue(0), boy.getValue(1),
+            boy.getValue(2), boy.getValue(3)).getGenotypeHash(),
+            boy.getGenotypeHash());
+        assertEquals(createIndividual(girl.getValue(0), girl.getValue(1),
+            girl.getValue(2), girl.getValue(3)).getGenotypeHash(),
+            girl.getGenotypeHash());
+    }
+}
@@ -0,0 +1,192 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests hot spot sampling against a linear scan of the hot spots, and the
+ * resets and copies of hot spot individuals.
+ *
+ * @author Jeff Ridder
+ */
+public class HotSpotIndividualTest
+{
+    private static HotSpotIndividual<Integer> createIndividual(int size,
+        int initialValue)
+    {
+        HotSpotIndividual<Integer> ind =
+            new HotSpotIndividual<Integer>(initialValue, 4);
+        IntegerGAGene gene = new IntegerGAGene(0, 100, 1);
+        for (int i = 0; i < size; i++)
+        {
+            ind.getGenome().add(gene);
+        }
+        ind.initialize();
+        return ind;
+    }
+
+    /**
+     * The first index at which the running total exceeds the point value.
+     */
+    private static int scan(int[] hotSpots, int pointValue)
+    {
+        int total = 0;
+        for (int i = 0; i < hotSpots.length; i++)
+        {
+            total += hotSpots[i];
+            if (total > pointValue)
+            {
+                return i;
+            }
+        }
+        return hotSpots.length;
+    }
+
+    private static void checkSampling(HotSpotIndividual<Integer> ind)
+    {
+        int[] hotSpots = ind.getHotSpots();
+        int total = 0;
+        for (int points : hotSpots)
+        {
+            total += points;
+        }
+        assertEquals(total, ind.getTotalHotSpotPoints());
+        for (int point = 0; point < total; point++)
+        {
+            assertEquals(scan(hotSpots, point),
+                ind.getHotSpotIndexFromPoints(point));
+        }
+    }
+
+    @Test
+    public void testSamplingMatchesLinearScan()
+    {
+        Random random = new Random(33L);
+        for (int trial = 0; trial < 100; trial++)
+        {
+            int size = 1 + random.nextInt(40);
+            HotSpotIndividual<Integer> ind = createIndividual(size, 1);
+            checkSampling(ind);
+
+            //  Including hot spots with no points.
+            int[] hotSpots = new int[size];
+            for (int i = 0; i < size; i++)
+            {
+                hotSpots[i] = random.nextInt(4);
+            }
+            hotSpots[random.nextInt(size)]++;
+            ind.setHotSpots(hotSpots);
+            checkSampling(ind);
+
+            for (int k = 0; k < 20; k++)
+            {
+                ind.addCrossoverEvent(random.nextInt(size),
+                    random.nextInt(size));
+                checkSampling(ind);
+            }
+        }
+    }
+
+    @Test
+    public void testResets()
+    {
+        HotSpotIndividual<Integer> ind = createIndividual(5, 2);
+        assertArrayEquals(new int[] {2, 2, 2, 2, 2}, ind.getHotSpots());
+        assertEquals(10, ind.getTotalHotSpotPoints());
+
+        ind.setHotSpots(new int[] {9, 2, 20, 3, 40});
+        ind.softReset(4);
+        assertArrayEquals(new int[] {2, 2, 5, 2, 10}, ind.getHotSpots());
+        checkSampling(ind);
+
+        ind.addCrossoverEvent(1, 3);
+        ind.hardReset();
+        assertArrayEquals(new int[] {2, 2, 2, 2, 2}, ind.getHotSpots());
+        checkSampling(ind);
+    }
+
+    @Test
+    public void testCopiesHaveTheirOwnHotSpots()
+    {
+        HotSpotIndividual<Integer> ind = createIndividual(4, 1);
+        ind.setHotSpots(new int[] {1, 5, 1, 3});
+
+        HotSpotIndividual<Integer> copy = createIndividual(6, 1);
+        copy.deepCopy(ind);
+        assertArrayEquals(new int[] {1, 5, 1, 3}, copy.getHotSpots());
+        checkSampling(copy);
+
+        copy.addCrossoverEvent(0, 2);
+        assertArrayEquals(new int[] {1, 5, 1, 3}, ind.getHotSpots());
+        assertEquals(10, ind.getTotalHotSpotPoints());
+        assertEquals(12, copy.getTotalHotSpotPoints());
+
+        HotSpotIndividual<Integer> clone = ind.clone();
+        clone.hardReset();
+        assertArrayEquals(new int[] {1, 5, 1, 3}, ind.getHotSpots());
+        checkSampling(clone);
+    }
+
+    @Test
+    public void testPassThroughCopiesHotSpots()
+    {
+        HotSpotIndividual<Integer> dad = createIndividual(6, 1);
+        HotSpotIndividual<Integer> mom = createIndividual(6, 1);
+        dad.setHotSpots(new int[] {1, 2, 3, 4, 5, 6});
+        mom.setHotSpots(new int[] {6, 5, 4, 3, 2, 1});
+        mom.setProbRecombination(0.);
+
+        HotSpotIndividual<Integer> boy = createIndividual(6, 1);
+        HotSpotIndividual<Integer> girl = createIndividual(6, 1);
+        new HotSpotChunkCrossover<Integer>().recombine(dad, mom, boy, girl);
+
+        assertArrayEquals(dad.getHotSpots(), boy.getHotSpots());
+        assertArrayEquals(mom.getHotSpots(), girl.getHotSpots());
+        assertNotSame(dad.getHotSpots(), boy.getHotSpots());
+        checkSampling(boy);
+        checkSampling(girl);
+    }
+
+    @Test
+    public void testCrossoverAddsEventsToTheParents()
+    {
+        HotSpotIndividual<Integer> dad = createIndividual(30, 1);
+        HotSpotIndividual<Integer> mom = createIndividual(30, 1);
+        mom.setProbRecombination(1.);
+
+        HotSpotIndividual<Integer> boy = createIndividual(30, 1);
+        HotSpotIndividual<Integer> girl = createIndividual(30, 1);
+        new HotSpotChunkCrossover<Integer>().recombine(dad, mom, boy, girl);
+
+        assertTrue(dad.getTotalHotSpotPoints() > 30);
+        checkSampling(dad);
+        checkSampling(mom);
+        assertArrayEquals(dad.getHotSpots(), boy.getHotSpots());
+        assertArrayEquals(mom.getHotSpots(), girl.getHotSpots());
+        for (int i = 0; i < 30; i++)
+        {
+            Object value = boy.getValue(i);
+            assertTrue(value.equals(dad.getValue(i)) ||
+                value.equals(mom.getValue(i)));
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Tests recycling individuals through the individual pool, and the NT NSGA
+ * breeder's compaction of its population into recycled individuals.
+ *
+ * @author Jeff Ridder
+ */
+public class IndividualPoolTest
+{
+    private static EvaluationCountingGAIndividual<Double> createIndividual(
+        double... genotype)
+    {
+        EvaluationCountingGAIndividual<Double> ind =
+            new EvaluationCountingGAIndividual<Double>(2);
+        DoubleGAGene gene = new DoubleGAGene(-10., 10., 1.);
+        for (double value : genotype)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(value);
+        }
+        return ind;
+    }
+
+    @Test
+    public void testRecycledIndividualIsReused()
+    {
+        IndividualPool pool = new IndividualPool(4);
+        GAIndividual<Double> template = createIndividual(1., 2., 3.);
+        template.setFitness(0, 5.);
+
+        Individual cloned = pool.acquire(template);
+        assertNotSame(template, cloned);
+        assertEquals(1, pool.getNumAcquired());
+        assertEquals(0, pool.getNumReused());
+
+        Population pop = new Population(template);
+        cloned.setPopulation(pop);
+        cloned.setUserData("stale");
+        pool.recycle(cloned);
+        assertEquals(1, pool.size());
+        assertNull(cloned.getPopulation());
+        assertNull(cloned.getUserData());
+
+        GAIndividual<Double> other = createIndividual(4., 5., 6.);
+        other.setFitness(0, 7.);
+        Individual reused = pool.acquire(other);
+        assertSame(cloned, reused);
+        assertEquals(0, pool.size());
+        assertEquals(2, pool.getNumAcquired());
+        assertEquals(1, pool.getNumReused());
+
+        //  A deep copy of the template with an ID of its own.
+        assertEquals(0., reused.genotypeDistance(other), 0.);
+        assertEquals(7., reused.getFitness(0), 0.);
+        assertTrue(reused.getMyID() > other.getMyID());
+    }
+
+    @Test
+    public void testPoolIsBounded()
+    {
+        IndividualPool pool = new IndividualPool(2);
+        for (int i = 0; i < 5; i++)
+        {
+            pool.recycle(createIndividual(i));
+        }
+        pool.recycle(null);
+        assertEquals(2, pool.size());
+
+        pool.setMaxSize(1);
+        assertEquals(1, pool.size());
+
+        pool.clear();
+        assertEquals(0, pool.size());
+        assertEquals(0, pool.getNumAcquired());
+    }
+
+    @Test
+    public void testOtherClassesAreCloned()
+    {
+        IndividualPool pool = new IndividualPool(2);
+        GAIndividual<Double> recycled = new GAIndividual<Double>(2);
+        pool.recycle(recycled);
+
+        Individual ind = pool.acquire(createIndividual(1.));
+        assertNotSame(recycled, ind);
+        assertTrue(ind instanceof EvaluationCountingGAIndividual);
+        assertEquals(1, pool.size());
+        assertEquals(0, pool.getNumReused());
+    }
+
+    @Test
+    public void testEliteTrimmingRecyclesTheLosers()
+    {
+        Population pop = new Population(createIndividual(0.));
+        pop.setMaxPopulationSize(4);
+        pop.setMaxNumberOfElites(1);
+        for (int i = 0; i < 4; i++)
+        {
+            Individual ind = createIndividual(i);
+            ind.setFitness(i);
+            pop.addIndividual(ind);
+        }
+        IndividualPool pool = pop.getIndividualPool();
+
+        pop.processElites();
+        assertEquals(4, pop.getPopulationSize());
+        assertEquals(0, pool.size());
+
+        //  The returning elite pushes out the worst individual.
+        pop.processElites();
+        assertEquals(4, pop.getPopulationSize());
+        assertEquals(1, pool.size());
+
+        //  Which provides the storage for the next elite.
+        pop.processElites();
+        assertEquals(1, pool.getNumReused());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testNTNSGACompactionReusesTheLosers()
+    {
+        MultiObjectivePopulation pop =
+            new MultiObjectivePopulation(createIndividual(0., 0.));
+        pop.setMaxPopulationSize(12);
+        for (int i = 0; i < 12; i++)
+        {
+            EvaluationCountingGAIndividual<Double> ind =
+                createIndividual(i, i);
+            ind.setParetoRank(i);
+            ind.setFitness(0, i);
+            ind.setFitness(1, i);
+            ind.addTotalNumEvaluations(3);
+            pop.addIndividual(ind);
+        }
+
+        List<Individual> best = new ArrayList<Individual>(
+            pop.getIndividuals().subList(0, 6));
+        Map<Individual, Boolean> losers = new IdentityHashMap<Individual, Boolean>();
+        for (Individual ind : pop.getIndividuals().subList(6, 12))
+        {
+            losers.put(ind, true);
+        }
+
+        NTNSGABreeder breeder = new NTNSGABreeder(
+            new TournamentSelection(2, 1.), new UniformCrossover<Double>(),
+            new GaussianMutator());
+        breeder.breedNextGeneration(pop, null);
+
+        assertEquals(12, pop.getPopulationSize());
+        for (int i = 0; i < 6; i++)
+        {
+            assertSame(best.get(i), pop.getIndividual(i));
+        }
+
+        //  Every child took the place of a recycled loser.
+        for (int i = 6; i < 12; i++)
+        {
+            EvaluationCountingGAIndividual<?> child =
+                (EvaluationCountingGAIndividual<?>) pop.getIndividual(i);
+            assertTrue(losers.remove(child) != null);
+            assertSame(pop, child.getPopulation());
+            assertEquals(0, child.getTotalNumEvaluations());
+            assertEquals(0., child.getFitness(0), 0.);
+            assertEquals(2, child.getGenotypeSize());
+        }
+        assertTrue(losers.isEmpty());
+        assertEquals(6, pop.getIndividualPool().getNumReused());
+    }
+}
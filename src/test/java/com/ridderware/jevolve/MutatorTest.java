@@ -0,0 +1,163 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Tests that the loci chosen by Mutator.nextLocus are mutated at the
+ * individual's probability of mutation in both the dense and sparse modes.
+ *
+ * @author Jeff Ridder
+ */
+public class MutatorTest
+{
+    /**
+     * A mutator that only chooses loci.
+     */
+    private static class LocusCounter extends Mutator
+    {
+        public void mutate(Individual ind)
+        {
+        }
+
+        /**
+         * Adds one to the count of each locus chosen and returns the number
+         * chosen.
+         */
+        public int count(double prob_mutation, int[] counts)
+        {
+            int num_chosen = 0;
+            int last = -1;
+            for (int i = nextLocus(-1, prob_mutation, counts.length);
+                i < counts.length; i = nextLocus(i, prob_mutation, counts.length))
+            {
+                assertTrue(i > last);
+                last = i;
+                counts[i]++;
+                num_chosen++;
+            }
+            return num_chosen;
+        }
+    }
+
+    private static void checkRates(boolean sparse, double p)
+    {
+        LocusCounter counter = new LocusCounter();
+        counter.setSparse(sparse);
+
+        int size = 50;
+        int calls = 40000;
+        int[] counts = new int[size];
+        long total = 0;
+        for (int k = 0; k < calls; k++)
+        {
+            total += counter.count(p, counts);
+        }
+
+        //  Each locus is a binomial(calls, p) count; allow five deviations.
+        double mean = calls * p;
+        double tolerance = 5. * Math.sqrt(calls * p * (1. - p));
+        for (int i = 0; i < size; i++)
+        {
+            assertEquals("sparse " + sparse + " locus " + i, mean, counts[i],
+                tolerance);
+        }
+        assertEquals(size * mean, total, 5. * Math.sqrt(size * calls * p));
+    }
+
+    @Test
+    public void testDenseRates()
+    {
+        checkRates(false, 0.02);
+        checkRates(false, 0.3);
+    }
+
+    @Test
+    public void testSparseRates()
+    {
+        checkRates(true, 0.02);
+        checkRates(true, 0.3);
+        checkRates(true, 0.9);
+    }
+
+    @Test
+    public void testSparseLongGenotype()
+    {
+        LocusCounter counter = new LocusCounter();
+        counter.setSparse(true);
+
+        int[] counts = new int[100000];
+        int total = 0;
+        for (int k = 0; k < 20; k++)
+        {
+            total += counter.count(0.001, counts);
+        }
+        assertEquals(2000., total, 5. * Math.sqrt(2000.));
+    }
+
+    @Test
+    public void testExtremeProbabilities()
+    {
+        for (boolean sparse : new boolean[] {false, true})
+        {
+            LocusCounter counter = new LocusCounter();
+            counter.setSparse(sparse);
+
+            int[] counts = new int[10];
+            assertEquals(0, counter.count(0., counts));
+            assertEquals(10, counter.count(1., counts));
+            for (int c : counts)
+            {
+                assertEquals(1, c);
+            }
+            assertEquals(0, counter.count(0.5, new int[0]));
+        }
+    }
+
+    @Test
+    public void testSparseFlipMutation()
+    {
+        GAIndividual<Integer> ind = new GAIndividual<Integer>();
+        IntegerGAGene gene = new IntegerGAGene(1, 1000000, 1);
+        for (int i = 0; i < 10000; i++)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(0);
+        }
+        ind.setProbMutation(0.01);
+        ind.setEvaluated(true);
+
+        FlipMutator<Integer> mutator = new FlipMutator<Integer>();
+        mutator.setSparse(true);
+        mutator.mutate(ind);
+
+        int mutated = 0;
+        for (int i = 0; i < 10000; i++)
+        {
+            if (ind.getValue(i) != 0)
+            {
+                mutated++;
+            }
+        }
+        assertEquals(100., mutated, 50.);
+        assertFalse(ind.getEvaluated());
+    }
+}
@@ -0,0 +1,385 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests Pareto snapshots and their file format.
+ *
+ * @author Jeff Ridder
+ */
+public class ParetoSnapshotTest
+{
+    /**
+     * Checks that two snapshots hold the same columns.
+     */
+    static void assertSnapshotEquals(ParetoSnapshot expected,
+        ParetoSnapshot actual)
+    {
+        assertEquals(expected.getGeneration(), actual.getGeneration(), 0.);
+        assertEquals(expected.getNumIndividuals(), actual.getNumIndividuals());
+        assertEquals(expected.getNumObjectives(), actual.getNumObjectives());
+        assertEquals(expected.getGenotypeSize(), actual.getGenotypeSize());
+        assertArrayEquals(expected.getIDs(), actual.getIDs());
+        assertArrayEquals(expected.getParetoRanks(), actual.getParetoRanks());
+        assertArrayEquals(expected.getEvaluations(), actual.getEvaluations());
+        assertArrayEquals(expected.getConstraintErrors(),
+            actual.getConstraintErrors(), 0.);
+        for (int j = 0; j < expected.getNumObjectives(); j++)
+        {
+            assertArrayEquals(expected.getObjective(j), actual.getObjective(j),
+                0.);
+        }
+        for (int j = 0; j < expected.getGenotypeSize(); j++)
+        {
+            assertArrayEquals(expected.getGenotype(j), actual.getGenotype(j), 0.);
+        }
+    }
+
+    /**
+     * Returns the population of a short ZDT1 run.
+     */
+    private static Population createPopulation(int generations)
+    {
+        Stepper stepper = BreederTest.createMultiObjectiveRun(1, generations);
+        stepper.setSeed(17L);
+        stepper.evolve();
+        return stepper.getProblems().get(0).getPopulation(0);
+    }
+
+    private static File createFile()
+        throws IOException
+    {
+        File file = File.createTempFile("pareto", ParetoSnapshot.EXTENSION);
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void testSnapshotOfPopulation()
+    {
+        Population pop = createPopulation(3);
+        ParetoSnapshot snapshot = new ParetoSnapshot(pop);
+
+        assertEquals(pop.getProblem().getStepper().getCurrentGeneration(),
+            snapshot.getGeneration(), 0.);
+        assertEquals(pop.getPopulationSize(), snapshot.getNumIndividuals());
+        assertEquals(2, snapshot.getNumObjectives());
+        assertEquals(30, snapshot.getGenotypeSize());
+        assertNull(snapshot.getEvaluations());
+        for (int i = 0; i < pop.getPopulationSize(); i++)
+        {
+            GAIndividual<?> ind = (GAIndividual<?>) pop.getIndividual(i);
+            assertEquals(ind.getMyID(), snapshot.getIDs()[i]);
+            assertEquals(ind.getParetoRank(), snapshot.getParetoRanks()[i]);
+            assertEquals(ind.getFitness(1), snapshot.getObjective(1)[i], 0.);
+            assertEquals((Double) ind.getValue(29), snapshot.getGenotype(29)[i],
+                0.);
+        }
+    }
+
+    @Test
+    public void testFileRoundTrip()
+        throws IOException
+    {
+        ParetoSnapshot snapshot = new ParetoSnapshot(createPopulation(4));
+        File file = createFile();
+        snapshot.write(file);
+
+        assertEquals(snapshot.getEncodedSize(), file.length());
+        assertSnapshotEquals(snapshot, ParetoSnapshot.read(file));
+
+        SnapshotReader reader = SnapshotReader.open(file);
+        try
+        {
+            assertSnapshotEquals(snapshot, reader.toSnapshot());
+            double[] fitness = reader.getObjectives(5, null);
+            assertEquals(snapshot.getObjective(0)[5], fitness[0], 0.);
+            assertEquals(snapshot.getObjective(1)[5], fitness[1], 0.);
+            assertEquals(snapshot.getGenotype(7)[5], reader.getGene(5, 7), 0.);
+            assertEquals(snapshot.getIDs()[5], reader.getID(5));
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testClosedReaderCannotBeRead()
+        throws IOException
+    {
+        ParetoSnapshot snapshot = new ParetoSnapshot(createPopulation(4));
+        File file = createFile();
+        snapshot.write(file);
+
+        SnapshotReader reader = SnapshotReader.open(file);
+        DoubleBuffer column = reader.getObjectiveColumn(0);
+        reader.close();
+        reader.close();
+
+        //  The header was read when the file was opened, and views taken
+        //  before closing stay valid.
+        assertEquals(snapshot.getNumIndividuals(), reader.getNumIndividuals());
+        assertEquals(snapshot.getObjective(0)[3], column.get(3), 0.);
+        try
+        {
+            reader.getObjective(0, 0);
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException ex)
+        {
+        }
+        try
+        {
+            reader.getGenotypeColumn(0);
+            fail("expected IllegalStateException");
+        }
+        catch (IllegalStateException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testDecodeFromPosition()
+        throws IOException
+    {
+        ParetoSnapshot first = new ParetoSnapshot(createPopulation(1));
+        ParetoSnapshot second = new ParetoSnapshot(createPopulation(2));
+
+        ByteBuffer buffer = ByteBuffer.allocate(8 + first.getEncodedSize() +
+            second.getEncodedSize()).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(-1L);
+        first.encode(buffer);
+        second.encode(buffer);
+        buffer.flip();
+        buffer.position(8);
+
+        assertSnapshotEquals(first, ParetoSnapshot.decode(buffer));
+        assertSnapshotEquals(second, ParetoSnapshot.decode(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testEvaluationsAndOtherGenotypes()
+        throws IOException
+    {
+        Population pop = new Population(new GAIndividual<String>());
+        for (int i = 0; i < 5; i++)
+        {
+            EvaluationCountingGAIndividual<String> ind =
+                new EvaluationCountingGAIndividual<String>();
+            ind.getGenotype().add("gene" + i);
+            ind.setFitness(i);
+            ind.addTotalNumEvaluations(i + 1);
+            pop.getIndividuals().add(ind);
+        }
+
+        ParetoSnapshot snapshot = new ParetoSnapshot(pop);
+        assertEquals(-1., snapshot.getGeneration(), 0.);
+        assertEquals(0, snapshot.getGenotypeSize());
+        assertArrayEquals(new int[] {1, 2, 3, 4, 5}, snapshot.getEvaluations());
+
+        File file = createFile();
+        snapshot.write(file);
+        assertSnapshotEquals(snapshot, ParetoSnapshot.read(file));
+
+        SnapshotReader reader = SnapshotReader.open(file);
+        try
+        {
+            assertTrue(reader.hasEvaluations());
+            assertEquals(4, reader.getEvaluations(3));
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testEmptyPopulation()
+        throws IOException
+    {
+        ParetoSnapshot snapshot =
+            new ParetoSnapshot(new Population(new GAIndividual<Double>()));
+        assertEquals(0, snapshot.getNumIndividuals());
+        assertEquals(ParetoSnapshot.HEADER_SIZE, snapshot.getEncodedSize());
+
+        File file = createFile();
+        snapshot.write(file);
+        assertSnapshotEquals(snapshot, ParetoSnapshot.read(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedSnapshotIsRejected()
+        throws IOException
+    {
+        ByteBuffer buffer =
+            new ParetoSnapshot(createPopulation(1)).toByteBuffer();
+        buffer.limit(buffer.limit() - 8);
+        ParetoSnapshot.decode(buffer);
+    }
+
+    @Test
+    public void testListOrdersByGeneration()
+        throws IOException
+    {
+        File dir = createDirectory();
+        ParetoSnapshot snapshot =
+            new ParetoSnapshot(new Population(new GAIndividual<Double>()));
+        String[] names = {"pareto_10.0", "pareto_2.0", "pareto_final",
+            "pareto_9.5"};
+        for (String name : names)
+        {
+            File file = new File(dir, name + ParetoSnapshot.EXTENSION);
+            file.deleteOnExit();
+            snapshot.write(file);
+        }
+        File other = new File(dir, "pareto_1.0.txt");
+        assertTrue(other.createNewFile());
+        other.deleteOnExit();
+
+        List<File> files = SnapshotReader.list(dir);
+        assertEquals(4, files.size());
+        assertEquals("pareto_2.0.snapshot", files.get(0).getName());
+        assertEquals("pareto_9.5.snapshot", files.get(1).getName());
+        assertEquals("pareto_10.0.snapshot", files.get(2).getName());
+        assertEquals("pareto_final.snapshot", files.get(3).getName());
+    }
+
+    @Test
+    public void testProcessAllKeepsTheOrderOfTheFiles()
+        throws IOException
+    {
+        List<File> files = new ArrayList<File>();
+        for (int k = 0; k < 6; k++)
+        {
+            File file = createFile();
+            new ParetoSnapshot(createPopulation(k + 1)).write(file);
+            files.add(file);
+        }
+
+        final List<SnapshotReader> readers = Collections.
+            synchronizedList(new ArrayList<SnapshotReader>());
+        List<Double> generations = SnapshotReader.processAll(files, 3,
+            new SnapshotReader.Task<Double>()
+            {
+                public Double process(SnapshotReader snapshot)
+                {
+                    readers.add(snapshot);
+                    return snapshot.getGeneration();
+                }
+            });
+
+        for (int k = 0; k < 6; k++)
+        {
+            assertEquals(ParetoSnapshot.read(files.get(k)).getGeneration(),
+                generations.get(k), 0.);
+        }
+
+        //  The readers are closed once their tasks return.
+        assertEquals(6, readers.size());
+        for (SnapshotReader reader : readers)
+        {
+            try
+            {
+                reader.getID(0);
+                fail("expected IllegalStateException");
+            }
+            catch (IllegalStateException ex)
+            {
+            }
+        }
+    }
+
+    /**
+     * Runs two generations of ZDT1 with the specified statistics and returns
+     * the names of the files they wrote.
+     */
+    private static List<String> runWithStatistics(MOStatistics stats,
+        File dir)
+    {
+        Stepper stepper = BreederTest.createMultiObjectiveRun(1, 2);
+        stepper.setSeed(17L);
+        stepper.getProblems().get(0).setStatistics(stats);
+        stepper.evolve();
+
+        List<String> names = new ArrayList<String>();
+        for (File file : dir.listFiles())
+        {
+            file.deleteOnExit();
+            names.add(file.getName());
+        }
+        return names;
+    }
+
+    private static File createDirectory()
+        throws IOException
+    {
+        File dir = File.createTempFile("pareto", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    @Test
+    public void testTextOutputIsTheDefault()
+        throws IOException
+    {
+        File dir = createDirectory();
+        List<String> names = runWithStatistics(new MOStatistics(dir), dir);
+        assertTrue(names.contains("pareto_0.0.pareto"));
+        assertTrue(names.contains("main_0.0.state"));
+        for (String name : names)
+        {
+            assertFalse(name.endsWith(ParetoSnapshot.EXTENSION));
+        }
+    }
+
+    @Test
+    public void testBinarySnapshotsAreOptIn()
+        throws IOException
+    {
+        File dir = createDirectory();
+        MOStatistics stats = new MOStatistics(dir);
+        stats.setBinarySnapshots(true);
+        stats.setStateFiles(false);
+        List<String> names = runWithStatistics(stats, dir);
+        assertTrue(names.contains("pareto_0.0" + ParetoSnapshot.EXTENSION));
+        for (String name : names)
+        {
+            assertTrue(name, name.endsWith(ParetoSnapshot.EXTENSION));
+        }
+
+        ParetoSnapshot snapshot = ParetoSnapshot.read(
+            new File(dir, "pareto_2.0" + ParetoSnapshot.EXTENSION));
+        assertEquals(2., snapshot.getGeneration(), 0.);
+        assertEquals(100, snapshot.getNumIndividuals());
+    }
+}
@@ -0,0 +1,456 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the permutation crossovers against straightforward list-based versions
+ * of the same operators.  The order crossover reference is the list-based
+ * implementation the operator had before it moved onto int permutations.  The
+ * cut points are chosen by the test, so that the operators and the references
+ * cross at the same points.  Permutation individuals must cross to the same
+ * children as genotypes.
+ *
+ * @author Jeff Ridder
+ */
+public class PermutationCrossoverTest
+{
+    private final static int NUM_TRIALS = 300;
+
+    private static <E> GAIndividual<E> createIndividual(List<E> genotype)
+    {
+        GAIndividual<E> ind = new GAIndividual<E>();
+        ind.getGenotype().addAll(genotype);
+        ind.setProbRecombination(1.);
+        return ind;
+    }
+
+    private static List<Integer> shuffle(int n, Random random)
+    {
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++)
+        {
+            values.add(i);
+        }
+        Collections.shuffle(values, random);
+        return values;
+    }
+
+    private static List<String> names(List<Integer> values)
+    {
+        List<String> names = new ArrayList<String>();
+        for (int v : values)
+        {
+            names.add("city" + (7 * v + 3));
+        }
+        return names;
+    }
+
+    /**
+     * Chooses two distinct cut points in [0, n-2], in ascending order.
+     */
+    private static int[] chooseCutPoints(int n, Random random)
+    {
+        int cut1 = random.nextInt(n - 1);
+        int cut2 = cut1;
+        while (cut1 == cut2)
+        {
+            cut2 = random.nextInt(n - 1);
+        }
+        return new int[] {Math.min(cut1, cut2), Math.max(cut1, cut2)};
+    }
+
+    /**
+     * Returns the operator, crossing at the specified cut points.
+     */
+    private static PermutationCrossover<Object> create(String operator,
+        final int[] cuts)
+    {
+        if (operator.equals("order"))
+        {
+            return new OrderCrossover<Object>()
+            {
+                @Override
+                protected void chooseCutPoints(int n, Scratch s)
+                {
+                    s.cut1 = cuts[0];
+                    s.cut2 = cuts[1];
+                }
+            };
+        }
+        else if (operator.equals("pmx"))
+        {
+            return new PartiallyMappedCrossover<Object>()
+            {
+                @Override
+                protected void chooseCutPoints(int n, Scratch s)
+                {
+                    s.cut1 = cuts[0];
+                    s.cut2 = cuts[1];
+                }
+            };
+        }
+        else
+        {
+            return new CycleCrossover<Object>();
+        }
+    }
+
+    private static <E> List<List<E>> orderReference(List<E> dad, List<E> mom,
+        int[] cuts)
+    {
+        List<List<E>> children = new ArrayList<List<E>>();
+        children.add(orderChild(dad, mom, cuts[0], cuts[1]));
+        children.add(orderChild(mom, dad, cuts[0], cuts[1]));
+        return children;
+    }
+
+    /**
+     * Michalewicz, "Evolution Programs," p. 217.
+     */
+    private static <E> List<E> orderChild(List<E> keep, List<E> fill, int cut1,
+        int cut2)
+    {
+        int n = keep.size();
+        List<E> middle = keep.subList(cut1 + 1, cut2 + 1);
+
+        List<E> sequence = new ArrayList<E>();
+        sequence.addAll(fill.subList(cut2 + 1, n));
+        sequence.addAll(fill.subList(0, cut2 + 1));
+        sequence.removeAll(middle);
+
+        List<E> tail = new ArrayList<E>();
+        for (int i = cut2 + 1; i < n; i++)
+        {
+            tail.add(sequence.remove(0));
+        }
+
+        List<E> child = new ArrayList<E>(sequence);
+        child.addAll(middle);
+        child.addAll(tail);
+        return child;
+    }
+
+    private static <E> List<List<E>> pmxReference(List<E> dad, List<E> mom,
+        int[] cuts)
+    {
+        List<List<E>> children = new ArrayList<List<E>>();
+        children.add(pmxChild(dad, mom, cuts[0], cuts[1]));
+        children.add(pmxChild(mom, dad, cuts[0], cuts[1]));
+        return children;
+    }
+
+    private static <E> List<E> pmxChild(List<E> keep, List<E> fill, int cut1,
+        int cut2)
+    {
+        List<E> segment = keep.subList(cut1 + 1, cut2 + 1);
+        List<E> child = new ArrayList<E>();
+        for (int i = 0; i < keep.size(); i++)
+        {
+            if (i > cut1 && i <= cut2)
+            {
+                child.add(keep.get(i));
+            }
+            else
+            {
+                E v = fill.get(i);
+                while (segment.contains(v))
+                {
+                    v = fill.get(keep.indexOf(v));
+                }
+                child.add(v);
+            }
+        }
+        return child;
+    }
+
+    private static <E> List<List<E>> cycleReference(List<E> dad, List<E> mom)
+    {
+        int n = dad.size();
+        List<E> son = new ArrayList<E>(dad);
+        List<E> daughter = new ArrayList<E>(mom);
+        boolean[] visited = new boolean[n];
+        boolean from_dad = true;
+        for (int start = 0; start < n; start++)
+        {
+            if (visited[start])
+            {
+                continue;
+            }
+            int i = start;
+            do
+            {
+                visited[i] = true;
+                son.set(i, from_dad ? dad.get(i) : mom.get(i));
+                daughter.set(i, from_dad ? mom.get(i) : dad.get(i));
+                i = dad.indexOf(mom.get(i));
+            }
+            while (i != start);
+            from_dad = !from_dad;
+        }
+
+        List<List<E>> children = new ArrayList<List<E>>();
+        children.add(son);
+        children.add(daughter);
+        return children;
+    }
+
+    /**
+     * Crosses the parents with the operator.
+     */
+    private static <E> List<List<E>> cross(PermutationCrossover<E> crossover,
+        List<E> dad, List<E> mom)
+    {
+        GAIndividual<E> son = createIndividual(new ArrayList<E>());
+        GAIndividual<E> daughter = createIndividual(new ArrayList<E>());
+        crossover.recombine(createIndividual(dad), createIndividual(mom), son,
+            daughter);
+
+        List<List<E>> children = new ArrayList<List<E>>();
+        children.add(son.getGenotype());
+        children.add(daughter.getGenotype());
+        return children;
+    }
+
+    private static <E> void assertPermutation(List<E> expected, List<E> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new HashSet<E>(expected), new HashSet<E>(actual));
+    }
+
+    /**
+     * Checks the operator against the reference for integer and other
+     * genotypes.
+     */
+    private static void checkAgainstReference(String operator)
+    {
+        Random random = new Random(operator.hashCode());
+        for (int trial = 0; trial < NUM_TRIALS; trial++)
+        {
+            int n = 3 + random.nextInt(40);
+            List<Integer> dad = shuffle(n, random);
+            List<Integer> mom = shuffle(n, random);
+            int[] cuts = chooseCutPoints(n, random);
+            PermutationCrossover<Object> crossover = create(operator, cuts);
+
+            for (boolean named : new boolean[] {false, true})
+            {
+                List<Object> dad_values = new ArrayList<Object>(
+                    named ? names(dad) : dad);
+                List<Object> mom_values = new ArrayList<Object>(
+                    named ? names(mom) : mom);
+
+                List<List<Object>> expected;
+                if (operator.equals("order"))
+                {
+                    expected = orderReference(dad_values, mom_values, cuts);
+                }
+                else if (operator.equals("pmx"))
+                {
+                    expected = pmxReference(dad_values, mom_values, cuts);
+                }
+                else
+                {
+                    expected = cycleReference(dad_values, mom_values);
+                }
+
+                List<List<Object>> actual = cross(crossover, dad_values,
+                    mom_values);
+                String message = operator + " trial " + trial + " dad " +
+                    dad_values + " mom " + mom_values;
+                assertEquals(message, expected, actual);
+                assertPermutation(dad_values, actual.get(0));
+                assertPermutation(dad_values, actual.get(1));
+            }
+        }
+    }
+
+    @Test
+    public void testOrderCrossoverMatchesReference()
+    {
+        checkAgainstReference("order");
+    }
+
+    @Test
+    public void testPartiallyMappedCrossoverMatchesReference()
+    {
+        checkAgainstReference("pmx");
+    }
+
+    @Test
+    public void testCycleCrossoverMatchesReference()
+    {
+        checkAgainstReference("cycle");
+    }
+
+    @Test
+    public void testPermutationIndividualsMatchGenotypes()
+    {
+        Random random = new Random(3L);
+        for (String operator : new String[] {"order", "pmx", "cycle"})
+        {
+            for (int trial = 0; trial < 100; trial++)
+            {
+                int n = 3 + random.nextInt(30);
+                List<Integer> dad = shuffle(n, random);
+                List<Integer> mom = shuffle(n, random);
+                PermutationCrossover<Object> crossover =
+                    create(operator, chooseCutPoints(n, random));
+
+                List<List<Object>> expected = cross(crossover,
+                    new ArrayList<Object>(dad), new ArrayList<Object>(mom));
+
+                PermutationIndividual son = new PermutationIndividual(n);
+                PermutationIndividual daughter = new PermutationIndividual(n);
+                crossover.recombine(permutationOf(dad), permutationOf(mom),
+                    son, daughter);
+
+                String message = operator + " trial " + trial;
+                assertEquals(message, expected.get(0), toList(son.getOrder()));
+                assertEquals(message, expected.get(1),
+                    toList(daughter.getOrder()));
+                for (int i = 0; i < n; i++)
+                {
+                    assertEquals(i, son.getPosition(son.getValue(i)));
+                    assertEquals(i, daughter.getPosition(daughter.getValue(i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEdgeRecombinationOfPermutationIndividuals()
+    {
+        EdgeRecombinationCrossover<Integer> crossover =
+            new EdgeRecombinationCrossover<Integer>();
+        Random random = new Random(13L);
+        for (int trial = 0; trial < 100; trial++)
+        {
+            int n = 2 + random.nextInt(30);
+            List<Integer> dad = shuffle(n, random);
+            List<Integer> mom = shuffle(n, random);
+
+            PermutationIndividual son = new PermutationIndividual(n);
+            PermutationIndividual daughter = new PermutationIndividual(n);
+            crossover.recombine(permutationOf(dad), permutationOf(mom),
+                son, daughter);
+
+            assertPermutation(dad, toList(son.getOrder()));
+            assertPermutation(dad, toList(daughter.getOrder()));
+            assertEquals(dad.get(0), (Integer) son.getValue(0));
+            assertEquals(mom.get(0), (Integer) daughter.getValue(0));
+            for (int i = 0; i < n; i++)
+            {
+                assertEquals(i, son.getPosition(son.getValue(i)));
+            }
+        }
+    }
+
+    private static PermutationIndividual permutationOf(List<Integer> order)
+    {
+        PermutationIndividual ind = new PermutationIndividual(order.size());
+        ind.setOrder(toArray(order));
+        ind.setProbRecombination(1.);
+        return ind;
+    }
+
+    private static int[] toArray(List<Integer> values)
+    {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static List<Integer> toList(int[] array)
+    {
+        List<Integer> values = new ArrayList<Integer>();
+        for (int v : array)
+        {
+            values.add(v);
+        }
+        return values;
+    }
+
+    @Test
+    public void testEdgeRecombinationMakesValidTours()
+    {
+        EdgeRecombinationCrossover<Object> crossover =
+            new EdgeRecombinationCrossover<Object>();
+        Random random = new Random(11L);
+        for (int trial = 0; trial < NUM_TRIALS; trial++)
+        {
+            int n = 2 + random.nextInt(40);
+            List<Object> dad = new ArrayList<Object>(names(shuffle(n, random)));
+            List<Object> mom = new ArrayList<Object>(names(shuffle(n, random)));
+
+            List<List<Object>> children = cross(crossover, dad, mom);
+            assertPermutation(dad, children.get(0));
+            assertPermutation(dad, children.get(1));
+            assertEquals(dad.get(0), children.get(0).get(0));
+            assertEquals(mom.get(0), children.get(1).get(0));
+        }
+    }
+
+    @Test
+    public void testEdgeRecombinationOfEqualParentsKeepsTheTour()
+    {
+        EdgeRecombinationCrossover<Object> crossover =
+            new EdgeRecombinationCrossover<Object>();
+        Random random = new Random(5L);
+        for (int trial = 0; trial < 50; trial++)
+        {
+            int n = 3 + random.nextInt(40);
+            List<Object> tour = new ArrayList<Object>(shuffle(n, random));
+
+            //  With one tour to take edges from, every child is that tour
+            //  travelled in one direction or the other.
+            List<Object> child = cross(crossover, tour, tour).get(0);
+            for (int i = 0; i < n; i++)
+            {
+                int p = tour.indexOf(child.get(i));
+                int q = tour.indexOf(child.get((i + 1) % n));
+                int d = (q - p + n) % n;
+                assertTrue("trial " + trial, d == 1 || d == n - 1);
+            }
+        }
+    }
+
+    @Test
+    public void testParentsThatAreNotPermutationsAreCopied()
+    {
+        List<Object> dad = new ArrayList<Object>(shuffle(10, new Random(1L)));
+        List<Object> mom = new ArrayList<Object>(dad);
+        mom.set(3, mom.get(4));
+
+        List<List<Object>> children = cross(new OrderCrossover<Object>(), dad,
+            mom);
+        assertEquals(dad, children.get(0));
+        assertEquals(mom, children.get(1));
+    }
+}
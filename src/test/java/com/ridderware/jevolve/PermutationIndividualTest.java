@@ -0,0 +1,261 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the moves and the position index of permutation individuals against
+ * the same moves on a list.
+ *
+ * @author Jeff Ridder
+ */
+public class PermutationIndividualTest
+{
+    /**
+     * The move applied to a list of values.
+     */
+    private static void applyMove(List<Integer> values,
+        PermutationIndividual.Move move, int i, int j)
+    {
+        switch (move)
+        {
+            case SWAP:
+                Collections.swap(values, i, j);
+                break;
+            case INSERTION:
+                values.add(j, values.remove(i));
+                break;
+            case INVERSION:
+                Collections.reverse(
+                    values.subList(Math.min(i, j), Math.max(i, j) + 1));
+                break;
+            case TWO_OPT:
+                Collections.reverse(
+                    values.subList(Math.min(i, j) + 1, Math.max(i, j) + 1));
+                break;
+        }
+    }
+
+    private static void assertOrder(List<Integer> expected,
+        PermutationIndividual ind)
+    {
+        assertEquals(expected.size(), ind.getGenotypeSize());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals((int) expected.get(i), ind.getValue(i));
+            assertEquals(i, ind.getPosition(ind.getValue(i)));
+        }
+    }
+
+    @Test
+    public void testMovesMatchListMoves()
+    {
+        Random random = new Random(31L);
+        for (PermutationIndividual.Move move : PermutationIndividual.Move.values())
+        {
+            int n = 25;
+            PermutationIndividual ind = new PermutationIndividual(n);
+            List<Integer> expected = new ArrayList<Integer>();
+            for (int i = 0; i < n; i++)
+            {
+                expected.add(i);
+            }
+            assertOrder(expected, ind);
+
+            for (int k = 0; k < 500; k++)
+            {
+                int i = random.nextInt(n);
+                int j = random.nextInt(n);
+                ind.applyMove(move, i, j);
+                applyMove(expected, move, i, j);
+                assertOrder(expected, ind);
+            }
+        }
+    }
+
+    @Test
+    public void testNamedMoves()
+    {
+        PermutationIndividual ind = new PermutationIndividual(6);
+
+        ind.swap(0, 5);
+        assertOrder(list(5, 1, 2, 3, 4, 0), ind);
+
+        ind.insert(1, 4);
+        assertOrder(list(5, 2, 3, 4, 1, 0), ind);
+
+        ind.insert(4, 0);
+        assertOrder(list(1, 5, 2, 3, 4, 0), ind);
+
+        ind.invert(4, 1);
+        assertOrder(list(1, 4, 3, 2, 5, 0), ind);
+
+        ind.twoOpt(0, 3);
+        assertOrder(list(1, 2, 3, 4, 5, 0), ind);
+    }
+
+    private static List<Integer> list(Integer... values)
+    {
+        List<Integer> list = new ArrayList<Integer>();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+    @Test
+    public void testSetOrderAndInitialize()
+    {
+        PermutationIndividual ind = new PermutationIndividual(3);
+        ind.setEvaluated(true);
+        ind.setOrder(new int[] {4, 2, 0, 3, 1, 9, 9}, 5);
+        assertFalse(ind.getEvaluated());
+        assertOrder(list(4, 2, 0, 3, 1), ind);
+
+        ind.initialize();
+        boolean[] seen = new boolean[5];
+        for (int i = 0; i < 5; i++)
+        {
+            seen[ind.getValue(i)] = true;
+            assertEquals(i, ind.getPosition(ind.getValue(i)));
+        }
+        for (boolean s : seen)
+        {
+            assertTrue(s);
+        }
+
+        PermutationIndividual other = new PermutationIndividual(5);
+        other.setOrder(ind.getOrder());
+        assertTrue(other.genotypeEquals(ind));
+        assertEquals(other.getGenotypeHash(), ind.getGenotypeHash());
+    }
+
+    private static PermutationIndividual copyOf(int[] order)
+    {
+        PermutationIndividual ind = new PermutationIndividual(order.length);
+        ind.setOrder(order);
+        return ind;
+    }
+
+    @Test
+    public void testCopiesAreIndependent()
+    {
+        PermutationIndividual ind = copyOf(new int[] {2, 0, 1, 3});
+        PermutationIndividual copy = ind.clone();
+        copy.swap(0, 3);
+        assertOrder(list(2, 0, 1, 3), ind);
+        assertOrder(list(3, 0, 1, 2), copy);
+        assertEquals(2., ind.genotypeDistance(copy), 0.);
+
+        PermutationIndividual other = new PermutationIndividual(7);
+        other.deepCopy(copy);
+        assertOrder(list(3, 0, 1, 2), other);
+        other.invert(0, 3);
+        assertOrder(list(3, 0, 1, 2), copy);
+    }
+
+    @Test
+    public void testDeltaEvaluation()
+    {
+        //  Fitness is the sum of |value - position|, which the delta evaluator
+        //  computes by applying the move to a copy.
+        DeltaEvaluatorInterface evaluator = new DeltaEvaluatorInterface()
+        {
+            public double evaluateMove(PermutationIndividual ind,
+                PermutationIndividual.Move move, int i, int j)
+            {
+                PermutationIndividual moved = ind.clone();
+                moved.setDeltaEvaluator(null);
+                moved.applyMove(move, i, j);
+                return displacement(moved) - displacement(ind);
+            }
+
+            public void preevaluate(Population pop)
+            {
+            }
+
+            public void evaluateConstraints(Individual ind)
+            {
+            }
+
+            public void evaluateFitness(Individual ind)
+            {
+                ind.setFitness(displacement((PermutationIndividual) ind));
+            }
+
+            public void postevaluate(Population pop)
+            {
+            }
+        };
+
+        Random random = new Random(8L);
+        PermutationIndividual ind = new PermutationIndividual(20);
+        ind.setDeltaEvaluator(evaluator);
+        ind.initialize();
+        evaluator.evaluateFitness(ind);
+        ind.setEvaluated(true);
+
+        for (int k = 0; k < 200; k++)
+        {
+            PermutationIndividual.Move move = PermutationIndividual.Move.values()[
+                k % PermutationIndividual.Move.values().length];
+            ind.applyMove(move, random.nextInt(20), random.nextInt(20));
+            assertTrue(ind.getEvaluated());
+            assertEquals(displacement(ind), ind.getFitness(), 1e-9);
+        }
+
+        //  Without a delta evaluator, a move needs a full evaluation.
+        ind.setDeltaEvaluator(null);
+        ind.swap(0, 1);
+        assertFalse(ind.getEvaluated());
+    }
+
+    private static double displacement(PermutationIndividual ind)
+    {
+        double sum = 0.;
+        for (int i = 0; i < ind.getGenotypeSize(); i++)
+        {
+            sum += Math.abs(ind.getValue(i) - i);
+        }
+        return sum;
+    }
+
+    @Test
+    public void testMutatorMovesDistinctPositions()
+    {
+        PermutationMutator mutator =
+            new PermutationMutator(PermutationIndividual.Move.SWAP);
+        PermutationIndividual ind = new PermutationIndividual(10);
+        ind.setProbMutation(1.);
+        for (int k = 0; k < 100; k++)
+        {
+            PermutationIndividual before = ind.clone();
+            mutator.mutate(ind);
+            assertEquals(2., before.genotypeDistance(ind), 0.);
+            for (int i = 0; i < 10; i++)
+            {
+                assertEquals(i, ind.getPosition(ind.getValue(i)));
+            }
+        }
+    }
+}
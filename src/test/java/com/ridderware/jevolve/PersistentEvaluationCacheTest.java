@@ -0,0 +1,214 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Test;
+
+/**
+ * Tests the persistent evaluation cache.
+ *
+ * @author Jeff Ridder
+ */
+public class PersistentEvaluationCacheTest
+{
+    private static File createFile()
+        throws IOException
+    {
+        File file = File.createTempFile("evaluations", ".cache");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static GAIndividual<Double> createIndividual(double... genotype)
+    {
+        GAIndividual<Double> ind = new GAIndividual<Double>(2);
+        DoubleGAGene gene = new DoubleGAGene(-10., 10., 1.);
+        for (double value : genotype)
+        {
+            ind.getGenome().add(gene);
+            ind.getGenotype().add(value);
+        }
+        return ind;
+    }
+
+    private static GAIndividual<Double> createEvaluated(double... genotype)
+    {
+        GAIndividual<Double> ind = createIndividual(genotype);
+        ind.setFitness(0, genotype[0] + genotype[1]);
+        ind.setFitness(1, genotype[0] * genotype[1]);
+        ind.setConstraintError(genotype[2]);
+        ind.setSuccess(genotype[0] > 0.);
+        return ind;
+    }
+
+    private static void assertCached(PersistentEvaluationCache cache,
+        double... genotype)
+    {
+        GAIndividual<Double> expected = createEvaluated(genotype);
+        GAIndividual<Double> ind = createIndividual(genotype);
+        assertTrue(cache.lookup(ind));
+        assertEquals(expected.getFitness(0), ind.getFitness(0), 0.);
+        assertEquals(expected.getFitness(1), ind.getFitness(1), 0.);
+        assertEquals(expected.getConstraintError(), ind.getConstraintError(),
+            0.);
+        assertEquals(expected.getSuccess(), ind.getSuccess());
+    }
+
+    @Test
+    public void testResultsSurviveReopening()
+        throws IOException
+    {
+        File file = createFile();
+        PersistentEvaluationCache cache =
+            new PersistentEvaluationCache(file, 100, 3, 2);
+        for (int i = 0; i < 50; i++)
+        {
+            cache.store(createEvaluated(i - 25., i * 0.5, i / 7.));
+        }
+        assertEquals(50, cache.size());
+        cache.close();
+
+        PersistentEvaluationCache reopened =
+            new PersistentEvaluationCache(file, 100, 3, 2);
+        assertEquals(50, reopened.size());
+        for (int i = 0; i < 50; i++)
+        {
+            assertCached(reopened, i - 25., i * 0.5, i / 7.);
+        }
+        assertFalse(reopened.lookup(createIndividual(100., 0., 0.)));
+
+        reopened.store(createEvaluated(1., 2., 3.));
+        assertEquals(51, reopened.size());
+        reopened.close();
+
+        PersistentEvaluationCache read_only = new PersistentEvaluationCache(file);
+        assertTrue(read_only.getReadOnly());
+        assertEquals(51, read_only.size());
+        assertCached(read_only, 1., 2., 3.);
+        assertCached(read_only, -25., 0., 0.);
+
+        read_only.store(createEvaluated(4., 5., 6.));
+        assertEquals(51, read_only.size());
+        assertFalse(read_only.lookup(createIndividual(4., 5., 6.)));
+        read_only.close();
+    }
+
+    @Test
+    public void testStoringAgainReplacesResults()
+        throws IOException
+    {
+        File file = createFile();
+        PersistentEvaluationCache cache =
+            new PersistentEvaluationCache(file, 10, 3, 2);
+        GAIndividual<Double> ind = createEvaluated(1., 2., 3.);
+        cache.store(ind);
+        ind.setFitness(0, -1.);
+        cache.store(ind);
+        cache.close();
+
+        cache = new PersistentEvaluationCache(file);
+        assertEquals(1, cache.size());
+        GAIndividual<Double> found = createIndividual(1., 2., 3.);
+        assertTrue(cache.lookup(found));
+        assertEquals(-1., found.getFitness(0), 0.);
+        cache.close();
+    }
+
+    @Test
+    public void testMismatchedLayoutIsRejected()
+        throws IOException
+    {
+        File file = createFile();
+        new PersistentEvaluationCache(file, 10, 3, 2).close();
+
+        try
+        {
+            new PersistentEvaluationCache(file, 10, 4, 2);
+            fail("opened a cache of genotypes of size 3 for size 4");
+        }
+        catch (IOException e)
+        {
+            //  Expected.
+        }
+
+        //  The failed open released the file.
+        new PersistentEvaluationCache(file, 10, 3, 2).close();
+    }
+
+    @Test
+    public void testOnlyOneWriter()
+        throws IOException
+    {
+        File file = createFile();
+        PersistentEvaluationCache cache =
+            new PersistentEvaluationCache(file, 10, 3, 2);
+        try
+        {
+            new PersistentEvaluationCache(file, 10, 3, 2);
+            fail("opened a cache twice for writing");
+        }
+        catch (IOException e)
+        {
+            //  Expected.
+        }
+
+        cache.store(createEvaluated(1., 1., 1.));
+        cache.flush();
+        PersistentEvaluationCache reader = new PersistentEvaluationCache(file);
+        assertCached(reader, 1., 1., 1.);
+        reader.close();
+        cache.close();
+    }
+
+    @Test
+    public void testFullCacheStopsStoring()
+        throws IOException
+    {
+        PersistentEvaluationCache cache =
+            new PersistentEvaluationCache(createFile(), 4, 3, 2);
+        int capacity = cache.getCapacity();
+        for (int i = 0; i < capacity + 5; i++)
+        {
+            cache.store(createEvaluated(i, i, i));
+        }
+        assertEquals(capacity, cache.size());
+        assertCached(cache, 0., 0., 0.);
+        assertFalse(cache.lookup(createIndividual(capacity, capacity,
+            capacity)));
+        cache.close();
+    }
+
+    @Test
+    public void testOtherLayoutsAreNotCached()
+        throws IOException
+    {
+        PersistentEvaluationCache cache =
+            new PersistentEvaluationCache(createFile(), 10, 3, 2);
+        GAIndividual<Double> ind = createIndividual(1., 2.);
+        ind.setFitness(0, 1.);
+        ind.setFitness(1, 1.);
+        cache.store(ind);
+        assertEquals(0, cache.size());
+        assertFalse(cache.lookup(ind));
+        cache.close();
+    }
+}
@@ -0,0 +1,194 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the one-pass running statistics against two-pass results, and the
+ * statistics a population computes from them.
+ *
+ * @author Jeff Ridder
+ */
+public class PopulationStatisticsTest
+{
+    private static double twoPassVariance(double[] values)
+    {
+        double mean = 0.;
+        for (double value : values)
+        {
+            mean += value;
+        }
+        mean /= values.length;
+
+        double sum = 0.;
+        for (double value : values)
+        {
+            sum += (value - mean) * (value - mean);
+        }
+        return sum / (values.length - 1.);
+    }
+
+    @Test
+    public void testMatchesTwoPass()
+    {
+        Random random = new Random(44L);
+
+        //  The offset makes the naive sum-of-squares formula lose every digit.
+        for (double offset : new double[] {0., 1e9})
+        {
+            double[] values = new double[1000];
+            RunningStatistics stats = new RunningStatistics();
+            double sum = 0.;
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = offset + random.nextGaussian() * 3.;
+                stats.add(values[i], i);
+                sum += values[i];
+            }
+
+            double variance = twoPassVariance(values);
+            assertEquals(1000, stats.getCount());
+            assertEquals(sum / values.length, stats.getMean(),
+                1e-12 * Math.max(1., offset));
+            assertEquals(variance, stats.getVariance(), 1e-6 * variance);
+            assertEquals(Math.sqrt(variance), stats.getStandardDeviation(),
+                1e-6 * Math.sqrt(variance));
+        }
+    }
+
+    @Test
+    public void testExtremesAndDegenerateCases()
+    {
+        RunningStatistics stats = new RunningStatistics();
+        assertEquals(0, stats.getCount());
+        assertTrue(Double.isNaN(stats.getMean()));
+        assertTrue(Double.isNaN(stats.getVariance()));
+        assertEquals(-1, stats.getMinIndex());
+
+        stats.add(3., 10);
+        assertEquals(3., stats.getMean(), 0.);
+        assertEquals(0., stats.getStandardDeviation(), 0.);
+        assertEquals(10, stats.getMinIndex());
+        assertEquals(10, stats.getMaxIndex());
+
+        //  The first of equal extremes is kept.
+        double[] values = {5., 1., 7., 1., 7., 4.};
+        for (int i = 0; i < values.length; i++)
+        {
+            stats.add(values[i], i);
+        }
+        assertEquals(1., stats.getMin(), 0.);
+        assertEquals(7., stats.getMax(), 0.);
+        assertEquals(1, stats.getMinIndex());
+        assertEquals(2, stats.getMaxIndex());
+
+        stats.reset();
+        assertEquals(0, stats.getCount());
+        assertEquals(Double.POSITIVE_INFINITY, stats.getMin(), 0.);
+    }
+
+    private static Population createPopulation(double[] fitness,
+        double[] constraint_error)
+    {
+        GAIndividual<Double> template = new GAIndividual<Double>();
+        Population pop = new Population(template);
+        for (int i = 0; i < fitness.length; i++)
+        {
+            Individual ind = template.clone();
+            ind.setFitness(fitness[i]);
+            ind.setConstraintError(constraint_error[i]);
+            pop.addIndividual(ind);
+        }
+        return pop;
+    }
+
+    @Test
+    public void testPopulationStatistics()
+    {
+        Population pop = createPopulation(new double[] {4., 2., 9., 1., 6.},
+            new double[] {0., 0.5, 0., 2., 0.});
+
+        PopulationStatistics stats = pop.getPopulationStatistics();
+        assertEquals(5, stats.getPopulationSize());
+        assertEquals(1, stats.getNumObjectives());
+
+        RunningStatistics all = stats.getObjective(0);
+        assertEquals(1., all.getMin(), 0.);
+        assertEquals(3, all.getMinIndex());
+        assertEquals(9., all.getMax(), 0.);
+        assertEquals(4.4, all.getMean(), 1e-12);
+
+        //  Only individuals 0, 2 and 4 are feasible.
+        RunningStatistics feasible = stats.getFeasibleObjective(0);
+        assertEquals(3, feasible.getCount());
+        assertEquals(4., feasible.getMin(), 0.);
+        assertEquals(19. / 3., feasible.getMean(), 1e-12);
+        assertEquals(2., stats.getConstraintError().getMax(), 0.);
+
+        try
+        {
+            stats.getObjective(1);
+            fail("expected IndexOutOfBoundsException");
+        }
+        catch (IndexOutOfBoundsException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testStatisticsAreSharedUntilInvalidated()
+    {
+        Population pop = createPopulation(new double[] {1., 2., 3.},
+            new double[] {0., 0., 0.});
+
+        PopulationStatistics stats = pop.getPopulationStatistics();
+        assertSame(stats, pop.getPopulationStatistics());
+        assertEquals(2., stats.getObjective(0).getMean(), 0.);
+
+        //  Editing fitness directly needs an explicit invalidation.
+        pop.getIndividual(0).setFitness(7.);
+        pop.invalidateStatistics();
+        assertEquals(4., pop.getPopulationStatistics().getObjective(0).getMean(),
+            1e-12);
+
+        //  A change of size is picked up without one.
+        Individual ind = pop.getIndividual(0).clone();
+        ind.setFitness(8.);
+        pop.addIndividual(ind);
+        assertEquals(5., pop.getPopulationStatistics().getObjective(0).getMean(),
+            1e-12);
+    }
+
+    @Test
+    public void testStandardDeviationHelpers()
+    {
+        Population pop = createPopulation(new double[] {1., 3., 8.},
+            new double[] {0., 0., 0.});
+
+        double[] fitness = {1., 3., 8.};
+        double[] adjusted = {1. / 2., 1. / 4., 1. / 9.};
+        assertEquals(Math.sqrt(twoPassVariance(fitness)),
+            Statistics.getFitnessStndDev(pop.getIndividuals()), 1e-12);
+        assertEquals(Math.sqrt(twoPassVariance(adjusted)),
+            Statistics.getAdjFitnessStndDev(pop.getIndividuals()), 1e-12);
+    }
+}
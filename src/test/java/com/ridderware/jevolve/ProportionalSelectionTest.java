@@ -0,0 +1,257 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Tests the selection frequencies of the roulette wheel and stochastic
+ * universal sampling.
+ *
+ * @author Jeff Ridder
+ */
+public class ProportionalSelectionTest
+{
+    /**
+     * Weights of the test population, including a zero weight.
+     */
+    private final static double[] WEIGHTS = {1., 4., 0., 2., 8., 0.5, 3.5, 1.};
+
+    private final static double TOTAL = 20.;
+
+    /**
+     * Creates a population whose individual i has fitness WEIGHTS[i].
+     */
+    private static Population createPopulation(double[] weights)
+    {
+        GAIndividual<Double> template = new GAIndividual<Double>();
+        Population pop = new Population(template);
+        for (double weight : weights)
+        {
+            Individual ind = template.clone();
+            ind.setFitness(weight);
+            pop.addIndividual(ind);
+        }
+        return pop;
+    }
+
+    private static RouletteWheelSelection createRoulette()
+    {
+        return new RouletteWheelSelection()
+        {
+            @Override
+            protected double getWeight(Individual ind)
+            {
+                return ind.getFitness();
+            }
+        };
+    }
+
+    private static StochasticUniversalSampling createSUS()
+    {
+        return new StochasticUniversalSampling()
+        {
+            @Override
+            protected double getWeight(Individual ind)
+            {
+                return ind.getFitness();
+            }
+        };
+    }
+
+    private static Map<Individual, Integer> createIndex(Population pop)
+    {
+        Map<Individual, Integer> index = new IdentityHashMap<Individual, Integer>();
+        for (int i = 0; i < pop.getPopulationSize(); i++)
+        {
+            index.put(pop.getIndividual(i), i);
+        }
+        return index;
+    }
+
+    @Test
+    public void testRouletteFrequencies()
+    {
+        Population pop = createPopulation(WEIGHTS);
+        Map<Individual, Integer> index = createIndex(pop);
+        RouletteWheelSelection selector = createRoulette();
+
+        int trials = 200000;
+        int[] counts = new int[WEIGHTS.length];
+        for (int k = 0; k < trials; k++)
+        {
+            counts[index.get(selector.select(pop))]++;
+        }
+
+        for (int i = 0; i < WEIGHTS.length; i++)
+        {
+            double p = WEIGHTS[i] / TOTAL;
+            assertEquals("individual " + i, trials * p, counts[i],
+                5. * Math.sqrt(trials * p * (1. - p)));
+        }
+        assertEquals(0, counts[2]);
+    }
+
+    @Test
+    public void testRouletteLeavesThePopulationAlone()
+    {
+        Population pop = createPopulation(WEIGHTS);
+        Individual first = pop.getIndividual(0);
+        RouletteWheelSelection selector = createRoulette();
+        for (int k = 0; k < 100; k++)
+        {
+            selector.select(pop);
+        }
+        assertSame(first, pop.getIndividual(0));
+    }
+
+    @Test
+    public void testZeroWeightsAreSelectedUniformly()
+    {
+        Population pop = createPopulation(new double[] {0., 0., 0., 0.});
+        Map<Individual, Integer> index = createIndex(pop);
+        RouletteWheelSelection selector = createRoulette();
+
+        int[] counts = new int[4];
+        for (int k = 0; k < 40000; k++)
+        {
+            counts[index.get(selector.select(pop))]++;
+        }
+        for (int count : counts)
+        {
+            assertEquals(10000., count, 5. * Math.sqrt(7500.));
+        }
+    }
+
+    @Test
+    public void testSUSCountsAreWithinOneOfExpected()
+    {
+        Population pop = createPopulation(WEIGHTS);
+        Map<Individual, Integer> index = createIndex(pop);
+        StochasticUniversalSampling selector = createSUS();
+
+        //  A single spin for many individuals.
+        int n = 40;
+        Individual[] out = new Individual[n];
+        for (int trial = 0; trial < 100; trial++)
+        {
+            selector.selectMany(pop, n, out);
+            int[] counts = new int[WEIGHTS.length];
+            for (Individual ind : out)
+            {
+                counts[index.get(ind)]++;
+            }
+            for (int i = 0; i < WEIGHTS.length; i++)
+            {
+                double expected = n * WEIGHTS[i] / TOTAL;
+                assertTrue(counts[i] >= Math.floor(expected) &&
+                    counts[i] <= Math.ceil(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testSUSPassesAreWithinOneOfExpected()
+    {
+        Population pop = createPopulation(WEIGHTS);
+        Map<Individual, Integer> index = createIndex(pop);
+        StochasticUniversalSampling selector = createSUS();
+
+        //  Pairs drawn as the breeders draw them use up one pass every
+        //  four pairs.
+        Individual[] parents = new Individual[2];
+        for (int trial = 0; trial < 100; trial++)
+        {
+            int[] counts = new int[WEIGHTS.length];
+            for (int pair = 0; pair < WEIGHTS.length / 2; pair++)
+            {
+                selector.selectMany(pop, 2, parents);
+                counts[index.get(parents[0])]++;
+                counts[index.get(parents[1])]++;
+            }
+            for (int i = 0; i < WEIGHTS.length; i++)
+            {
+                double expected = WEIGHTS.length * WEIGHTS[i] / TOTAL;
+                assertTrue(counts[i] >= Math.floor(expected) &&
+                    counts[i] <= Math.ceil(expected));
+            }
+        }
+    }
+
+    /**
+     * Returns the indexes selected by n calls of select from a stream with
+     * the specified seed.
+     */
+    private static String selectSeeded(StochasticUniversalSampling selector,
+        Population pop, long seed, int n)
+    {
+        Map<Individual, Integer> index = createIndex(pop);
+        StringBuilder selected = new StringBuilder();
+        RandomSource.setCurrent(RandomSource.create(seed));
+        try
+        {
+            for (int k = 0; k < n; k++)
+            {
+                selected.append(index.get(selector.select(pop))).append(' ');
+            }
+        }
+        finally
+        {
+            RandomSource.setCurrent(null);
+        }
+        return selected.toString();
+    }
+
+    @Test
+    public void testNewStreamStartsANewPass()
+    {
+        Population pop = createPopulation(WEIGHTS);
+        StochasticUniversalSampling selector = createSUS();
+
+        //  A pass left part way through by one stream does not carry over to
+        //  the next, so each stream's selections depend only on its seed.
+        String expected = selectSeeded(createSUS(), pop, 3L, 5);
+        selectSeeded(selector, pop, 4L, 3);
+        assertEquals(expected, selectSeeded(selector, pop, 3L, 5));
+        assertEquals(expected, selectSeeded(selector, pop, 3L, 5));
+    }
+
+    @Test
+    public void testNewWheelStartsANewPass()
+    {
+        Population pop = createPopulation(WEIGHTS);
+        Map<Individual, Integer> index = createIndex(pop);
+        StochasticUniversalSampling selector = createSUS();
+        selector.select(pop);
+
+        //  Once the weights change, the rest of the old pass is discarded.
+        for (int i = 0; i < pop.getPopulationSize(); i++)
+        {
+            pop.getIndividual(i).setFitness(i == 5 ? 1. : 0.);
+        }
+        selector.reset();
+        for (int k = 0; k < 20; k++)
+        {
+            assertEquals(5, (int) index.get(selector.select(pop)));
+        }
+    }
+}
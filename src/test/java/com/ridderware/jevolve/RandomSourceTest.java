@@ -0,0 +1,260 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+/**
+ * Tests the distributions, repeatability and state of seeded random streams.
+ *
+ * @author Jeff Ridder
+ */
+public class RandomSourceTest
+{
+    @Test
+    public void testGaussianMoments()
+    {
+        RandomSource rng = RandomSource.create(42L);
+        int n = 2000000;
+        double sum = 0.;
+        double sum2 = 0.;
+        double sum4 = 0.;
+        int beyond2 = 0;
+        int beyond3 = 0;
+        for (int k = 0; k < n; k++)
+        {
+            double z = rng.nextGaussian();
+            sum += z;
+            sum2 += z * z;
+            sum4 += z * z * z * z;
+            if (Math.abs(z) > 2.)
+            {
+                beyond2++;
+            }
+            if (Math.abs(z) > 3.5)
+            {
+                beyond3++;
+            }
+        }
+
+        assertEquals(0., sum / n, 5. / Math.sqrt(n));
+        assertEquals(1., sum2 / n, 5. * Math.sqrt(2. / n));
+        assertEquals(3., sum4 / n, 5. * Math.sqrt(96. / n));
+
+        //  P(|z| > 2) = 0.0455003 and P(|z| > 3.5) = 4.65e-4, the latter
+        //  from the tail of the ziggurat.
+        assertEquals(0.0455003 * n, beyond2, 5. * Math.sqrt(0.0455003 * n));
+        assertEquals(4.6525e-4 * n, beyond3, 5. * Math.sqrt(4.6525e-4 * n));
+    }
+
+    @Test
+    public void testUniforms()
+    {
+        RandomSource rng = RandomSource.create(43L);
+        int n = 1000000;
+        int[] bins = new int[10];
+        double sum = 0.;
+        for (int k = 0; k < n; k++)
+        {
+            double u = rng.nextDouble();
+            assertTrue(u >= 0. && u < 1.);
+            bins[(int) (u * 10.)]++;
+            sum += u;
+
+            float f = rng.nextFloat();
+            assertTrue(f >= 0.f && f < 1.f);
+        }
+        assertEquals(0.5, sum / n, 5. * Math.sqrt(1. / (12. * n)));
+        for (int bin : bins)
+        {
+            assertEquals(n / 10., bin, 5. * Math.sqrt(n * 0.09));
+        }
+    }
+
+    @Test
+    public void testFillMatchesSingleDraws()
+    {
+        double[] filled = new double[1000];
+        RandomSource.create(7L).fillGaussian(filled, 0, filled.length);
+        RandomSource rng = RandomSource.create(7L);
+        for (int i = 0; i < filled.length; i++)
+        {
+            assertEquals(filled[i], rng.nextGaussian(), 0.);
+        }
+
+        RandomSource.create(7L).fillUniform(filled, 0, filled.length);
+        rng = RandomSource.create(7L);
+        for (int i = 0; i < filled.length; i++)
+        {
+            assertEquals(filled[i], rng.nextDouble(), 0.);
+        }
+    }
+
+    @Test
+    public void testFillLeavesTheRestOfTheArray()
+    {
+        double[] values = new double[10];
+        Arrays.fill(values, 5.);
+        RandomSource.create(8L).fillGaussian(values, 3, 4);
+        RandomSource.current().fillUniform(values, 7, 1);
+        for (int i : new int[] {0, 1, 2, 8, 9})
+        {
+            assertEquals(5., values[i], 0.);
+        }
+        assertTrue(values[7] < 1.);
+    }
+
+    @Test
+    public void testStreamsAreRepeatableAndDistinct()
+    {
+        double[] first = new double[300];
+        double[] again = new double[300];
+        double[] other = new double[300];
+        RandomSource.create(9L, 3L).fillGaussian(first, 0, 300);
+        RandomSource.create(9L, 3L).fillGaussian(again, 0, 300);
+        RandomSource.create(9L, 4L).fillGaussian(other, 0, 300);
+        assertArrayEquals(first, again, 0.);
+        assertFalse(Arrays.equals(first, other));
+
+        assertTrue(RandomSource.create(9L).isSeeded());
+        assertFalse(RandomSource.current().isSeeded());
+    }
+
+    /**
+     * Draws a mix of deviates, so that both blocks and the generator advance.
+     */
+    private static String draw(RandomSource random, int n)
+    {
+        StringBuilder draws = new StringBuilder();
+        for (int i = 0; i < n; i++)
+        {
+            switch (i % 5)
+            {
+                case 0:
+                    draws.append(random.nextDouble());
+                    break;
+                case 1:
+                    draws.append(random.nextGaussian());
+                    break;
+                case 2:
+                    draws.append(random.nextInt(1 + i));
+                    break;
+                case 3:
+                    draws.append(random.nextLong());
+                    break;
+                default:
+                    draws.append(random.nextFloat());
+                    break;
+            }
+            draws.append(' ');
+        }
+        return draws.toString();
+    }
+
+    @Test
+    public void testSeededStreamMatchesSplittableRandom()
+    {
+        for (long seed : new long[] {0L, 1L, -5L, 123456789L})
+        {
+            RandomSource random = RandomSource.create(seed);
+            SplittableRandom expected = new SplittableRandom(seed);
+            for (int i = 0; i < 1000; i++)
+            {
+                assertEquals(expected.nextLong(), random.nextLong());
+                int bound = 1 + (i * 7919) % 1000003;
+                assertEquals(expected.nextInt(bound), random.nextInt(bound));
+            }
+
+            RandomSource split = random.split();
+            SplittableRandom expected_split = expected.split();
+            for (int i = 0; i < 1000; i++)
+            {
+                assertEquals(expected_split.nextLong(), split.nextLong());
+            }
+
+            //  Uniform deviates are generated in blocks from the same
+            //  sequence.
+            for (int i = 0; i < 600; i++)
+            {
+                assertEquals(expected_split.nextDouble(), split.nextDouble(), 0.);
+            }
+        }
+    }
+
+    @Test
+    public void testStateContinuesTheStream()
+        throws IOException
+    {
+        RandomSource random = RandomSource.create(99L);
+        draw(random, 777);
+
+        byte[] state = random.getState();
+        assertArrayEquals(state, random.getState());
+
+        RandomSource restored = RandomSource.fromState(state);
+        assertTrue(restored.isSeeded());
+        assertEquals(draw(random, 3000), draw(restored, 3000));
+    }
+
+    @Test
+    public void testReadingStateDoesNotChangeTheStream()
+    {
+        RandomSource observed = RandomSource.create(5L);
+        RandomSource unobserved = RandomSource.create(5L);
+
+        StringBuilder a = new StringBuilder();
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 50; i++)
+        {
+            observed.getState();
+            a.append(draw(observed, 37));
+            b.append(draw(unobserved, 37));
+        }
+        assertEquals(b.toString(), a.toString());
+    }
+
+    @Test
+    public void testGlobalSourceHasNoState()
+    {
+        RandomSource previous = RandomSource.setCurrent(null);
+        try
+        {
+            assertFalse(RandomSource.current().isSeeded());
+            assertNull(RandomSource.current().getState());
+        }
+        finally
+        {
+            RandomSource.setCurrent(previous);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testBadStateIsRejected()
+        throws IOException
+    {
+        byte[] state = RandomSource.create(1L).getState();
+        byte[] truncated = new byte[state.length - 3];
+        System.arraycopy(state, 0, truncated, 0, truncated.length);
+        RandomSource.fromState(truncated);
+    }
+}
@@ -0,0 +1,340 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests writing run archives and reading them back by generation and in
+ * order.
+ *
+ * @author Jeff Ridder
+ */
+public class RunArchiveTest
+{
+    private final static int NUM_GENERATIONS = 20;
+
+    private static File createFile()
+        throws IOException
+    {
+        File file = File.createTempFile("run", RunArchiveWriter.EXTENSION);
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Steps a ZDT1 run, appending a snapshot of every generation to the writer,
+     * and returns the snapshots.  The sizes of the archive after each snapshot
+     * are added to sizes.
+     */
+    private static List<ParetoSnapshot> writeRun(RunArchiveWriter writer,
+        List<Long> sizes)
+        throws IOException
+    {
+        Stepper stepper =
+            BreederTest.createMultiObjectiveRun(1, NUM_GENERATIONS);
+        stepper.setSeed(21L);
+        stepper.initialize();
+        Population pop = stepper.getProblems().get(0).getPopulation(0);
+
+        List<ParetoSnapshot> snapshots = new ArrayList<ParetoSnapshot>();
+        for (int g = 0; g < NUM_GENERATIONS; g++)
+        {
+            stepper.step();
+            stepper.setCurrentGeneration(g + 1.);
+
+            ParetoSnapshot snapshot = new ParetoSnapshot(pop);
+            snapshots.add(snapshot);
+            writer.append(snapshot);
+            sizes.add(writer.getSize());
+        }
+        return snapshots;
+    }
+
+    @Test
+    public void testSeekByGeneration()
+        throws IOException
+    {
+        File file = createFile();
+        RunArchiveWriter writer = new RunArchiveWriter(file);
+        writer.setKeyframeInterval(3);
+        List<ParetoSnapshot> snapshots =
+            writeRun(writer, new ArrayList<Long>());
+        assertEquals(NUM_GENERATIONS, writer.getNumGenerations());
+        writer.close();
+        assertTrue(file.length() < writer.getRawSize());
+
+        RunArchiveReader reader = RunArchiveReader.open(file);
+        try
+        {
+            assertEquals(NUM_GENERATIONS, reader.getNumGenerations());
+            assertEquals(-1, reader.find(0.));
+            assertEquals(-1, reader.find(NUM_GENERATIONS + 1.));
+
+            //  Out of order, so that blocks are read after other keyframes.
+            for (int k = 0; k < NUM_GENERATIONS; k++)
+            {
+                int g = 1 + (7 * k) % NUM_GENERATIONS;
+                int index = reader.find(g);
+                assertEquals(g - 1, index);
+                assertEquals(g, reader.getGeneration(index), 0.);
+
+                ParetoSnapshot expected = snapshots.get(index);
+                assertEquals(expected.getNumIndividuals(),
+                    reader.getNumIndividuals(index));
+                ParetoSnapshotTest.assertSnapshotEquals(expected,
+                    reader.read(index).toSnapshot());
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testStreamingScan()
+        throws IOException
+    {
+        File file = createFile();
+        RunArchiveWriter writer = new RunArchiveWriter(file);
+        List<ParetoSnapshot> snapshots =
+            writeRun(writer, new ArrayList<Long>());
+        writer.close();
+
+        RunArchiveStream stream = new RunArchiveStream(file);
+        try
+        {
+            for (ParetoSnapshot expected : snapshots)
+            {
+                SnapshotReader snapshot = stream.next();
+                assertNotNull(snapshot);
+                ParetoSnapshotTest.assertSnapshotEquals(expected,
+                    snapshot.toSnapshot());
+            }
+            assertNull(stream.next());
+            assertNull(stream.next());
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void testProcessAll()
+        throws IOException
+    {
+        File file = createFile();
+        RunArchiveWriter writer = new RunArchiveWriter(file);
+        List<ParetoSnapshot> snapshots =
+            writeRun(writer, new ArrayList<Long>());
+        writer.close();
+
+        RunArchiveReader reader = RunArchiveReader.open(file);
+        try
+        {
+            List<Double> best = reader.processAll(4,
+                new SnapshotReader.Task<Double>()
+                {
+                    public Double process(SnapshotReader snapshot)
+                    {
+                        double min = Double.POSITIVE_INFINITY;
+                        for (int i = 0; i < snapshot.getNumIndividuals(); i++)
+                        {
+                            min = Math.min(min, snapshot.getObjective(i, 0));
+                        }
+                        return min;
+                    }
+                });
+
+            assertEquals(NUM_GENERATIONS, best.size());
+            for (int g = 0; g < NUM_GENERATIONS; g++)
+            {
+                double min = Double.POSITIVE_INFINITY;
+                for (double f : snapshots.get(g).getObjective(0))
+                {
+                    min = Math.min(min, f);
+                }
+                assertEquals(min, best.get(g), 0.);
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testTornLastBlockIsDiscarded()
+        throws IOException
+    {
+        File file = createFile();
+        RunArchiveWriter writer = new RunArchiveWriter(file);
+        List<Long> sizes = new ArrayList<Long>();
+        List<ParetoSnapshot> snapshots = writeRun(writer, sizes);
+        writer.close();
+
+        //  A crash in the middle of writing the last block, before the index.
+        long start = sizes.get(NUM_GENERATIONS - 2);
+        long end = sizes.get(NUM_GENERATIONS - 1);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            raf.setLength(start + (end - start) / 2);
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        RunArchiveReader reader = RunArchiveReader.open(file);
+        try
+        {
+            assertEquals(NUM_GENERATIONS - 1, reader.getNumGenerations());
+            assertEquals(-1, reader.find(NUM_GENERATIONS));
+            int index = reader.find(NUM_GENERATIONS - 1);
+            ParetoSnapshotTest.assertSnapshotEquals(snapshots.get(index),
+                reader.read(index).toSnapshot());
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        RunArchiveStream stream = new RunArchiveStream(file);
+        try
+        {
+            for (int g = 0; g < NUM_GENERATIONS - 1; g++)
+            {
+                ParetoSnapshotTest.assertSnapshotEquals(snapshots.get(g),
+                    stream.next().toSnapshot());
+            }
+            assertNull(stream.next());
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void testCorruptBlockIsRejected()
+        throws IOException
+    {
+        File file = createFile();
+        RunArchiveWriter writer = new RunArchiveWriter(file);
+        List<Long> sizes = new ArrayList<Long>();
+        writeRun(writer, sizes);
+        writer.close();
+
+        //  Flip a byte in the compressed data of the third block.
+        long start = sizes.get(1) + RunArchiveWriter.BLOCK_HEADER_SIZE;
+        long position = start + (sizes.get(2) - start) / 2;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0x10);
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        RunArchiveReader reader = RunArchiveReader.open(file);
+        try
+        {
+            reader.read(1);
+            try
+            {
+                reader.read(2);
+                fail("corrupt block was read");
+            }
+            catch (IOException e)
+            {
+                //  Expected.
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testStatisticsAppendToTheArchive()
+        throws IOException
+    {
+        File dir = File.createTempFile("pareto", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        dir.deleteOnExit();
+
+        //  The archive takes the place of the text Pareto files.
+        File file = createFile();
+        RunArchiveWriter writer = new RunArchiveWriter(file);
+        MOStatistics stats = new MOStatistics(dir);
+        stats.setPeriod(2.);
+        stats.setStateFiles(false);
+        stats.setRunArchive(writer);
+
+        Stepper stepper = BreederTest.createMultiObjectiveRun(1, 6);
+        stepper.setSeed(13L);
+        stepper.getProblems().get(0).setStatistics(stats);
+        stepper.evolve();
+        writer.close();
+
+        for (File other : dir.listFiles())
+        {
+            other.deleteOnExit();
+            assertFalse(other.getName(), other.getName().startsWith("pareto_"));
+        }
+
+        RunArchiveReader reader = RunArchiveReader.open(file);
+        try
+        {
+            assertArrayEquals(new double[] {0., 2., 4., 6.},
+                reader.getGenerations(), 0.);
+            Population pop = stepper.getProblems().get(0).getPopulation(0);
+            assertEquals(pop.getPopulationSize(), reader.getNumIndividuals(3));
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testClosedWriterRejectsSnapshots()
+        throws IOException
+    {
+        RunArchiveWriter writer = new RunArchiveWriter(createFile());
+        writer.close();
+        writer.append(
+            new ParetoSnapshot(new Population(new GAIndividual<Double>())));
+    }
+}
@@ -0,0 +1,231 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests index sampling and the tournament selectors.
+ *
+ * @author Jeff Ridder
+ */
+public class SelectorTest
+{
+    /**
+     * A selector that exposes its index sampling.
+     */
+    private static class Sampler extends Selector
+    {
+        public Individual select(Population pop)
+        {
+            return null;
+        }
+
+        public int[] sample(int n, int k)
+        {
+            return sampleIndexes(n, k);
+        }
+    }
+
+    /**
+     * Creates a population whose individual i has fitness i and constraint
+     * error 0.
+     */
+    private static Population createPopulation(int size)
+    {
+        GAIndividual<Double> template = new GAIndividual<Double>();
+        Population pop = new Population(template);
+        for (int i = 0; i < size; i++)
+        {
+            Individual ind = template.clone();
+            ind.setFitness(i);
+            pop.addIndividual(ind);
+        }
+        return pop;
+    }
+
+    private static List<Selector> createTournaments(int size)
+    {
+        List<Selector> selectors = new ArrayList<Selector>();
+        selectors.add(new TournamentSelection(size, 1.));
+        selectors.add(new ConstrainedTournamentSelection(size, 1.));
+        selectors.add(new CascadingTournamentSelection(size, 1.));
+        return selectors;
+    }
+
+    @Test
+    public void testSampleIndexesAreDistinct()
+    {
+        Sampler sampler = new Sampler();
+        int[] counts = new int[20];
+        for (int trial = 0; trial < 20000; trial++)
+        {
+            int k = 1 + trial % 20;
+            int[] indexes = sampler.sample(20, k);
+            assertEquals(20, indexes.length);
+
+            boolean[] seen = new boolean[20];
+            for (int i = 0; i < k; i++)
+            {
+                assertFalse(seen[indexes[i]]);
+                seen[indexes[i]] = true;
+            }
+            counts[indexes[0]]++;
+        }
+
+        //  The first index is uniform over the population.
+        for (int count : counts)
+        {
+            assertEquals(1000., count, 5. * Math.sqrt(1000.));
+        }
+
+        //  A new size resets the buffer.
+        int[] indexes = sampler.sample(3, 3);
+        assertEquals(3, indexes.length);
+        assertEquals(3, indexes[0] + indexes[1] + indexes[2]);
+    }
+
+    private static String sampleSeeded(Sampler sampler, long seed)
+    {
+        StringBuilder sample = new StringBuilder();
+        RandomSource.setCurrent(RandomSource.create(seed));
+        try
+        {
+            for (int trial = 0; trial < 5; trial++)
+            {
+                int[] indexes = sampler.sample(10, 4);
+                for (int i = 0; i < 4; i++)
+                {
+                    sample.append(indexes[i]).append(' ');
+                }
+            }
+        }
+        finally
+        {
+            RandomSource.setCurrent(null);
+        }
+        return sample.toString();
+    }
+
+    @Test
+    public void testNewStreamResetsTheBuffer()
+    {
+        //  The samples of a seeded stream do not depend on what the thread
+        //  drew from another stream before it.
+        Sampler sampler = new Sampler();
+        String expected = sampleSeeded(new Sampler(), 9L);
+        sampler.sample(10, 7);
+        sampleSeeded(sampler, 10L);
+        assertEquals(expected, sampleSeeded(sampler, 9L));
+        assertEquals(expected, sampleSeeded(sampler, 9L));
+    }
+
+    @Test
+    public void testSelectManyPlaysDisjointTournaments()
+    {
+        Population pop = createPopulation(8);
+        for (Selector selector : createTournaments(2))
+        {
+            Individual[] out = new Individual[4];
+            for (int trial = 0; trial < 200; trial++)
+            {
+                selector.selectMany(pop, 4, out);
+
+                //  Every individual plays once, so the four winners are
+                //  distinct.
+                IdentityHashMap<Individual, Boolean> winners =
+                    new IdentityHashMap<Individual, Boolean>();
+                for (Individual ind : out)
+                {
+                    assertNotNull(ind);
+                    winners.put(ind, true);
+                }
+                assertEquals(selector.getClass().getSimpleName(), 4,
+                    winners.size());
+            }
+        }
+    }
+
+    @Test
+    public void testSelectManyFallsBackToSelect()
+    {
+        //  Too few individuals for disjoint tournaments.
+        Population pop = createPopulation(3);
+        for (Selector selector : createTournaments(2))
+        {
+            Individual[] out = new Individual[3];
+            selector.selectMany(pop, 3, out);
+            for (Individual ind : out)
+            {
+                assertTrue(pop.getIndividuals().contains(ind));
+                assertTrue(ind.getFitness() < 2.);
+            }
+        }
+    }
+
+    @Test
+    public void testWinnersMatchTheTournamentDistribution()
+    {
+        //  With k = 1 a binary tournament picks the fitter of two distinct
+        //  players, so the individual of fitness r wins with probability
+        //  2 (N - 1 - r) / (N (N - 1)).
+        int size = 10;
+        Population pop = createPopulation(size);
+        for (Selector selector : createTournaments(2))
+        {
+            int[] single = new int[size];
+            int[] batched = new int[size];
+            Individual[] out = new Individual[2];
+            int trials = 20000;
+            for (int trial = 0; trial < trials; trial++)
+            {
+                single[(int) selector.select(pop).getFitness()]++;
+                selector.selectMany(pop, 2, out);
+                batched[(int) out[0].getFitness()]++;
+                batched[(int) out[1].getFitness()]++;
+            }
+
+            for (int r = 0; r < size; r++)
+            {
+                double p = 2. * (size - 1 - r) / (size * (size - 1));
+                double tolerance = 5. * Math.sqrt(trials * p * (1. - p)) + 1.;
+                assertEquals(trials * p, single[r], tolerance);
+                assertEquals(2 * trials * p, batched[r], 1.5 * tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void testLargeTournamentPicksTheBest()
+    {
+        Population pop = createPopulation(6);
+        for (Selector selector : createTournaments(10))
+        {
+            assertEquals(0., selector.select(pop).getFitness(), 0.);
+            Individual[] out = new Individual[2];
+            selector.selectMany(pop, 2, out);
+            assertEquals(0., out[0].getFitness(), 0.);
+            assertEquals(0., out[1].getFitness(), 0.);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/* %%
+ *
+ * JEvolve
+ *
+ * Copyright 2011 Jeff Ridder
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ridderware.jevolve;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests the background statistics writer.
+ *
+ * @author Jeff Ridder
+ */
+public class StatisticsWriterTest
+{
+    @Test
+    public void testLinesAreWrittenInOrder()
+        throws IOException
+    {
+        File file = File.createTempFile("stats", ".txt");
+        file.deleteOnExit();
+
+        StatisticsWriter writer = new StatisticsWriter(4);
+        writer.writeLine(file, false, "0");
+        for (int i = 1; i < 1000; i++)
+        {
+            writer.writeLine(file, true, Integer.toString(i));
+        }
+        writer.flush();
+
+        List<String> lines = Files.readAllLines(file.toPath(),
+            StandardCharsets.UTF_8);
+        assertEquals(1000, lines.size());
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(Integer.toString(i), lines.get(i));
+        }
+        writer.close();
+    }
+
+    @Test
+    public void testNoLineIsLostWhenClosedWhileWriting()
+        throws Exception
+    {
+        final int num_threads = 4;
+        final int num_lines = 2000;
+        final File[] files = new File[num_threads];
+        for (int t = 0; t < num_threads; t++)
+        {
+            files[t] = File.createTempFile("stats", ".txt");
+            files[t].deleteOnExit();
+        }
+
+        //  A tiny queue, so producers are often blocked when close is called.
+        final StatisticsWriter writer = new StatisticsWriter(2);
+        Thread[] producers = new Thread[num_threads];
+        for (int t = 0; t < num_threads; t++)
+        {
+            final File file = files[t];
+            producers[t] = new Thread(new Runnable()
+            {
+                public void run()
+                {
+                    writer.writeLine(file, false, "0");
+                    for (int i = 1; i < num_lines; i++)
+                    {
+                        writer.writeLine(file, true, Integer.toString(i));
+                    }
+                }
+            });
+            producers[t].start();
+        }
+
+        Thread.sleep(5);
+        writer.close();
+
+        for (Thread producer : producers)
+        {
+            producer.join(60000);
+            assertFalse("producer is blocked", producer.isAlive());
+        }
+
+        for (File file : files)
+        {
+            List<String> lines = Files.readAllLines(file.toPath(),
+                StandardCharsets.UTF_8);
+            assertEquals(num_lines, lines.size());
+            for (int i = 0; i < num_lines; i++)
+            {
+                assertEquals(Integer.toString(i), lines.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testClosedFilesAreReleasedAndReopened()
+        throws IOException
+    {
+        File file = File.createTempFile("stats", ".txt");
+        file.deleteOnExit();
+
+        StatisticsWriter writer = new StatisticsWriter(16);
+        writer.writeLine(file, false, "a");
+        writer.writeLine(file, true, "b");
+        writer.flush();
+        assertEquals(1, writer.getNumOpenFiles());
+
+        writer.closeFile(file);
+        writer.flush();
+        assertEquals(0, writer.getNumOpenFiles());
+
+        //  Later lines open the file again and append to it.
+        writer.writeLine(file, true, "c");
+        writer.closeFile(file);
+        writer.flush();
+        assertEquals(0, writer.getNumOpenFiles());
+        assertEquals(Arrays.asList("a", "b", "c"),
+            Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        writer.close();
+    }
+
+    @Test
+    public void testFailedWritesAreReported()
+        throws IOException
+    {
+        //  A directory cannot be opened for writing.
+        File dir = Files.createTempDirectory("stats").toFile();
+        dir.deleteOnExit();
+        File file = File.createTempFile("stats", ".txt");
+        file.deleteOnExit();
+
+        StatisticsWriter writer = new StatisticsWriter(16);
+        Statistics stats = new Statistics(dir);
+        stats.setWriter(writer);
+        //  The line is written in the background, so its own failure may or
+        //  may not be reported yet; later calls report it.
+        stats.string2file(false, "line", dir);
+        stats.flush();
+        assertTrue(writer.hasFailed(dir));
+        assertTrue(stats.string2file(true, "line", dir));
+        assertTrue(stats.string2file(true, "line", null));
+
+        assertFalse(stats.string2file(false, "line", file));
+        stats.flush();
+        assertFalse(writer.hasFailed(file));
+        assertFalse(stats.string2file(true, "line", file));
+        writer.close();
+    }
+
+    @Test
+    public void testRunClosesItsStatisticsFile()
+        throws IOException
+    {
+        File file = File.createTempFile("stats", ".txt");
+        file.deleteOnExit();
+
+        StatisticsWriter writer = new StatisticsWriter(16);
+        Statistics stats = new Statistics(file);
+        stats.setWriter(writer);
+
+        Stepper stepper = BreederTest.createRun(1, 5);
+        stepper.getProblems().get(0).setStatistics(stats);
+        stepper.evolve();
+
+        assertEquals(0, writer.getNumOpenFiles());
+        assertEquals(6, Files.readAllLines(file.toPath(),
+            StandardCharsets.UTF_8).size());
+        writer.close();
+    }
+}